@@ -100,6 +100,20 @@ tasks.withType<Test> {
 
 tasks.test {
 	outputs.dir(project.extra["snippetsDir"]!!)
+	useJUnitPlatform {
+		excludeTags("benchmark")
+	}
+}
+
+tasks.register<Test>("benchmark") {
+	description = "Runs the benchmark tests, which are excluded from the default test task."
+	group = "verification"
+	testClassesDirs = sourceSets.test.get().output.classesDirs
+	classpath = sourceSets.test.get().runtimeClasspath
+	useJUnitPlatform {
+		includeTags("benchmark")
+	}
+	testLogging.showStandardStreams = true
 }
 
 tasks.asciidoctor {
@@ -0,0 +1,10 @@
+package uk.co.emcreations.energycoop.cache;
+
+public record CacheStats(String name, int size, int maxSize, long hits, long misses, long evictions,
+                         double hitRatio) {
+    public static CacheStats of(final String name, final int size, final int maxSize, final long hits,
+                                final long misses, final long evictions) {
+        long lookups = hits + misses;
+        return new CacheStats(name, size, maxSize, hits, misses, evictions, 0 == lookups ? 0 : (double) hits / lookups);
+    }
+}
@@ -0,0 +1,143 @@
+package uk.co.emcreations.energycoop.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A size-bounded cache which evicts the least recently accessed entry once full. Values are loaded outside the lock, so
+ * a slow load doesn't block lookups of other keys; a load which overlaps an invalidation is returned to its caller but
+ * not cached, so it can't reinstate data the invalidation was meant to remove.
+ * <p>
+ * By default each entry counts as one towards the maximum size; caches of values which vary widely in size can supply
+ * a weigher instead, in which case the size and maximum size are in the weigher's units. A value heavier than the
+ * whole cache is returned but never cached.
+ * <p>
+ * Subclasses whose values go out of date can override {@link #isExpired}; an expired entry is dropped when it is next
+ * looked up, counting as an eviction and a miss.
+ */
+public class LruCache<K, V> implements MonitoredCache {
+    private final String name;
+    private final int maxSize;
+    private final ToIntFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries;
+    private long size = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    public LruCache(final String name, final int maxSize) {
+        this(name, maxSize, value -> 1);
+    }
+
+    public LruCache(final String name, final int maxSize, final ToIntFunction<V> weigher) {
+        if (1 > maxSize) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+
+        this.name = name;
+        this.maxSize = maxSize;
+        this.weigher = weigher;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public V get(final K key, final Function<K, V> loader) {
+        long invalidationsBeforeLoad;
+        synchronized (this) {
+            V value = lookup(key);
+            if (null != value) {
+                return value;
+            }
+            invalidationsBeforeLoad = invalidations;
+        }
+
+        V value = loader.apply(key);
+        int weight = weigher.applyAsInt(value);
+
+        synchronized (this) {
+            if (invalidationsBeforeLoad == invalidations && weight <= maxSize) {
+                V previous = entries.put(key, value);
+                size += weight - (null == previous ? 0 : weigher.applyAsInt(previous));
+                evictToMaxSize();
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the cached value without loading one if it is missing.
+     */
+    public synchronized Optional<V> getIfPresent(final K key) {
+        return Optional.ofNullable(lookup(key));
+    }
+
+    public synchronized void put(final K key, final V value) {
+        int weight = weigher.applyAsInt(value);
+        if (weight > maxSize) {
+            return;
+        }
+        V previous = entries.put(key, value);
+        size += weight - (null == previous ? 0 : weigher.applyAsInt(previous));
+        evictToMaxSize();
+    }
+
+    public synchronized void invalidate(final K key) {
+        invalidations++;
+        V previous = entries.remove(key);
+        if (null != previous) {
+            size -= weigher.applyAsInt(previous);
+        }
+    }
+
+    public synchronized void invalidateIf(final Predicate<K> keyPredicate) {
+        invalidations++;
+        entries.entrySet().removeIf(entry -> {
+            if (keyPredicate.test(entry.getKey())) {
+                size -= weigher.applyAsInt(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    protected boolean isExpired(final V value) {
+        return false;
+    }
+
+    @Override
+    public synchronized CacheStats getStats() {
+        return CacheStats.of(name, (int) size, maxSize, hits, misses, evictions);
+    }
+
+    // Counts the hit or miss, dropping the entry if it has expired
+    private V lookup(final K key) {
+        V value = entries.get(key);
+        if (null != value && isExpired(value)) {
+            entries.remove(key);
+            size -= weigher.applyAsInt(value);
+            evictions++;
+            value = null;
+        }
+        if (null == value) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    // Entries iterate from least to most recently accessed, and the newest entry alone never exceeds the maximum
+    private void evictToMaxSize() {
+        Iterator<V> eldest = entries.values().iterator();
+        while (size > maxSize) {
+            size -= weigher.applyAsInt(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package uk.co.emcreations.energycoop.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uk.co.emcreations.energycoop.event.MemberOwnershipChangedEvent;
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * Holds each member's ownership history for a site as a timeline. Ownership rows are maintained outside this
+ * application, so nothing here sees them change: each entry expires after a fixed time to live, after which the member's
+ * history is loaded again. A change which must show sooner can be pushed through with a
+ * {@link MemberOwnershipChangedEvent}, published by the admin API, which drops the member's entry, or every entry for
+ * the site, straight away.
+ */
+@Slf4j
+@Component
+public class MemberOwnershipCache extends LruCache<MemberOwnershipCache.Key, MemberOwnershipCache.Entry> {
+    private final Duration timeToLive;
+
+    public MemberOwnershipCache(@Value("${cache.member-ownership.max-size:10000}") final int maxSize,
+                                @Value("${cache.member-ownership.time-to-live:PT15M}") final Duration timeToLive) {
+        super("memberOwnership", maxSize);
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the cached timeline for the key, loading it if there is none or it has expired.
+     */
+    public EffectiveDateTimeline get(final Key key, final Supplier<EffectiveDateTimeline> loader) {
+        return get(key, k -> new Entry(loader.get(), Instant.now().plus(timeToLive))).timeline();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberOwnershipChanged(final MemberOwnershipChangedEvent event) {
+        if (null == event.userId()) {
+            log.info("Ownership changed on site {}, invalidating every cached timeline for the site", event.site());
+
+            invalidateIf(key -> key.site() == event.site());
+            return;
+        }
+
+        log.debug("Ownership changed for member {} on site {}, invalidating cached timeline", event.userId(),
+                event.site());
+
+        invalidate(new Key(event.userId(), event.site()));
+    }
+
+    @Override
+    protected boolean isExpired(final Entry entry) {
+        return !Instant.now().isBefore(entry.expiresAt());
+    }
+
+    public record Key(String userId, Site site) {
+    }
+
+    public record Entry(EffectiveDateTimeline timeline, Instant expiresAt) {
+    }
+}
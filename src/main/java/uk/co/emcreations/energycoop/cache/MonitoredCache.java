@@ -0,0 +1,8 @@
+package uk.co.emcreations.energycoop.cache;
+
+/**
+ * Implemented by in-memory caches whose statistics are reported through the admin API.
+ */
+public interface MonitoredCache {
+    CacheStats getStats();
+}
@@ -0,0 +1,79 @@
+package uk.co.emcreations.energycoop.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Merges concurrent identical calls: while a call for a key is in flight, further callers with the same key wait for
+ * and share its result, or its exception, instead of making the call again. Nothing is kept once the call finishes, so
+ * a caller arriving afterwards makes a fresh call.
+ * <p>
+ * Reported alongside the caches, with calls shared with an in-flight caller counted as hits, calls actually made
+ * counted as misses and the size being the number of calls in flight.
+ */
+public class SingleFlight<K> implements MonitoredCache {
+    private final String name;
+    private final ConcurrentMap<K, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Makes the call, or waits for the identical call already in flight. Calls sharing a key must return the same type.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(final K key, final Supplier<V> call) {
+        var flight = new CompletableFuture<Object>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (null != existing) {
+            coalesced.increment();
+            return (V) await(existing);
+        }
+
+        calls.increment();
+        try {
+            V value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getCoalescedCalls() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return CacheStats.of(name, inFlight.size(), 0, coalesced.sum(), calls.sum(), 0);
+    }
+
+    private static Object await(final CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
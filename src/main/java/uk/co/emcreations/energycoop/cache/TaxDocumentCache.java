@@ -0,0 +1,16 @@
+package uk.co.emcreations.energycoop.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds rendered tax documents keyed by a hash of everything that goes into them, bounded by the total size of the
+ * documents in bytes. A change to any input produces a new key, so entries are never invalidated and superseded
+ * documents simply age out.
+ */
+@Component
+public class TaxDocumentCache extends LruCache<String, byte[]> {
+    public TaxDocumentCache(@Value("${cache.tax-documents.max-bytes:67108864}") final int maxBytes) {
+        super("taxDocuments", maxBytes, content -> content.length);
+    }
+}
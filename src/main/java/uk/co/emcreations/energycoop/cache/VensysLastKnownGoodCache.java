@@ -0,0 +1,15 @@
+package uk.co.emcreations.energycoop.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the last good Vensys API response for each endpoint and period, never expiring, so it can be served marked as
+ * stale while the API is unavailable.
+ */
+@Component
+public class VensysLastKnownGoodCache extends LruCache<VensysRequestCoalescer.Request, Object> {
+    public VensysLastKnownGoodCache(@Value("${cache.vensys-last-known-good.max-size:512}") final int maxSize) {
+        super("vensysLastKnownGood", maxSize);
+    }
+}
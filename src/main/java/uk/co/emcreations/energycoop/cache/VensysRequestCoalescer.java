@@ -0,0 +1,23 @@
+package uk.co.emcreations.energycoop.cache;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Shares in-flight Vensys API calls between concurrent callers asking for the same endpoint and period, so a burst of
+ * dashboard requests costs one upstream call.
+ */
+@Component
+public class VensysRequestCoalescer extends SingleFlight<VensysRequestCoalescer.Request> {
+    public VensysRequestCoalescer() {
+        super("vensysInFlight");
+    }
+
+    /**
+     * An upstream call; the period is zero for endpoints which take none.
+     */
+    public record Request(String endpoint, long from, long to) {
+        public static Request of(final String endpoint) {
+            return new Request(endpoint, 0, 0);
+        }
+    }
+}
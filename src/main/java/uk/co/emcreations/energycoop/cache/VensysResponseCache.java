@@ -0,0 +1,40 @@
+package uk.co.emcreations.energycoop.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Holds Vensys API responses keyed by endpoint and period. Each response is given its own expiry when it is loaded:
+ * settled past days never expire, while today's figures expire when they are next due to be refreshed upstream.
+ */
+@Component
+public class VensysResponseCache extends LruCache<VensysRequestCoalescer.Request, VensysResponseCache.Entry> {
+    public VensysResponseCache(@Value("${cache.vensys.max-size:2048}") final int maxSize) {
+        super("vensysResponses", maxSize);
+    }
+
+    /**
+     * Returns the cached response for the request, loading it if there is none or it has expired. The expiry function
+     * decides from the loaded response when it goes out of date, or returns null if it never does.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(final VensysRequestCoalescer.Request request, final Supplier<V> loader,
+                     final Function<V, Instant> expiry) {
+        return (V) get(request, key -> {
+            V response = loader.get();
+            return new Entry(response, expiry.apply(response));
+        }).response();
+    }
+
+    @Override
+    protected boolean isExpired(final Entry entry) {
+        return null != entry.expiresAt() && !Instant.now().isBefore(entry.expiresAt());
+    }
+
+    public record Entry(Object response, Instant expiresAt) {
+    }
+}
@@ -2,48 +2,76 @@ package uk.co.emcreations.energycoop.config;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import uk.co.emcreations.energycoop.dto.VensysMeanData;
 import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
 import uk.co.emcreations.energycoop.entity.GenerationStatEntry;
-import uk.co.emcreations.energycoop.entity.PerformanceStatEntry;
 import uk.co.emcreations.energycoop.model.Site;
+import uk.co.emcreations.energycoop.service.GenerationStatPartitionService;
 import uk.co.emcreations.energycoop.service.GraigFathaStatsService;
+import uk.co.emcreations.energycoop.service.PerformanceStatService;
+import uk.co.emcreations.energycoop.service.SiteSavingsLedgerService;
 import uk.co.emcreations.energycoop.util.EntityHelper;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
 
+/**
+ * Runs the scheduled polling and maintenance jobs. Upstream data is fetched with no transaction open, and only storing
+ * it runs in one, so a slow Vensys call never holds a connection.
+ */
 @Slf4j
 @Configuration
-@Transactional
 @EnableScheduling
-@RequiredArgsConstructor
 @Profile("!dev")
 public class SchedulerConfig {
     @PersistenceContext
     private final EntityManager entityManager;
 
-    @Autowired
     private final GraigFathaStatsService graigFathaStatsService;
 
+    private final SiteSavingsLedgerService siteSavingsLedgerService;
+
+    private final PerformanceStatService performanceStatService;
+
+    private final GenerationStatPartitionService generationStatPartitionService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public SchedulerConfig(final EntityManager entityManager, final GraigFathaStatsService graigFathaStatsService,
+                           final SiteSavingsLedgerService siteSavingsLedgerService,
+                           final PerformanceStatService performanceStatService,
+                           final GenerationStatPartitionService generationStatPartitionService,
+                           final PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.graigFathaStatsService = graigFathaStatsService;
+        this.siteSavingsLedgerService = siteSavingsLedgerService;
+        this.performanceStatService = performanceStatService;
+        this.generationStatPartitionService = generationStatPartitionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     @Scheduled(cron = "${scheduling.graig-fatha.schedule.energy-yield:15 */15 * * * *}")
     public void logEnergyYield() {
         log.info("logEnergyYield running..");
 
         Optional<VensysMeanData> energyYieldOpt = graigFathaStatsService.getMeanEnergyYield();
 
-        if (energyYieldOpt.isPresent()) {
+        if (energyYieldOpt.isPresent() && energyYieldOpt.get().stale()) {
+            log.warn("Only stale energy yield data available, not logging it.");
+        } else if (energyYieldOpt.isPresent()) {
             GenerationStatEntry statEntry = EntityHelper.createGenerationStatEntry(energyYieldOpt.get(), GRAIG_FATHA);
-            entityManager.persist(statEntry);
+            transactionTemplate.executeWithoutResult(status -> entityManager.persist(statEntry));
 
             log.info("Response = {}", energyYieldOpt.get());
         } else {
@@ -57,9 +85,25 @@ public class SchedulerConfig {
 
         VensysPerformanceData performanceData = graigFathaStatsService.getYesterdayPerformance();
 
-        PerformanceStatEntry statEntry = EntityHelper.createPerformanceStatEntry(performanceData, Site.GRAIG_FATHA);
-        entityManager.persist(statEntry);
+        // Each run overwrites yesterday's entry rather than adding another one
+        if (null != performanceData.date()) {
+            LocalDate day = performanceData.date().toLocalDate();
+            transactionTemplate.executeWithoutResult(status -> {
+                performanceStatService.recordDays(Site.GRAIG_FATHA, Map.of(day, performanceData));
+                siteSavingsLedgerService.recordDay(Site.GRAIG_FATHA, day, performanceData.energyYield());
+            });
+        }
 
         log.info("Response = {}", performanceData);
     }
+
+    @Scheduled(cron = "${partitioning.generation-stats.schedule:0 30 2 * * *}")
+    public void maintainGenerationPartitions() {
+        log.info("maintainGenerationPartitions running..");
+
+        generationStatPartitionService.createPartitions();
+        List<String> removed = generationStatPartitionService.applyRetention();
+
+        log.info("Generation stats partitions are up to date, {} removed by retention", removed.size());
+    }
 }
@@ -3,18 +3,42 @@ package uk.co.emcreations.energycoop.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import uk.co.emcreations.energycoop.cache.CacheStats;
+import uk.co.emcreations.energycoop.cache.MonitoredCache;
+import uk.co.emcreations.energycoop.dto.BackfillJobStatus;
+import uk.co.emcreations.energycoop.dto.JobStatus;
 import uk.co.emcreations.energycoop.dto.SavingsRateUpdate;
 import uk.co.emcreations.energycoop.entity.Alert;
+import uk.co.emcreations.energycoop.entity.MemberStatement;
 import uk.co.emcreations.energycoop.entity.SavingsRate;
 import uk.co.emcreations.energycoop.model.Site;
 import uk.co.emcreations.energycoop.security.HasAlertsRead;
+import uk.co.emcreations.energycoop.security.HasAnnualStatementsRun;
+import uk.co.emcreations.energycoop.security.HasBackfillRun;
+import uk.co.emcreations.energycoop.security.HasCacheStatsRead;
+import uk.co.emcreations.energycoop.security.HasMemberOwnershipReload;
 import uk.co.emcreations.energycoop.security.HasSavingsRateSet;
+import uk.co.emcreations.energycoop.security.HasTaxDocumentExport;
 import uk.co.emcreations.energycoop.service.AlertService;
+import uk.co.emcreations.energycoop.service.AnnualStatementService;
+import uk.co.emcreations.energycoop.service.MemberOwnershipService;
+import uk.co.emcreations.energycoop.service.PerformanceBackfillJobService;
 import uk.co.emcreations.energycoop.service.SavingsRateService;
+import uk.co.emcreations.energycoop.service.TaxDocumentExportService;
 import uk.co.emcreations.energycoop.util.PrincipalHelper;
 
 import java.security.Principal;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -24,6 +48,11 @@ import java.util.List;
 public class AdminController {
     private final SavingsRateService savingsRateService;
     private final AlertService alertService;
+    private final List<MonitoredCache> caches;
+    private final AnnualStatementService annualStatementService;
+    private final TaxDocumentExportService taxDocumentExportService;
+    private final PerformanceBackfillJobService performanceBackfillJobService;
+    private final MemberOwnershipService memberOwnershipService;
 
     @HasSavingsRateSet
     @PostMapping(name = "Set savings rate", value = "/savings-rate")
@@ -41,4 +70,131 @@ public class AdminController {
     public List<Alert> getAlerts(@PathVariable final Site site) {
         return alertService.getLatestAlerts(site);
     }
+
+    @HasCacheStatsRead
+    @GetMapping(name = "Get cache statistics", value = "/cache-stats")
+    @Operation(summary = "Get cache statistics", description = "Gets size, hit, miss and eviction counts for each in-memory cache.")
+    public List<CacheStats> getCacheStats() {
+        return caches.stream().map(MonitoredCache::getStats).toList();
+    }
+
+    @HasMemberOwnershipReload
+    @PostMapping(name = "Reload member ownership", value = "/member-ownership/{site}/reload")
+    @Operation(summary = "Reload member ownership",
+            description = "Drops cached ownership for a member, or for every member of the site if none is given, after ownership records have been changed.")
+    public ResponseEntity<Void> reloadMemberOwnership(@PathVariable final Site site,
+                                                      @RequestParam(required = false) final String userId) {
+        memberOwnershipService.reloadOwnership(site, userId);
+
+        return ResponseEntity.noContent().build();
+    }
+
+    @HasAnnualStatementsRun
+    @PostMapping(name = "Start annual statement run", value = "/annual-statements/{from}/{to}")
+    @Operation(summary = "Start annual statement run",
+            description = "Starts calculating every member's savings and tax figures for the period in the background.")
+    public ResponseEntity<JobStatus> startAnnualStatements(
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from,
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to) {
+        try {
+            return ResponseEntity.accepted().body(annualStatementService.startStatementRun(from, to));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    @HasAnnualStatementsRun
+    @GetMapping(name = "Get annual statement run status", value = "/annual-statements/status")
+    @Operation(summary = "Get annual statement run status", description = "Gets the progress of the latest annual statement run.")
+    public ResponseEntity<JobStatus> getAnnualStatementsStatus() {
+        return ResponseEntity.of(annualStatementService.getStatementRunStatus());
+    }
+
+    @HasAnnualStatementsRun
+    @GetMapping(name = "Get annual statements", value = "/annual-statements/{from}/{to}")
+    @Operation(summary = "Get annual statements", description = "Gets every member's statement for the period.")
+    public List<MemberStatement> getAnnualStatements(
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from,
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to) {
+        return annualStatementService.getStatements(from, to);
+    }
+
+    @HasTaxDocumentExport
+    @PostMapping(name = "Start tax document export", value = "/tax-documents/{from}/{to}")
+    @Operation(summary = "Start tax document export",
+            description = "Starts writing every member's tax document for the period into a zip archive in the background.")
+    public ResponseEntity<JobStatus> startTaxDocumentExport(
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from,
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to) {
+        try {
+            return ResponseEntity.accepted().body(taxDocumentExportService.startExport(from, to));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    @HasTaxDocumentExport
+    @GetMapping(name = "Get tax document export status", value = "/tax-documents/status")
+    @Operation(summary = "Get tax document export status", description = "Gets the progress of the latest tax document export.")
+    public ResponseEntity<JobStatus> getTaxDocumentExportStatus() {
+        return ResponseEntity.of(taxDocumentExportService.getExportStatus());
+    }
+
+    @HasTaxDocumentExport
+    @GetMapping(name = "Download tax document archive", value = "/tax-documents/{from}/{to}/archive")
+    @Operation(summary = "Download tax document archive", description = "Downloads the zip archive of tax documents for the period.")
+    public ResponseEntity<Resource> getTaxDocumentArchive(
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from,
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to) {
+        return taxDocumentExportService.getExportArchive(from, to)
+                .map(archive -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("application/zip"))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                .filename(archive.getFileName().toString()).build().toString())
+                        .<Resource>body(new FileSystemResource(archive)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @HasBackfillRun
+    @PostMapping(name = "Start performance backfill", value = "/backfills/{from}/{to}")
+    @Operation(summary = "Start performance backfill",
+            description = "Queues a job fetching and storing performance data for the period in checkpointed chunks.")
+    public ResponseEntity<BackfillJobStatus> startBackfill(
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from,
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to) {
+        try {
+            return ResponseEntity.accepted().body(performanceBackfillJobService.submit(from, to));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @HasBackfillRun
+    @PostMapping(name = "Resume performance backfill", value = "/backfills/{id}/resume")
+    @Operation(summary = "Resume performance backfill", description = "Queues a failed backfill to carry on from its checkpoint.")
+    public ResponseEntity<BackfillJobStatus> resumeBackfill(@PathVariable final long id) {
+        try {
+            return ResponseEntity.of(performanceBackfillJobService.resume(id));
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    @HasBackfillRun
+    @GetMapping(name = "Get performance backfills", value = "/backfills")
+    @Operation(summary = "Get performance backfills", description = "Gets the progress and throughput of the latest backfills.")
+    public List<BackfillJobStatus> getBackfills() {
+        return performanceBackfillJobService.getJobs();
+    }
+
+    @HasBackfillRun
+    @GetMapping(name = "Get performance backfill", value = "/backfills/{id}")
+    @Operation(summary = "Get performance backfill", description = "Gets the progress and throughput of a backfill.")
+    public ResponseEntity<BackfillJobStatus> getBackfill(@PathVariable final long id) {
+        return ResponseEntity.of(performanceBackfillJobService.getJob(id));
+    }
 }
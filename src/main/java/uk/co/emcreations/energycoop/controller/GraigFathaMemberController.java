@@ -3,28 +3,52 @@ package uk.co.emcreations.energycoop.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ContentDisposition;
+import org.springframework.http.ETag;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import uk.co.emcreations.energycoop.dto.EnergySaving;
+import uk.co.emcreations.energycoop.dto.TaxDocumentJobStatus;
+import uk.co.emcreations.energycoop.model.JobState;
+import uk.co.emcreations.energycoop.model.SavingsGranularity;
 import uk.co.emcreations.energycoop.model.Site;
+import uk.co.emcreations.energycoop.model.SiteDataVersion;
 import uk.co.emcreations.energycoop.security.HasGraigFathaStatsRead;
 import uk.co.emcreations.energycoop.security.HasTaxDocumentRead;
 import uk.co.emcreations.energycoop.service.GraigFathaMemberService;
+import uk.co.emcreations.energycoop.service.LiveGenerationStreamService;
+import uk.co.emcreations.energycoop.service.MemberOwnershipService;
+import uk.co.emcreations.energycoop.service.SavingsStreamService;
+import uk.co.emcreations.energycoop.service.SiteDataVersionService;
+import uk.co.emcreations.energycoop.service.TaxDocumentJobService;
+import uk.co.emcreations.energycoop.util.HttpCacheHelper;
 import uk.co.emcreations.energycoop.util.PrincipalHelper;
 
-import java.io.IOException;
-import java.net.URISyntaxException;
+import java.net.URI;
 import java.security.Principal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.EnumMap;
-import java.util.Set;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/v1/graigFatha/member")
@@ -32,44 +56,184 @@ import java.util.Set;
 @Tag(name = "Graig Fatha Membership", description = "Membership endpoints for the Graig Fatha wind farm")
 public class GraigFathaMemberController {
     private final GraigFathaMemberService graigFathaMemberService;
+    private final TaxDocumentJobService taxDocumentJobService;
+    private final SiteDataVersionService siteDataVersionService;
+    private final LiveGenerationStreamService liveGenerationStreamService;
+    private final SavingsStreamService savingsStreamService;
+    private final MemberOwnershipService memberOwnershipService;
+
+    @Value("${http.cache.settled-max-age:PT5M}")
+    Duration settledMaxAge;
 
     @HasGraigFathaStatsRead
     @GetMapping(name = "Today's Savings", value = "/todaySavings")
     @Operation(summary = "Today's Savings", description = "Returns this user's current savings today")
-    public EnergySaving getTodaySavings(final Principal principal) {
+    public EnergySaving getTodaySavings(final Principal principal, final ServletWebRequest request) {
+        final EnumMap<Site, Double> ownerships = PrincipalHelper.extractOwnershipsFromPrincipal(principal);
+        String userId =  PrincipalHelper.extractUserFromPrincipal(principal);
+        double ownership = ownerships.get(Site.GRAIG_FATHA);
+
+        SiteDataVersion version = siteDataVersionService.getVersion(Site.GRAIG_FATHA);
+        if (HttpCacheHelper.checkNotModified(request, version, CacheControl.noCache().cachePrivate(), userId,
+                ownership, LocalDate.now())) {
+            return null;
+        }
+
+        return graigFathaMemberService.getTodaySavings(ownership);
+    }
+
+    @HasGraigFathaStatsRead
+    @GetMapping(name = "Live generation", value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Live generation",
+            description = "Streams today's generation and this user's savings as server-sent events, one each time a new reading is stored")
+    public SseEmitter streamLiveGeneration(final Principal principal) {
         final EnumMap<Site, Double> ownerships = PrincipalHelper.extractOwnershipsFromPrincipal(principal);
 
-        return graigFathaMemberService.getTodaySavings(ownerships.get(Site.GRAIG_FATHA));
+        try {
+            return liveGenerationStreamService.subscribe(Site.GRAIG_FATHA, ownerships.get(Site.GRAIG_FATHA));
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many live connections, try again later", e);
+        }
     }
 
     @HasGraigFathaStatsRead
     @GetMapping(name = "Get savings between dates", value = "/savings/{from}/{to}")
-    @Operation(summary = "Get savings between dates", description = "Returns this user's savings between dates")
-    public Set<EnergySaving> getSavings(@PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from,
-                                        @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to,
-                                        final Principal principal) {
+    @Operation(summary = "Get savings between dates",
+            description = "Returns this user's savings between dates, one entry per day, week, month or year")
+    public Collection<EnergySaving> getSavings(@PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from,
+                                               @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to,
+                                               @RequestParam(defaultValue = "DAY") final SavingsGranularity granularity,
+                                               final Principal principal, final ServletWebRequest request) {
         final EnumMap<Site, Double> ownerships = PrincipalHelper.extractOwnershipsFromPrincipal(principal);
         String userId =  PrincipalHelper.extractUserFromPrincipal(principal);
+        double ownership = ownerships.get(Site.GRAIG_FATHA);
+
+        // Ranges reaching into the last day or two also depend on the date, as days are still being filled in. The
+        // member's ownership history is included as it is reloaded from outside without moving the site's version on.
+        LocalDate today = LocalDate.now();
+        SiteDataVersion version = siteDataVersionService.getVersion(Site.GRAIG_FATHA);
+        var ownershipHistory = memberOwnershipService.getMemberOwnershipTimeline(Site.GRAIG_FATHA, to, userId, ownership)
+                .segmentsBetween(from, to);
+        if (HttpCacheHelper.checkNotModified(request, version, HttpCacheHelper.forRange(to, today, settledMaxAge),
+                userId, ownership, ownershipHistory, from, to, granularity,
+                to.isBefore(today.minusDays(1)) ? "" : today)) {
+            return null;
+        }
+
+        if (SavingsGranularity.DAY == granularity) {
+            return graigFathaMemberService.getSavings(from, to, ownership, userId);
+        }
 
-        return graigFathaMemberService.getSavings(from, to, ownerships.get(Site.GRAIG_FATHA), userId);
+        return graigFathaMemberService.getSavings(from, to, ownership, userId, granularity);
+    }
+
+    @HasGraigFathaStatsRead
+    @GetMapping(name = "Stream savings between dates", value = "/savings/{from}/{to}",
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream savings between dates",
+            description = "Streams this user's savings between dates as newline-delimited JSON, one day per line in date order")
+    public ResponseBodyEmitter streamSavings(@PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from,
+                                             @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to,
+                                             final Principal principal) {
+        final EnumMap<Site, Double> ownerships = PrincipalHelper.extractOwnershipsFromPrincipal(principal);
+        String userId =  PrincipalHelper.extractUserFromPrincipal(principal);
+        double ownership = ownerships.get(Site.GRAIG_FATHA);
+
+        try {
+            return savingsStreamService.stream(from, to, ownership, userId);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many savings streams, try again later", e);
+        }
     }
 
     @HasTaxDocumentRead
     @GetMapping(name = "Generate tax document", value = "/tax-document/{from}/{to}")
     @Operation(summary = "Generate a tax document between dates", description = "Returns this user's tax document between dates")
-    public ResponseEntity<byte[]> generateTaxDocument(@PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from, @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to,
-                                                      final Principal principal) throws URISyntaxException, IOException {
+    public ResponseEntity<StreamingResponseBody> generateTaxDocument(@PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from, @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch,
+                                                      final Principal principal) {
         final EnumMap<Site, Double> ownerships = PrincipalHelper.extractOwnershipsFromPrincipal(principal);
         String userId =  PrincipalHelper.extractUserFromPrincipal(principal);
+        double ownership = ownerships.get(Site.GRAIG_FATHA);
+
+        Optional<String> eTag = graigFathaMemberService.getTaxDocumentETag(from, to, ownership, userId);
+        // A document only has an ETag once its whole range is in the ledger. The ETag is a hash of everything the
+        // document is made from, so after the short max-age clients revalidate and only refetch if any of it changed.
+        CacheControl cacheControl = eTag.isPresent() ? CacheControl.maxAge(settledMaxAge).cachePrivate()
+                : CacheControl.noStore();
+        if (eTag.isPresent() && matchesETag(ifNoneMatch, eTag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).cacheControl(cacheControl).build();
+        }
 
-        byte[] content = graigFathaMemberService.generateTaxDocument(from, to, ownerships.get(Site.GRAIG_FATHA), userId);
+        StreamingResponseBody content = os -> graigFathaMemberService.writeTaxDocument(from, to, ownership, userId, os);
 
         var headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDisposition(ContentDisposition.attachment().filename("TaxDocument.pdf").build());
+        eTag.ifPresent(headers::setETag);
 
         return ResponseEntity.ok()
                 .headers(headers)
+                .cacheControl(cacheControl)
                 .body(content);
     }
-}
\ No newline at end of file
+
+    @HasTaxDocumentRead
+    @PostMapping(name = "Submit tax document job", value = "/tax-document/{from}/{to}/jobs")
+    @Operation(summary = "Submit a tax document job",
+            description = "Queues this user's tax document between dates for rendering in the background")
+    public ResponseEntity<TaxDocumentJobStatus> submitTaxDocumentJob(@PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate from,
+                                                                     @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") final LocalDate to,
+                                                                     final Principal principal) {
+        final EnumMap<Site, Double> ownerships = PrincipalHelper.extractOwnershipsFromPrincipal(principal);
+        String userId =  PrincipalHelper.extractUserFromPrincipal(principal);
+
+        try {
+            TaxDocumentJobStatus job = taxDocumentJobService.submit(from, to, ownerships.get(Site.GRAIG_FATHA), userId);
+
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/v1/graigFatha/member/tax-document-jobs/" + job.id()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many tax documents queued, try again later", e);
+        }
+    }
+
+    @HasTaxDocumentRead
+    @GetMapping(name = "Get tax document job", value = "/tax-document-jobs/{jobId}")
+    @Operation(summary = "Get a tax document job", description = "Returns the status of one of this user's tax document jobs")
+    public ResponseEntity<TaxDocumentJobStatus> getTaxDocumentJob(@PathVariable final String jobId,
+                                                                  final Principal principal) {
+        String userId =  PrincipalHelper.extractUserFromPrincipal(principal);
+
+        return ResponseEntity.of(taxDocumentJobService.getStatus(jobId, userId));
+    }
+
+    @HasTaxDocumentRead
+    @GetMapping(name = "Download tax document job", value = "/tax-document-jobs/{jobId}/document")
+    @Operation(summary = "Download a tax document job's document",
+            description = "Returns the tax document rendered by one of this user's completed jobs")
+    public ResponseEntity<byte[]> getTaxDocumentJobDocument(@PathVariable final String jobId,
+                                                            final Principal principal) {
+        String userId =  PrincipalHelper.extractUserFromPrincipal(principal);
+
+        TaxDocumentJobStatus job = taxDocumentJobService.getStatus(jobId, userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (JobState.COMPLETED != job.state()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Tax document job is " + job.state());
+        }
+
+        return taxDocumentJobService.getDocument(jobId, userId)
+                .map(content -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_PDF)
+                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                ContentDisposition.attachment().filename("TaxDocument.pdf").build().toString())
+                        .body(content))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static boolean matchesETag(final String ifNoneMatch, final String eTag) {
+        return null != ifNoneMatch && ETag.parse(ifNoneMatch).stream()
+                .anyMatch(tag -> tag.isWildcard() || tag.tag().equals(eTag));
+    }
+}
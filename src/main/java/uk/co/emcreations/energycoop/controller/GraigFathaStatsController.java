@@ -8,7 +8,11 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -21,30 +25,47 @@ import uk.co.emcreations.energycoop.security.HasGraigFathaAPIRead;
 import uk.co.emcreations.energycoop.security.HasGraigFathaAPIStatsAdvanced;
 import uk.co.emcreations.energycoop.service.GraigFathaStatsService;
 import uk.co.emcreations.energycoop.util.EntityHelper;
+import uk.co.emcreations.energycoop.util.HttpCacheHelper;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZonedDateTime;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/graigFatha/stats")
 @Tag(name = "Graig Fatha Statistics", description = "Statistics for the Graig Fatha wind farm")
 public class GraigFathaStatsController {
+    private static final CronExpression MIDNIGHT = CronExpression.parse("@midnight");
+
     private final GraigFathaStatsService graigFathaStatsService;
 
+    @Value("${scheduling.graig-fatha.schedule.energy-yield:15 */15 * * * *}")
+    String energyYieldSchedule;
+
     @HasGraigFathaAPIRead
     @GetMapping(name = "Current energy yield", value = "/energyYield")
     @Operation(summary = "Current energy yield", description = "Returns today's current energy yield")
-    public VensysMeanData getEnergyYield() {
-        return graigFathaStatsService.getMeanEnergyYield().orElse(VensysMeanData.builder().build());
+    public ResponseEntity<VensysMeanData> getEnergyYield() {
+        // The yield only moves on when it's next polled, so clients can reuse it until then, unless it's stale
+        VensysMeanData energyYield = graigFathaStatsService.getMeanEnergyYield().orElse(VensysMeanData.builder().build());
+        return ResponseEntity.ok()
+                .cacheControl(energyYield.stale() ? CacheControl.noCache().cachePrivate()
+                        : HttpCacheHelper.untilNext(CronExpression.parse(energyYieldSchedule), ZonedDateTime.now()))
+                .body(energyYield);
     }
 
     @HasGraigFathaAPIRead
     @GetMapping(name = "Yesterday's performance", value = "/yesterdayPerformance")
     @Operation(summary = "Yesterday's performance", description = "Returns yesterday's performance")
-    public VensysPerformanceData getYesterdayPerformance() {
-        return graigFathaStatsService.getYesterdayPerformance();
+    public ResponseEntity<VensysPerformanceData> getYesterdayPerformance() {
+        // Yesterday is over, so its performance stands until yesterday becomes another day at midnight, unless it's stale
+        VensysPerformanceData performance = graigFathaStatsService.getYesterdayPerformance();
+        return ResponseEntity.ok()
+                .cacheControl(null != performance && performance.stale() ? CacheControl.noCache().cachePrivate()
+                        : HttpCacheHelper.untilNext(MIDNIGHT, ZonedDateTime.now()))
+                .body(performance);
     }
 
     @HasGraigFathaAPIStatsAdvanced
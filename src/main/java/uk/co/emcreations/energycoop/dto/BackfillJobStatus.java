@@ -0,0 +1,16 @@
+package uk.co.emcreations.energycoop.dto;
+
+import uk.co.emcreations.energycoop.model.JobState;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A backfill job's progress. Throughput is measured since the job last started or resumed in this instance, and is
+ * zero while it isn't running here.
+ */
+public record BackfillJobStatus(long id, Site site, LocalDate from, LocalDate to, JobState state, LocalDate checkpoint,
+                                long totalDays, long daysProcessed, long daysStored, double daysPerMinute,
+                                LocalDateTime createdAt, LocalDateTime updatedAt, LocalDateTime finishedAt,
+                                String error) {}
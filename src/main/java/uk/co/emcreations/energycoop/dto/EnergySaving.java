@@ -2,4 +2,13 @@ package uk.co.emcreations.energycoop.dto;
 
 import java.time.LocalDateTime;
 
-public record EnergySaving(double amount, String currency, double savingsRate, LocalDateTime from, LocalDateTime to) {}
+/**
+ * A member's savings over a period. An incomplete saving covers at least one day whose generation couldn't be fetched
+ * from Vensys, so it's short of that day's savings until the day is fetched.
+ */
+public record EnergySaving(double amount, String currency, double savingsRate, LocalDateTime from, LocalDateTime to,
+                           boolean incomplete) {
+    public EnergySaving(double amount, String currency, double savingsRate, LocalDateTime from, LocalDateTime to) {
+        this(amount, currency, savingsRate, from, to, false);
+    }
+}
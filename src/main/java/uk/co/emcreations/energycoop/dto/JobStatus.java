@@ -0,0 +1,8 @@
+package uk.co.emcreations.energycoop.dto;
+
+import uk.co.emcreations.energycoop.model.JobState;
+
+import java.time.LocalDateTime;
+
+public record JobStatus(String id, JobState state, long total, long processed, LocalDateTime startedAt,
+                        LocalDateTime finishedAt, String error) {}
@@ -0,0 +1,6 @@
+package uk.co.emcreations.energycoop.dto;
+
+import java.time.LocalDateTime;
+
+public record LiveGenerationUpdate(LocalDateTime timestamp, double kWhGenerated, double savingsRate,
+                                   double memberSavings) {}
@@ -0,0 +1,9 @@
+package uk.co.emcreations.energycoop.dto;
+
+public record SiteSavingsTotal(double kWhGenerated, double savings) {
+    public static final SiteSavingsTotal ZERO = new SiteSavingsTotal(0, 0);
+
+    public SiteSavingsTotal minus(final SiteSavingsTotal other) {
+        return new SiteSavingsTotal(kWhGenerated - other.kWhGenerated, savings - other.savings);
+    }
+}
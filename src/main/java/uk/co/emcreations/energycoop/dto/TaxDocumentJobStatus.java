@@ -0,0 +1,9 @@
+package uk.co.emcreations.energycoop.dto;
+
+import uk.co.emcreations.energycoop.model.JobState;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public record TaxDocumentJobStatus(String id, JobState state, LocalDate from, LocalDate to, LocalDateTime submittedAt,
+                                   LocalDateTime finishedAt, LocalDateTime expiresAt, String error) {}
@@ -0,0 +1,11 @@
+package uk.co.emcreations.energycoop.dto;
+
+public record TaxFigures(double totalSavings, double currentShares, double sharesWithdrawn, double capitalWithdrawn) {
+    public double carriedShares() {
+        return currentShares - sharesWithdrawn;
+    }
+
+    public double interestIncome() {
+        return totalSavings - capitalWithdrawn;
+    }
+}
@@ -4,6 +4,7 @@ import lombok.Builder;
 
 import java.time.LocalDate;
 
-@Builder
-public record VensysMeanData(String field, double value, String tid, LocalDate timestamp, String twinCatVersion) {
+@Builder(toBuilder = true)
+public record VensysMeanData(String field, double value, String tid, LocalDate timestamp, String twinCatVersion,
+                             boolean stale) {
 }
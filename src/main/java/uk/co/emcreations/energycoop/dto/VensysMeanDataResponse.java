@@ -4,6 +4,6 @@ import lombok.Builder;
 
 import java.time.LocalDate;
 
-@Builder
+@Builder(toBuilder = true)
 public record VensysMeanDataResponse(String code, boolean success, LocalDate from, LocalDate to, String processTime, String message, VensysMeanData data) {
 }
@@ -4,7 +4,7 @@ import lombok.Builder;
 
 import java.time.LocalDateTime;
 
-@Builder
+@Builder(toBuilder = true)
 public record VensysPerformanceData(String tid, LocalDateTime date,
                                     double availability,
                                     double energyYield,
@@ -18,5 +18,6 @@ public record VensysPerformanceData(String tid, LocalDateTime date,
                                     double lowWindTime,
                                     double errorTime, double serviceTime, double iceTime, double stormTime, double shadowTime,
                                     double twistTime, double gridFailureTime, double commFailureTime, double visitTime,
-                                    double serverStopTime, double fireTime, double batMonitoringTime, double nightShutdownTime) {
+                                    double serverStopTime, double fireTime, double batMonitoringTime, double nightShutdownTime,
+                                    boolean stale) {
 }
\ No newline at end of file
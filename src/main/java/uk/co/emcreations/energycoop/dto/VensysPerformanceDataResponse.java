@@ -5,7 +5,7 @@ import lombok.Builder;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
-@Builder
+@Builder(toBuilder = true)
 public record VensysPerformanceDataResponse(String code, boolean success, String from, String to, String processTime,
                                             String message, VensysPerformanceData[] data) {
 }
@@ -0,0 +1,67 @@
+package uk.co.emcreations.energycoop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+import uk.co.emcreations.energycoop.model.JobState;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A performance backfill over a range of days. The checkpoint is the last day whose chunk has been fully committed. A
+ * chunk's performance entries are imported and committed first, then its ledger days and the checkpoint are committed
+ * together, so a failure in between leaves entries stored past the checkpoint. A job picked up again after a restart
+ * carries on from the day after the checkpoint, fetching and storing that chunk again: each day is stored at least
+ * once, and storing it again is safe because entries and ledger days are both upserts, overwriting the day rather than
+ * adding to it. The day counts move with the checkpoint, so they count a re-run chunk once.
+ */
+@Entity
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+public class BackfillJob implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Site site;
+
+    @Column(nullable = false)
+    private LocalDate fromDate;
+
+    @Column(nullable = false)
+    private LocalDate toDate;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private JobState state;
+
+    private LocalDate checkpoint;
+
+    private long daysProcessed;
+
+    private long daysStored;
+
+    private LocalDateTime finishedAt;
+
+    @Column(length = 1000)
+    private String error;
+
+    public LocalDate getNextDay() {
+        return null == checkpoint ? fromDate : checkpoint.plusDays(1);
+    }
+}
@@ -0,0 +1,13 @@
+package uk.co.emcreations.energycoop.entity;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import uk.co.emcreations.energycoop.model.JobState;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BackfillJobRepository extends JpaRepository<BackfillJob, Long> {
+    List<BackfillJob> findAllByStateInOrderByIdAsc(final Collection<JobState> states);
+
+    List<BackfillJob> findTop20ByOrderByIdDesc();
+}
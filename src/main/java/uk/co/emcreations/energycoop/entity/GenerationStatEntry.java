@@ -10,9 +10,10 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
+@EntityListeners(GenerationStatEntryListener.class)
 public class GenerationStatEntry implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @CreationTimestamp
@@ -0,0 +1,19 @@
+package uk.co.emcreations.energycoop.entity;
+
+import jakarta.persistence.PostPersist;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import uk.co.emcreations.energycoop.event.GenerationRecordedEvent;
+
+@Component
+@RequiredArgsConstructor
+public class GenerationStatEntryListener {
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onPersist(final GenerationStatEntry generationStatEntry) {
+        eventPublisher.publishEvent(new GenerationRecordedEvent(generationStatEntry.getSite(),
+                generationStatEntry.getTimestamp(), generationStatEntry.getKWhGenerated()));
+    }
+}
@@ -0,0 +1,59 @@
+package uk.co.emcreations.energycoop.entity;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Moves each entity's id sequence past the ids already in its table. The ids used to come from identity columns, and
+ * the schema update creates the sequences which replaced them starting from one, so without this the first inserts
+ * would reuse existing ids. A sequence is only ever moved forwards, so once it's ahead of its table this does nothing.
+ * The tables and their sequences are read from the mapping, so every entity whose ids come from a sequence is covered.
+ * It runs once the entity manager factory has updated the schema, before anything can insert.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class IdSequenceAligner {
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void alignSequences() {
+        sequenceTables().forEach((table, sequence) -> {
+            List<Long> aligned = jdbcTemplate.queryForList("""
+                    select setval('%2$s', max_id) from (select max(id) as max_id from %1$s) ids
+                    where max_id >= (select last_value from %2$s)
+                    """.formatted(table, sequence), Long.class);
+            if (!aligned.isEmpty()) {
+                log.info("Moved id sequence for {} on to {}", table, aligned.getFirst());
+            }
+        });
+    }
+
+    /**
+     * Returns the sequence for each mapped table whose ids come from one, keyed by table.
+     */
+    Map<String, String> sequenceTables() {
+        Map<String, String> sequenceTables = new TreeMap<>();
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .forEachEntityDescriptor(entity -> {
+                    if (entity.getGenerator() instanceof SequenceStyleGenerator generator) {
+                        sequenceTables.put(entity.getIdentifierTableDetails().getTableName(),
+                                generator.getDatabaseStructure().getPhysicalName().render());
+                    }
+                });
+        return sequenceTables;
+    }
+}
@@ -11,9 +11,10 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
+@EntityListeners(MemberOwnershipListener.class)
 public class MemberOwnership implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @CreationTimestamp
@@ -0,0 +1,27 @@
+package uk.co.emcreations.energycoop.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import uk.co.emcreations.energycoop.event.MemberOwnershipChangedEvent;
+
+/**
+ * Publishes a change for ownership rows written through JPA. Nothing in the application writes them today; changes
+ * made outside it are only seen once the cached ownership expires or is reloaded through the admin API.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberOwnershipListener {
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(final MemberOwnership memberOwnership) {
+        eventPublisher.publishEvent(
+                new MemberOwnershipChangedEvent(memberOwnership.getUserId(), memberOwnership.getSite()));
+    }
+}
@@ -4,9 +4,15 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import uk.co.emcreations.energycoop.model.Site;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 public interface MemberOwnershipRepository extends JpaRepository<MemberOwnership, Long> {
     Optional<MemberOwnership> findTopByUserIdAndSiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(
             final String userId, final Site site, final LocalDate date);
+
+    List<MemberOwnership> findAllByUserIdAndSiteOrderByEffectiveDateAscIdAsc(final String userId, final Site site);
+
+    List<MemberOwnership> findAllBySiteAndEffectiveDateLessThanEqualOrderByUserIdAscEffectiveDateAscIdAsc(
+            final Site site, final LocalDate date);
 }
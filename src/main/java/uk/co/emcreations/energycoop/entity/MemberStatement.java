@@ -0,0 +1,63 @@
+package uk.co.emcreations.energycoop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A member's savings and tax figures for a statement period, written by the annual statement run.
+ */
+@Entity
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"site", "userId", "periodFrom", "periodTo"}))
+public class MemberStatement implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Site site;
+
+    @Column(nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private LocalDate periodFrom;
+
+    @Column(nullable = false)
+    private LocalDate periodTo;
+
+    @Column(nullable = false)
+    private double wattageOwnership;
+
+    @Column(nullable = false)
+    private double kWhGenerated;
+
+    @Column(nullable = false)
+    private double savings;
+
+    @Column(nullable = false)
+    private double currentShares;
+
+    @Column(nullable = false)
+    private double sharesWithdrawn;
+
+    @Column(nullable = false)
+    private double capitalWithdrawn;
+
+    @Column(nullable = false)
+    private double interestIncome;
+}
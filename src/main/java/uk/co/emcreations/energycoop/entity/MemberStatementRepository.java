@@ -0,0 +1,13 @@
+package uk.co.emcreations.energycoop.entity;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface MemberStatementRepository extends JpaRepository<MemberStatement, Long> {
+    List<MemberStatement> findAllBySiteAndPeriodFromAndPeriodToOrderByUserIdAsc(final Site site,
+                                                                              final LocalDate periodFrom,
+                                                                              final LocalDate periodTo);
+}
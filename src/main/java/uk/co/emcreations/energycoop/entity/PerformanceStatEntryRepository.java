@@ -1,11 +1,50 @@
 package uk.co.emcreations.energycoop.entity;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import uk.co.emcreations.energycoop.model.Site;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 public interface PerformanceStatEntryRepository extends JpaRepository<PerformanceStatEntry, Long> {
-    PerformanceStatEntry findFirstBySiteAndForDateBetweenOrderByTimestampDesc(
-            Site site, LocalDateTime start, LocalDateTime end);
+    String LOCK_SITE = "select 1 from pg_advisory_xact_lock(hashtext('performance_stat_entry'), :site)";
+
+    Optional<PerformanceStatEntry> findBySiteAndForDate(final Site site, final LocalDateTime forDate);
+
+    List<PerformanceStatEntry> findAllBySiteAndForDateBetweenOrderByForDateAsc(
+            final Site site, final LocalDateTime start, final LocalDateTime end);
+
+    /**
+     * Takes a lock on the site's entries which is held until the current transaction ends, so looking up and storing
+     * the same site's days run one after another. The site is given by its ordinal.
+     */
+    @Query(value = LOCK_SITE, nativeQuery = true)
+    int lockSite(final int site);
+
+    /**
+     * Deletes every entry which has a later-stored entry for the same site and day, leaving one row per day. Entries
+     * are matched on the date alone, as older rows were stored against whatever time the data carried.
+     */
+    @Modifying
+    @Query(value = """
+            delete from performance_stat_entry entry
+            where exists (select 1 from performance_stat_entry later
+                          where later.site = entry.site and cast(later.for_date as date) = cast(entry.for_date as date)
+                            and later.id > entry.id)
+            """, nativeQuery = true)
+    int deleteSupersededEntries();
+
+    /**
+     * Moves every entry stored against a time other than midnight to the start of its day, where the unique key on
+     * (site, forDate) applies. Run once there is only one row per day.
+     */
+    @Modifying
+    @Query(value = """
+            update performance_stat_entry set for_date = date_trunc('day', for_date)
+            where for_date <> date_trunc('day', for_date)
+            """, nativeQuery = true)
+    int normaliseForDates();
 }
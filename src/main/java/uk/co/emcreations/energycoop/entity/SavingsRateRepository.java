@@ -4,6 +4,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import uk.co.emcreations.energycoop.model.Site;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 public interface SavingsRateRepository extends JpaRepository<SavingsRate, Long> {
@@ -11,4 +12,6 @@ public interface SavingsRateRepository extends JpaRepository<SavingsRate, Long>
             final Site site, final LocalDate date);
 
     Optional<SavingsRate> findBySiteAndEffectiveDate(final Site site, final LocalDate date);
+
+    List<SavingsRate> findAllBySiteOrderByEffectiveDateAsc(final Site site);
 }
@@ -0,0 +1,55 @@
+package uk.co.emcreations.energycoop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One row per site per completed day holding the final generation for the day, the savings rate applied to it and the
+ * resulting site-wide savings. Member savings are this row's savings multiplied by the member's ownership share.
+ * <p>
+ * The cumulative columns hold running totals over every ledger row for the site up to and including this day, so the
+ * total for any range is the difference between two rows.
+ */
+@Entity
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"site", "forDate"}))
+public class SiteSavingsLedgerEntry implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Site site;
+
+    @Column(nullable = false)
+    private LocalDate forDate;
+
+    @Column(nullable = false)
+    private double kWhGenerated;
+
+    @Column(nullable = false)
+    private double savingsRate;
+
+    @Column(nullable = false)
+    private double savings;
+
+    @Column(nullable = false)
+    private double cumulativeKWhGenerated;
+
+    @Column(nullable = false)
+    private double cumulativeSavings;
+}
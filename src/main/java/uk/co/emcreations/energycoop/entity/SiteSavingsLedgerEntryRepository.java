@@ -0,0 +1,30 @@
+package uk.co.emcreations.energycoop.entity;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface SiteSavingsLedgerEntryRepository extends JpaRepository<SiteSavingsLedgerEntry, Long> {
+    List<SiteSavingsLedgerEntry> findAllBySiteAndForDateBetweenOrderByForDateAsc(
+            final Site site, final LocalDate from, final LocalDate to);
+
+    List<SiteSavingsLedgerEntry> findAllBySiteAndForDateGreaterThanEqualOrderByForDateAsc(
+            final Site site, final LocalDate from);
+
+    Optional<SiteSavingsLedgerEntry> findTopBySiteAndForDateLessThanEqualOrderByForDateDesc(
+            final Site site, final LocalDate date);
+
+    long countBySiteAndForDateBetween(final Site site, final LocalDate from, final LocalDate to);
+
+    /**
+     * Waits for, then takes, a lock on the site's ledger which is held until the transaction ends, so writers of the
+     * same site's rows run one after another. The site is given by its ordinal.
+     */
+    @Query(value = "select 1 from pg_advisory_xact_lock(hashtext('site_savings_ledger_entry'), :site)",
+            nativeQuery = true)
+    int lockSite(final int site);
+}
@@ -0,0 +1,12 @@
+package uk.co.emcreations.energycoop.event;
+
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a reading of a site's generation so far today is stored, so the live view of the site can be updated
+ * without going back to the database.
+ */
+public record GenerationRecordedEvent(Site site, LocalDateTime timestamp, double kWhGenerated) {
+}
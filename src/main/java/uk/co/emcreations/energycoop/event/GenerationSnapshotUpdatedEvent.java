@@ -0,0 +1,9 @@
+package uk.co.emcreations.energycoop.event;
+
+import uk.co.emcreations.energycoop.model.GenerationSnapshot;
+
+/**
+ * Published when a site's live generation snapshot changes, either with a new reading or a new savings rate.
+ */
+public record GenerationSnapshotUpdatedEvent(GenerationSnapshot snapshot) {
+}
@@ -0,0 +1,13 @@
+package uk.co.emcreations.energycoop.event;
+
+import uk.co.emcreations.energycoop.model.Site;
+
+/**
+ * Published when a member's ownership is known to have changed, so cached ownership for the member can be dropped. A
+ * null user means ownership may have changed for any member of the site.
+ * <p>
+ * Ownership rows are maintained outside this application, so the event is mostly published through the admin API once
+ * they have been updated; rows written through JPA publish it too, from {@code MemberOwnershipListener}.
+ */
+public record MemberOwnershipChangedEvent(String userId, Site site) {
+}
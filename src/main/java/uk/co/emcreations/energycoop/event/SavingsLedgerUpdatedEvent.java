@@ -0,0 +1,11 @@
+package uk.co.emcreations.energycoop.event;
+
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.time.LocalDate;
+
+/**
+ * Published when days are added to or changed in a site's savings ledger, from the given date onwards.
+ */
+public record SavingsLedgerUpdatedEvent(Site site, LocalDate from) {
+}
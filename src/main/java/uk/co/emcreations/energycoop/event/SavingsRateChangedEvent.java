@@ -0,0 +1,12 @@
+package uk.co.emcreations.energycoop.event;
+
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.time.LocalDate;
+
+/**
+ * Published after a savings rate is created or updated, so anything derived from the rates from that date onwards can
+ * be refreshed.
+ */
+public record SavingsRateChangedEvent(Site site, LocalDate effectiveDate) {
+}
@@ -0,0 +1,15 @@
+package uk.co.emcreations.energycoop.model;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The generation backfilled for each day that performance data was available for, and the days whose fetch failed,
+ * which are left unstored so they can be tried again.
+ */
+public record BackfillResult(Map<LocalDate, Double> generationByDay, List<LocalDate> failedDays) {
+    public static BackfillResult empty() {
+        return new BackfillResult(Map.of(), List.of());
+    }
+}
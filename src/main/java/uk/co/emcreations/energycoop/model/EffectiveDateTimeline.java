@@ -0,0 +1,124 @@
+package uk.co.emcreations.energycoop.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * An immutable step function of values keyed by effective date, such as savings rates or member ownership. The value
+ * for a date is the value of the latest segment whose effective date is on or before it, or the base value if the date
+ * precedes every segment.
+ */
+public final class EffectiveDateTimeline {
+    private final LocalDate[] effectiveDates;
+    private final double[] values;
+    private final double baseValue;
+
+    private EffectiveDateTimeline(final LocalDate[] effectiveDates, final double[] values, final double baseValue) {
+        this.effectiveDates = effectiveDates;
+        this.values = values;
+        this.baseValue = baseValue;
+    }
+
+    public static EffectiveDateTimeline constant(final double value) {
+        return new EffectiveDateTimeline(new LocalDate[0], new double[0], value);
+    }
+
+    /**
+     * Builds a timeline from entries sorted by ascending effective date. Where several entries share an effective date
+     * the last one wins.
+     */
+    public static <T> EffectiveDateTimeline of(final List<T> sortedEntries, final Function<T, LocalDate> effectiveDate,
+                                               final ToDoubleFunction<T> value, final double baseValue) {
+        var dates = new LocalDate[sortedEntries.size()];
+        var vals = new double[sortedEntries.size()];
+        int size = 0;
+
+        for (T entry : sortedEntries) {
+            LocalDate date = effectiveDate.apply(entry);
+            if (0 < size && dates[size - 1].isAfter(date)) {
+                throw new IllegalArgumentException("Timeline entries must be sorted by effective date");
+            }
+            if (0 < size && dates[size - 1].equals(date)) {
+                size--;
+            }
+            dates[size] = date;
+            vals[size] = value.applyAsDouble(entry);
+            size++;
+        }
+
+        return new EffectiveDateTimeline(Arrays.copyOf(dates, size), Arrays.copyOf(vals, size), baseValue);
+    }
+
+    /**
+     * Returns a timeline with the same segments but a different base value, sharing this timeline's storage.
+     */
+    public EffectiveDateTimeline withBaseValue(final double baseValue) {
+        return new EffectiveDateTimeline(effectiveDates, values, baseValue);
+    }
+
+    public double valueAt(final LocalDate date) {
+        int index = Arrays.binarySearch(effectiveDates, date);
+        if (0 > index) {
+            index = -index - 2; // insertion point minus one is the floor entry
+        }
+        return 0 > index ? baseValue : values[index];
+    }
+
+    /**
+     * Splits the inclusive range into consecutive segments over which the value is constant.
+     */
+    public List<Segment> segmentsBetween(final LocalDate from, final LocalDate to) {
+        List<Segment> segments = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return segments;
+        }
+
+        int index = Arrays.binarySearch(effectiveDates, from);
+        index = 0 > index ? -index - 1 : index + 1; // first entry strictly after the start of the range
+
+        LocalDate segmentStart = from;
+        double value = valueAt(from);
+        while (index < effectiveDates.length && !effectiveDates[index].isAfter(to)) {
+            segments.add(new Segment(segmentStart, effectiveDates[index].minusDays(1), value));
+            segmentStart = effectiveDates[index];
+            value = values[index];
+            index++;
+        }
+        segments.add(new Segment(segmentStart, to, value));
+
+        return segments;
+    }
+
+    /**
+     * Returns a cursor for walking forwards through the timeline one date at a time without repeating the search.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public record Segment(LocalDate from, LocalDate to, double value) {
+    }
+
+    public final class Cursor {
+        private int next = 0;
+        private double current = baseValue;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves the cursor to the given date, which must not be before any date previously passed to this cursor.
+         */
+        public double advanceTo(final LocalDate date) {
+            while (next < effectiveDates.length && !effectiveDates[next].isAfter(date)) {
+                current = values[next];
+                next++;
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package uk.co.emcreations.energycoop.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A site's latest reading of its generation so far on the reading's day, with the savings rate in effect that day.
+ */
+public record GenerationSnapshot(Site site, LocalDateTime timestamp, double kWhGenerated, double savingsRate) {
+    public LocalDate day() {
+        return timestamp.toLocalDate();
+    }
+
+    public GenerationSnapshot withSavingsRate(final double newSavingsRate) {
+        return new GenerationSnapshot(site, timestamp, kWhGenerated, newSavingsRate);
+    }
+}
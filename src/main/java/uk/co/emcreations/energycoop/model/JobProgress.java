@@ -0,0 +1,53 @@
+package uk.co.emcreations.energycoop.model;
+
+import uk.co.emcreations.energycoop.dto.JobStatus;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks a background job's progress so it can be reported while the job runs on another thread.
+ */
+public final class JobProgress {
+    private final String id;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private volatile JobState state = JobState.RUNNING;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    public JobProgress(final String id) {
+        this.id = id;
+    }
+
+    public void setTotal(final long total) {
+        this.total.set(total);
+    }
+
+    public void increment() {
+        processed.incrementAndGet();
+    }
+
+    public void complete() {
+        finish(JobState.COMPLETED, null);
+    }
+
+    public void fail(final Throwable cause) {
+        finish(JobState.FAILED, cause.getMessage());
+    }
+
+    public boolean isRunning() {
+        return JobState.RUNNING == state;
+    }
+
+    public JobStatus getStatus() {
+        return new JobStatus(id, state, total.get(), processed.get(), startedAt, finishedAt, error);
+    }
+
+    private void finish(final JobState finalState, final String errorMessage) {
+        error = errorMessage;
+        finishedAt = LocalDateTime.now();
+        state = finalState;
+    }
+}
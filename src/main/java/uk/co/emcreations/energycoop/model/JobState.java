@@ -0,0 +1,8 @@
+package uk.co.emcreations.energycoop.model;
+
+public enum JobState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,10 @@
+package uk.co.emcreations.energycoop.model;
+
+/**
+ * What happens to a partition once it's older than the retention period. An archived partition is detached and kept
+ * as a table of its own, outside the reads and maintenance of the partitioned table, to be exported or dropped by hand.
+ */
+public enum RetentionAction {
+    ARCHIVE,
+    DROP
+}
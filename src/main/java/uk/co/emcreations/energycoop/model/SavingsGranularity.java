@@ -0,0 +1,25 @@
+package uk.co.emcreations.energycoop.model;
+
+import lombok.RequiredArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.function.UnaryOperator;
+
+/**
+ * The period savings are totalled over. Weeks start on a Monday.
+ */
+@RequiredArgsConstructor
+public enum SavingsGranularity {
+    DAY(date -> date),
+    WEEK(date -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))),
+    MONTH(date -> date.withDayOfMonth(1)),
+    YEAR(date -> date.withDayOfYear(1));
+
+    private final UnaryOperator<LocalDate> periodStart;
+
+    public LocalDate getPeriodStart(final LocalDate date) {
+        return periodStart.apply(date);
+    }
+}
@@ -0,0 +1,10 @@
+package uk.co.emcreations.energycoop.model;
+
+import java.time.Instant;
+
+/**
+ * Identifies the state of a site's stored data: the tag changes, and the last modified time moves on, whenever
+ * anything that goes into the site's responses does.
+ */
+public record SiteDataVersion(String tag, Instant lastModified) {
+}
@@ -0,0 +1,80 @@
+package uk.co.emcreations.energycoop.model;
+
+import uk.co.emcreations.energycoop.dto.TaxDocumentJobStatus;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A member's request for a tax document, rendered in the background. Once finished the job holds the rendered
+ * document, or the reason it failed, until it expires.
+ */
+public final class TaxDocumentJob {
+    private final String id;
+    private final String userId;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private volatile JobState state = JobState.QUEUED;
+    private volatile LocalDateTime finishedAt;
+    private volatile LocalDateTime expiresAt;
+    private volatile String error;
+    private volatile byte[] document;
+
+    public TaxDocumentJob(final String id, final String userId, final LocalDate from, final LocalDate to) {
+        this.id = id;
+        this.userId = userId;
+        this.from = from;
+        this.to = to;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public byte[] getDocument() {
+        return document;
+    }
+
+    public void start() {
+        state = JobState.RUNNING;
+    }
+
+    public void complete(final byte[] renderedDocument, final Duration retention) {
+        document = renderedDocument;
+        finish(JobState.COMPLETED, null, retention);
+    }
+
+    public void fail(final Throwable cause, final Duration retention) {
+        finish(JobState.FAILED, cause.getMessage(), retention);
+    }
+
+    public boolean isExpired(final LocalDateTime now) {
+        LocalDateTime expiry = expiresAt;
+        return null != expiry && !now.isBefore(expiry);
+    }
+
+    public TaxDocumentJobStatus getStatus() {
+        return new TaxDocumentJobStatus(id, state, from, to, submittedAt, finishedAt, expiresAt, error);
+    }
+
+    private void finish(final JobState finalState, final String errorMessage, final Duration retention) {
+        error = errorMessage;
+        finishedAt = LocalDateTime.now();
+        expiresAt = finishedAt.plus(retention);
+        state = finalState;
+    }
+}
@@ -0,0 +1,14 @@
+package uk.co.emcreations.energycoop.service;
+
+import uk.co.emcreations.energycoop.dto.JobStatus;
+import uk.co.emcreations.energycoop.entity.MemberStatement;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface AnnualStatementService {
+    JobStatus startStatementRun(final LocalDate from, final LocalDate to);
+    Optional<JobStatus> getStatementRunStatus();
+    List<MemberStatement> getStatements(final LocalDate from, final LocalDate to);
+}
@@ -0,0 +1,8 @@
+package uk.co.emcreations.energycoop.service;
+
+import java.util.List;
+
+public interface GenerationStatPartitionService {
+    void createPartitions();
+    List<String> applyRetention();
+}
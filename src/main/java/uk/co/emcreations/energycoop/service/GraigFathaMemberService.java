@@ -1,15 +1,33 @@
 package uk.co.emcreations.energycoop.service;
 
 import uk.co.emcreations.energycoop.dto.EnergySaving;
+import uk.co.emcreations.energycoop.dto.TaxFigures;
+import uk.co.emcreations.energycoop.entity.SiteSavingsLedgerEntry;
+import uk.co.emcreations.energycoop.model.SavingsGranularity;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface GraigFathaMemberService {
     EnergySaving getTodaySavings(final double wattageOwnership);
     Set<EnergySaving> getSavings(final LocalDate from, final LocalDate to, final double wattageOwnership, final String userId);
+    List<EnergySaving> getSavings(final LocalDate from, final LocalDate to, final double wattageOwnership,
+                                  final String userId, final SavingsGranularity granularity);
+    void streamSavings(final LocalDate from, final LocalDate to, final double wattageOwnership, final String userId,
+                       final Consumer<EnergySaving> consumer);
+    EnergySaving getTotalSavings(final LocalDate from, final LocalDate to, final double wattageOwnership, final String userId);
+    Optional<String> getTaxDocumentETag(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
+                                        final String userId);
     byte[] generateTaxDocument(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
                                    final String userId) throws URISyntaxException, IOException;
-}
\ No newline at end of file
+    void writeTaxDocument(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
+                          final String userId, final OutputStream os) throws IOException;
+    TaxFigures getTaxFigures(final LocalDate to, final double wattageOwnership, final double totalSavingsAmount);
+    List<SiteSavingsLedgerEntry> getSiteSavings(final LocalDate from, final LocalDate to);
+}
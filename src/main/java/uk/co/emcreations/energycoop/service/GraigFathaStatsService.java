@@ -2,14 +2,18 @@ package uk.co.emcreations.energycoop.service;
 
 import uk.co.emcreations.energycoop.dto.VensysMeanData;
 import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.util.TokenBucket;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Optional;
 
 public interface GraigFathaStatsService {
     Optional<VensysMeanData> getMeanEnergyYield();
     VensysPerformanceData getYesterdayPerformance();
     Optional<VensysPerformanceData> getPerformance(LocalDateTime from, LocalDateTime to);
+    Map<LocalDate, VensysPerformanceData> getDailyPerformance(LocalDate from, LocalDate to);
+    Map<LocalDate, VensysPerformanceData> getDailyPerformance(LocalDate from, LocalDate to, TokenBucket upstreamCalls);
     void logPerformance(final LocalDate from, final LocalDate to);
 }
\ No newline at end of file
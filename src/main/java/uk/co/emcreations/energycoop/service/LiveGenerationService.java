@@ -0,0 +1,12 @@
+package uk.co.emcreations.energycoop.service;
+
+import uk.co.emcreations.energycoop.model.GenerationSnapshot;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface LiveGenerationService {
+    Optional<GenerationSnapshot> getTodaySnapshot(final Site site);
+    void updateSnapshot(final Site site, final LocalDateTime timestamp, final double kWhGenerated);
+}
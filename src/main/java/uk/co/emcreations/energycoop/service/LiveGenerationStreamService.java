@@ -0,0 +1,9 @@
+package uk.co.emcreations.energycoop.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uk.co.emcreations.energycoop.model.Site;
+
+public interface LiveGenerationStreamService {
+    SseEmitter subscribe(final Site site, final double wattageOwnership);
+    int getSubscriberCount();
+}
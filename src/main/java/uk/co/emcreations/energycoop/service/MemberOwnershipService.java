@@ -1,5 +1,6 @@
 package uk.co.emcreations.energycoop.service;
 
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
 import uk.co.emcreations.energycoop.model.Site;
 
 import java.time.LocalDate;
@@ -7,5 +8,7 @@ import java.time.LocalDate;
 public interface MemberOwnershipService {
     double getMemberOwnershipForSite(final Site site, final LocalDate date, final String userId,
                                      final double suppliedOwnership);
+    EffectiveDateTimeline getMemberOwnershipTimeline(final Site site, final LocalDate to, final String userId,
+                                                     final double suppliedOwnership);
+    void reloadOwnership(final Site site, final String userId);
 }
-
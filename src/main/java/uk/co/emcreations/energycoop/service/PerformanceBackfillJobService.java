@@ -0,0 +1,14 @@
+package uk.co.emcreations.energycoop.service;
+
+import uk.co.emcreations.energycoop.dto.BackfillJobStatus;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface PerformanceBackfillJobService {
+    BackfillJobStatus submit(final LocalDate from, final LocalDate to);
+    Optional<BackfillJobStatus> resume(final long id);
+    Optional<BackfillJobStatus> getJob(final long id);
+    List<BackfillJobStatus> getJobs();
+}
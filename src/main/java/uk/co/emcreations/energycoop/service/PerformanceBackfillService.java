@@ -0,0 +1,10 @@
+package uk.co.emcreations.energycoop.service;
+
+import uk.co.emcreations.energycoop.model.BackfillResult;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface PerformanceBackfillService {
+    BackfillResult backfill(final List<LocalDate> days);
+}
@@ -0,0 +1,15 @@
+package uk.co.emcreations.energycoop.service;
+
+import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.entity.PerformanceStatEntry;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public interface PerformanceStatService {
+    List<PerformanceStatEntry> recordDays(final Site site, final Map<LocalDate, VensysPerformanceData> performanceByDay);
+    int importDays(final Site site, final Map<LocalDate, VensysPerformanceData> performanceByDay);
+    int compactDuplicates();
+}
@@ -0,0 +1,11 @@
+package uk.co.emcreations.energycoop.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.time.LocalDate;
+
+public interface SavingsStreamService {
+    ResponseBodyEmitter stream(final LocalDate from, final LocalDate to, final double wattageOwnership,
+                               final String userId);
+    int getStreamCount();
+}
@@ -0,0 +1,8 @@
+package uk.co.emcreations.energycoop.service;
+
+import uk.co.emcreations.energycoop.model.Site;
+import uk.co.emcreations.energycoop.model.SiteDataVersion;
+
+public interface SiteDataVersionService {
+    SiteDataVersion getVersion(final Site site);
+}
@@ -0,0 +1,18 @@
+package uk.co.emcreations.energycoop.service;
+
+import uk.co.emcreations.energycoop.dto.SiteSavingsTotal;
+import uk.co.emcreations.energycoop.entity.SiteSavingsLedgerEntry;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public interface SiteSavingsLedgerService {
+    Map<LocalDate, SiteSavingsLedgerEntry> getEntries(final Site site, final LocalDate from, final LocalDate to);
+    long countEntries(final Site site, final LocalDate from, final LocalDate to);
+    SiteSavingsTotal getTotal(final Site site, final LocalDate from, final LocalDate to);
+    void recordDay(final Site site, final LocalDate day, final double kWhGenerated);
+    List<SiteSavingsLedgerEntry> recordDays(final Site site, final Map<LocalDate, Double> generationByDay);
+    List<SiteSavingsLedgerEntry> priceDays(final Site site, final Map<LocalDate, Double> generationByDay);
+}
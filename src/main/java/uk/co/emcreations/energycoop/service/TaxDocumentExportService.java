@@ -0,0 +1,13 @@
+package uk.co.emcreations.energycoop.service;
+
+import uk.co.emcreations.energycoop.dto.JobStatus;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface TaxDocumentExportService {
+    JobStatus startExport(final LocalDate from, final LocalDate to);
+    Optional<JobStatus> getExportStatus();
+    Optional<Path> getExportArchive(final LocalDate from, final LocalDate to);
+}
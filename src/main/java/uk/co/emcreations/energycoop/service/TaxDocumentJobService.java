@@ -0,0 +1,13 @@
+package uk.co.emcreations.energycoop.service;
+
+import uk.co.emcreations.energycoop.dto.TaxDocumentJobStatus;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface TaxDocumentJobService {
+    TaxDocumentJobStatus submit(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
+                                final String userId);
+    Optional<TaxDocumentJobStatus> getStatus(final String jobId, final String userId);
+    Optional<byte[]> getDocument(final String jobId, final String userId);
+}
@@ -0,0 +1,153 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.co.emcreations.energycoop.dto.JobStatus;
+import uk.co.emcreations.energycoop.dto.TaxFigures;
+import uk.co.emcreations.energycoop.entity.MemberOwnership;
+import uk.co.emcreations.energycoop.entity.MemberOwnershipRepository;
+import uk.co.emcreations.energycoop.entity.MemberStatement;
+import uk.co.emcreations.energycoop.entity.MemberStatementRepository;
+import uk.co.emcreations.energycoop.entity.SiteSavingsLedgerEntry;
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
+import uk.co.emcreations.energycoop.model.JobProgress;
+import uk.co.emcreations.energycoop.service.AnnualStatementService;
+import uk.co.emcreations.energycoop.service.GraigFathaMemberService;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+/**
+ * Produces every member's statement for a period in one run. The site's daily savings are loaded once and turned into
+ * running totals in memory, then each member's ownership timeline is swept against them, so the cost of each member is
+ * a couple of array lookups per ownership change rather than a walk over every day.
+ * <p>
+ * Ownership comes only from the member ownership table here, as there's no Auth0 profile to fall back on; a member
+ * owns nothing before their first recorded ownership. Only one run can be in progress at a time. If any day's
+ * generation can't be fetched from Vensys the run fails, rather than writing statements short of that day's savings.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnnualStatementServiceImpl implements AnnualStatementService {
+    private final GraigFathaMemberService graigFathaMemberService;
+    private final MemberOwnershipRepository memberOwnershipRepository;
+    private final MemberStatementRepository memberStatementRepository;
+    private final AtomicReference<JobProgress> currentRun = new AtomicReference<>();
+
+    @Value("${site.capacity.gf:100}")
+    double totalCapacity;
+
+    @Value("${statements.batch-size:500}")
+    int batchSize;
+
+    @Override
+    public JobStatus startStatementRun(final LocalDate from, final LocalDate to) {
+        if (from.isAfter(to) || !to.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Statement period must be a range of completed days");
+        }
+
+        JobProgress previousRun = currentRun.get();
+        var progress = new JobProgress("statements-" + from + "-" + to);
+        if ((null != previousRun && previousRun.isRunning()) || !currentRun.compareAndSet(previousRun, progress)) {
+            throw new IllegalStateException("A statement run is already in progress");
+        }
+
+        log.info("Starting statement run for {} to {}", from, to);
+        Thread.ofVirtual().name("statement-run").start(() -> {
+            try {
+                generateStatements(from, to, progress);
+                progress.complete();
+                log.info("Statement run for {} to {} completed", from, to);
+            } catch (RuntimeException e) {
+                log.error("Statement run for {} to {} failed", from, to, e);
+                progress.fail(e);
+            }
+        });
+
+        return progress.getStatus();
+    }
+
+    @Override
+    public Optional<JobStatus> getStatementRunStatus() {
+        return Optional.ofNullable(currentRun.get()).map(JobProgress::getStatus);
+    }
+
+    @Override
+    public List<MemberStatement> getStatements(final LocalDate from, final LocalDate to) {
+        return memberStatementRepository.findAllBySiteAndPeriodFromAndPeriodToOrderByUserIdAsc(GRAIG_FATHA, from, to);
+    }
+
+    void generateStatements(final LocalDate from, final LocalDate to, final JobProgress progress) {
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        double[] cumulativeKWhGenerated = new double[days + 1];
+        double[] cumulativeSavings = new double[days + 1];
+        for (SiteSavingsLedgerEntry day : graigFathaMemberService.getSiteSavings(from, to)) {
+            int index = (int) ChronoUnit.DAYS.between(from, day.getForDate()) + 1;
+            cumulativeKWhGenerated[index] = day.getKWhGenerated();
+            cumulativeSavings[index] = day.getSavings();
+        }
+        for (int i = 1; i <= days; i++) {
+            cumulativeKWhGenerated[i] += cumulativeKWhGenerated[i - 1];
+            cumulativeSavings[i] += cumulativeSavings[i - 1];
+        }
+
+        Map<String, List<MemberOwnership>> ownershipsByMember = memberOwnershipRepository
+                .findAllBySiteAndEffectiveDateLessThanEqualOrderByUserIdAscEffectiveDateAscIdAsc(GRAIG_FATHA, to)
+                .stream()
+                .collect(Collectors.groupingBy(MemberOwnership::getUserId, LinkedHashMap::new, Collectors.toList()));
+        progress.setTotal(ownershipsByMember.size());
+
+        Map<String, MemberStatement> existing = new HashMap<>();
+        getStatements(from, to).forEach(statement -> existing.put(statement.getUserId(), statement));
+
+        List<MemberStatement> batch = new ArrayList<>(batchSize);
+        for (Map.Entry<String, List<MemberOwnership>> member : ownershipsByMember.entrySet()) {
+            String userId = member.getKey();
+            EffectiveDateTimeline timeline = EffectiveDateTimeline.of(member.getValue(),
+                    MemberOwnership::getEffectiveDate, MemberOwnership::getWattageOwnership, 0);
+
+            double kWhGenerated = 0;
+            double savings = 0;
+            for (EffectiveDateTimeline.Segment segment : timeline.segmentsBetween(from, to)) {
+                int start = (int) ChronoUnit.DAYS.between(from, segment.from());
+                int end = (int) ChronoUnit.DAYS.between(from, segment.to()) + 1;
+                double ownershipPct = segment.value() / totalCapacity;
+                kWhGenerated += (cumulativeKWhGenerated[end] - cumulativeKWhGenerated[start]) * ownershipPct;
+                savings += (cumulativeSavings[end] - cumulativeSavings[start]) * ownershipPct;
+            }
+
+            double wattageOwnership = timeline.valueAt(to);
+            TaxFigures taxFigures = graigFathaMemberService.getTaxFigures(to, wattageOwnership, savings);
+            MemberStatement statement = existing.getOrDefault(userId, MemberStatement.builder()
+                    .site(GRAIG_FATHA).userId(userId).periodFrom(from).periodTo(to).build());
+            statement.setWattageOwnership(wattageOwnership);
+            statement.setKWhGenerated(kWhGenerated);
+            statement.setSavings(savings);
+            statement.setCurrentShares(taxFigures.currentShares());
+            statement.setSharesWithdrawn(taxFigures.sharesWithdrawn());
+            statement.setCapitalWithdrawn(taxFigures.capitalWithdrawn());
+            statement.setInterestIncome(taxFigures.interestIncome());
+
+            batch.add(statement);
+            if (batch.size() >= batchSize) {
+                memberStatementRepository.saveAll(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+            progress.increment();
+        }
+        memberStatementRepository.saveAll(batch);
+    }
+}
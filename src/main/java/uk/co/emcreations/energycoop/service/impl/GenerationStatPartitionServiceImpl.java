@@ -0,0 +1,200 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.emcreations.energycoop.model.RetentionAction;
+import uk.co.emcreations.energycoop.service.GenerationStatPartitionService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the generation stats table range-partitioned by month on its timestamp, so that finding the latest reading of
+ * a day only touches that month's partition and old history can be removed a whole partition at a time, without
+ * deleting rows or leaving the table to vacuum.
+ * <p>
+ * The schema update creates the table unpartitioned, so once it has run the table is rebuilt as a partitioned one, with
+ * a partition for every month it already holds. The rebuild is a one-off copy in a single transaction, which holds an
+ * exclusive lock on the table from its rename until the copy commits, so nothing can read or write generation stats
+ * until it's done; the larger the table, the longer startup blocks.
+ * <p>
+ * Partitions are created a few months ahead of time. A default partition catches any reading whose month has no
+ * partition of its own, so a missed run never loses a reading; the rows are moved into their month's partition when
+ * it's next created. Partitions older than the retention period are archived or dropped, as configured; a retention
+ * period of zero months keeps everything, and the default partition is always kept.
+ */
+@Slf4j
+@Service
+@DependsOn("entityManagerFactory")
+public class GenerationStatPartitionServiceImpl implements GenerationStatPartitionService {
+    static final String TABLE = "generation_stat_entry";
+    private static final String UNPARTITIONED_TABLE = TABLE + "_unpartitioned";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final RetentionAction retentionAction;
+
+    public GenerationStatPartitionServiceImpl(final JdbcTemplate jdbcTemplate,
+                                              final PlatformTransactionManager transactionManager,
+                                              @Value("${partitioning.generation-stats.months-ahead:3}") final int monthsAhead,
+                                              @Value("${partitioning.generation-stats.retention-months:0}") final int retentionMonths,
+                                              @Value("${partitioning.generation-stats.retention-action:ARCHIVE}") final RetentionAction retentionAction) {
+        if (0 > monthsAhead || 0 > retentionMonths) {
+            throw new IllegalArgumentException("Partitioning months must not be negative");
+        }
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.retentionAction = retentionAction;
+    }
+
+    @PostConstruct
+    void prepareTable() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> kind = jdbcTemplate.queryForList(
+                    "select relkind::text from pg_class where oid = to_regclass('" + TABLE + "')", String.class);
+            if (List.of("r").equals(kind)) {
+                partitionExistingTable(LocalDate.now());
+            }
+        });
+
+        createPartitions();
+        jdbcTemplate.execute("create index if not exists " + TABLE + "_site_timestamp_idx on " + TABLE
+                + " (site, \"timestamp\")");
+    }
+
+    /**
+     * Makes sure there's a partition for this month and each of the configured number of months after it.
+     */
+    @Override
+    public void createPartitions() {
+        createPartitions(LocalDate.now());
+    }
+
+    /**
+     * Archives or drops every partition for a month before the retention period, returning their names.
+     */
+    @Override
+    public List<String> applyRetention() {
+        return applyRetention(LocalDate.now());
+    }
+
+    void createPartitions(final LocalDate today) {
+        createDefaultPartition();
+        LocalDate month = today.withDayOfMonth(1);
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(month.plusMonths(i));
+        }
+    }
+
+    List<String> applyRetention(final LocalDate today) {
+        if (0 == retentionMonths) {
+            return List.of();
+        }
+
+        LocalDate cutoff = today.withDayOfMonth(1).minusMonths(retentionMonths);
+        List<String> removed = new ArrayList<>();
+        for (String partition : getPartitions()) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+
+            LocalDate month = LocalDate.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), 1);
+            if (month.isBefore(cutoff)) {
+                jdbcTemplate.execute(switch (retentionAction) {
+                    case ARCHIVE -> "alter table " + TABLE + " detach partition " + partition;
+                    case DROP -> "drop table " + partition;
+                });
+                removed.add(partition);
+                log.info("Applied retention to generation stats partition {} ({})", partition, retentionAction);
+            }
+        }
+
+        return removed;
+    }
+
+    // Runs in one transaction, so a failure part way leaves the original table as it was. The rename takes an exclusive
+    // lock on the table, held until the copy commits.
+    private void partitionExistingTable(final LocalDate today) {
+        log.info("Rebuilding {} as a table partitioned by month", TABLE);
+
+        jdbcTemplate.execute("alter table " + TABLE + " rename to " + UNPARTITIONED_TABLE);
+        jdbcTemplate.execute("create table " + TABLE + " (like " + UNPARTITIONED_TABLE
+                + " including defaults) partition by range (\"timestamp\")");
+        jdbcTemplate.execute("alter table " + TABLE + " add constraint " + TABLE
+                + "_id_timestamp_pkey primary key (id, \"timestamp\")");
+        createDefaultPartition();
+
+        LocalDateTime earliest = jdbcTemplate.queryForObject("select min(\"timestamp\") from " + UNPARTITIONED_TABLE,
+                LocalDateTime.class);
+        LocalDate month = null == earliest ? today.withDayOfMonth(1) : earliest.toLocalDate().withDayOfMonth(1);
+        for (; month.isBefore(today.withDayOfMonth(1)); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+        createPartitions(today);
+
+        // A row without a timestamp can't be placed in a month, so it's kept in the default partition
+        int copied = jdbcTemplate.update("insert into " + TABLE + " select * from " + UNPARTITIONED_TABLE);
+        jdbcTemplate.execute("drop table " + UNPARTITIONED_TABLE);
+
+        log.info("Moved {} rows into the partitioned {} table", copied, TABLE);
+    }
+
+    private void createDefaultPartition() {
+        jdbcTemplate.execute("create table if not exists " + DEFAULT_PARTITION + " partition of " + TABLE + " default");
+    }
+
+    // A month's partition can't be created while the default partition holds rows for it, so they're moved out of the
+    // way into a new table, in one transaction, which is then attached as the month's partition
+    private void createPartition(final LocalDate month) {
+        String partition = TABLE + "_" + month.format(PARTITION_SUFFIX);
+        String bounds = "for values from ('" + month + "') to ('" + month.plusMonths(1) + "')";
+        String inMonth = "\"timestamp\" >= '" + month + "' and \"timestamp\" < '" + month.plusMonths(1) + "'";
+
+        Boolean stranded = jdbcTemplate.queryForObject("select to_regclass('" + partition + "') is null and exists "
+                + "(select 1 from " + DEFAULT_PARTITION + " where " + inMonth + ")", Boolean.class);
+        if (!Boolean.TRUE.equals(stranded)) {
+            jdbcTemplate.execute("create table if not exists " + partition + " partition of " + TABLE + " " + bounds);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("create table " + partition + " (like " + TABLE + " including defaults)");
+            int moved = jdbcTemplate.update("insert into " + partition + " select * from " + DEFAULT_PARTITION
+                    + " where " + inMonth);
+            jdbcTemplate.update("delete from " + DEFAULT_PARTITION + " where " + inMonth);
+            jdbcTemplate.execute("alter table " + TABLE + " attach partition " + partition + " " + bounds);
+
+            log.warn("Moved {} generation stats rows for {} out of the default partition into {}", moved,
+                    month.format(PARTITION_SUFFIX), partition);
+        });
+    }
+
+    private List<String> getPartitions() {
+        return jdbcTemplate.queryForList("""
+                select child.relname::text from pg_inherits
+                join pg_class child on child.oid = pg_inherits.inhrelid
+                where pg_inherits.inhparent = to_regclass('%s')
+                order by child.relname
+                """.formatted(TABLE), String.class);
+    }
+}
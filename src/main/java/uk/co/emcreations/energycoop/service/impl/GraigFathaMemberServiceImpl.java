@@ -3,38 +3,63 @@ package uk.co.emcreations.energycoop.service.impl;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.emcreations.energycoop.cache.TaxDocumentCache;
 import uk.co.emcreations.energycoop.dto.EnergySaving;
+import uk.co.emcreations.energycoop.dto.SiteSavingsTotal;
+import uk.co.emcreations.energycoop.dto.TaxFigures;
 import uk.co.emcreations.energycoop.dto.VensysMeanData;
-import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
 import uk.co.emcreations.energycoop.entity.GenerationStatEntry;
 import uk.co.emcreations.energycoop.entity.GenerationStatEntryRepository;
-import uk.co.emcreations.energycoop.entity.PerformanceStatEntry;
 import uk.co.emcreations.energycoop.entity.PerformanceStatEntryRepository;
+import uk.co.emcreations.energycoop.entity.SiteSavingsLedgerEntry;
+import uk.co.emcreations.energycoop.model.BackfillResult;
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
+import uk.co.emcreations.energycoop.model.GenerationSnapshot;
+import uk.co.emcreations.energycoop.model.SavingsGranularity;
 import uk.co.emcreations.energycoop.service.GraigFathaMemberService;
 import uk.co.emcreations.energycoop.service.GraigFathaStatsService;
+import uk.co.emcreations.energycoop.service.LiveGenerationService;
 import uk.co.emcreations.energycoop.service.MemberOwnershipService;
+import uk.co.emcreations.energycoop.service.PerformanceBackfillService;
 import uk.co.emcreations.energycoop.service.SavingsRateService;
+import uk.co.emcreations.energycoop.service.SiteSavingsLedgerService;
+import uk.co.emcreations.energycoop.sourceclient.VensysUnavailableException;
 import uk.co.emcreations.energycoop.util.EntityHelper;
 import uk.co.emcreations.energycoop.util.TaxDocument;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
 
 @Slf4j
 @Service
 @Transactional
-@RequiredArgsConstructor
 public class GraigFathaMemberServiceImpl implements GraigFathaMemberService {
     @PersistenceContext
     private final EntityManager entityManager;
@@ -43,6 +68,14 @@ public class GraigFathaMemberServiceImpl implements GraigFathaMemberService {
     private final GraigFathaStatsService graigFathaStatsService;
     private final SavingsRateService savingsRateService;
     private final MemberOwnershipService memberOwnershipService;
+    private final SiteSavingsLedgerService siteSavingsLedgerService;
+    private final PerformanceBackfillService performanceBackfillService;
+    private final TaxDocumentCache taxDocumentCache;
+    private final LiveGenerationService liveGenerationService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private static final int STREAM_CHUNK_DAYS = 31;
 
     @Value("${site.capacity.gf:100}")
     double totalCapacity;
@@ -53,17 +86,52 @@ public class GraigFathaMemberServiceImpl implements GraigFathaMemberService {
     @Value("${site.first-year-operation-end.gf:2023}")
     int firstYearOfOperationEnd;
 
+    public GraigFathaMemberServiceImpl(final EntityManager entityManager,
+                                       final GenerationStatEntryRepository generationStatEntryRepository,
+                                       final PerformanceStatEntryRepository performanceStatEntryRepository,
+                                       final GraigFathaStatsService graigFathaStatsService,
+                                       final SavingsRateService savingsRateService,
+                                       final MemberOwnershipService memberOwnershipService,
+                                       final SiteSavingsLedgerService siteSavingsLedgerService,
+                                       final PerformanceBackfillService performanceBackfillService,
+                                       final TaxDocumentCache taxDocumentCache,
+                                       final LiveGenerationService liveGenerationService,
+                                       final PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.generationStatEntryRepository = generationStatEntryRepository;
+        this.performanceStatEntryRepository = performanceStatEntryRepository;
+        this.graigFathaStatsService = graigFathaStatsService;
+        this.savingsRateService = savingsRateService;
+        this.memberOwnershipService = memberOwnershipService;
+        this.siteSavingsLedgerService = siteSavingsLedgerService;
+        this.performanceBackfillService = performanceBackfillService;
+        this.taxDocumentCache = taxDocumentCache;
+        this.liveGenerationService = liveGenerationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Serves today's savings from the in-memory snapshot without touching the database. Only when there's no snapshot
+     * yet is the latest stored reading looked up, in a short read-only transaction, fetching from Vensys with no
+     * transaction open if there isn't one.
+     */
     @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public EnergySaving getTodaySavings(final double wattageOwnership) {
         log.info("getTodaySavings() called with wattageOwnership: {}", wattageOwnership);
 
         LocalDate today = LocalDate.now();
         Pair<LocalDateTime, LocalDateTime> todayStartAndEnd = getDayBounds(today);
 
-        double todayGenerationSoFar = getGenerationBetweenTimes(todayStartAndEnd.getLeft(), todayStartAndEnd.getRight());
+        Optional<GenerationSnapshot> snapshot = liveGenerationService.getTodaySnapshot(GRAIG_FATHA);
+        double todayGenerationSoFar = snapshot.isPresent() ? snapshot.get().kWhGenerated()
+                : getGenerationBetweenTimes(todayStartAndEnd.getLeft(), todayStartAndEnd.getRight());
         log.info("Today's generation so far: {} kWh", todayGenerationSoFar);
 
-        double savingsRate = savingsRateService.getSavingsRateForDate(GRAIG_FATHA, today);
+        double savingsRate = snapshot.isPresent() ? snapshot.get().savingsRate()
+                : savingsRateService.getSavingsRateForDate(GRAIG_FATHA, today);
         double totalSavingsForToday = getSavings(todayGenerationSoFar, savingsRate);
         log.info("Calculated savings for the wind farm today: {}", totalSavingsForToday);
 
@@ -81,34 +149,14 @@ public class GraigFathaMemberServiceImpl implements GraigFathaMemberService {
     }
 
     @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public Set<EnergySaving> getSavings(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
                                         final String userId) {
         log.info("getSavings() called with from: {}, to: {}, suppliedOwnershipWattage: {} and user: {}",
                 from, to, suppliedOwnershipWattage, userId);
 
-        Set<EnergySaving> savingsSet = new HashSet<>();
-        LocalDate current = from;
-        while (!current.isAfter(to)) {
-            Pair<LocalDateTime, LocalDateTime> todayStartAndEnd = getDayBounds(current);
-
-            double generation = getHistoricalGenerationBetweenTimes(todayStartAndEnd.getLeft(), todayStartAndEnd.getRight());
-            double savingsRate = savingsRateService.getSavingsRateForDate(GRAIG_FATHA, current);
-            double totalSavings = getSavings(generation, savingsRate);
-            double ownershipWattage = memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, current, userId,
-                    suppliedOwnershipWattage);
-            double memberOwnershipPct = getOwnershipPercentage(ownershipWattage);
-            double memberSavings = totalSavings * memberOwnershipPct;
-
-            savingsSet.add(new EnergySaving(
-                    memberSavings,
-                    "GBP",
-                    savingsRate,
-                    todayStartAndEnd.getLeft(),
-                    todayStartAndEnd.getRight()
-            ));
-
-            current = current.plusDays(1);
-        }
+        Set<EnergySaving> savingsSet = new LinkedHashSet<>();
+        streamSavings(from, to, suppliedOwnershipWattage, userId, savingsSet::add);
 
         double totalSavings = savingsSet.stream()
                 .mapToDouble(EnergySaving::amount)
@@ -119,37 +167,263 @@ public class GraigFathaMemberServiceImpl implements GraigFathaMemberService {
         return savingsSet;
     }
 
+    /**
+     * Passes each day's savings to the consumer in date order as it is calculated. The consumer is called outside any
+     * transaction, so it can write to a slow client without holding a connection. A day whose generation couldn't be
+     * fetched from Vensys is passed on with no savings and flagged as incomplete.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void streamSavings(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
+                              final String userId, final Consumer<EnergySaving> consumer) {
+        forEachDay(from, to, suppliedOwnershipWattage, userId, (siteSavings, ownershipWattage, incomplete) ->
+                consumer.accept(getMemberSavings(siteSavings, ownershipWattage, incomplete)));
+    }
+
+    /**
+     * Totals the member's savings for each period of the given granularity, clipped to the range. Each period's rate is
+     * the generation-weighted average of its daily rates. A period is flagged as incomplete if the generation of any of
+     * its days couldn't be fetched from Vensys.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public List<EnergySaving> getSavings(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
+                                         final String userId, final SavingsGranularity granularity) {
+        log.info("getSavings() called with from: {}, to: {}, suppliedOwnershipWattage: {}, user: {} and granularity: {}",
+                from, to, suppliedOwnershipWattage, userId, granularity);
+
+        var aggregator = new SavingsAggregator(granularity);
+        forEachDay(from, to, suppliedOwnershipWattage, userId, (siteSavings, ownershipWattage, incomplete) ->
+                aggregator.add(siteSavings, siteSavings.getSavings() * getOwnershipPercentage(ownershipWattage),
+                        incomplete));
+
+        return aggregator.finish();
+    }
+
+    /**
+     * Totals the member's savings over the range without building per-day results. Completed days are read from the
+     * ledger's running totals with two lookups per ownership period, so the cost depends on how often the member's
+     * ownership changed rather than on the length of the range. Today, which is never in the ledger, is added on top.
+     * Days missing from the ledger are recorded first, with no transaction held while they're fetched from Vensys, and
+     * the totals are then read together in a short read-only transaction. If any day's generation couldn't be fetched,
+     * the total is short of that day's savings and is flagged as incomplete.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public EnergySaving getTotalSavings(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
+                                        final String userId) {
+        log.info("getTotalSavings() called with from: {}, to: {}, suppliedOwnershipWattage: {} and user: {}",
+                from, to, suppliedOwnershipWattage, userId);
+
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate lastCompletedDay = to.isBefore(yesterday) ? to : yesterday;
+        LocalDate firstLiveDay = from.isAfter(lastCompletedDay) ? from : lastCompletedDay.plusDays(1);
+        EffectiveDateTimeline ownerships = memberOwnershipService.getMemberOwnershipTimeline(GRAIG_FATHA, to, userId,
+                suppliedOwnershipWattage);
+
+        double siteGeneration = 0;
+        double siteSavings = 0;
+        double memberSavings = 0;
+        Set<LocalDate> failedDays = new HashSet<>();
+
+        if (!from.isAfter(lastCompletedDay)) {
+            long daysInRange = ChronoUnit.DAYS.between(from, lastCompletedDay) + 1;
+            if (siteSavingsLedgerService.countEntries(GRAIG_FATHA, from, lastCompletedDay) < daysInRange) {
+                // records the missing days in the ledger, apart from any which couldn't be fetched
+                failedDays.addAll(getDailySiteSavings(from, lastCompletedDay).failedDays());
+            }
+
+            List<EffectiveDateTimeline.Segment> segments = ownerships.segmentsBetween(from, lastCompletedDay);
+            List<SiteSavingsTotal> totals = readOnlyTransaction.execute(status -> segments.stream()
+                    .map(ownership -> siteSavingsLedgerService.getTotal(GRAIG_FATHA, ownership.from(), ownership.to()))
+                    .toList());
+            for (int i = 0; i < segments.size(); i++) {
+                SiteSavingsTotal total = totals.get(i);
+                siteGeneration += total.kWhGenerated();
+                siteSavings += total.savings();
+                memberSavings += total.savings() * getOwnershipPercentage(segments.get(i).value());
+            }
+        }
+
+        if (!firstLiveDay.isAfter(to)) {
+            DailySiteSavings liveDays = getDailySiteSavings(firstLiveDay, to);
+            failedDays.addAll(liveDays.failedDays());
+            for (SiteSavingsLedgerEntry liveDay : liveDays.days()) {
+                siteGeneration += liveDay.getKWhGenerated();
+                siteSavings += liveDay.getSavings();
+                memberSavings += liveDay.getSavings()
+                        * getOwnershipPercentage(ownerships.valueAt(liveDay.getForDate()));
+            }
+        }
+
+        log.info("Calculated total savings for {} member between: {} and {} = {}", userId, from, to, memberSavings);
+        if (!failedDays.isEmpty()) {
+            log.warn("Total savings for {} member between: {} and {} are incomplete, missing {} days", userId, from,
+                    to, failedDays.size());
+        }
+
+        return new EnergySaving(
+                memberSavings,
+                "GBP",
+                0 == siteGeneration ? 0 : siteSavings / siteGeneration, // generation-weighted average rate
+                from.atStartOfDay(),
+                to.atTime(LocalTime.MAX),
+                !failedDays.isEmpty()
+        );
+    }
+
+    /**
+     * Returns a hash of everything that goes into the member's tax document for the range: the member, site and period,
+     * the ownership and savings rate segments within it, the ledger's totals over it and the share settings. The hash
+     * changes whenever any of them does, so it serves as both the document's cache key and its ETag. Ranges which
+     * aren't yet fully in the ledger, including any that reach today, have no stable content and return empty. Its
+     * inputs are read together in a short read-only transaction.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Optional<String> getTaxDocumentETag(final LocalDate from, final LocalDate to,
+                                               final double suppliedOwnershipWattage, final String userId) {
+        if (!to.isBefore(LocalDate.now())) {
+            return Optional.empty();
+        }
+
+        return readOnlyTransaction.execute(status ->
+                getSettledTaxDocumentETag(from, to, suppliedOwnershipWattage, userId));
+    }
+
+    private Optional<String> getSettledTaxDocumentETag(final LocalDate from, final LocalDate to,
+                                                       final double suppliedOwnershipWattage, final String userId) {
+        long daysInRange = ChronoUnit.DAYS.between(from, to) + 1;
+        if (siteSavingsLedgerService.countEntries(GRAIG_FATHA, from, to) < daysInRange) {
+            return Optional.empty();
+        }
+
+        List<EffectiveDateTimeline.Segment> ownerships = memberOwnershipService
+                .getMemberOwnershipTimeline(GRAIG_FATHA, to, userId, suppliedOwnershipWattage).segmentsBetween(from, to);
+        List<EffectiveDateTimeline.Segment> savingsRates = savingsRateService.getSavingsRateTimeline(GRAIG_FATHA, to)
+                .segmentsBetween(from, to);
+        SiteSavingsTotal generation = siteSavingsLedgerService.getTotal(GRAIG_FATHA, from, to);
+
+        return Optional.of(sha256(String.join("|", userId, GRAIG_FATHA.name(), from.toString(), to.toString(),
+                String.valueOf(suppliedOwnershipWattage), ownerships.toString(), savingsRates.toString(),
+                generation.toString(), totalCapacity + "," + sharePrice + "," + firstYearOfOperationEnd)));
+    }
+
+    /**
+     * Returns the member's tax document, reusing a previously rendered copy when none of its inputs have changed.
+     */
     @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public byte[] generateTaxDocument(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
                                           final String userId) {
         log.info("generateTaxDocument() called with from: {}, to: {}, suppliedOwnershipWattage: {} and user: {}",
                 from, to, suppliedOwnershipWattage, userId);
 
-        Set<EnergySaving> savings = getSavings(from, to, suppliedOwnershipWattage, userId);
-        double totalSavingsAmount = savings.stream().mapToDouble(EnergySaving::amount).sum();
+        return getTaxDocumentETag(from, to, suppliedOwnershipWattage, userId)
+                .map(eTag -> taxDocumentCache.get(eTag,
+                        key -> renderTaxDocument(from, to, suppliedOwnershipWattage, userId)))
+                .orElseGet(() -> renderTaxDocument(from, to, suppliedOwnershipWattage, userId));
+    }
+
+    /**
+     * Writes the member's tax document to the output stream. Documents with a stable content hash go through the cache
+     * as in {@link #generateTaxDocument}; any other document is rendered straight to the stream without being held in
+     * memory. The document's figures are worked out as in {@link #getTotalSavings}, with every transaction closed
+     * before anything is rendered, so a slow client never holds one open.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void writeTaxDocument(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
+                                 final String userId, final OutputStream os) throws IOException {
+        log.info("writeTaxDocument() called with from: {}, to: {}, suppliedOwnershipWattage: {} and user: {}",
+                from, to, suppliedOwnershipWattage, userId);
+
+        Optional<String> eTag = getTaxDocumentETag(from, to, suppliedOwnershipWattage, userId);
+        if (eTag.isPresent()) {
+            os.write(taxDocumentCache.get(eTag.get(),
+                    key -> renderTaxDocument(from, to, suppliedOwnershipWattage, userId)));
+            return;
+        }
+
+        TaxFigures taxFigures = getTaxDocumentFigures(from, to, suppliedOwnershipWattage, userId);
+        TaxDocument.templateFor(GRAIG_FATHA).render(userId, from, to, taxFigures.totalSavings(),
+                taxFigures.currentShares(), taxFigures.sharesWithdrawn(), taxFigures.capitalWithdrawn(), os);
+    }
 
+    @Override
+    public TaxFigures getTaxFigures(final LocalDate to, final double wattageOwnership, final double totalSavingsAmount) {
         int fullYearsOfOperation = to.getYear() - firstYearOfOperationEnd;
-        double initialShares = getInitialShares(suppliedOwnershipWattage);
+        double initialShares = getInitialShares(wattageOwnership);
         double sharesWithdrawn = getWithdrawnShares(initialShares);
         double currentShares = initialShares - (fullYearsOfOperation * sharesWithdrawn);
         double capitalWithdrawn = getCapitalWithdrawn(sharesWithdrawn);
 
-        return TaxDocument.generateTaxDocument(GRAIG_FATHA, userId, from, to, totalSavingsAmount, currentShares,
-                sharesWithdrawn, capitalWithdrawn);
+        return new TaxFigures(totalSavingsAmount, currentShares, sharesWithdrawn, capitalWithdrawn);
+    }
+
+    /**
+     * Returns the site's savings for every day in the range, recording any days missing from the ledger first.
+     *
+     * @throws VensysUnavailableException if any day's generation couldn't be fetched, rather than returning savings
+     *                                    short of it
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public List<SiteSavingsLedgerEntry> getSiteSavings(final LocalDate from, final LocalDate to) {
+        DailySiteSavings dailySavings = getDailySiteSavings(from, to);
+        if (!dailySavings.failedDays().isEmpty()) {
+            throw new VensysUnavailableException("Performance data for " + new TreeSet<>(dailySavings.failedDays())
+                    + " could not be fetched", null);
+        }
+
+        return dailySavings.days();
+    }
+
+    private byte[] renderTaxDocument(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
+                                     final String userId) {
+        TaxFigures taxFigures = getTaxDocumentFigures(from, to, suppliedOwnershipWattage, userId);
+
+        return TaxDocument.generateTaxDocument(GRAIG_FATHA, userId, from, to, taxFigures.totalSavings(),
+                taxFigures.currentShares(), taxFigures.sharesWithdrawn(), taxFigures.capitalWithdrawn());
+    }
+
+    // A document short of any day's savings is never rendered, so it can't be cached or handed out
+    private TaxFigures getTaxDocumentFigures(final LocalDate from, final LocalDate to,
+                                             final double suppliedOwnershipWattage, final String userId) {
+        EnergySaving totalSavings = getTotalSavings(from, to, suppliedOwnershipWattage, userId);
+        if (totalSavings.incomplete()) {
+            throw new VensysUnavailableException("Performance data between " + from + " and " + to
+                    + " could not all be fetched", null);
+        }
+
+        return getTaxFigures(to, suppliedOwnershipWattage, totalSavings.amount());
+    }
+
+    private static String sha256(final String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     private double getGenerationBetweenTimes(final LocalDateTime start, final LocalDateTime end) {
-        GenerationStatEntry todayGenerationSoFar =
-                generationStatEntryRepository.findFirstBySiteAndTimestampBetweenOrderByTimestampDesc(GRAIG_FATHA, start, end);
+        GenerationStatEntry todayGenerationSoFar = readOnlyTransaction.execute(status ->
+                generationStatEntryRepository.findFirstBySiteAndTimestampBetweenOrderByTimestampDesc(GRAIG_FATHA, start, end));
 
-        if (null != todayGenerationSoFar) { // If there's data for today, return it
+        if (null != todayGenerationSoFar) { // If there's data for today, return it and serve it from memory from now on
+            liveGenerationService.updateSnapshot(GRAIG_FATHA, todayGenerationSoFar.getTimestamp(),
+                    todayGenerationSoFar.getKWhGenerated());
             return todayGenerationSoFar.getKWhGenerated();
         } else { // if there's no data for today, fetch it and store it
             Optional<VensysMeanData> energyYieldOpt = graigFathaStatsService.getMeanEnergyYield();
 
-            if (energyYieldOpt.isPresent()) {
+            if (energyYieldOpt.isPresent() && energyYieldOpt.get().stale()) { // not stored, so it's fetched again
+                return energyYieldOpt.get().value();
+            } else if (energyYieldOpt.isPresent()) {
                 GenerationStatEntry statEntry = EntityHelper.createGenerationStatEntry(energyYieldOpt.get(), GRAIG_FATHA);
-                entityManager.persist(statEntry);
+                transactionTemplate.executeWithoutResult(status -> entityManager.persist(statEntry));
 
                 return statEntry.getKWhGenerated();
             } else {
@@ -158,26 +432,122 @@ public class GraigFathaMemberServiceImpl implements GraigFathaMemberService {
         }
     }
 
-    private double getHistoricalGenerationBetweenTimes(final LocalDateTime start, final LocalDateTime end) {
-        PerformanceStatEntry generationOnDay =
-                performanceStatEntryRepository.findFirstBySiteAndForDateBetweenOrderByTimestampDesc(GRAIG_FATHA, start, end);
+    /**
+     * Reads the site's daily savings for the range from the ledger in one indexed scan. Any days missing from the
+     * ledger are priced from stored performance entries, fetching from Vensys where there are none, and recorded so
+     * later requests are served from the ledger alone.
+     */
+    private DailySiteSavings getDailySiteSavings(final LocalDate from, final LocalDate to) {
+        return withMissingDays(from, to, siteSavingsLedgerService.getEntries(GRAIG_FATHA, from, to));
+    }
+
+    /**
+     * Fills in the days missing from the recorded ones. Days Vensys has no data for are priced with no generation. Days
+     * whose fetch failed are priced the same way, so every day has an entry, but they're returned as failed rather
+     * than taken as having no generation, and aren't recorded, so they're fetched again next time.
+     */
+    private DailySiteSavings withMissingDays(final LocalDate from, final LocalDate to,
+                                             final Map<LocalDate, SiteSavingsLedgerEntry> recordedDays) {
+        Map<LocalDate, SiteSavingsLedgerEntry> dailySavings = new TreeMap<>(recordedDays);
+
+        List<LocalDate> missingDays = from.datesUntil(to.plusDays(1))
+                .filter(day -> !dailySavings.containsKey(day))
+                .toList();
+
+        if (missingDays.isEmpty()) {
+            return new DailySiteSavings(List.copyOf(dailySavings.values()), Set.of());
+        }
+
+        log.info("{} days between {} and {} are missing from the savings ledger", missingDays.size(), from, to);
+
+        BackfillResult historicalGeneration = getHistoricalGeneration(missingDays);
+        Map<LocalDate, Double> unpricedDays = new HashMap<>();
+        missingDays.stream()
+                .filter(day -> !historicalGeneration.generationByDay().containsKey(day))
+                .forEach(day -> unpricedDays.put(day, 0.0));
+
+        siteSavingsLedgerService.recordDays(GRAIG_FATHA, historicalGeneration.generationByDay())
+                .forEach(entry -> dailySavings.put(entry.getForDate(), entry));
+        siteSavingsLedgerService.priceDays(GRAIG_FATHA, unpricedDays)
+                .forEach(entry -> dailySavings.put(entry.getForDate(), entry));
+
+        return new DailySiteSavings(List.copyOf(dailySavings.values()), Set.copyOf(historicalGeneration.failedDays()));
+    }
+
+    /**
+     * Loads the stored generation for the given days with one range query, backfilling any days which are missing.
+     * Days with no data available at all are left out of the result, as are days whose fetch failed, which are
+     * returned with it as failed.
+     */
+    private BackfillResult getHistoricalGeneration(final List<LocalDate> days) {
+        Map<LocalDate, Double> generationByDay = new HashMap<>();
+        Set<LocalDate> requestedDays = new HashSet<>(days);
+
+        performanceStatEntryRepository.findAllBySiteAndForDateBetweenOrderByForDateAsc(GRAIG_FATHA,
+                        getDayBounds(days.getFirst()).getLeft(), getDayBounds(days.getLast()).getRight())
+                .stream()
+                .filter(entry -> requestedDays.contains(entry.getForDate().toLocalDate()))
+                .forEach(entry -> generationByDay.put(entry.getForDate().toLocalDate(), entry.getKWhGenerated()));
+
+        List<LocalDate> unstoredDays = days.stream()
+                .filter(day -> !generationByDay.containsKey(day))
+                .toList();
+        BackfillResult backfilled = performanceBackfillService.backfill(unstoredDays);
+        if (!backfilled.failedDays().isEmpty()) {
+            log.warn("Savings are incomplete for {}, their performance data could not be fetched",
+                    backfilled.failedDays());
+        }
+        generationByDay.putAll(backfilled.generationByDay());
 
-        if (null != generationOnDay) { // If there's data for this day, return it
-            return generationOnDay.getKWhGenerated();
-        } else { // if there's no data for this day, fetch it and store it
-            Optional<VensysPerformanceData> performanceDataOpt = graigFathaStatsService.getPerformance(start, end);
+        return new BackfillResult(generationByDay, backfilled.failedDays());
+    }
 
-            if (performanceDataOpt.isPresent()) {
-                PerformanceStatEntry statEntry = EntityHelper.createPerformanceStatEntry(performanceDataOpt.get(), GRAIG_FATHA);
-                entityManager.persist(statEntry);
+    /**
+     * Walks the range in chunks. Each chunk is read from the ledger in a short read-only transaction of its own, so
+     * memory use doesn't grow with the length of the range and the consumer runs with no transaction open. Days missing
+     * from the ledger are recorded after the read, each step in its own transaction, so fetching them from Vensys
+     * doesn't hold one either.
+     */
+    private void forEachDay(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
+                            final String userId, final DayConsumer consumer) {
+        EffectiveDateTimeline.Cursor ownerships = memberOwnershipService.getMemberOwnershipTimeline(GRAIG_FATHA, to,
+                userId, suppliedOwnershipWattage).cursor();
+
+        for (LocalDate chunkStart = from; !chunkStart.isAfter(to); chunkStart = chunkStart.plusDays(STREAM_CHUNK_DAYS)) {
+            LocalDate chunkEnd = chunkStart.plusDays(STREAM_CHUNK_DAYS - 1);
+            if (chunkEnd.isAfter(to)) {
+                chunkEnd = to;
+            }
 
-                return statEntry.getKWhGenerated();
-            } else {
-                return 0;
+            LocalDate readFrom = chunkStart;
+            LocalDate readTo = chunkEnd;
+            Map<LocalDate, SiteSavingsLedgerEntry> recordedDays = readOnlyTransaction.execute(status ->
+                    siteSavingsLedgerService.getEntries(GRAIG_FATHA, readFrom, readTo));
+
+            DailySiteSavings dailySavings = withMissingDays(chunkStart, chunkEnd, recordedDays);
+            for (SiteSavingsLedgerEntry siteSavings : dailySavings.days()) {
+                consumer.accept(siteSavings, ownerships.advanceTo(siteSavings.getForDate()),
+                        dailySavings.failedDays().contains(siteSavings.getForDate()));
             }
         }
     }
 
+    private EnergySaving getMemberSavings(final SiteSavingsLedgerEntry siteSavings, final double ownershipWattage,
+                                          final boolean incomplete) {
+        Pair<LocalDateTime, LocalDateTime> dayStartAndEnd = getDayBounds(siteSavings.getForDate());
+        double memberOwnershipPct = getOwnershipPercentage(ownershipWattage);
+        double memberSavings = siteSavings.getSavings() * memberOwnershipPct;
+
+        return new EnergySaving(
+                memberSavings,
+                "GBP",
+                siteSavings.getSavingsRate(),
+                dayStartAndEnd.getLeft(),
+                dayStartAndEnd.getRight(),
+                incomplete
+        );
+    }
+
     private Pair<LocalDateTime, LocalDateTime> getDayBounds(final LocalDate day) {
         LocalDateTime startOfDay = day.atStartOfDay();
         LocalDateTime endOfDay = day.atTime(LocalTime.MAX);
@@ -203,4 +573,75 @@ public class GraigFathaMemberServiceImpl implements GraigFathaMemberService {
     private double getCapitalWithdrawn(final double withdrawnShares) {
         return withdrawnShares * sharePrice;
     }
-}
\ No newline at end of file
+
+    private static final class SavingsAggregator {
+        private final SavingsGranularity granularity;
+        private final List<EnergySaving> periods = new ArrayList<>();
+        private LocalDate periodStart;
+        private LocalDate firstDay;
+        private LocalDate lastDay;
+        private double siteGeneration;
+        private double siteSavings;
+        private double memberSavings;
+        private double lastSavingsRate;
+        private boolean incomplete;
+
+        private SavingsAggregator(final SavingsGranularity granularity) {
+            this.granularity = granularity;
+        }
+
+        private void add(final SiteSavingsLedgerEntry day, final double memberSavingsForDay,
+                         final boolean dayIncomplete) {
+            LocalDate dayPeriodStart = granularity.getPeriodStart(day.getForDate());
+            if (!dayPeriodStart.equals(periodStart)) {
+                closePeriod();
+                periodStart = dayPeriodStart;
+                firstDay = day.getForDate();
+            }
+
+            lastDay = day.getForDate();
+            siteGeneration += day.getKWhGenerated();
+            siteSavings += day.getSavings();
+            memberSavings += memberSavingsForDay;
+            lastSavingsRate = day.getSavingsRate();
+            incomplete |= dayIncomplete;
+        }
+
+        private List<EnergySaving> finish() {
+            closePeriod();
+            return periods;
+        }
+
+        private void closePeriod() {
+            if (null == periodStart) {
+                return;
+            }
+
+            periods.add(new EnergySaving(
+                    memberSavings,
+                    "GBP",
+                    0 == siteGeneration ? lastSavingsRate : siteSavings / siteGeneration,
+                    firstDay.atStartOfDay(),
+                    lastDay.atTime(LocalTime.MAX),
+                    incomplete
+            ));
+
+            periodStart = null;
+            siteGeneration = 0;
+            siteSavings = 0;
+            memberSavings = 0;
+            incomplete = false;
+        }
+    }
+
+    /**
+     * The site's savings for each day of a range, and the days among them whose generation couldn't be fetched.
+     */
+    private record DailySiteSavings(List<SiteSavingsLedgerEntry> days, Set<LocalDate> failedDays) {
+    }
+
+    @FunctionalInterface
+    private interface DayConsumer {
+        void accept(SiteSavingsLedgerEntry siteSavings, double ownershipWattage, boolean incomplete);
+    }
+}
@@ -1,47 +1,89 @@
 package uk.co.emcreations.energycoop.service.impl;
 
-import jakarta.persistence.EntityManager;
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.emcreations.energycoop.cache.VensysRequestCoalescer;
+import uk.co.emcreations.energycoop.cache.VensysResponseCache;
 import uk.co.emcreations.energycoop.dto.VensysMeanData;
 import uk.co.emcreations.energycoop.dto.VensysMeanDataResponse;
 import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
 import uk.co.emcreations.energycoop.dto.VensysPerformanceDataResponse;
-import uk.co.emcreations.energycoop.entity.PerformanceStatEntry;
 import uk.co.emcreations.energycoop.model.Site;
 import uk.co.emcreations.energycoop.service.AlertService;
 import uk.co.emcreations.energycoop.service.GraigFathaStatsService;
-import uk.co.emcreations.energycoop.sourceclient.VensysGraigFathaClient;
-import uk.co.emcreations.energycoop.util.EntityHelper;
+import uk.co.emcreations.energycoop.service.PerformanceStatService;
+import uk.co.emcreations.energycoop.service.SiteSavingsLedgerService;
+import uk.co.emcreations.energycoop.sourceclient.ResilientVensysClient;
+import uk.co.emcreations.energycoop.util.TokenBucket;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Fetches Graig Fatha's figures from Vensys. Upstream calls are made outside any transaction, so a slow API never holds
+ * a database connection; only storing what was fetched runs in one.
+ */
 @Slf4j
 @Service
-@Transactional
-@RequiredArgsConstructor
 public class GraigFathaStatsServiceImpl implements GraigFathaStatsService {
-    private final VensysGraigFathaClient client;
+    private final ResilientVensysClient client;
     private final AlertService alertService;
-    private final EntityManager entityManager;
+    private final PerformanceStatService performanceStatService;
+    private final SiteSavingsLedgerService siteSavingsLedgerService;
+    private final VensysRequestCoalescer requestCoalescer;
+    private final VensysResponseCache responseCache;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${alerts.thresholds.availability:75.0}")
     private double availabilityThreshold;
     @Value("${alerts.thresholds.failure-time:100.0}")
     private double failureTimeThreshold;
+    @Value("${scheduling.graig-fatha.schedule.energy-yield:15 */15 * * * *}")
+    private String energyYieldSchedule;
+    @Value("${scheduling.graig-fatha.schedule.performance:5 0 */6 * * *}")
+    private String performanceSchedule;
+    @Value("${backfill.range-days:31}")
+    private int rangeDays;
+
+    public GraigFathaStatsServiceImpl(final ResilientVensysClient client, final AlertService alertService,
+                                      final PerformanceStatService performanceStatService,
+                                      final SiteSavingsLedgerService siteSavingsLedgerService,
+                                      final VensysRequestCoalescer requestCoalescer,
+                                      final VensysResponseCache responseCache,
+                                      final PlatformTransactionManager transactionManager) {
+        this.client = client;
+        this.alertService = alertService;
+        this.performanceStatService = performanceStatService;
+        this.siteSavingsLedgerService = siteSavingsLedgerService;
+        this.requestCoalescer = requestCoalescer;
+        this.responseCache = responseCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     @Override
     public Optional<VensysMeanData> getMeanEnergyYield() {
         log.info("getEnergyYield() called");
 
-        VensysMeanDataResponse meanDataResponse = client.getMeanEnergyYield();
+        var request = VensysRequestCoalescer.Request.of("meanEnergyYield");
+        VensysMeanDataResponse meanDataResponse = responseCache.get(request,
+                () -> requestCoalescer.execute(request, client::getMeanEnergyYield),
+                response -> null == response.data() || response.data().stale()
+                        ? Instant.now() : nextRun(energyYieldSchedule));
         Optional<VensysMeanData> meanDataOptional = Optional.ofNullable(meanDataResponse.data());
 
         if (meanDataOptional.isPresent()) {
@@ -54,6 +96,7 @@ public class GraigFathaStatsServiceImpl implements GraigFathaStatsService {
             if (performanceData.isPresent()) {
                 return Optional.of(VensysMeanData.builder()
                         .value(performanceData.get().energyYield())
+                        .stale(performanceData.get().stale())
                         .build());
             } else {
                 return Optional.empty(); // We tried everything, return an empty optional
@@ -77,13 +120,29 @@ public class GraigFathaStatsServiceImpl implements GraigFathaStatsService {
 
     @Override
     public Optional<VensysPerformanceData> getPerformance(final LocalDateTime from, final LocalDateTime to) {
+        return getPerformance(from, to, null);
+    }
+
+    private Optional<VensysPerformanceData> getPerformance(final LocalDateTime from, final LocalDateTime to,
+                                                           final TokenBucket upstreamCalls) {
         log.info("getPerformance() called from: {}, to: {}", from, to);
 
         var fromTimestamp = from.toEpochSecond(ZoneOffset.UTC);
         var toTimestamp = to.toEpochSecond(ZoneOffset.UTC);
 
-        VensysPerformanceDataResponse response = client.getPerformance(fromTimestamp, toTimestamp);
-        validatePerformanceData(response);
+        // Validated inside the shared call so callers sharing a response raise one alert between them. A stale response
+        // was already validated when it was first fetched.
+        var request = new VensysRequestCoalescer.Request("performance", fromTimestamp, toTimestamp);
+        VensysPerformanceDataResponse response = responseCache.get(request,
+                () -> requestCoalescer.execute(request, () -> {
+                    acquire(upstreamCalls);
+                    VensysPerformanceDataResponse fetched = client.getPerformance(fromTimestamp, toTimestamp);
+                    if (!isStale(fetched)) {
+                        validatePerformanceData(fetched);
+                    }
+                    return fetched;
+                }),
+                fetched -> performanceExpiry(to.toLocalDate(), fetched));
 
         if (isInvalidResponse(response)) {
             log.warn("No performance data available for period {} to {}", from, to);
@@ -93,34 +152,197 @@ public class GraigFathaStatsServiceImpl implements GraigFathaStatsService {
         return Optional.of(response.data()[0]);
     }
 
+    /**
+     * Fetches and stores the range a window at a time. Each window's performance entries and ledger days are stored
+     * together in one transaction, begun once the window has been fetched.
+     */
     @Override
     public void logPerformance(final LocalDate from, final LocalDate to) {
         log.info("logPerformance() called from: {}, to: {}", from, to);
 
-        LocalDate current = from;
-        while (!current.isAfter(to)) {
-            var dayStart = LocalDateTime.of(current, LocalTime.MIDNIGHT);
-            var dayEnd = LocalDateTime.of(current, LocalTime.MAX);
+        LocalDate windowStart = from;
+        while (!windowStart.isAfter(to)) {
+            LocalDate windowEnd = windowStart.plusDays(Math.max(1, rangeDays) - 1L);
+            if (windowEnd.isAfter(to)) {
+                windowEnd = to;
+            }
 
-            Optional<VensysPerformanceData> performanceDataOptional = getPerformance(dayStart, dayEnd);
+            Map<LocalDate, VensysPerformanceData> dailyPerformance = getDailyPerformance(windowStart, windowEnd);
+            for (LocalDate current = windowStart; !current.isAfter(windowEnd); current = current.plusDays(1)) {
+                if (!dailyPerformance.containsKey(current)) {
+                    log.warn("No valid performance data available for date: {}", current);
+                }
+            }
 
-            if (performanceDataOptional.isPresent()) {
-                VensysPerformanceData performanceData = performanceDataOptional.get();
-                PerformanceStatEntry entry = EntityHelper.createPerformanceStatEntry(performanceData, Site.GRAIG_FATHA);
-                entityManager.persist(entry);
-                log.info("Persisted performance data for date: {}", current);
-            } else {
-                log.warn("No valid performance data available for date: {}", current);
+            if (!dailyPerformance.isEmpty()) {
+                Map<LocalDate, Double> generationByDay = new TreeMap<>();
+                dailyPerformance.forEach((day, performanceData) -> generationByDay.put(day, performanceData.energyYield()));
+
+                transactionTemplate.executeWithoutResult(status -> {
+                    performanceStatService.recordDays(Site.GRAIG_FATHA, dailyPerformance);
+                    siteSavingsLedgerService.recordDays(Site.GRAIG_FATHA, generationByDay);
+                });
+                log.info("Persisted performance data for {} days from {} to {}", dailyPerformance.size(), windowStart,
+                        windowEnd);
+            }
+
+            windowStart = windowEnd.plusDays(1);
+        }
+    }
+
+    @Override
+    public Map<LocalDate, VensysPerformanceData> getDailyPerformance(final LocalDate from, final LocalDate to) {
+        return getDailyPerformance(from, to, null);
+    }
+
+    /**
+     * Asks Vensys for the range in windows of up to {@code backfill.range-days} days, one call each, and buckets the
+     * entries each returns by the day of their timestamp. A day may have several entries, covering parts of it, which
+     * are combined into one for the day; a day with none is a gap. A lone entry for a window of several days can't be
+     * told apart from a single total for the whole window, so it's not used. Any day left without a bucket is then
+     * fetched on its own.
+     * <p>
+     * A token is taken from {@code upstreamCalls}, if given, before every call actually made to Vensys, so a caller
+     * can throttle however many calls the range turns into. Responses served from the cache or shared with an
+     * identical call in flight take none.
+     *
+     * @throws CancellationException if interrupted while waiting for a token
+     */
+    @Override
+    public Map<LocalDate, VensysPerformanceData> getDailyPerformance(final LocalDate from, final LocalDate to,
+                                                                     final TokenBucket upstreamCalls) {
+        log.info("getDailyPerformance() called from: {}, to: {}", from, to);
+
+        Map<LocalDate, VensysPerformanceData> dailyPerformance = new TreeMap<>();
+        LocalDate windowStart = from;
+        while (1 < rangeDays && windowStart.isBefore(to)) {
+            LocalDate windowEnd = windowStart.plusDays(rangeDays - 1L);
+            if (windowEnd.isAfter(to)) {
+                windowEnd = to;
             }
 
-            current = current.plusDays(1);
+            dailyPerformance.putAll(getPerformanceBuckets(windowStart, windowEnd, upstreamCalls));
+            windowStart = windowEnd.plusDays(1);
         }
+
+        for (LocalDate current = from; !current.isAfter(to); current = current.plusDays(1)) {
+            if (!dailyPerformance.containsKey(current)) {
+                LocalDate day = current;
+                getPerformance(LocalDateTime.of(day, LocalTime.MIDNIGHT), LocalDateTime.of(day, LocalTime.MAX),
+                        upstreamCalls).ifPresent(performanceData -> dailyPerformance.put(day, performanceData));
+            }
+        }
+
+        return dailyPerformance;
+    }
+
+    private Map<LocalDate, VensysPerformanceData> getPerformanceBuckets(final LocalDate from, final LocalDate to,
+                                                                        final TokenBucket upstreamCalls) {
+        var fromTimestamp = LocalDateTime.of(from, LocalTime.MIDNIGHT).toEpochSecond(ZoneOffset.UTC);
+        var toTimestamp = LocalDateTime.of(to, LocalTime.MAX).toEpochSecond(ZoneOffset.UTC);
+
+        var request = new VensysRequestCoalescer.Request("dailyPerformance", fromTimestamp, toTimestamp);
+        VensysPerformanceDataResponse response = responseCache.get(request,
+                () -> requestCoalescer.execute(request, () -> {
+                    acquire(upstreamCalls);
+                    VensysPerformanceDataResponse fetched = client.getPerformance(fromTimestamp, toTimestamp);
+                    Map<LocalDate, VensysPerformanceData> buckets = toDailyBuckets(fetched, from, to);
+                    if (!isStale(fetched)) {
+                        validateDailyPerformanceData(fetched, buckets);
+                    }
+                    return fetched;
+                }),
+                fetched -> toDailyBuckets(fetched, from, to).isEmpty() ? Instant.now() : performanceExpiry(to, fetched));
+
+        Map<LocalDate, VensysPerformanceData> buckets = toDailyBuckets(response, from, to);
+        log.info("Vensys returned {} daily buckets for {} to {}", buckets.size(), from, to);
+        return buckets;
+    }
+
+    private Map<LocalDate, VensysPerformanceData> toDailyBuckets(final VensysPerformanceDataResponse response,
+                                                                 final LocalDate from, final LocalDate to) {
+        Map<LocalDate, VensysPerformanceData> buckets = new TreeMap<>();
+        if (isInvalidResponse(response) || (1 == response.data().length && from.isBefore(to))) {
+            return buckets;
+        }
+
+        Map<LocalDate, List<VensysPerformanceData>> entriesByDay = new TreeMap<>();
+        for (VensysPerformanceData performanceData : response.data()) {
+            if (null != performanceData && null != performanceData.date()) {
+                LocalDate day = performanceData.date().toLocalDate();
+                if (!day.isBefore(from) && !day.isAfter(to)) {
+                    entriesByDay.computeIfAbsent(day, d -> new ArrayList<>()).add(performanceData);
+                }
+            }
+        }
+        entriesByDay.forEach((day, entries) -> buckets.put(day, combine(day, entries)));
+        return buckets;
+    }
+
+    // Entries for parts of the same day: amounts and times add up, maximums are kept, and averages are weighted by how
+    // many values went into each entry, or taken evenly if none say
+    private static VensysPerformanceData combine(final LocalDate day, final List<VensysPerformanceData> entries) {
+        if (1 == entries.size()) {
+            return entries.getFirst();
+        }
+
+        int valuesCount = entries.stream().mapToInt(VensysPerformanceData::valuesCount).sum();
+
+        return entries.getFirst().toBuilder()
+                .date(day.atStartOfDay())
+                .availability(average(entries, VensysPerformanceData::availability))
+                .energyYield(sum(entries, VensysPerformanceData::energyYield))
+                .powerAvg(average(entries, VensysPerformanceData::powerAvg))
+                .powerMax(max(entries, VensysPerformanceData::powerMax))
+                .windAvg(average(entries, VensysPerformanceData::windAvg))
+                .windMax(max(entries, VensysPerformanceData::windMax))
+                .valuesCount(valuesCount)
+                .errorCount(entries.stream().mapToInt(VensysPerformanceData::errorCount).sum())
+                .powerProductionTime(sum(entries, VensysPerformanceData::powerProductionTime))
+                .lowWindTime(sum(entries, VensysPerformanceData::lowWindTime))
+                .errorTime(sum(entries, VensysPerformanceData::errorTime))
+                .serviceTime(sum(entries, VensysPerformanceData::serviceTime))
+                .iceTime(sum(entries, VensysPerformanceData::iceTime))
+                .stormTime(sum(entries, VensysPerformanceData::stormTime))
+                .shadowTime(sum(entries, VensysPerformanceData::shadowTime))
+                .twistTime(sum(entries, VensysPerformanceData::twistTime))
+                .gridFailureTime(sum(entries, VensysPerformanceData::gridFailureTime))
+                .commFailureTime(sum(entries, VensysPerformanceData::commFailureTime))
+                .visitTime(sum(entries, VensysPerformanceData::visitTime))
+                .serverStopTime(sum(entries, VensysPerformanceData::serverStopTime))
+                .fireTime(sum(entries, VensysPerformanceData::fireTime))
+                .batMonitoringTime(sum(entries, VensysPerformanceData::batMonitoringTime))
+                .nightShutdownTime(sum(entries, VensysPerformanceData::nightShutdownTime))
+                .stale(entries.stream().anyMatch(VensysPerformanceData::stale))
+                .build();
+    }
+
+    private static double sum(final List<VensysPerformanceData> entries,
+                              final ToDoubleFunction<VensysPerformanceData> field) {
+        return entries.stream().mapToDouble(field).sum();
+    }
+
+    private static double max(final List<VensysPerformanceData> entries,
+                              final ToDoubleFunction<VensysPerformanceData> field) {
+        return entries.stream().mapToDouble(field).max().orElse(0);
+    }
+
+    private static double average(final List<VensysPerformanceData> entries,
+                                  final ToDoubleFunction<VensysPerformanceData> field) {
+        int valuesCount = entries.stream().mapToInt(VensysPerformanceData::valuesCount).sum();
+        return entries.stream()
+                .mapToDouble(entry -> field.applyAsDouble(entry)
+                        * (0 == valuesCount ? 1.0 / entries.size() : (double) entry.valuesCount() / valuesCount))
+                .sum();
     }
 
     private Optional<VensysPerformanceData> getCurrentPerformance() {
         log.info("getCurrentPerformance() called");
 
-        VensysPerformanceDataResponse response = client.getCurrentPerformance();
+        var request = VensysRequestCoalescer.Request.of("currentPerformance");
+        VensysPerformanceDataResponse response = responseCache.get(request,
+                () -> requestCoalescer.execute(request, client::getCurrentPerformance),
+                fetched -> isInvalidResponse(fetched) || isStale(fetched) ? Instant.now() : nextRun(energyYieldSchedule));
         //validatePerformanceData(response); // For now don't alert on current performance calls
 
         if (isInvalidResponse(response)) {
@@ -131,10 +353,49 @@ public class GraigFathaStatsServiceImpl implements GraigFathaStatsService {
         return Optional.of(response.data()[0]);
     }
 
+    /**
+     * Days before yesterday are settled and never expire. Yesterday is filled in over the following day, so it is kept
+     * until the next scheduled performance log, and today until the next energy yield poll. Missing and stale data is
+     * not kept, so the API is asked again once it's back.
+     */
+    private Instant performanceExpiry(final LocalDate to, final VensysPerformanceDataResponse response) {
+        LocalDate today = LocalDate.now();
+        if (isInvalidResponse(response) || isStale(response)) {
+            return Instant.now();
+        } else if (to.isBefore(today.minusDays(1))) {
+            return null;
+        } else if (to.isBefore(today)) {
+            return nextRun(performanceSchedule);
+        }
+        return nextRun(energyYieldSchedule);
+    }
+
+    private static void acquire(final TokenBucket upstreamCalls) {
+        if (null == upstreamCalls) {
+            return;
+        }
+
+        try {
+            upstreamCalls.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted waiting to call Vensys");
+        }
+    }
+
+    private static Instant nextRun(final String schedule) {
+        ZonedDateTime next = CronExpression.parse(schedule).next(ZonedDateTime.now());
+        return null == next ? Instant.now() : next.toInstant();
+    }
+
     private boolean isInvalidResponse(VensysPerformanceDataResponse response) {
         return response == null || response.data() == null || response.data().length == 0 || response.data()[0] == null;
     }
 
+    private boolean isStale(final VensysPerformanceDataResponse response) {
+        return !isInvalidResponse(response) && response.data()[0].stale();
+    }
+
     private void validatePerformanceData(final VensysPerformanceDataResponse response) {
         var alertMessage = new StringBuilder();
 
@@ -147,33 +408,59 @@ public class GraigFathaStatsServiceImpl implements GraigFathaStatsService {
         } else if (response.data()[0] == null) {
             alertMessage.append("First performance data entry is null.\n");
         } else {
-            VensysPerformanceData data = response.data()[0];
-            if (availabilityThreshold >= data.availability()) {
-                alertMessage.append("Availability (").append(data.availability()).append("%) less than threshold (")
-                        .append(availabilityThreshold).append("%).\n");
-            }
+            alertMessage.append(findThresholdBreaches(response.data()[0]));
+        }
 
-            if (failureTimeThreshold < data.fireTime()) {
-                alertMessage.append("Fire time (").append(data.fireTime()).append("s) exceeds threshold (")
-                        .append(failureTimeThreshold).append("s).\n");
-            }
+        sendPerformanceAlert(response, alertMessage);
+    }
 
-            if (failureTimeThreshold < data.commFailureTime()) {
-                alertMessage.append("Comm failure time (").append(data.commFailureTime()).append("s) exceeds threshold (")
-                        .append(failureTimeThreshold).append("s).\n");
-            }
+    // Problems with the response as a whole are left to the day by day fetches which replace it
+    private void validateDailyPerformanceData(final VensysPerformanceDataResponse response,
+                                              final Map<LocalDate, VensysPerformanceData> buckets) {
+        var alertMessage = new StringBuilder();
 
-            if (failureTimeThreshold < data.gridFailureTime()) {
-                alertMessage.append("Grid failure time (").append(data.gridFailureTime()).append("s) exceeds threshold (")
-                        .append(failureTimeThreshold).append("s).\n");
+        buckets.forEach((day, data) -> {
+            String breaches = findThresholdBreaches(data);
+            if (!breaches.isEmpty()) {
+                alertMessage.append(day).append(":\n").append(breaches);
             }
+        });
 
-            if (failureTimeThreshold < data.errorTime()) {
-                alertMessage.append("Error time (").append(data.errorTime()).append("s) exceeds threshold (")
-                        .append(failureTimeThreshold).append("s).\n");
-            }
+        sendPerformanceAlert(response, alertMessage);
+    }
+
+    private String findThresholdBreaches(final VensysPerformanceData data) {
+        var breaches = new StringBuilder();
+
+        if (availabilityThreshold >= data.availability()) {
+            breaches.append("Availability (").append(data.availability()).append("%) less than threshold (")
+                    .append(availabilityThreshold).append("%).\n");
+        }
+
+        if (failureTimeThreshold < data.fireTime()) {
+            breaches.append("Fire time (").append(data.fireTime()).append("s) exceeds threshold (")
+                    .append(failureTimeThreshold).append("s).\n");
+        }
+
+        if (failureTimeThreshold < data.commFailureTime()) {
+            breaches.append("Comm failure time (").append(data.commFailureTime()).append("s) exceeds threshold (")
+                    .append(failureTimeThreshold).append("s).\n");
+        }
+
+        if (failureTimeThreshold < data.gridFailureTime()) {
+            breaches.append("Grid failure time (").append(data.gridFailureTime()).append("s) exceeds threshold (")
+                    .append(failureTimeThreshold).append("s).\n");
         }
 
+        if (failureTimeThreshold < data.errorTime()) {
+            breaches.append("Error time (").append(data.errorTime()).append("s) exceeds threshold (")
+                    .append(failureTimeThreshold).append("s).\n");
+        }
+
+        return breaches.toString();
+    }
+
+    private void sendPerformanceAlert(final VensysPerformanceDataResponse response, final StringBuilder alertMessage) {
         if (!alertMessage.isEmpty()) {
             var timeStr = (response != null && response.from() != null && response.to() != null)
                     ? response.from() + " -> " + response.to() + "\n"
@@ -0,0 +1,90 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uk.co.emcreations.energycoop.event.GenerationRecordedEvent;
+import uk.co.emcreations.energycoop.event.GenerationSnapshotUpdatedEvent;
+import uk.co.emcreations.energycoop.event.SavingsRateChangedEvent;
+import uk.co.emcreations.energycoop.model.GenerationSnapshot;
+import uk.co.emcreations.energycoop.model.Site;
+import uk.co.emcreations.energycoop.service.LiveGenerationService;
+import uk.co.emcreations.energycoop.service.SavingsRateService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds each site's latest generation reading and savings rate in memory, so today's savings can be served without a
+ * database query. Snapshots are replaced whole, so readers always see a reading and rate which belong together. A
+ * snapshot is published when a reading is committed and re-priced when the rate for its day changes; until the first
+ * reading of the day arrives there is no snapshot for today and callers fall back to the database. Every change to a
+ * snapshot is announced with a {@link GenerationSnapshotUpdatedEvent} for live subscribers.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LiveGenerationServiceImpl implements LiveGenerationService {
+    private final SavingsRateService savingsRateService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ConcurrentMap<Site, GenerationSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<GenerationSnapshot> getTodaySnapshot(final Site site) {
+        LocalDate today = LocalDate.now();
+
+        return Optional.ofNullable(snapshots.get(site))
+                .filter(snapshot -> snapshot.day().equals(today));
+    }
+
+    /**
+     * Publishes a reading unless a later one has already been published. Republishing the current reading changes
+     * nothing.
+     */
+    @Override
+    public void updateSnapshot(final Site site, final LocalDateTime timestamp, final double kWhGenerated) {
+        double savingsRate = savingsRateService.getSavingsRateForDate(site, timestamp.toLocalDate());
+        var latest = new GenerationSnapshot(site, timestamp, kWhGenerated, savingsRate);
+
+        var changed = new AtomicBoolean();
+        snapshots.compute(site, (key, current) -> {
+            if (null != current && (latest.timestamp().isBefore(current.timestamp()) || latest.equals(current))) {
+                return current;
+            }
+            changed.set(true);
+            return latest;
+        });
+
+        if (changed.get()) {
+            log.debug("Published generation snapshot {}", latest);
+            eventPublisher.publishEvent(new GenerationSnapshotUpdatedEvent(latest));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGenerationRecorded(final GenerationRecordedEvent event) {
+        updateSnapshot(event.site(), event.timestamp(), event.kWhGenerated());
+    }
+
+    @EventListener
+    public void onSavingsRateChanged(final SavingsRateChangedEvent event) {
+        GenerationSnapshot current = snapshots.get(event.site());
+        if (null == current || current.day().isBefore(event.effectiveDate())) {
+            return;
+        }
+
+        // If this loses to a newer reading, that reading was priced with the new rate already
+        GenerationSnapshot repriced =
+                current.withSavingsRate(savingsRateService.getSavingsRateForDate(event.site(), current.day()));
+        if (!repriced.equals(current) && snapshots.replace(event.site(), current, repriced)) {
+            eventPublisher.publishEvent(new GenerationSnapshotUpdatedEvent(repriced));
+        }
+    }
+}
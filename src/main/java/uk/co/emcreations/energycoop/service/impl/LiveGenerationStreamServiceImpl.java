@@ -0,0 +1,221 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uk.co.emcreations.energycoop.dto.LiveGenerationUpdate;
+import uk.co.emcreations.energycoop.event.GenerationSnapshotUpdatedEvent;
+import uk.co.emcreations.energycoop.model.GenerationSnapshot;
+import uk.co.emcreations.energycoop.model.Site;
+import uk.co.emcreations.energycoop.service.LiveGenerationService;
+import uk.co.emcreations.energycoop.service.LiveGenerationStreamService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes each site's live generation snapshot to subscribed members as server-sent events, priced with the member's
+ * own ownership. Idle subscribers hold no thread: an update is handed to each subscriber's single pending slot, and a
+ * virtual thread is only started to write it if one isn't already writing. A subscriber that is still writing when the
+ * next update arrives has the pending update replaced rather than queued, so slow consumers skip to the latest reading
+ * and never buffer more than one update. A subscriber whose write has been stuck for longer than the stall timeout,
+ * because the client has stopped reading, is disconnected. Heartbeat comments keep idle connections open through
+ * proxies and find dead clients.
+ */
+@Slf4j
+@Service
+public class LiveGenerationStreamServiceImpl implements LiveGenerationStreamService {
+    private static final String EVENT_NAME = "generation";
+
+    private final LiveGenerationService liveGenerationService;
+    private final double totalCapacity;
+    private final int maxSubscribers;
+    private final Duration timeout;
+    private final Duration stallTimeout;
+    private final Map<Site, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeats =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("live-generation-heartbeat").factory());
+
+    public LiveGenerationStreamServiceImpl(final LiveGenerationService liveGenerationService,
+                                           @Value("${site.capacity.gf:100}") final double totalCapacity,
+                                           @Value("${live-generation.stream.max-subscribers:10000}") final int maxSubscribers,
+                                           @Value("${live-generation.stream.timeout:PT1H}") final Duration timeout,
+                                           @Value("${live-generation.stream.stall-timeout:PT1M}") final Duration stallTimeout,
+                                           @Value("${live-generation.stream.heartbeat-interval:PT30S}") final Duration heartbeatInterval) {
+        this.liveGenerationService = liveGenerationService;
+        this.totalCapacity = totalCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        this.stallTimeout = stallTimeout;
+        this.heartbeats.scheduleAtFixedRate(this::sendHeartbeats, heartbeatInterval.toMillis(),
+                heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribes a member to the site's live generation, starting with today's latest reading if there is one.
+     *
+     * @throws RejectedExecutionException if the maximum number of subscribers are already connected
+     */
+    @Override
+    public SseEmitter subscribe(final Site site, final double wattageOwnership) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            log.warn("Rejected live generation subscriber, {} already connected", maxSubscribers);
+            throw new RejectedExecutionException("Too many live generation subscribers");
+        }
+
+        var subscriber = new Subscriber(site, createEmitter(timeout), wattageOwnership / totalCapacity);
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(subscriber.emitter::complete);
+        subscriber.emitter.onError(e -> remove(subscriber));
+        subscribers.computeIfAbsent(site, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        liveGenerationService.getTodaySnapshot(site).ifPresent(snapshot -> offer(subscriber, snapshot));
+        log.debug("Live generation subscriber added for {}, {} connected", site, subscriberCount.get());
+
+        return subscriber.emitter;
+    }
+
+    @Override
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @EventListener
+    public void onSnapshotUpdated(final GenerationSnapshotUpdatedEvent event) {
+        Set<Subscriber> siteSubscribers = subscribers.getOrDefault(event.snapshot().site(), Set.of());
+        siteSubscribers.forEach(subscriber -> offer(subscriber, event.snapshot()));
+
+        log.debug("Pushed generation snapshot {} to {} subscribers", event.snapshot(), siteSubscribers.size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeats.shutdownNow();
+        subscribers.values().forEach(siteSubscribers -> siteSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    SseEmitter createEmitter(final Duration timeout) {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    void sendHeartbeats() {
+        subscribers.values().forEach(siteSubscribers -> siteSubscribers.forEach(subscriber -> {
+            subscriber.heartbeatDue.set(true);
+            schedule(subscriber);
+        }));
+    }
+
+    // Replaces anything still waiting to be sent, so a subscriber only ever has the latest update pending
+    private void offer(final Subscriber subscriber, final GenerationSnapshot snapshot) {
+        if (null != subscriber.pending.getAndSet(snapshot)) {
+            log.debug("Coalesced live generation update for slow subscriber");
+        }
+        schedule(subscriber);
+    }
+
+    private void schedule(final Subscriber subscriber) {
+        if (subscriber.isStalled(stallTimeout)) {
+            log.info("Disconnecting live generation subscriber which has stopped reading");
+            remove(subscriber);
+            subscriber.emitter.completeWithError(new IOException("Subscriber stalled"));
+            return;
+        }
+
+        if (subscriber.sending.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.sending.set(false); // shutting down
+            }
+        }
+    }
+
+    // Sends until there is nothing left, then hands back the sending flag, taking it again if more arrived meanwhile
+    private void drain(final Subscriber subscriber) {
+        try {
+            while (true) {
+                GenerationSnapshot snapshot = subscriber.pending.getAndSet(null);
+                if (null != snapshot) {
+                    subscriber.send(SseEmitter.event()
+                            .name(EVENT_NAME)
+                            .id(snapshot.timestamp().toString())
+                            .data(toUpdate(snapshot, subscriber.ownershipPercentage), MediaType.APPLICATION_JSON));
+                } else if (subscriber.heartbeatDue.getAndSet(false)) {
+                    subscriber.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    subscriber.sending.set(false);
+                    if ((null == subscriber.pending.get() && !subscriber.heartbeatDue.get())
+                            || !subscriber.sending.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Live generation subscriber disconnected: {}", e.getMessage());
+            remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private static LiveGenerationUpdate toUpdate(final GenerationSnapshot snapshot, final double ownershipPercentage) {
+        return new LiveGenerationUpdate(snapshot.timestamp(), snapshot.kWhGenerated(), snapshot.savingsRate(),
+                snapshot.kWhGenerated() * snapshot.savingsRate() * ownershipPercentage);
+    }
+
+    private void remove(final Subscriber subscriber) {
+        Set<Subscriber> siteSubscribers = subscribers.get(subscriber.site);
+        if (null != siteSubscribers && siteSubscribers.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    private static final class Subscriber {
+        private final Site site;
+        private final SseEmitter emitter;
+        private final double ownershipPercentage;
+        private final AtomicReference<GenerationSnapshot> pending = new AtomicReference<>();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicLong sendStartedAt = new AtomicLong();
+
+        private Subscriber(final Site site, final SseEmitter emitter, final double ownershipPercentage) {
+            this.site = site;
+            this.emitter = emitter;
+            this.ownershipPercentage = ownershipPercentage;
+        }
+
+        private void send(final SseEmitter.SseEventBuilder event) throws IOException {
+            sendStartedAt.set(System.nanoTime());
+            try {
+                emitter.send(event);
+            } finally {
+                sendStartedAt.set(0);
+            }
+        }
+
+        private boolean isStalled(final Duration stallTimeout) {
+            long startedAt = sendStartedAt.get();
+            return 0 != startedAt && System.nanoTime() - startedAt > stallTimeout.toNanos();
+        }
+    }
+}
@@ -2,9 +2,13 @@ package uk.co.emcreations.energycoop.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import uk.co.emcreations.energycoop.cache.MemberOwnershipCache;
 import uk.co.emcreations.energycoop.entity.MemberOwnership;
 import uk.co.emcreations.energycoop.entity.MemberOwnershipRepository;
+import uk.co.emcreations.energycoop.event.MemberOwnershipChangedEvent;
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
 import uk.co.emcreations.energycoop.model.Site;
 import uk.co.emcreations.energycoop.service.MemberOwnershipService;
 
@@ -15,23 +19,58 @@ import java.time.LocalDate;
  * ownership has changed over time. For example if we're calculating savings for an entire year, the member may have
  * sold or bought some of their shares part way through the year. In these cases we need to use the ownership figures
  * that were correct for the date we're calculating savings for.
+ * <p>
+ * A member's ownership rarely changes, so their full history for a site is loaded once and held in
+ * {@link MemberOwnershipCache} for a limited time. Ownership rows are maintained outside this application, so once they
+ * have been updated {@link #reloadOwnership} should be called for changes to show before the cached history expires.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class MemberOwnershipServiceImpl implements MemberOwnershipService {
     private final MemberOwnershipRepository memberOwnershipRepository;
+    private final MemberOwnershipCache memberOwnershipCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public double getMemberOwnershipForSite(final Site site, final LocalDate date, final String userId,
                                             final double suppliedOwnership) {
-        double memberOwnership = memberOwnershipRepository
-                .findTopByUserIdAndSiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(userId, site, date)
-                .map(MemberOwnership::getWattageOwnership)
-                .orElse(suppliedOwnership);
+        double memberOwnership = getOwnershipHistory(site, userId).withBaseValue(suppliedOwnership).valueAt(date);
 
         log.debug("Retrieved ownership for site {} on date {} and member {}: {}", site, date, userId, memberOwnership);
 
         return memberOwnership;
     }
+
+    /**
+     * Returns the member's full ownership history. Dates before the member's first recorded ownership fall back to the
+     * supplied ownership, matching {@link #getMemberOwnershipForSite}.
+     */
+    @Override
+    public EffectiveDateTimeline getMemberOwnershipTimeline(final Site site, final LocalDate to, final String userId,
+                                                            final double suppliedOwnership) {
+        return getOwnershipHistory(site, userId).withBaseValue(suppliedOwnership);
+    }
+
+    /**
+     * Drops the cached ownership history of the member, or of every member of the site if no member is given, and
+     * moves the site's data version on so clients revalidate anything which depended on it.
+     */
+    @Override
+    public void reloadOwnership(final Site site, final String userId) {
+        log.info("Reloading ownership for site {} and member {}", site, null == userId ? "(all)" : userId);
+
+        eventPublisher.publishEvent(new MemberOwnershipChangedEvent(userId, site));
+    }
+
+    private EffectiveDateTimeline getOwnershipHistory(final Site site, final String userId) {
+        return memberOwnershipCache.get(new MemberOwnershipCache.Key(userId, site), () -> {
+            var ownerships = memberOwnershipRepository.findAllByUserIdAndSiteOrderByEffectiveDateAscIdAsc(userId, site);
+
+            log.debug("Loaded {} ownership records for site {} and member {}", ownerships.size(), site, userId);
+
+            return EffectiveDateTimeline.of(ownerships, MemberOwnership::getEffectiveDate,
+                    MemberOwnership::getWattageOwnership, 0);
+        });
+    }
 }
@@ -0,0 +1,262 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.emcreations.energycoop.dto.BackfillJobStatus;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.entity.BackfillJob;
+import uk.co.emcreations.energycoop.entity.BackfillJobRepository;
+import uk.co.emcreations.energycoop.model.JobState;
+import uk.co.emcreations.energycoop.service.GraigFathaStatsService;
+import uk.co.emcreations.energycoop.service.PerformanceBackfillJobService;
+import uk.co.emcreations.energycoop.service.PerformanceStatService;
+import uk.co.emcreations.energycoop.service.SiteSavingsLedgerService;
+import uk.co.emcreations.energycoop.util.TokenBucket;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+/**
+ * Runs performance backfills in the background, one job at a time. A job works through its range in chunks: each
+ * chunk is fetched from Vensys, its performance entries are imported in JDBC batches and committed, then its ledger
+ * days and the job's checkpoint are committed together in a transaction of their own, so a failure only loses the
+ * chunk in progress. A chunk which failed after its import is run again in full; the entries and ledger days are
+ * upserts, so the re-run overwrites what it already stored rather than counting it twice.
+ * <p>
+ * The worker runs without a transaction of its own, and the stats service makes its Vensys calls outside one, so no
+ * connection is held while a chunk is fetched. A chunk can take several calls, split into windows of
+ * {@code backfill.range-days} with a call for each day missing from them, and every one of them takes a token from a
+ * token bucket, so a long backfill can't crowd out the scheduled polls.
+ * <p>
+ * Jobs are persisted, so any left queued or running when the application stopped are picked up again from their
+ * checkpoint once it's next ready, and a failed job can be resumed the same way. This assumes a single instance runs
+ * the jobs.
+ */
+@Slf4j
+@Service
+public class PerformanceBackfillJobServiceImpl implements PerformanceBackfillJobService {
+    private static final Set<JobState> UNFINISHED = EnumSet.of(JobState.QUEUED, JobState.RUNNING);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final BackfillJobRepository backfillJobRepository;
+    private final PerformanceStatService performanceStatService;
+    private final GraigFathaStatsService graigFathaStatsService;
+    private final SiteSavingsLedgerService siteSavingsLedgerService;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenBucket vensysCalls;
+    private final int chunkDays;
+    private final ExecutorService worker =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("performance-backfill").factory());
+    private final Set<Long> scheduledJobs = ConcurrentHashMap.newKeySet();
+    private final Map<Long, RunRate> runRates = new ConcurrentHashMap<>();
+
+    public PerformanceBackfillJobServiceImpl(final BackfillJobRepository backfillJobRepository,
+                                             final PerformanceStatService performanceStatService,
+                                             final GraigFathaStatsService graigFathaStatsService,
+                                             final SiteSavingsLedgerService siteSavingsLedgerService,
+                                             final PlatformTransactionManager transactionManager,
+                                             @Value("${backfill.jobs.chunk-days:31}") final int chunkDays,
+                                             @Value("${backfill.jobs.calls-per-second:0.5}") final double callsPerSecond,
+                                             @Value("${backfill.jobs.burst:5}") final int burst) {
+        if (1 > chunkDays) {
+            throw new IllegalArgumentException("Backfill chunks must be at least one day");
+        }
+
+        this.backfillJobRepository = backfillJobRepository;
+        this.performanceStatService = performanceStatService;
+        this.graigFathaStatsService = graigFathaStatsService;
+        this.siteSavingsLedgerService = siteSavingsLedgerService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.vensysCalls = new TokenBucket(callsPerSecond, burst);
+        this.chunkDays = chunkDays;
+    }
+
+    @Override
+    public BackfillJobStatus submit(final LocalDate from, final LocalDate to) {
+        if (from.isAfter(to) || !to.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Backfill period must be a range of completed days");
+        }
+
+        BackfillJob job = backfillJobRepository.save(BackfillJob.builder()
+                .site(GRAIG_FATHA)
+                .fromDate(from)
+                .toDate(to)
+                .state(JobState.QUEUED)
+                .build());
+        schedule(job.getId());
+
+        log.info("Queued backfill job {} for {} to {}", job.getId(), from, to);
+        return toStatus(job);
+    }
+
+    /**
+     * Queues a failed job to carry on from its checkpoint.
+     *
+     * @throws IllegalStateException if the job has already completed
+     */
+    @Override
+    public Optional<BackfillJobStatus> resume(final long id) {
+        return backfillJobRepository.findById(id).map(job -> {
+            if (JobState.COMPLETED == job.getState()) {
+                throw new IllegalStateException("Backfill job " + id + " has already completed");
+            }
+
+            BackfillJob queued = job;
+            if (JobState.FAILED == job.getState()) {
+                queued = backfillJobRepository.save(job.toBuilder()
+                        .state(JobState.QUEUED)
+                        .finishedAt(null)
+                        .error(null)
+                        .build());
+            }
+            schedule(id);
+
+            log.info("Resuming backfill job {} from {}", id, queued.getNextDay());
+            return toStatus(queued);
+        });
+    }
+
+    @Override
+    public Optional<BackfillJobStatus> getJob(final long id) {
+        return backfillJobRepository.findById(id).map(this::toStatus);
+    }
+
+    @Override
+    public List<BackfillJobStatus> getJobs() {
+        return backfillJobRepository.findTop20ByOrderByIdDesc().stream().map(this::toStatus).toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        backfillJobRepository.findAllByStateInOrderByIdAsc(UNFINISHED).forEach(job -> {
+            log.info("Picking up backfill job {} from {}", job.getId(), job.getNextDay());
+            schedule(job.getId());
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    void run(final long id) {
+        BackfillJob job = backfillJobRepository.findById(id).orElse(null);
+        if (null == job || !UNFINISHED.contains(job.getState())) {
+            return;
+        }
+
+        job = backfillJobRepository.save(job.toBuilder().state(JobState.RUNNING).build());
+        runRates.put(id, new RunRate(System.nanoTime(), job.getDaysProcessed()));
+        log.info("Running backfill job {} for {} to {} from {}", id, job.getFromDate(), job.getToDate(),
+                job.getNextDay());
+
+        try {
+            LocalDate chunkStart = job.getNextDay();
+            while (!chunkStart.isAfter(job.getToDate())) {
+                LocalDate chunkEnd = chunkStart.plusDays(chunkDays - 1L);
+                if (chunkEnd.isAfter(job.getToDate())) {
+                    chunkEnd = job.getToDate();
+                }
+
+                Map<LocalDate, VensysPerformanceData> dailyPerformance =
+                        graigFathaStatsService.getDailyPerformance(chunkStart, chunkEnd, vensysCalls);
+                job = commitChunk(job, chunkStart, chunkEnd, dailyPerformance);
+                log.info("Backfill job {} committed {} of {} days up to {}", id, dailyPerformance.size(),
+                        ChronoUnit.DAYS.between(chunkStart, chunkEnd) + 1, chunkEnd);
+
+                chunkStart = chunkEnd.plusDays(1);
+            }
+
+            backfillJobRepository.save(job.toBuilder()
+                    .state(JobState.COMPLETED)
+                    .finishedAt(LocalDateTime.now())
+                    .build());
+            log.info("Backfill job {} completed, {} of {} days stored", id, job.getDaysStored(), job.getDaysProcessed());
+        } catch (CancellationException e) {
+            log.info("Backfill job {} stopped at checkpoint {}, it will be picked up again on restart", id,
+                    job.getCheckpoint());
+        } catch (RuntimeException e) {
+            log.error("Backfill job {} failed after checkpoint {}", id, job.getCheckpoint(), e);
+            backfillJobRepository.save(job.toBuilder()
+                    .state(JobState.FAILED)
+                    .finishedAt(LocalDateTime.now())
+                    .error(abbreviate(e.getMessage()))
+                    .build());
+        } finally {
+            runRates.remove(id);
+        }
+    }
+
+    private void schedule(final long id) {
+        if (scheduledJobs.add(id)) {
+            worker.execute(() -> {
+                try {
+                    run(id);
+                } finally {
+                    scheduledJobs.remove(id);
+                }
+            });
+        }
+    }
+
+    // The job is copied rather than changed, so a chunk which rolls back leaves the caller's copy at the old checkpoint
+    private BackfillJob commitChunk(final BackfillJob job, final LocalDate from, final LocalDate to,
+                                    final Map<LocalDate, VensysPerformanceData> dailyPerformance) {
+        performanceStatService.importDays(job.getSite(), dailyPerformance);
+
+        return transactionTemplate.execute(status -> {
+            Map<LocalDate, Double> generationByDay = new TreeMap<>();
+            dailyPerformance.forEach((day, performanceData) -> generationByDay.put(day, performanceData.energyYield()));
+
+            siteSavingsLedgerService.recordDays(job.getSite(), generationByDay);
+
+            return backfillJobRepository.save(job.toBuilder()
+                    .checkpoint(to)
+                    .daysProcessed(job.getDaysProcessed() + ChronoUnit.DAYS.between(from, to) + 1)
+                    .daysStored(job.getDaysStored() + dailyPerformance.size())
+                    .build());
+        });
+    }
+
+    private BackfillJobStatus toStatus(final BackfillJob job) {
+        RunRate runRate = null == job.getId() ? null : runRates.get(job.getId());
+        double daysPerMinute = null == runRate ? 0 : runRate.daysPerMinute(job.getDaysProcessed());
+
+        return new BackfillJobStatus(job.getId(), job.getSite(), job.getFromDate(), job.getToDate(), job.getState(),
+                job.getCheckpoint(), ChronoUnit.DAYS.between(job.getFromDate(), job.getToDate()) + 1,
+                job.getDaysProcessed(), job.getDaysStored(), daysPerMinute, job.getCreatedAt(), job.getUpdatedAt(),
+                job.getFinishedAt(), job.getError());
+    }
+
+    private static String abbreviate(final String message) {
+        return null == message || MAX_ERROR_LENGTH >= message.length() ? message
+                : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private record RunRate(long startedAt, long daysAtStart) {
+        double daysPerMinute(final long daysProcessed) {
+            long elapsed = System.nanoTime() - startedAt;
+            return 0 >= elapsed ? 0 : (daysProcessed - daysAtStart) * (double) TimeUnit.MINUTES.toNanos(1) / elapsed;
+        }
+    }
+}
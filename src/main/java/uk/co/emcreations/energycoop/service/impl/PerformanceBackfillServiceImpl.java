@@ -0,0 +1,118 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.model.BackfillResult;
+import uk.co.emcreations.energycoop.service.GraigFathaStatsService;
+import uk.co.emcreations.energycoop.service.PerformanceBackfillService;
+import uk.co.emcreations.energycoop.service.PerformanceStatService;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+/**
+ * Fetches performance data for days missing from the database. Each day is fetched on its own virtual thread, and the
+ * results are persisted together once every fetch has finished. Fetching runs outside any transaction; only persisting
+ * the results runs in one.
+ * <p>
+ * Every backfill shares one budget of fetch permits, which must be smaller than the Vensys client's bulkhead. However
+ * many backfills are running, they leave bulkhead permits free for live polling and member requests, and their own
+ * fetches queue for a permit here rather than being refused by the bulkhead.
+ * <p>
+ * A day whose fetch fails is left unstored and returned with the result, so the caller can try it again; any later
+ * request for the day will fetch it again too.
+ */
+@Slf4j
+@Service
+public class PerformanceBackfillServiceImpl implements PerformanceBackfillService {
+    private final GraigFathaStatsService graigFathaStatsService;
+    private final PerformanceStatService performanceStatService;
+    private final int maxConcurrentFetches;
+    private final Semaphore permits;
+
+    public PerformanceBackfillServiceImpl(final GraigFathaStatsService graigFathaStatsService,
+                                          final PerformanceStatService performanceStatService,
+                                          @Value("${backfill.max-concurrent-fetches:2}") final int maxConcurrentFetches,
+                                          @Value("${external.api.graig-fatha.bulkhead.max-concurrent-calls:4}") final int maxConcurrentCalls) {
+        if (1 > maxConcurrentFetches || maxConcurrentFetches >= maxConcurrentCalls) {
+            throw new IllegalArgumentException("backfill.max-concurrent-fetches must be at least 1 and below the "
+                    + "Vensys bulkhead's " + maxConcurrentCalls + " concurrent calls, but is " + maxConcurrentFetches);
+        }
+        this.graigFathaStatsService = graigFathaStatsService;
+        this.performanceStatService = performanceStatService;
+        this.maxConcurrentFetches = maxConcurrentFetches;
+        this.permits = new Semaphore(maxConcurrentFetches);
+    }
+
+    @Override
+    public BackfillResult backfill(final List<LocalDate> days) {
+        if (days.isEmpty()) {
+            return BackfillResult.empty();
+        }
+
+        log.info("Backfilling performance data for {} days with up to {} concurrent fetches", days.size(),
+                maxConcurrentFetches);
+
+        Map<LocalDate, Future<Optional<VensysPerformanceData>>> fetches = new TreeMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            days.forEach(day -> fetches.put(day, executor.submit(() -> fetchDay(day))));
+        } // closing the executor waits for every fetch to finish
+
+        Map<LocalDate, VensysPerformanceData> performanceByDay = new TreeMap<>();
+        Map<LocalDate, Double> generationByDay = new TreeMap<>();
+        List<LocalDate> failedDays = new ArrayList<>();
+        fetches.forEach((day, fetch) -> getResult(day, fetch, failedDays).ifPresent(performanceData -> {
+            performanceByDay.put(day, performanceData);
+            generationByDay.put(day, performanceData.energyYield());
+        }));
+        performanceStatService.recordDays(GRAIG_FATHA, performanceByDay);
+
+        if (failedDays.isEmpty()) {
+            log.info("Backfilled performance data for {} of {} days", performanceByDay.size(), days.size());
+        } else {
+            log.warn("Backfilled performance data for {} of {} days, fetches failed for {}", performanceByDay.size(),
+                    days.size(), failedDays);
+        }
+
+        return new BackfillResult(generationByDay, List.copyOf(failedDays));
+    }
+
+    private Optional<VensysPerformanceData> fetchDay(final LocalDate day) throws InterruptedException {
+        permits.acquire();
+        try {
+            return graigFathaStatsService.getPerformance(day.atStartOfDay(), day.atTime(LocalTime.MAX));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Optional<VensysPerformanceData> getResult(final LocalDate day,
+                                                      final Future<Optional<VensysPerformanceData>> fetch,
+                                                      final List<LocalDate> failedDays) {
+        return switch (fetch.state()) {
+            case SUCCESS -> fetch.resultNow();
+            case FAILED -> {
+                log.warn("Failed to fetch performance data for {}", day, fetch.exceptionNow());
+                failedDays.add(day);
+                yield Optional.empty();
+            }
+            default -> {
+                failedDays.add(day);
+                yield Optional.empty();
+            }
+        };
+    }
+}
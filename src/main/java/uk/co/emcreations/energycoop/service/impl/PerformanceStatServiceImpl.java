@@ -0,0 +1,170 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.entity.PerformanceStatEntry;
+import uk.co.emcreations.energycoop.entity.PerformanceStatEntryRepository;
+import uk.co.emcreations.energycoop.model.Site;
+import uk.co.emcreations.energycoop.service.PerformanceStatService;
+import uk.co.emcreations.energycoop.util.EntityHelper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps one performance entry per site and day. Storing a day which is already stored overwrites that day's row in
+ * place rather than adding another, so yesterday can be stored on every scheduled poll and backfills can be re-run
+ * without growing the table. Storing takes a per-site lock before looking up the stored days, so concurrent stores of
+ * the same new day update the row the first one inserted instead of breaking the unique key.
+ */
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class PerformanceStatServiceImpl implements PerformanceStatService {
+    private final PerformanceStatEntryRepository performanceStatEntryRepository;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    int batchSize;
+
+    /**
+     * Upserts an entry for each day with one range query for the rows already stored and one batched save. Each entry
+     * is stored against the start of its day, whatever time the data carries.
+     */
+    @Override
+    public List<PerformanceStatEntry> recordDays(final Site site,
+                                                 final Map<LocalDate, VensysPerformanceData> performanceByDay) {
+        if (performanceByDay.isEmpty()) {
+            return List.of();
+        }
+
+        NavigableMap<LocalDate, VensysPerformanceData> days = new TreeMap<>(performanceByDay);
+        performanceStatEntryRepository.lockSite(site.ordinal());
+        Map<LocalDate, PerformanceStatEntry> existing = new TreeMap<>();
+        performanceStatEntryRepository.findAllBySiteAndForDateBetweenOrderByForDateAsc(site,
+                        days.firstKey().atStartOfDay(), days.lastKey().atTime(LocalTime.MAX))
+                .forEach(entry -> existing.put(entry.getForDate().toLocalDate(), entry));
+
+        List<PerformanceStatEntry> entries = new ArrayList<>(days.size());
+        days.forEach((day, performanceData) -> {
+            PerformanceStatEntry entry = EntityHelper.createPerformanceStatEntry(performanceData, site);
+            entry.setForDate(day.atStartOfDay());
+
+            PerformanceStatEntry stored = existing.get(day);
+            if (null != stored) {
+                entry.setId(stored.getId());
+                entry.setTimestamp(LocalDateTime.now());
+            }
+            entries.add(entry);
+        });
+
+        List<PerformanceStatEntry> saved = performanceStatEntryRepository.saveAll(entries);
+
+        log.debug("Stored {} performance entries for site {} from {} to {}", saved.size(), site, days.firstKey(),
+                days.lastKey());
+
+        return saved;
+    }
+
+    /**
+     * Upserts entries for a long run of days, such as a backfill or an import, through a stateless session: nothing is
+     * kept in a persistence context or dirty-checked, and the inserts and updates go out in JDBC batches. It looks up
+     * the days already stored with one query and commits in its own transaction, separately from any the caller has
+     * open. Returns the number of days stored.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public int importDays(final Site site, final Map<LocalDate, VensysPerformanceData> performanceByDay) {
+        if (performanceByDay.isEmpty()) {
+            return 0;
+        }
+
+        NavigableMap<LocalDate, VensysPerformanceData> days = new TreeMap<>(performanceByDay);
+        try (StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession()) {
+            session.setJdbcBatchSize(batchSize);
+            Transaction transaction = session.beginTransaction();
+            try {
+                session.createNativeQuery(PerformanceStatEntryRepository.LOCK_SITE, Integer.class)
+                        .setParameter("site", site.ordinal())
+                        .getSingleResult();
+
+                Map<LocalDate, Long> storedIds = new HashMap<>();
+                session.createSelectionQuery("""
+                                select id, forDate from PerformanceStatEntry
+                                where site = :site and forDate between :from and :to""", Object[].class)
+                        .setParameter("site", site)
+                        .setParameter("from", days.firstKey().atStartOfDay())
+                        .setParameter("to", days.lastKey().atTime(LocalTime.MAX))
+                        .getResultList()
+                        .forEach(row -> storedIds.put(((LocalDateTime) row[1]).toLocalDate(), (Long) row[0]));
+
+                LocalDateTime now = LocalDateTime.now();
+                days.forEach((day, performanceData) -> {
+                    PerformanceStatEntry entry = EntityHelper.createPerformanceStatEntry(performanceData, site);
+                    entry.setForDate(day.atStartOfDay());
+                    entry.setTimestamp(now);
+
+                    Long storedId = storedIds.get(day);
+                    if (null == storedId) {
+                        session.insert(entry);
+                    } else {
+                        entry.setId(storedId);
+                        session.update(entry);
+                    }
+                });
+
+                transaction.commit();
+
+                log.info("Imported performance entries for {} days for site {} from {} to {}, {} of them updated",
+                        days.size(), site, days.firstKey(), days.lastKey(),
+                        days.keySet().stream().filter(storedIds::containsKey).count());
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+
+        return days.size();
+    }
+
+    /**
+     * Deletes the extra rows left for days stored more than once before upserts, keeping the most recently stored
+     * one, then moves the rows left to the start of their day. Older rows were stored against whatever time the data
+     * carried, so duplicates are found by date rather than by exact time. This runs once the application is ready,
+     * after the schema update has tried to add the (site, forDate) unique key; on a table which still had duplicates
+     * that fails quietly, so the key is added on the next restart. Once the table is compacted this finds nothing to
+     * do.
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public int compactDuplicates() {
+        int deleted = performanceStatEntryRepository.deleteSupersededEntries();
+        int normalised = performanceStatEntryRepository.normaliseForDates();
+        if (0 < deleted || 0 < normalised) {
+            log.info("Compacted performance entries, deleted {} superseded rows and moved {} to the start of their day",
+                    deleted, normalised);
+        }
+
+        return deleted;
+    }
+}
@@ -3,21 +3,33 @@ package uk.co.emcreations.energycoop.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import uk.co.emcreations.energycoop.entity.SavingsRate;
 import uk.co.emcreations.energycoop.entity.SavingsRateRepository;
+import uk.co.emcreations.energycoop.event.SavingsRateChangedEvent;
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
 import uk.co.emcreations.energycoop.model.Site;
 import uk.co.emcreations.energycoop.service.SavingsRateService;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Savings rates change a few times a year but are looked up for every day of every savings calculation, so each site's
+ * rates are held in memory as a timeline, loaded on first use with the configured default rate as its base. Setting a
+ * rate through this service swaps in a freshly loaded timeline for the site.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SavingsRateServiceImpl implements SavingsRateService {
     private final SavingsRateRepository savingsRateRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ConcurrentMap<Site, EffectiveDateTimeline> timelines = new ConcurrentHashMap<>();
 
     @Value("${site.rates.gf:1.0}")
     private double defaultSavingsRatePerWattGraigFatha;
@@ -30,20 +42,22 @@ public class SavingsRateServiceImpl implements SavingsRateService {
 
     @Override
     public double getSavingsRateForDate(final Site site, final LocalDate date) {
-        double savingsRate = savingsRateRepository
-                .findTopBySiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(site, date)
-                .map(SavingsRate::getRatePerKWH)
-                .orElseGet(() -> switch (site) {
-                    case GRAIG_FATHA -> defaultSavingsRatePerWattGraigFatha;
-                    case KIRK_HILL -> defaultSavingsRatePerWattKirkHill;
-                    case DERRIL_WATER -> defaultSavingsRatePerWattDerrilWater;
-                });
+        double savingsRate = getTimeline(site).valueAt(date);
 
         log.debug("Retrieved savings rate for site {} on date {}: {} per kWh", site, date, savingsRate);
 
         return savingsRate;
     }
 
+    /**
+     * Returns the site's whole cached timeline; rates effective after {@code to} are never reached by lookups within
+     * the range.
+     */
+    @Override
+    public EffectiveDateTimeline getSavingsRateTimeline(final Site site, final LocalDate to) {
+        return getTimeline(site);
+    }
+
     @Override
     public SavingsRate setSavingsRateForDate(final Site site, final LocalDate date, final double ratePerKWH, final String userId) {
         Optional<SavingsRate> currentRateOpt = savingsRateRepository.findBySiteAndEffectiveDate(site, date);
@@ -67,6 +81,31 @@ public class SavingsRateServiceImpl implements SavingsRateService {
                     .build();
         }
 
-        return savingsRateRepository.save(rate);
+        SavingsRate savedRate = savingsRateRepository.save(rate);
+        timelines.put(site, loadTimeline(site));
+        eventPublisher.publishEvent(new SavingsRateChangedEvent(site, date));
+
+        return savedRate;
+    }
+
+    private EffectiveDateTimeline getTimeline(final Site site) {
+        return timelines.computeIfAbsent(site, this::loadTimeline);
+    }
+
+    private EffectiveDateTimeline loadTimeline(final Site site) {
+        var rates = savingsRateRepository.findAllBySiteOrderByEffectiveDateAsc(site);
+
+        log.info("Loaded {} savings rates for site {}", rates.size(), site);
+
+        return EffectiveDateTimeline.of(rates, SavingsRate::getEffectiveDate, SavingsRate::getRatePerKWH,
+                getDefaultSavingsRate(site));
+    }
+
+    private double getDefaultSavingsRate(final Site site) {
+        return switch (site) {
+            case GRAIG_FATHA -> defaultSavingsRatePerWattGraigFatha;
+            case KIRK_HILL -> defaultSavingsRatePerWattKirkHill;
+            case DERRIL_WATER -> defaultSavingsRatePerWattDerrilWater;
+        };
     }
 }
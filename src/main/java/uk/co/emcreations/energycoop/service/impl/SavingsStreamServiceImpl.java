@@ -0,0 +1,104 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import uk.co.emcreations.energycoop.service.GraigFathaMemberService;
+import uk.co.emcreations.energycoop.service.SavingsStreamService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams a member's daily savings as newline-delimited JSON, each stream written from its own virtual thread. The
+ * member service loads each chunk of days in a short transaction of its own, so no connection is held while a slow
+ * client reads. The number of streams open at once is capped, and any still running are stopped on shutdown.
+ */
+@Slf4j
+@Service
+public class SavingsStreamServiceImpl implements SavingsStreamService {
+    private final GraigFathaMemberService graigFathaMemberService;
+    private final int maxStreams;
+    private final Duration timeout;
+    private final AtomicInteger streamCount = new AtomicInteger();
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SavingsStreamServiceImpl(final GraigFathaMemberService graigFathaMemberService,
+                                    @Value("${savings.stream.max-streams:100}") final int maxStreams,
+                                    @Value("${savings.stream.timeout:PT5M}") final Duration timeout) {
+        this.graigFathaMemberService = graigFathaMemberService;
+        this.maxStreams = maxStreams;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Starts streaming the member's savings between the dates, one day per line in date order.
+     *
+     * @throws RejectedExecutionException if the maximum number of streams are already open
+     */
+    @Override
+    public ResponseBodyEmitter stream(final LocalDate from, final LocalDate to, final double wattageOwnership,
+                                      final String userId) {
+        if (streamCount.incrementAndGet() > maxStreams) {
+            streamCount.decrementAndGet();
+            log.warn("Rejected savings stream, {} already open", maxStreams);
+            throw new RejectedExecutionException("Too many savings streams");
+        }
+
+        ResponseBodyEmitter emitter = createEmitter(timeout);
+        try {
+            writers.execute(() -> {
+                try {
+                    write(emitter, from, to, wattageOwnership, userId);
+                } finally {
+                    streamCount.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            streamCount.decrementAndGet();
+            throw e;
+        }
+
+        return emitter;
+    }
+
+    @Override
+    public int getStreamCount() {
+        return streamCount.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writers.shutdownNow();
+    }
+
+    ResponseBodyEmitter createEmitter(final Duration timeout) {
+        return new ResponseBodyEmitter(timeout.toMillis());
+    }
+
+    private void write(final ResponseBodyEmitter emitter, final LocalDate from, final LocalDate to,
+                       final double wattageOwnership, final String userId) {
+        try {
+            graigFathaMemberService.streamSavings(from, to, wattageOwnership, userId, saving -> {
+                try {
+                    emitter.send(saving, MediaType.APPLICATION_JSON);
+                    emitter.send("\n", MediaType.TEXT_PLAIN);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            emitter.complete();
+        } catch (RuntimeException e) {
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uk.co.emcreations.energycoop.event.GenerationRecordedEvent;
+import uk.co.emcreations.energycoop.event.MemberOwnershipChangedEvent;
+import uk.co.emcreations.energycoop.event.SavingsLedgerUpdatedEvent;
+import uk.co.emcreations.energycoop.event.SavingsRateChangedEvent;
+import uk.co.emcreations.energycoop.model.Site;
+import uk.co.emcreations.energycoop.model.SiteDataVersion;
+import uk.co.emcreations.energycoop.service.SiteDataVersionService;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a version for each site's data, moved on whenever generation is ingested, the ledger is written, a savings rate
+ * changes or a member's ownership is reloaded, once the change has been committed. Versions are held in memory and
+ * start again on restart, so each tag includes the time this instance started to keep tags from before a restart from
+ * matching.
+ */
+@Slf4j
+@Service
+public class SiteDataVersionServiceImpl implements SiteDataVersionService {
+    private final String epoch = Long.toString(Instant.now().toEpochMilli(), 36);
+    private final Instant startedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    private final Map<Site, SiteDataVersion> versions = new ConcurrentHashMap<>();
+
+    @Override
+    public SiteDataVersion getVersion(final Site site) {
+        return versions.getOrDefault(site, new SiteDataVersion(epoch + "-0", startedAt));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGenerationRecorded(final GenerationRecordedEvent event) {
+        advance(event.site());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSavingsLedgerUpdated(final SavingsLedgerUpdatedEvent event) {
+        advance(event.site());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSavingsRateChanged(final SavingsRateChangedEvent event) {
+        advance(event.site());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberOwnershipChanged(final MemberOwnershipChangedEvent event) {
+        advance(event.site());
+    }
+
+    // HTTP dates have one-second resolution, so the last modified time is kept to whole seconds and never goes back
+    private void advance(final Site site) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        SiteDataVersion version = versions.compute(site, (key, current) -> {
+            long sequence = null == current ? 1 : Long.parseLong(current.tag().substring(epoch.length() + 1)) + 1;
+            Instant lastModified = null == current || now.isAfter(current.lastModified()) ? now : current.lastModified();
+            return new SiteDataVersion(epoch + "-" + sequence, lastModified);
+        });
+
+        log.debug("Data version for {} is now {}", site, version);
+    }
+}
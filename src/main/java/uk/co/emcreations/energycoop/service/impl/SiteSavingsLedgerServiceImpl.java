@@ -0,0 +1,202 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import uk.co.emcreations.energycoop.dto.SiteSavingsTotal;
+import uk.co.emcreations.energycoop.entity.SiteSavingsLedgerEntry;
+import uk.co.emcreations.energycoop.entity.SiteSavingsLedgerEntryRepository;
+import uk.co.emcreations.energycoop.event.SavingsLedgerUpdatedEvent;
+import uk.co.emcreations.energycoop.event.SavingsRateChangedEvent;
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
+import uk.co.emcreations.energycoop.model.Site;
+import uk.co.emcreations.energycoop.service.SavingsRateService;
+import uk.co.emcreations.energycoop.service.SiteSavingsLedgerService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Maintains the daily site-savings ledger. Only completed days (before today) are persisted, as today's generation is
+ * still changing. Rows are re-priced whenever a savings rate effective on or before their date changes.
+ * <p>
+ * Each row also carries running totals of generation and savings, rebuilt from the earliest changed day onwards
+ * whenever rows are added or re-priced. Appending the latest day only touches that row; backfilling older days or
+ * back-dating a rate rewrites the rows after it. Rebuilding the totals reads every row after the changed day and
+ * writes them back, so each writer first takes a lock on the site's ledger, held until its transaction ends: the
+ * scheduler, backfills, read requests and rate changes write one after another, each building on the last one's totals.
+ */
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class SiteSavingsLedgerServiceImpl implements SiteSavingsLedgerService {
+    @PersistenceContext
+    private final EntityManager entityManager;
+    private final SiteSavingsLedgerEntryRepository ledgerRepository;
+    private final SavingsRateService savingsRateService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public Map<LocalDate, SiteSavingsLedgerEntry> getEntries(final Site site, final LocalDate from, final LocalDate to) {
+        Map<LocalDate, SiteSavingsLedgerEntry> entries = new TreeMap<>();
+        ledgerRepository.findAllBySiteAndForDateBetweenOrderByForDateAsc(site, from, to)
+                .forEach(entry -> entries.put(entry.getForDate(), entry));
+
+        log.debug("Retrieved {} ledger entries for site {} between {} and {}", entries.size(), site, from, to);
+
+        return entries;
+    }
+
+    @Override
+    public long countEntries(final Site site, final LocalDate from, final LocalDate to) {
+        return ledgerRepository.countBySiteAndForDateBetween(site, from, to);
+    }
+
+    /**
+     * Returns the site's total generation and savings over the recorded days in the range using two point lookups
+     * against the running totals.
+     */
+    @Override
+    public SiteSavingsTotal getTotal(final Site site, final LocalDate from, final LocalDate to) {
+        if (from.isAfter(to)) {
+            return SiteSavingsTotal.ZERO;
+        }
+
+        return getCumulativeTotal(site, to).minus(getCumulativeTotal(site, from.minusDays(1)));
+    }
+
+    @Override
+    public void recordDay(final Site site, final LocalDate day, final double kWhGenerated) {
+        recordDays(site, Map.of(day, kWhGenerated));
+    }
+
+    /**
+     * Prices and stores the completed days, overwriting any already in the ledger. Days are recorded by read requests
+     * as they find them missing as well as by the scheduler and backfills, so the site's ledger is locked before the
+     * stored days are looked up: a second writer of the same days waits for the first to commit, then finds its rows
+     * and updates them rather than inserting a duplicate.
+     */
+    @Override
+    public List<SiteSavingsLedgerEntry> recordDays(final Site site, final Map<LocalDate, Double> generationByDay) {
+        if (generationByDay.isEmpty()) {
+            return List.of();
+        }
+
+        var days = new TreeMap<>(generationByDay);
+        LocalDate today = LocalDate.now();
+        if (days.firstKey().isBefore(today)) {
+            lockLedger(site);
+        }
+
+        Map<LocalDate, SiteSavingsLedgerEntry> existing = getEntries(site, days.firstKey(), days.lastKey());
+        List<SiteSavingsLedgerEntry> entries = price(site, days, existing);
+
+        List<SiteSavingsLedgerEntry> completedDays = entries.stream()
+                .filter(entry -> entry.getForDate().isBefore(today))
+                .toList();
+        ledgerRepository.saveAll(completedDays);
+        if (!completedDays.isEmpty()) {
+            updateCumulativeTotals(site, completedDays.getFirst().getForDate());
+            eventPublisher.publishEvent(new SavingsLedgerUpdatedEvent(site, completedDays.getFirst().getForDate()));
+        }
+
+        log.info("Recorded {} ledger entries for site {} between {} and {}", completedDays.size(), site,
+                days.firstKey(), days.lastKey());
+
+        return entries;
+    }
+
+    @Override
+    public List<SiteSavingsLedgerEntry> priceDays(final Site site, final Map<LocalDate, Double> generationByDay) {
+        if (generationByDay.isEmpty()) {
+            return List.of();
+        }
+
+        return price(site, new TreeMap<>(generationByDay), Map.of());
+    }
+
+    @EventListener
+    public void onSavingsRateChanged(final SavingsRateChangedEvent event) {
+        lockLedger(event.site());
+
+        List<SiteSavingsLedgerEntry> entries = ledgerRepository
+                .findAllBySiteAndForDateGreaterThanEqualOrderByForDateAsc(event.site(), event.effectiveDate());
+
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        EffectiveDateTimeline.Cursor rates = savingsRateService
+                .getSavingsRateTimeline(event.site(), entries.getLast().getForDate()).cursor();
+        entries.forEach(entry -> applyRate(entry, rates.advanceTo(entry.getForDate())));
+        accumulate(entries, getCumulativeTotal(event.site(), entries.getFirst().getForDate().minusDays(1)));
+        ledgerRepository.saveAll(entries);
+
+        log.info("Re-priced {} ledger entries for site {} from {}", entries.size(), event.site(),
+                event.effectiveDate());
+    }
+
+    // Rows this transaction read before it had the lock may since have been rewritten by the writer it waited for, so
+    // any held in the persistence context are dropped, once written, to be read again
+    private void lockLedger(final Site site) {
+        entityManager.flush();
+        ledgerRepository.lockSite(site.ordinal());
+        entityManager.clear();
+    }
+
+    private SiteSavingsTotal getCumulativeTotal(final Site site, final LocalDate day) {
+        return ledgerRepository.findTopBySiteAndForDateLessThanEqualOrderByForDateDesc(site, day)
+                .map(entry -> new SiteSavingsTotal(entry.getCumulativeKWhGenerated(), entry.getCumulativeSavings()))
+                .orElse(SiteSavingsTotal.ZERO);
+    }
+
+    private void updateCumulativeTotals(final Site site, final LocalDate from) {
+        List<SiteSavingsLedgerEntry> entries =
+                ledgerRepository.findAllBySiteAndForDateGreaterThanEqualOrderByForDateAsc(site, from);
+        accumulate(entries, getCumulativeTotal(site, from.minusDays(1)));
+        ledgerRepository.saveAll(entries);
+    }
+
+    private void accumulate(final List<SiteSavingsLedgerEntry> sortedEntries, final SiteSavingsTotal base) {
+        double cumulativeKWhGenerated = base.kWhGenerated();
+        double cumulativeSavings = base.savings();
+
+        for (SiteSavingsLedgerEntry entry : sortedEntries) {
+            cumulativeKWhGenerated += entry.getKWhGenerated();
+            cumulativeSavings += entry.getSavings();
+            entry.setCumulativeKWhGenerated(cumulativeKWhGenerated);
+            entry.setCumulativeSavings(cumulativeSavings);
+        }
+    }
+
+    private List<SiteSavingsLedgerEntry> price(final Site site, final NavigableMap<LocalDate, Double> days,
+                                               final Map<LocalDate, SiteSavingsLedgerEntry> existing) {
+        EffectiveDateTimeline.Cursor rates = savingsRateService.getSavingsRateTimeline(site, days.lastKey()).cursor();
+
+        List<SiteSavingsLedgerEntry> entries = new ArrayList<>(days.size());
+        days.forEach((day, kWhGenerated) -> {
+            SiteSavingsLedgerEntry entry = existing.getOrDefault(day,
+                    SiteSavingsLedgerEntry.builder().site(site).forDate(day).build());
+            entry.setKWhGenerated(kWhGenerated);
+            applyRate(entry, rates.advanceTo(day));
+            entries.add(entry);
+        });
+
+        return entries;
+    }
+
+    private void applyRate(final SiteSavingsLedgerEntry entry, final double savingsRate) {
+        entry.setSavingsRate(savingsRate);
+        entry.setSavings(entry.getKWhGenerated() * savingsRate);
+    }
+}
@@ -0,0 +1,161 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.co.emcreations.energycoop.dto.JobStatus;
+import uk.co.emcreations.energycoop.entity.MemberStatement;
+import uk.co.emcreations.energycoop.model.JobProgress;
+import uk.co.emcreations.energycoop.service.AnnualStatementService;
+import uk.co.emcreations.energycoop.service.TaxDocumentExportService;
+import uk.co.emcreations.energycoop.util.TaxDocument;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders every member's tax document for a period from the statements written by the annual statement run, and
+ * writes them into a zip archive on local disk. Documents are rendered on a fixed pool of workers while a single
+ * thread writes finished ones into the archive; at most twice as many documents as there are workers are held in
+ * memory at once. The archive is written under a temporary name and only moved into place once complete.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TaxDocumentExportServiceImpl implements TaxDocumentExportService {
+    private final AnnualStatementService annualStatementService;
+    private final AtomicReference<JobProgress> currentExport = new AtomicReference<>();
+
+    @Value("${tax-documents.export.directory:${java.io.tmpdir}/energycoop-tax-documents}")
+    Path exportDirectory;
+
+    @Value("${tax-documents.export.workers:4}")
+    int workers;
+
+    @Override
+    public JobStatus startExport(final LocalDate from, final LocalDate to) {
+        List<MemberStatement> statements = annualStatementService.getStatements(from, to);
+        if (statements.isEmpty()) {
+            throw new IllegalArgumentException("No statements for " + from + " to " + to
+                    + ", run the annual statements for the period first");
+        }
+
+        JobProgress previousExport = currentExport.get();
+        var progress = new JobProgress("tax-documents-" + from + "-" + to);
+        if ((null != previousExport && previousExport.isRunning())
+                || !currentExport.compareAndSet(previousExport, progress)) {
+            throw new IllegalStateException("A tax document export is already in progress");
+        }
+        progress.setTotal(statements.size());
+
+        log.info("Starting tax document export of {} statements for {} to {}", statements.size(), from, to);
+        Thread.ofVirtual().name("tax-document-export").start(() -> {
+            try {
+                writeArchive(statements, getArchivePath(from, to), progress);
+                progress.complete();
+                log.info("Tax document export for {} to {} completed", from, to);
+            } catch (RuntimeException e) {
+                log.error("Tax document export for {} to {} failed", from, to, e);
+                progress.fail(e);
+            }
+        });
+
+        return progress.getStatus();
+    }
+
+    @Override
+    public Optional<JobStatus> getExportStatus() {
+        return Optional.ofNullable(currentExport.get()).map(JobProgress::getStatus);
+    }
+
+    @Override
+    public Optional<Path> getExportArchive(final LocalDate from, final LocalDate to) {
+        Path archive = getArchivePath(from, to);
+        return Files.isRegularFile(archive) ? Optional.of(archive) : Optional.empty();
+    }
+
+    void writeArchive(final List<MemberStatement> statements, final Path archive, final JobProgress progress) {
+        Path partial = archive.resolveSibling(archive.getFileName() + ".part");
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(workers)) {
+            Files.createDirectories(archive.getParent());
+            try (OutputStream os = Files.newOutputStream(partial); var zip = new ZipOutputStream(os)) {
+                CompletionService<RenderedDocument> rendered = new ExecutorCompletionService<>(pool);
+                Iterator<MemberStatement> pending = statements.iterator();
+                int inFlight = 0;
+
+                while (pending.hasNext() || 0 < inFlight) {
+                    while (pending.hasNext() && inFlight < workers * 2) {
+                        MemberStatement statement = pending.next();
+                        rendered.submit(() -> render(statement));
+                        inFlight++;
+                    }
+
+                    RenderedDocument document = rendered.take().get();
+                    inFlight--;
+                    zip.putNextEntry(new ZipEntry(document.fileName()));
+                    zip.write(document.content());
+                    zip.closeEntry();
+                    progress.increment();
+                }
+            }
+            Files.move(partial, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deletePartialArchive(partial);
+            throw new UncheckedIOException(e);
+        } catch (ExecutionException e) {
+            deletePartialArchive(partial);
+            throw new IllegalStateException("Failed to render a tax document", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deletePartialArchive(partial);
+            throw new IllegalStateException("Tax document export interrupted", e);
+        }
+    }
+
+    private void deletePartialArchive(final Path partial) {
+        try {
+            Files.deleteIfExists(partial);
+        } catch (IOException e) {
+            log.warn("Failed to delete partial tax document archive {}", partial, e);
+        }
+    }
+
+    private RenderedDocument render(final MemberStatement statement) {
+        byte[] content = TaxDocument.generateTaxDocument(statement.getSite(), statement.getUserId(),
+                statement.getPeriodFrom(), statement.getPeriodTo(), statement.getSavings(),
+                statement.getCurrentShares(), statement.getSharesWithdrawn(), statement.getCapitalWithdrawn());
+
+        return new RenderedDocument(getFileName(statement), content);
+    }
+
+    // Different user ids can sanitise to the same name, so the statement's id keeps each entry unique
+    private static String getFileName(final MemberStatement statement) {
+        return "TaxDocument-" + statement.getUserId().replaceAll("[^A-Za-z0-9._-]", "_") + "-" + statement.getId()
+                + ".pdf";
+    }
+
+    private Path getArchivePath(final LocalDate from, final LocalDate to) {
+        return exportDirectory.resolve("TaxDocuments-" + from + "-" + to + ".zip");
+    }
+
+    private record RenderedDocument(String fileName, byte[] content) {
+    }
+}
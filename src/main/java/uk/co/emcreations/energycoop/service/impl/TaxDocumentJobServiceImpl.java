@@ -0,0 +1,114 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.co.emcreations.energycoop.dto.TaxDocumentJobStatus;
+import uk.co.emcreations.energycoop.model.TaxDocumentJob;
+import uk.co.emcreations.energycoop.service.GraigFathaMemberService;
+import uk.co.emcreations.energycoop.service.TaxDocumentJobService;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders members' tax documents in the background so requests don't hold a servlet thread and database connection
+ * for the length of the savings walk. Jobs run on a fixed number of workers behind a bounded queue; once the queue is
+ * full further submissions are rejected rather than piling up. Finished jobs are kept for the retention period so the
+ * member can collect the document, then discarded.
+ */
+@Slf4j
+@Service
+public class TaxDocumentJobServiceImpl implements TaxDocumentJobService {
+    private final GraigFathaMemberService graigFathaMemberService;
+    private final ThreadPoolExecutor executor;
+    private final Duration retention;
+    private final Map<String, TaxDocumentJob> jobs = new ConcurrentHashMap<>();
+
+    public TaxDocumentJobServiceImpl(final GraigFathaMemberService graigFathaMemberService,
+                                     @Value("${tax-documents.jobs.workers:4}") final int workers,
+                                     @Value("${tax-documents.jobs.queue-capacity:100}") final int queueCapacity,
+                                     @Value("${tax-documents.jobs.retention:PT1H}") final Duration retention) {
+        this.graigFathaMemberService = graigFathaMemberService;
+        this.retention = retention;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), Thread.ofPlatform().name("tax-document-job-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues a tax document for rendering.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    @Override
+    public TaxDocumentJobStatus submit(final LocalDate from, final LocalDate to, final double suppliedOwnershipWattage,
+                                       final String userId) {
+        removeExpiredJobs();
+
+        var job = new TaxDocumentJob(UUID.randomUUID().toString(), userId, from, to);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, suppliedOwnershipWattage));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            log.warn("Rejected tax document job for {}, {} jobs already queued", userId, executor.getQueue().size());
+            throw e;
+        }
+
+        log.info("Queued tax document job {} for {} between {} and {}", job.getId(), userId, from, to);
+        return job.getStatus();
+    }
+
+    @Override
+    public Optional<TaxDocumentJobStatus> getStatus(final String jobId, final String userId) {
+        return findJob(jobId, userId).map(TaxDocumentJob::getStatus);
+    }
+
+    @Override
+    public Optional<byte[]> getDocument(final String jobId, final String userId) {
+        return findJob(jobId, userId).map(TaxDocumentJob::getDocument);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(final TaxDocumentJob job, final double suppliedOwnershipWattage) {
+        job.start();
+        try {
+            job.complete(graigFathaMemberService.generateTaxDocument(job.getFrom(), job.getTo(),
+                    suppliedOwnershipWattage, job.getUserId()), retention);
+            log.info("Tax document job {} completed", job.getId());
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            log.error("Tax document job {} failed", job.getId(), e);
+            job.fail(e, retention);
+        }
+    }
+
+    // Jobs belonging to another member are treated as missing so their existence isn't revealed
+    private Optional<TaxDocumentJob> findJob(final String jobId, final String userId) {
+        removeExpiredJobs();
+
+        return Optional.ofNullable(jobs.get(jobId))
+                .filter(job -> job.getUserId().equals(userId));
+    }
+
+    private void removeExpiredJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        jobs.values().removeIf(job -> job.isExpired(now));
+    }
+}
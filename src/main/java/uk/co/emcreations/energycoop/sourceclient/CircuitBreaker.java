@@ -0,0 +1,85 @@
+package uk.co.emcreations.energycoop.sourceclient;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Stops calling an upstream which keeps failing. After the failure threshold is reached in a row the breaker opens and
+ * calls are refused without being attempted; once the open duration has passed a single trial call is let through,
+ * which closes the breaker again if it succeeds or re-opens it if it fails.
+ */
+@Slf4j
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private Instant openedAt;
+    private boolean trialInFlight = false;
+
+    public CircuitBreaker(final String name, final int failureThreshold, final Duration openDuration,
+                          final Clock clock) {
+        if (1 > failureThreshold) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1");
+        }
+
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns whether a call may be attempted; a caller given permission must report the outcome.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (State.OPEN == state && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+            transitionTo(State.HALF_OPEN);
+        }
+
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) {
+                    yield false;
+                }
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (State.CLOSED != state) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (State.HALF_OPEN == state || (State.CLOSED == state && consecutiveFailures >= failureThreshold)) {
+            openedAt = clock.instant();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void transitionTo(final State next) {
+        log.warn("Circuit breaker {} {} -> {} after {} consecutive failures", name, state, next, consecutiveFailures);
+        state = next;
+    }
+}
@@ -0,0 +1,209 @@
+package uk.co.emcreations.energycoop.sourceclient;
+
+import feign.FeignException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.co.emcreations.energycoop.cache.VensysLastKnownGoodCache;
+import uk.co.emcreations.energycoop.cache.VensysRequestCoalescer.Request;
+import uk.co.emcreations.energycoop.dto.VensysMeanDataResponse;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceDataResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Guards calls to the Vensys API so a slow or failing upstream can't tie up the threads and database connections of the
+ * requests waiting on it. Each endpoint has its own timeout, after which the caller stops waiting; at most a fixed
+ * number of calls are in flight at once, counting calls whose caller has given up until they really finish; and a
+ * circuit breaker stops calling the API at all while it keeps failing. A call which can't be made or doesn't succeed is
+ * answered with the last good response for the same endpoint and period, marked as stale, or failing that with a
+ * {@link VensysUnavailableException}. Client errors are the request's fault rather than the API's, so they are passed
+ * straight back without tripping the breaker.
+ */
+@Slf4j
+@Component
+public class ResilientVensysClient {
+    private final VensysGraigFathaClient client;
+    private final VensysLastKnownGoodCache lastKnownGood;
+    private final Duration meanEnergyYieldTimeout;
+    private final Duration currentPerformanceTimeout;
+    private final Duration performanceTimeout;
+    private final Semaphore bulkhead;
+    private final Duration bulkheadMaxWait;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ResilientVensysClient(final VensysGraigFathaClient client, final VensysLastKnownGoodCache lastKnownGood,
+                                 @Value("${external.api.graig-fatha.timeout.mean-energy-yield:PT5S}") final Duration meanEnergyYieldTimeout,
+                                 @Value("${external.api.graig-fatha.timeout.current-performance:PT5S}") final Duration currentPerformanceTimeout,
+                                 @Value("${external.api.graig-fatha.timeout.performance:PT15S}") final Duration performanceTimeout,
+                                 @Value("${external.api.graig-fatha.bulkhead.max-concurrent-calls:4}") final int maxConcurrentCalls,
+                                 @Value("${external.api.graig-fatha.bulkhead.max-wait:PT1S}") final Duration bulkheadMaxWait,
+                                 @Value("${external.api.graig-fatha.circuit-breaker.failure-threshold:5}") final int failureThreshold,
+                                 @Value("${external.api.graig-fatha.circuit-breaker.open-duration:PT1M}") final Duration openDuration) {
+        this.client = client;
+        this.lastKnownGood = lastKnownGood;
+        this.meanEnergyYieldTimeout = meanEnergyYieldTimeout;
+        this.currentPerformanceTimeout = currentPerformanceTimeout;
+        this.performanceTimeout = performanceTimeout;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.bulkheadMaxWait = bulkheadMaxWait;
+        this.circuitBreaker = new CircuitBreaker("vensys", failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    public VensysMeanDataResponse getMeanEnergyYield() {
+        return call(Request.of("meanEnergyYield"), meanEnergyYieldTimeout, client::getMeanEnergyYield,
+                response -> null != response && null != response.data(), ResilientVensysClient::markStale);
+    }
+
+    public VensysPerformanceDataResponse getCurrentPerformance() {
+        return call(Request.of("currentPerformance"), currentPerformanceTimeout, client::getCurrentPerformance,
+                ResilientVensysClient::hasPerformanceData, ResilientVensysClient::markStale);
+    }
+
+    public VensysPerformanceDataResponse getPerformance(final long from, final long to) {
+        return call(new Request("performance", from, to), performanceTimeout, () -> client.getPerformance(from, to),
+                ResilientVensysClient::hasPerformanceData, ResilientVensysClient::markStale);
+    }
+
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        callers.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V call(final Request request, final Duration timeout, final Supplier<V> call,
+                       final Predicate<V> isGood, final UnaryOperator<V> markStale) {
+        try {
+            V response = attempt(request, timeout, call);
+            if (isGood.test(response)) {
+                lastKnownGood.put(request, response);
+            }
+            return response;
+        } catch (VensysUnavailableException e) {
+            Optional<Object> fallback = lastKnownGood.getIfPresent(request);
+            if (fallback.isEmpty()) {
+                throw e;
+            }
+
+            log.warn("Serving stale {} response: {}", request, e.getMessage());
+            return markStale.apply((V) fallback.get());
+        }
+    }
+
+    // The bulkhead is entered before asking the breaker, so a half-open trial call is never refused after it's granted
+    private <V> V attempt(final Request request, final Duration timeout, final Supplier<V> call) {
+        if (!enterBulkhead()) {
+            throw new VensysUnavailableException("Too many Vensys calls in flight for " + request.endpoint(), null);
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            throw new VensysUnavailableException("Circuit breaker open for " + request.endpoint(), null);
+        }
+
+        // A task cancelled before it starts never runs, so whichever of the task and the cancellation claims the call
+        // first is the one to give the permit back
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<V> future;
+        try {
+            future = callers.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                try {
+                    return call.get();
+                } finally {
+                    bulkhead.release(); // only once the call really ends, even if the caller stopped waiting
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            circuitBreaker.onFailure();
+            throw new VensysUnavailableException("Vensys client shutting down", e);
+        }
+
+        try {
+            V response = future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            return response;
+        } catch (TimeoutException e) {
+            cancel(future, claimed);
+            circuitBreaker.onFailure();
+            throw new VensysUnavailableException(request.endpoint() + " timed out after " + timeout, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FeignException feignException && isClientError(feignException)) {
+                circuitBreaker.onSuccess(); // the API answered, so it's up
+                throw feignException;
+            }
+            circuitBreaker.onFailure();
+            throw new VensysUnavailableException(request.endpoint() + " failed: " + e.getCause().getMessage(),
+                    e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(future, claimed);
+            circuitBreaker.onFailure();
+            throw new VensysUnavailableException(request.endpoint() + " interrupted", e);
+        }
+    }
+
+    private void cancel(final Future<?> future, final AtomicBoolean claimed) {
+        future.cancel(true);
+        if (claimed.compareAndSet(false, true)) {
+            bulkhead.release();
+        }
+    }
+
+    private boolean enterBulkhead() {
+        try {
+            return bulkhead.tryAcquire(bulkheadMaxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Too Many Requests means the API is overloaded, so it counts against it like a server error
+    private static boolean isClientError(final FeignException e) {
+        return 400 <= e.status() && 500 > e.status() && 429 != e.status();
+    }
+
+    private static boolean hasPerformanceData(final VensysPerformanceDataResponse response) {
+        return null != response && null != response.data() && 0 < response.data().length
+                && null != response.data()[0];
+    }
+
+    private static VensysMeanDataResponse markStale(final VensysMeanDataResponse response) {
+        return response.toBuilder()
+                .data(response.data().toBuilder().stale(true).build())
+                .build();
+    }
+
+    private static VensysPerformanceDataResponse markStale(final VensysPerformanceDataResponse response) {
+        return response.toBuilder()
+                .data(Arrays.stream(response.data())
+                        .map(data -> null == data ? null : data.toBuilder().stale(true).build())
+                        .toArray(VensysPerformanceData[]::new))
+                .build();
+    }
+}
@@ -1,9 +1,12 @@
 package uk.co.emcreations.energycoop.sourceclient;
 
+import feign.Request;
 import feign.RequestInterceptor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 
+import java.time.Duration;
+
 public class VensysConfiguration {
     @Value("${external.api.graig-fatha.tid}")
     String tid;
@@ -11,6 +14,12 @@ public class VensysConfiguration {
     @Value("${external.api.graig-fatha.key}")
     String key;
 
+    @Value("${external.api.graig-fatha.connect-timeout:PT2S}")
+    Duration connectTimeout;
+
+    @Value("${external.api.graig-fatha.read-timeout:PT20S}")
+    Duration readTimeout;
+
     @Bean
     public RequestInterceptor requestInterceptor() {
         return requestTemplate -> {
@@ -18,4 +27,13 @@ public class VensysConfiguration {
             requestTemplate.header("TID", tid);
         };
     }
+
+    /**
+     * Socket timeouts, so a call the caller has stopped waiting for is still abandoned and frees its bulkhead slot.
+     * They should be longer than the per-endpoint timeouts in {@link ResilientVensysClient}.
+     */
+    @Bean
+    public Request.Options requestOptions() {
+        return new Request.Options(connectTimeout, readTimeout, true);
+    }
 }
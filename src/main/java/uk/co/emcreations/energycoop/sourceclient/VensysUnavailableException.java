@@ -0,0 +1,14 @@
+package uk.co.emcreations.energycoop.sourceclient;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the Vensys API can't be called or didn't answer in time, and there's no earlier response to fall back on.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class VensysUnavailableException extends RuntimeException {
+    public VensysUnavailableException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,76 @@
+package uk.co.emcreations.energycoop.util;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.web.context.request.ServletWebRequest;
+import uk.co.emcreations.energycoop.model.SiteDataVersion;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.stream.Collectors;
+
+public class HttpCacheHelper {
+    private static final int ETAG_LENGTH = 32;
+
+    /**
+     * Sets the response's Cache-Control header and checks the request's validators against the site's data version.
+     * The ETag is a hash of the version tag and the variant, which should hold everything else the response depends
+     * on, such as the member and the requested range. Returns true when the client's copy is current, in which case
+     * the response has been made a 304 and the handler should return without a body.
+     */
+    public static boolean checkNotModified(final ServletWebRequest request, final SiteDataVersion version,
+                                           final CacheControl cacheControl, final Object... variant) {
+        if (null != request.getResponse()) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        }
+
+        String eTag = "\"" + hash(version.tag() + "|" + Arrays.stream(variant)
+                .map(String::valueOf)
+                .collect(Collectors.joining("|"))) + "\"";
+
+        return request.checkNotModified(eTag, version.lastModified().toEpochMilli());
+    }
+
+    /**
+     * Returns the caching policy for data about the range ending on the given date. Once the range is settled, from the
+     * day after its last day has finished, its data only changes through corrections, so it may be reused for the given
+     * time, which should be short, before being revalidated against its ETag; otherwise clients must revalidate every
+     * time. Settled data can still be corrected, so it is never marked immutable.
+     */
+    public static CacheControl forRange(final LocalDate to, final LocalDate today, final Duration settledMaxAge) {
+        if (to.isBefore(today.minusDays(1))) {
+            return CacheControl.maxAge(settledMaxAge).cachePrivate();
+        }
+
+        return CacheControl.noCache().cachePrivate();
+    }
+
+    /**
+     * Returns a caching policy which lets clients reuse the response until the next run of the given schedule, when
+     * fresh data is expected.
+     */
+    public static CacheControl untilNext(final CronExpression schedule, final ZonedDateTime now) {
+        ZonedDateTime next = schedule.next(now);
+        if (null == next) {
+            return CacheControl.noCache().cachePrivate();
+        }
+
+        return CacheControl.maxAge(Duration.between(now, next)).cachePrivate();
+    }
+
+    private static String hash(final String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8))).substring(0, ETAG_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
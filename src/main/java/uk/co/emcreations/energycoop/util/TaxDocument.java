@@ -1,127 +1,200 @@
 package uk.co.emcreations.energycoop.util;
 
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.springframework.util.StreamUtils;
 import uk.co.emcreations.energycoop.model.Site;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TaxDocument {
+    private static final float MARGIN = 75;
+    private static final float TITLE_FONT_SIZE = 16;
+    private static final float BODY_FONT_SIZE = 12;
+    private static final float LEADING = 1.5f * BODY_FONT_SIZE;
+    private static final COSName FONT_RESOURCE = COSName.getPDFName("F1");
+    private static final byte[] NEXT_LINE = ("0 " + -LEADING + " Td\n").getBytes(StandardCharsets.US_ASCII);
+    private static final int CONTENT_SIZE_HINT = 2048;
+    private static final List<String> DISCLAIMER = List.of(
+            "This document is intended for informational purposes only.",
+            "Please consult a tax professional for advice regarding your specific situation."
+    );
+    private static final Map<Site, Template> TEMPLATES = new ConcurrentHashMap<>();
+
     public static byte[] generateTaxDocument(final Site site, final String userId, final LocalDate from,
                                              final LocalDate to, final double totalSavingsAmount, final double currentShares,
                                              final double withdrawnShares, final double withdrawnCapital) {
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            // Formatting helpers
-            String formattedTotalSavingsAmount = formatCurrency(totalSavingsAmount);
-            String formattedCurrentShares = formatInteger(currentShares);
-            String formattedWithdrawnShares = formatInteger(withdrawnShares);
-            String formattedWithdrawnCapital = formatCurrency(withdrawnCapital);
+        return templateFor(site).render(userId, from, to, totalSavingsAmount, currentShares, withdrawnShares,
+                withdrawnCapital);
+    }
 
-            double carriedShares = currentShares - withdrawnShares;
-            String formattedCarriedShares = formatInteger(carriedShares);
+    /**
+     * Returns the shared template for a site, preparing it on first use.
+     */
+    public static Template templateFor(final Site site) {
+        return TEMPLATES.computeIfAbsent(site, Template::new);
+    }
 
+    /**
+     * The parts of a site's tax document that are the same for every member: the font, page layout, title block and
+     * disclaimer. The content stream operators for the title and disclaimer are encoded once, so rendering a document
+     * only encodes the member's own lines. Templates are safe to share between threads.
+     */
+    public static final class Template {
+        private final Site site;
+        private final PDType1Font font;
+        private final COSDictionary fontDictionary;
+        private final byte[] header;
+        private final byte[] footer;
+        private final DecimalFormat currencyFormat;
+        private final DecimalFormat integerFormat;
+
+        private Template(final Site site) {
+            this.site = site;
+            this.font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            this.fontDictionary = font.getCOSObject();
+            this.currencyFormat = createFormat("#,##0.00");
+            this.integerFormat = createFormat("#,##0");
+
+            PDRectangle mediaBox = PDRectangle.LETTER;
+            float startX = mediaBox.getLowerLeftX() + MARGIN;
+            float startY = mediaBox.getUpperRightY() - MARGIN;
+
+            var headerContent = new ByteArrayOutputStream();
+            writeOperator(headerContent, "BT");
+            writeOperator(headerContent, "/" + FONT_RESOURCE.getName() + " " + TITLE_FONT_SIZE + " Tf");
+            writeOperator(headerContent, startX + " " + startY + " Td");
+            showLine(headerContent, "Energy Co-op (" + site + ") Tax Document");
+            headerContent.writeBytes(NEXT_LINE);
+            writeOperator(headerContent, "/" + FONT_RESOURCE.getName() + " " + BODY_FONT_SIZE + " Tf");
+            this.header = headerContent.toByteArray();
+
+            var footerContent = new ByteArrayOutputStream();
+            DISCLAIMER.forEach(line -> showLine(footerContent, line));
+            writeOperator(footerContent, "ET");
+            this.footer = footerContent.toByteArray();
+        }
+
+        public byte[] render(final String userId, final LocalDate from, final LocalDate to,
+                             final double totalSavingsAmount, final double currentShares,
+                             final double withdrawnShares, final double withdrawnCapital) {
+            try (var os = new ByteArrayOutputStream()) {
+                render(userId, from, to, totalSavingsAmount, currentShares, withdrawnShares, withdrawnCapital, os);
+                return os.toByteArray();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * Writes the document straight to the output stream without buffering the whole of it, leaving the stream
+         * open.
+         */
+        public void render(final String userId, final LocalDate from, final LocalDate to,
+                           final double totalSavingsAmount, final double currentShares,
+                           final double withdrawnShares, final double withdrawnCapital,
+                           final OutputStream os) throws IOException {
+            var currency = (DecimalFormat) currencyFormat.clone();
+            var integer = (DecimalFormat) integerFormat.clone();
+            double carriedShares = currentShares - withdrawnShares;
             double interestIncome = totalSavingsAmount - withdrawnCapital;
-            String formattedInterestIncome = formatCurrency(interestIncome);
-
-            // Create document and page
-            var document = createDocument(site, from, to);
-            var page = new PDPage();
-            document.addPage(page);
-            var cs = new PDPageContentStream(document, page);
-
-            var font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-
-            PDRectangle mediaBox = page.getMediaBox();
-
-            var margin = 75;
-            var fontSize = 12;
-            float leading = 1.5f * fontSize;
-            float startX = mediaBox.getLowerLeftX() + margin;
-            float startY = mediaBox.getUpperRightY() - margin;
-
-            // Prepare the content lines in the same order as before
-            List<String> bodyLines = Arrays.asList(
-                    "Generation time: " + LocalDateTime.now(),
-                    "Produced for user: " + userId,
-                    "Period: " + from + " to " + to,
-                    "",
-                    "Brought forward shares: " + formattedCurrentShares,
-                    "Shares withdrawn: " + formattedWithdrawnShares,
-                    "Carried forward shares: " + formattedCarriedShares,
-                    "",
-                    "Total savings: £" + formattedTotalSavingsAmount,
-                    "Capital withdrawn: £" + formattedWithdrawnCapital,
-                    "Interest income: £" + formattedInterestIncome,
-                    "",
-                    "This document is intended for informational purposes only.",
-                    "Please consult a tax professional for advice regarding your specific situation."
-            );
-
-            var title = "Energy Co-op (" + site + ") Tax Document";
-
-            // title font size was constant; compute it inside helper to reduce cognitive complexity
-            writeDocumentContent(cs, font, startX, startY, fontSize, leading, title, bodyLines);
-
-            document.save(os);
-            document.close();
-
-            return os.toByteArray();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+
+            var content = new ByteArrayOutputStream(CONTENT_SIZE_HINT);
+            content.writeBytes(header);
+            showLine(content, "Generation time: " + LocalDateTime.now());
+            showLine(content, "Produced for user: " + userId);
+            showLine(content, "Period: " + from + " to " + to);
+            content.writeBytes(NEXT_LINE);
+            showLine(content, "Brought forward shares: " + integer.format(currentShares));
+            showLine(content, "Shares withdrawn: " + integer.format(withdrawnShares));
+            showLine(content, "Carried forward shares: " + integer.format(carriedShares));
+            content.writeBytes(NEXT_LINE);
+            showLine(content, "Total savings: £" + currency.format(totalSavingsAmount));
+            showLine(content, "Capital withdrawn: £" + currency.format(withdrawnCapital));
+            showLine(content, "Interest income: £" + currency.format(interestIncome));
+            content.writeBytes(NEXT_LINE);
+            content.writeBytes(footer);
+
+            try (var document = new PDDocument()) {
+                setDocumentInformation(document, from, to);
+
+                var page = new PDPage(PDRectangle.LETTER);
+                page.setResources(createResources());
+                var contents = new PDStream(document);
+                try (OutputStream cs = contents.createOutputStream(COSName.FLATE_DECODE)) {
+                    content.writeTo(cs);
+                }
+                page.setContents(contents);
+                document.addPage(page);
+
+                document.save(StreamUtils.nonClosing(os)); // saving closes the stream it writes to
+            }
         }
-    }
 
-    // Helper: format currency with grouping and two decimal places
-    private static String formatCurrency(double value) {
-        return String.format("%,.2f", value);
-    }
+        // Helper: set the document metadata
+        private void setDocumentInformation(final PDDocument document, final LocalDate from, final LocalDate to) {
+            PDDocumentInformation info = document.getDocumentInformation();
+            info.setAuthor("Energy Co-op");
+            info.setCreator("Energy Co-op");
+            info.setTitle("Tax Document (" + site + ") " + from + " to " + to);
+            info.setSubject("Tax Document for " + site + ".");
+        }
 
-    // Helper: format integer-like values with grouping and no decimals
-    private static String formatInteger(double value) {
-        return String.format("%,.0f", value);
-    }
+        // Helper: each document gets its own copy of the font dictionary so no COS objects are shared between documents
+        private PDResources createResources() {
+            var fonts = new COSDictionary();
+            fonts.setItem(FONT_RESOURCE, new COSDictionary(fontDictionary));
+            var resources = new COSDictionary();
+            resources.setItem(COSName.FONT, fonts);
+            return new PDResources(resources);
+        }
 
-    // Helper: create a PDDocument and set metadata
-    private static PDDocument createDocument(Site site, LocalDate from, LocalDate to) {
-        var document = new PDDocument();
-        PDDocumentInformation info = document.getDocumentInformation();
-        info.setAuthor("Energy Co-op");
-        info.setCreator("Energy Co-op");
-        info.setTitle("Tax Document (" + site + ") " + from + " to " + to);
-        info.setSubject("Tax Document for " + site + ".");
-        return document;
-    }
+        // Helper: show a line of text and move to the start of the next line
+        private void showLine(final ByteArrayOutputStream content, final String text) {
+            byte[] encoded;
+            try {
+                synchronized (font) { // the font's encoding cache is not thread-safe
+                    encoded = font.encode(text);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            writeOperator(content, "<" + HexFormat.of().formatHex(encoded) + "> Tj");
+            content.writeBytes(NEXT_LINE);
+        }
 
-    // Helper: write the title and body lines to the content stream and close the stream
-    private static void writeDocumentContent(final PDPageContentStream cs, final PDType1Font font,
-                                             float startX, float startY, float bodyFontSize,
-                                             float leading, final String title, final List<String> bodyLines) throws IOException {
-        var titleFontSize = 16f; // fixed title size
-
-        cs.beginText();
-        cs.setFont(font, titleFontSize);
-        cs.newLineAtOffset(startX, startY);
-        cs.showText(title);
-        cs.newLineAtOffset(0, -leading);
-        cs.newLineAtOffset(0, -leading);
-
-        cs.setFont(font, bodyFontSize);
-        for (String line : bodyLines) {
-            cs.showText(line);
-            cs.newLineAtOffset(0, -leading);
+        private static void writeOperator(final ByteArrayOutputStream content, final String operator) {
+            content.writeBytes(operator.getBytes(StandardCharsets.US_ASCII));
+            content.write('\n');
         }
 
-        cs.endText();
-        cs.close();
+        // Helper: grouped number format rounding half-up, matching String.format in the default locale
+        private static DecimalFormat createFormat(final String pattern) {
+            var format = new DecimalFormat(pattern,
+                    DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)));
+            format.setRoundingMode(RoundingMode.HALF_UP);
+            return format;
+        }
     }
 }
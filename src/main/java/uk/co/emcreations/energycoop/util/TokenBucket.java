@@ -0,0 +1,58 @@
+package uk.co.emcreations.energycoop.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket rate limiter. Tokens are added at a steady rate up to the bucket's capacity, which allows short
+ * bursts after a quiet spell while holding the long-run rate to the refill rate. Callers take one token per call,
+ * waiting for one to be added if the bucket is empty.
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoTime;
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(final double tokensPerSecond, final int capacity) {
+        this(tokensPerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucket(final double tokensPerSecond, final int capacity, final LongSupplier nanoTime) {
+        if (0 >= tokensPerSecond || 1 > capacity) {
+            throw new IllegalArgumentException("Token bucket rate must be positive and capacity at least 1");
+        }
+
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.nanoTime = nanoTime;
+        this.tokens = capacity;
+        this.refilledAt = nanoTime.getAsLong();
+    }
+
+    /**
+     * Takes a token, waiting until one is available.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while (0 < (waitNanos = tryAcquire())) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a token if one is available, returning zero, or otherwise how many nanoseconds until one will be.
+     */
+    public synchronized long tryAcquire() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+
+        if (1 <= tokens) {
+            tokens--;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+}
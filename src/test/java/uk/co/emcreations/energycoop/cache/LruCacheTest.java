@@ -0,0 +1,140 @@
+package uk.co.emcreations.energycoop.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LruCacheTest {
+    @Test
+    @DisplayName("Returns cached values without calling the loader again")
+    void get_cachesValues() {
+        var cache = new LruCache<String, String>("test", 2);
+        var loads = new AtomicInteger();
+
+        assertEquals("A", cache.get("a", key -> { loads.incrementAndGet(); return "A"; }));
+        assertEquals("A", cache.get("a", key -> { loads.incrementAndGet(); return "B"; }));
+
+        assertEquals(1, loads.get());
+        assertEquals(CacheStats.of("test", 1, 2, 1, 1, 0), cache.getStats());
+    }
+
+    @Test
+    @DisplayName("Evicts the least recently accessed entry once full")
+    void get_evictsLeastRecentlyAccessed() {
+        var cache = new LruCache<String, String>("test", 2);
+        cache.get("a", String::toUpperCase);
+        cache.get("b", String::toUpperCase);
+        cache.get("a", String::toUpperCase); // "b" is now the least recently accessed
+        cache.get("c", String::toUpperCase);
+
+        assertEquals("A", cache.get("a", key -> "reloaded"));
+        assertEquals("reloaded", cache.get("b", key -> "reloaded"));
+        assertEquals(2, cache.getStats().evictions());
+        assertEquals(2, cache.getStats().size());
+    }
+
+    @Test
+    @DisplayName("Reloads invalidated entries")
+    void invalidate_removesEntry() {
+        var cache = new LruCache<String, String>("test", 2);
+        cache.get("a", key -> "old");
+        cache.get("b", key -> "old");
+
+        cache.invalidate("a");
+        cache.invalidateIf("b"::equals);
+
+        assertEquals("new", cache.get("a", key -> "new"));
+        assertEquals("new", cache.get("b", key -> "new"));
+    }
+
+    @Test
+    @DisplayName("Does not cache a value loaded while the cache was being invalidated")
+    void get_doesNotCacheLoadOverlappingInvalidation() {
+        var cache = new LruCache<String, String>("test", 2);
+
+        assertEquals("stale", cache.get("a", key -> {
+            cache.invalidate(key);
+            return "stale";
+        }));
+        assertEquals("fresh", cache.get("a", key -> "fresh"));
+    }
+
+    @Test
+    @DisplayName("Reports the hit ratio")
+    void getStats_hitRatio() {
+        var cache = new LruCache<String, String>("test", 2);
+        cache.get("a", String::toUpperCase);
+        cache.get("a", String::toUpperCase);
+        cache.get("a", String::toUpperCase);
+        cache.get("b", String::toUpperCase);
+
+        assertEquals(0.5, cache.getStats().hitRatio());
+    }
+
+    @Test
+    @DisplayName("Rejects a maximum size below one")
+    void constructor_rejectsInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<String, String>("test", 0));
+    }
+
+    @Test
+    @DisplayName("Evicts by weight when a weigher is supplied")
+    void get_evictsByWeight() {
+        var cache = new LruCache<String, String>("test", 10, String::length);
+        cache.get("a", key -> "aaaa");
+        cache.get("b", key -> "bbbb");
+        cache.get("c", key -> "cccc"); // 12 > 10, so "a" is evicted
+
+        assertEquals("reloaded", cache.get("a", key -> "reloaded"));
+        assertEquals(CacheStats.of("test", 8, 10, 0, 4, 3), cache.getStats());
+    }
+
+    @Test
+    @DisplayName("Does not cache a value heavier than the whole cache")
+    void get_skipsOversizedValues() {
+        var cache = new LruCache<String, String>("test", 3, String::length);
+        cache.get("a", key -> "a");
+
+        assertEquals("too big", cache.get("b", key -> "too big"));
+        assertEquals("loaded", cache.get("b", key -> "loaded"));
+        assertEquals(1, cache.getStats().size());
+        assertEquals(0, cache.getStats().evictions());
+    }
+
+    @Test
+    @DisplayName("Drops an expired entry on lookup and loads it again")
+    void get_reloadsExpiredEntries() {
+        var cache = new LruCache<String, String>("test", 2) {
+            @Override
+            protected boolean isExpired(final String value) {
+                return value.startsWith("stale");
+            }
+        };
+        cache.get("a", key -> "stale");
+
+        assertEquals("fresh", cache.get("a", key -> "fresh"));
+        assertEquals("fresh", cache.get("a", key -> "other"));
+        assertEquals(CacheStats.of("test", 1, 2, 1, 2, 1), cache.getStats());
+    }
+
+    @Test
+    @DisplayName("Looks up and stores entries without a loader")
+    void getIfPresent_andPut() {
+        var cache = new LruCache<String, String>("test", 1);
+
+        assertTrue(cache.getIfPresent("a").isEmpty());
+        cache.put("a", "one");
+        cache.put("a", "two");
+        assertEquals(Optional.of("two"), cache.getIfPresent("a"));
+        cache.put("b", "three");
+
+        assertTrue(cache.getIfPresent("a").isEmpty());
+        assertEquals(CacheStats.of("test", 1, 1, 1, 2, 1), cache.getStats());
+    }
+}
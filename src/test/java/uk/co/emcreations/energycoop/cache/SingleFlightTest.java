@@ -0,0 +1,107 @@
+package uk.co.emcreations.energycoop.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+    private final SingleFlight<String> singleFlight = new SingleFlight<>("test");
+
+    @Test
+    @DisplayName("Concurrent callers with the same key share one call")
+    void execute_sharesInFlightCall() throws Exception {
+        var calls = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "value";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertEquals("value", first.get(5, TimeUnit.SECONDS));
+        assertEquals("value", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getCalls());
+    }
+
+    @Test
+    @DisplayName("Waiting callers receive the in-flight call's exception")
+    void execute_sharesException() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("upstream failed");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> "other"));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertInstanceOf(IllegalStateException.class,
+                assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+        assertInstanceOf(IllegalStateException.class,
+                assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+    }
+
+    @Test
+    @DisplayName("Calls with different keys, or after the previous call finished, are made separately")
+    void execute_separateCalls() {
+        assertEquals("a", singleFlight.execute("a", () -> "a"));
+        assertEquals("b", singleFlight.execute("b", () -> "b"));
+        assertEquals("a2", singleFlight.execute("a", () -> "a2"));
+
+        assertEquals(3, singleFlight.getCalls());
+        assertEquals(0, singleFlight.getCoalescedCalls());
+    }
+
+    @Test
+    @DisplayName("Reports shared calls as hits and calls made as misses")
+    void getStats_reportsCounters() {
+        singleFlight.execute("a", () -> "a");
+
+        CacheStats stats = singleFlight.getStats();
+
+        assertEquals("test", stats.name());
+        assertEquals(0, stats.size());
+        assertEquals(0, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    private void awaitCoalesced(final long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (expected > singleFlight.getCoalescedCalls() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
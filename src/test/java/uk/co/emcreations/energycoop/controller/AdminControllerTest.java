@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -12,19 +13,34 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import uk.co.emcreations.energycoop.cache.CacheStats;
+import uk.co.emcreations.energycoop.cache.MemberOwnershipCache;
+import uk.co.emcreations.energycoop.dto.BackfillJobStatus;
+import uk.co.emcreations.energycoop.dto.JobStatus;
 import uk.co.emcreations.energycoop.entity.Alert;
 import uk.co.emcreations.energycoop.entity.SavingsRate;
+import uk.co.emcreations.energycoop.model.JobState;
 import uk.co.emcreations.energycoop.model.Site;
 import uk.co.emcreations.energycoop.service.AlertService;
+import uk.co.emcreations.energycoop.service.AnnualStatementService;
+import uk.co.emcreations.energycoop.service.MemberOwnershipService;
+import uk.co.emcreations.energycoop.service.PerformanceBackfillJobService;
+import uk.co.emcreations.energycoop.service.TaxDocumentExportService;
 import uk.co.emcreations.energycoop.service.impl.SavingsRateServiceImpl;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -44,6 +60,21 @@ class AdminControllerTest {
     @MockitoBean
     private AlertService alertService;
 
+    @MockitoBean
+    private MemberOwnershipCache memberOwnershipCache;
+
+    @MockitoBean
+    private AnnualStatementService annualStatementService;
+
+    @MockitoBean
+    private TaxDocumentExportService taxDocumentExportService;
+
+    @MockitoBean
+    private PerformanceBackfillJobService performanceBackfillJobService;
+
+    @MockitoBean
+    private MemberOwnershipService memberOwnershipService;
+
     @Nested
     @DisplayName("setSavingsRate tests")
     class SetSavingsRateTests {
@@ -337,4 +368,282 @@ class AdminControllerTest {
                     .andExpect(status().isBadRequest());
         }
     }
+
+    @Nested
+    @DisplayName("getCacheStats tests")
+    class GetCacheStatsTests {
+        @Test
+        @WithMockUser(authorities = "read:cache-stats")
+        @DisplayName("GET /cache-stats returns 200 OK and statistics for each cache")
+        void getCacheStats_returnsStats() throws Exception {
+            when(memberOwnershipCache.getStats()).thenReturn(CacheStats.of("memberOwnership", 3, 10, 7, 3, 1));
+
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                    .get(BASE_URL + "/cache-stats")
+                    .with(csrf()))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            String json = result.getResponse().getContentAsString();
+            assertTrue(json.contains("\"name\":\"memberOwnership\""));
+            assertTrue(json.contains("\"hits\":7"));
+            assertTrue(json.contains("\"evictions\":1"));
+        }
+
+        @Test
+        @WithMockUser(authorities = "read:alerts")
+        @DisplayName("GET /cache-stats returns 403 FORBIDDEN without the cache statistics authority")
+        void getCacheStats_returnsForbidden_withoutAuthority() throws Exception {
+            mockMvc.perform(MockMvcRequestBuilders
+                    .get(BASE_URL + "/cache-stats")
+                    .with(csrf()))
+                    .andExpect(status().isForbidden());
+        }
+    }
+
+    @Nested
+    @DisplayName("reloadMemberOwnership tests")
+    class ReloadMemberOwnershipTests {
+        @Test
+        @WithMockUser(authorities = "reload:member-ownership")
+        @DisplayName("POST /member-ownership/{site}/reload returns 204 NO CONTENT for a member")
+        void reloadMemberOwnership_forMember() throws Exception {
+            mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/member-ownership/GRAIG_FATHA/reload")
+                    .param("userId", "user-1")
+                    .with(csrf()))
+                    .andExpect(status().isNoContent());
+
+            verify(memberOwnershipService).reloadOwnership(Site.GRAIG_FATHA, "user-1");
+        }
+
+        @Test
+        @WithMockUser(authorities = "reload:member-ownership")
+        @DisplayName("POST /member-ownership/{site}/reload reloads every member without a user")
+        void reloadMemberOwnership_forSite() throws Exception {
+            mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/member-ownership/GRAIG_FATHA/reload")
+                    .with(csrf()))
+                    .andExpect(status().isNoContent());
+
+            verify(memberOwnershipService).reloadOwnership(Site.GRAIG_FATHA, null);
+        }
+
+        @Test
+        @WithMockUser(authorities = "read:cache-stats")
+        @DisplayName("POST /member-ownership/{site}/reload returns 403 FORBIDDEN without the reload authority")
+        void reloadMemberOwnership_returnsForbidden() throws Exception {
+            mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/member-ownership/GRAIG_FATHA/reload")
+                    .with(csrf()))
+                    .andExpect(status().isForbidden());
+
+            verifyNoInteractions(memberOwnershipService);
+        }
+    }
+
+    @Nested
+    @DisplayName("annual statement tests")
+    class AnnualStatementTests {
+        private final LocalDate FROM = LocalDate.of(2024, 1, 1);
+        private final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+        @Test
+        @WithMockUser(authorities = "run:annual-statements")
+        @DisplayName("POST /annual-statements/{from}/{to} returns 202 ACCEPTED with the run status")
+        void startAnnualStatements_returnsAccepted() throws Exception {
+            when(annualStatementService.startStatementRun(FROM, TO)).thenReturn(new JobStatus("statements-run",
+                    JobState.RUNNING, 0, 0, LocalDateTime.now(), null, null));
+
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/annual-statements/2024-01-01/2024-12-31")
+                    .with(csrf()))
+                    .andExpect(status().isAccepted())
+                    .andReturn();
+
+            assertTrue(result.getResponse().getContentAsString().contains("RUNNING"));
+        }
+
+        @Test
+        @WithMockUser(authorities = "run:annual-statements")
+        @DisplayName("POST /annual-statements/{from}/{to} returns 409 CONFLICT when a run is in progress")
+        void startAnnualStatements_returnsConflict() throws Exception {
+            when(annualStatementService.startStatementRun(FROM, TO)).thenThrow(new IllegalStateException("running"));
+
+            mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/annual-statements/2024-01-01/2024-12-31")
+                    .with(csrf()))
+                    .andExpect(status().isConflict());
+        }
+
+        @Test
+        @WithMockUser(authorities = "run:annual-statements")
+        @DisplayName("POST /annual-statements/{from}/{to} returns 400 BAD REQUEST for an invalid period")
+        void startAnnualStatements_returnsBadRequest() throws Exception {
+            when(annualStatementService.startStatementRun(TO, FROM)).thenThrow(new IllegalArgumentException("invalid"));
+
+            mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/annual-statements/2024-12-31/2024-01-01")
+                    .with(csrf()))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @WithMockUser(authorities = "run:annual-statements")
+        @DisplayName("GET /annual-statements/status returns 404 NOT FOUND before any run")
+        void getAnnualStatementsStatus_returnsNotFound() throws Exception {
+            when(annualStatementService.getStatementRunStatus()).thenReturn(Optional.empty());
+
+            mockMvc.perform(MockMvcRequestBuilders
+                    .get(BASE_URL + "/annual-statements/status")
+                    .with(csrf()))
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        @WithMockUser(authorities = "read:alerts")
+        @DisplayName("POST /annual-statements/{from}/{to} returns 403 FORBIDDEN without the run authority")
+        void startAnnualStatements_returnsForbidden() throws Exception {
+            mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/annual-statements/2024-01-01/2024-12-31")
+                    .with(csrf()))
+                    .andExpect(status().isForbidden());
+        }
+    }
+
+    @Nested
+    @DisplayName("tax document export tests")
+    class TaxDocumentExportTests {
+        private final LocalDate FROM = LocalDate.of(2024, 1, 1);
+        private final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+        @Test
+        @WithMockUser(authorities = "export:tax-documents")
+        @DisplayName("POST /tax-documents/{from}/{to} returns 202 ACCEPTED with the export status")
+        void startTaxDocumentExport_returnsAccepted() throws Exception {
+            when(taxDocumentExportService.startExport(FROM, TO)).thenReturn(new JobStatus("tax-documents",
+                    JobState.RUNNING, 10, 0, LocalDateTime.now(), null, null));
+
+            mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/tax-documents/2024-01-01/2024-12-31")
+                    .with(csrf()))
+                    .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @WithMockUser(authorities = "export:tax-documents")
+        @DisplayName("POST /tax-documents/{from}/{to} returns 400 BAD REQUEST when there are no statements")
+        void startTaxDocumentExport_returnsBadRequest() throws Exception {
+            when(taxDocumentExportService.startExport(FROM, TO)).thenThrow(new IllegalArgumentException("none"));
+
+            mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/tax-documents/2024-01-01/2024-12-31")
+                    .with(csrf()))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @WithMockUser(authorities = "export:tax-documents")
+        @DisplayName("GET /tax-documents/{from}/{to}/archive returns the zip archive")
+        void getTaxDocumentArchive_returnsArchive(@TempDir final Path directory) throws Exception {
+            Path archive = Files.write(directory.resolve("TaxDocuments-2024-01-01-2024-12-31.zip"), new byte[]{1, 2, 3});
+            when(taxDocumentExportService.getExportArchive(FROM, TO)).thenReturn(Optional.of(archive));
+
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                    .get(BASE_URL + "/tax-documents/2024-01-01/2024-12-31/archive")
+                    .with(csrf()))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            assertEquals("application/zip", result.getResponse().getContentType());
+            assertEquals(3, result.getResponse().getContentAsByteArray().length);
+        }
+
+        @Test
+        @WithMockUser(authorities = "export:tax-documents")
+        @DisplayName("GET /tax-documents/{from}/{to}/archive returns 404 NOT FOUND before an export")
+        void getTaxDocumentArchive_returnsNotFound() throws Exception {
+            when(taxDocumentExportService.getExportArchive(FROM, TO)).thenReturn(Optional.empty());
+
+            mockMvc.perform(MockMvcRequestBuilders
+                    .get(BASE_URL + "/tax-documents/2024-01-01/2024-12-31/archive")
+                    .with(csrf()))
+                    .andExpect(status().isNotFound());
+        }
+    }
+
+    @Nested
+    @DisplayName("performance backfill tests")
+    class BackfillTests {
+        private final LocalDate FROM = LocalDate.of(2024, 1, 1);
+        private final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+        @Test
+        @WithMockUser(authorities = "run:backfill")
+        @DisplayName("POST /backfills/{from}/{to} returns 202 ACCEPTED with the job status")
+        void startBackfill_returnsAccepted() throws Exception {
+            when(performanceBackfillJobService.submit(FROM, TO)).thenReturn(jobStatus(JobState.QUEUED));
+
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/backfills/2024-01-01/2024-12-31")
+                    .with(csrf()))
+                    .andExpect(status().isAccepted())
+                    .andReturn();
+
+            assertTrue(result.getResponse().getContentAsString().contains("QUEUED"));
+        }
+
+        @Test
+        @WithMockUser(authorities = "run:backfill")
+        @DisplayName("POST /backfills/{from}/{to} returns 400 BAD REQUEST for an invalid period")
+        void startBackfill_returnsBadRequest() throws Exception {
+            when(performanceBackfillJobService.submit(TO, FROM)).thenThrow(new IllegalArgumentException("invalid"));
+
+            mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/backfills/2024-12-31/2024-01-01")
+                    .with(csrf()))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @WithMockUser(authorities = "run:backfill")
+        @DisplayName("POST /backfills/{id}/resume returns 409 CONFLICT for a completed job")
+        void resumeBackfill_returnsConflict() throws Exception {
+            when(performanceBackfillJobService.resume(1)).thenThrow(new IllegalStateException("completed"));
+
+            mockMvc.perform(MockMvcRequestBuilders
+                    .post(BASE_URL + "/backfills/1/resume")
+                    .with(csrf()))
+                    .andExpect(status().isConflict());
+        }
+
+        @Test
+        @WithMockUser(authorities = "run:backfill")
+        @DisplayName("GET /backfills/{id} returns the job's progress, or 404 NOT FOUND")
+        void getBackfill_returnsStatus() throws Exception {
+            when(performanceBackfillJobService.getJob(1)).thenReturn(Optional.of(jobStatus(JobState.RUNNING)));
+            when(performanceBackfillJobService.getJob(2)).thenReturn(Optional.empty());
+
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/backfills/1"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/backfills/2"))
+                    .andExpect(status().isNotFound());
+
+            assertTrue(result.getResponse().getContentAsString().contains("\"daysPerMinute\":12.5"));
+        }
+
+        @Test
+        @WithMockUser(authorities = "read:alerts")
+        @DisplayName("GET /backfills returns 403 FORBIDDEN without the backfill authority")
+        void getBackfills_returnsForbidden() throws Exception {
+            mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/backfills"))
+                    .andExpect(status().isForbidden());
+        }
+
+        private BackfillJobStatus jobStatus(final JobState state) {
+            return new BackfillJobStatus(1, Site.GRAIG_FATHA, FROM, TO, state, null, 366, 62, 60, 12.5,
+                    LocalDateTime.now(), LocalDateTime.now(), null, null);
+        }
+    }
 }
@@ -11,24 +11,47 @@ import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import uk.co.emcreations.energycoop.dto.EnergySaving;
+import uk.co.emcreations.energycoop.dto.TaxDocumentJobStatus;
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
+import uk.co.emcreations.energycoop.model.JobState;
+import uk.co.emcreations.energycoop.model.SavingsGranularity;
 import uk.co.emcreations.energycoop.model.Site;
+import uk.co.emcreations.energycoop.model.SiteDataVersion;
 import uk.co.emcreations.energycoop.service.GraigFathaMemberService;
+import uk.co.emcreations.energycoop.service.LiveGenerationStreamService;
+import uk.co.emcreations.energycoop.service.MemberOwnershipService;
+import uk.co.emcreations.energycoop.service.SavingsStreamService;
+import uk.co.emcreations.energycoop.service.SiteDataVersionService;
+import uk.co.emcreations.energycoop.service.TaxDocumentJobService;
 import uk.co.emcreations.energycoop.util.PrincipalHelper;
 
+import java.io.OutputStream;
 import java.security.Principal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.EnumMap;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oidcLogin;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(GraigFathaMemberController.class)
@@ -41,6 +64,21 @@ class GraigFathaMemberControllerTest {
     @MockitoBean
     GraigFathaMemberService service;
 
+    @MockitoBean
+    TaxDocumentJobService taxDocumentJobService;
+
+    @MockitoBean
+    SiteDataVersionService siteDataVersionService;
+
+    @MockitoBean
+    LiveGenerationStreamService liveGenerationStreamService;
+
+    @MockitoBean
+    SavingsStreamService savingsStreamService;
+
+    @MockitoBean
+    MemberOwnershipService memberOwnershipService;
+
     private MockedStatic<PrincipalHelper> principalHelperMock;
 
     @BeforeEach
@@ -56,6 +94,11 @@ class GraigFathaMemberControllerTest {
         // Also stub user extraction to a default user id
         principalHelperMock.when(() -> PrincipalHelper.extractUserFromPrincipal(any(Principal.class)))
                 .thenReturn("user-1");
+
+        when(siteDataVersionService.getVersion(Site.GRAIG_FATHA))
+                .thenReturn(new SiteDataVersion("v1", Instant.parse("2025-01-01T00:00:00Z")));
+        when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                .thenAnswer(invocation -> EffectiveDateTimeline.constant(invocation.getArgument(3)));
     }
 
     @AfterEach
@@ -98,6 +141,31 @@ class GraigFathaMemberControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("GET /live subscribes with the member's ownership and starts an event stream")
+    void testStreamLiveGeneration() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(liveGenerationStreamService.subscribe(Site.GRAIG_FATHA, 100.0)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/live").accept(MediaType.TEXT_EVENT_STREAM)
+                        .with(oidcLogin()).principal(principal))
+                .andExpect(request().asyncStarted());
+
+        verify(liveGenerationStreamService).subscribe(Site.GRAIG_FATHA, 100.0);
+    }
+
+    @Test
+    @DisplayName("GET /live returns 503 SERVICE UNAVAILABLE when too many members are connected")
+    void testStreamLiveGeneration_tooManySubscribers() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(liveGenerationStreamService.subscribe(Site.GRAIG_FATHA, 100.0))
+                .thenThrow(new RejectedExecutionException("full"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/live").accept(MediaType.TEXT_EVENT_STREAM)
+                        .with(oidcLogin()).principal(principal))
+                .andExpect(status().isServiceUnavailable());
+    }
+
     @Test
     @DisplayName("GET /savings/{from}/{to} returns 200 OK with valid principal and dates")
     void testGetSavings_success() throws Exception {
@@ -110,6 +178,166 @@ class GraigFathaMemberControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("GET /savings/{from}/{to} caches a settled range briefly with validators")
+    void testGetSavings_settledRangeHeaders() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(service.getSavings(any(LocalDate.class), any(LocalDate.class), eq(100.0), anyString())).thenReturn(Set.of());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-01-02").with(oidcLogin()).principal(principal))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=300, private"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Last-Modified"));
+    }
+
+    @Test
+    @DisplayName("GET /savings/{from}/{to} changes its ETag when the member's ownership history is reloaded")
+    void testGetSavings_eTagFollowsOwnershipHistory() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(service.getSavings(any(LocalDate.class), any(LocalDate.class), eq(100.0), anyString())).thenReturn(Set.of());
+
+        String before = mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-01-02")
+                        .with(oidcLogin()).principal(principal))
+                .andReturn().getResponse().getHeader("ETag");
+        when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                .thenReturn(EffectiveDateTimeline.constant(50.0));
+        String after = mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-01-02")
+                        .with(oidcLogin()).principal(principal))
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    @DisplayName("GET /savings/{from}/{to} makes clients revalidate a range reaching today")
+    void testGetSavings_currentRangeHeaders() throws Exception {
+        Principal principal = mock(Principal.class);
+        LocalDate today = LocalDate.now();
+        when(service.getSavings(any(LocalDate.class), any(LocalDate.class), eq(100.0), anyString())).thenReturn(Set.of());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/" + today.minusDays(7) + "/" + today)
+                        .with(oidcLogin()).principal(principal))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andExpect(header().exists("ETag"));
+    }
+
+    @Test
+    @DisplayName("GET /savings/{from}/{to} returns 304 NOT MODIFIED without recalculating while the data version is unchanged")
+    void testGetSavings_notModified() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(service.getSavings(any(LocalDate.class), any(LocalDate.class), eq(100.0), anyString())).thenReturn(Set.of());
+
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-01-02")
+                        .with(oidcLogin()).principal(principal))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-01-02")
+                        .header("If-None-Match", eTag).with(oidcLogin()).principal(principal))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag));
+
+        verify(service, times(1)).getSavings(any(LocalDate.class), any(LocalDate.class), eq(100.0), anyString());
+    }
+
+    @Test
+    @DisplayName("GET /savings/{from}/{to} recalculates once the data version moves on")
+    void testGetSavings_versionChanged() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(service.getSavings(any(LocalDate.class), any(LocalDate.class), eq(100.0), anyString())).thenReturn(Set.of());
+
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-01-02")
+                        .with(oidcLogin()).principal(principal))
+                .andReturn().getResponse().getHeader("ETag");
+        when(siteDataVersionService.getVersion(Site.GRAIG_FATHA))
+                .thenReturn(new SiteDataVersion("v2", Instant.parse("2025-01-02T00:00:00Z")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-01-02")
+                        .header("If-None-Match", eTag).with(oidcLogin()).principal(principal))
+                .andExpect(status().isOk());
+
+        verify(service, times(2)).getSavings(any(LocalDate.class), any(LocalDate.class), eq(100.0), anyString());
+    }
+
+    @Test
+    @DisplayName("GET /todaySavings returns 304 NOT MODIFIED when the data hasn't changed since Last-Modified")
+    void testGetTodaySavings_notModifiedSince() throws Exception {
+        Principal principal = mock(Principal.class);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/todaySavings")
+                        .header("If-Modified-Since", "Wed, 01 Jan 2025 00:00:00 GMT").with(oidcLogin()).principal(principal))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+
+        verify(service, never()).getTodaySavings(anyDouble());
+    }
+
+    @Test
+    @DisplayName("GET /savings/{from}/{to}?granularity=MONTH returns monthly totals")
+    void testGetSavings_byMonth() throws Exception {
+        Principal principal = mock(Principal.class);
+        var month = LocalDate.of(2023, 1, 1);
+        when(service.getSavings(month, month.plusMonths(2), 100.0, "user-1", SavingsGranularity.MONTH))
+                .thenReturn(List.of(new EnergySaving(12.5, "GBP", 1.0, month.atStartOfDay(), month.atTime(23, 59))));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-03-01")
+                        .param("granularity", "MONTH").with(oidcLogin()).principal(principal))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("12.5")));
+        verify(service, never()).getSavings(any(), any(), anyDouble(), anyString());
+    }
+
+    @Test
+    @DisplayName("GET /savings/{from}/{to} returns 400 Bad Request for an unknown granularity")
+    void testGetSavings_invalidGranularity() throws Exception {
+        Principal principal = mock(Principal.class);
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-03-01")
+                        .param("granularity", "FORTNIGHT").with(oidcLogin()).principal(principal))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /savings/{from}/{to} streams one JSON line per day when NDJSON is requested")
+    void testStreamSavings_success() throws Exception {
+        Principal principal = mock(Principal.class);
+        var day = LocalDate.of(2023, 1, 1);
+        var emitter = new ResponseBodyEmitter();
+        emitter.send(new EnergySaving(1.5, "GBP", 1.0, day.atStartOfDay(), day.atTime(23, 59)), MediaType.APPLICATION_JSON);
+        emitter.send("\n", MediaType.TEXT_PLAIN);
+        emitter.send(new EnergySaving(2.5, "GBP", 1.0, day.plusDays(1).atStartOfDay(), day.plusDays(1).atTime(23, 59)),
+                MediaType.APPLICATION_JSON);
+        emitter.send("\n", MediaType.TEXT_PLAIN);
+        emitter.complete();
+        when(savingsStreamService.stream(day, day.plusDays(1), 100.0, "user-1")).thenReturn(emitter);
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-01-02")
+                        .accept(MediaType.APPLICATION_NDJSON).with(oidcLogin()).principal(principal))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"amount\":1.5"));
+        assertTrue(lines[1].contains("\"amount\":2.5"));
+    }
+
+    @Test
+    @DisplayName("GET /savings/{from}/{to} returns 503 SERVICE UNAVAILABLE when too many streams are open")
+    void testStreamSavings_tooManyStreams() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(savingsStreamService.stream(any(), any(), eq(100.0), eq("user-1")))
+                .thenThrow(new RejectedExecutionException("full"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/savings/2023-01-01/2023-01-02")
+                        .accept(MediaType.APPLICATION_NDJSON).with(oidcLogin()).principal(principal))
+                .andExpect(status().isServiceUnavailable());
+    }
+
     @Test
     @DisplayName("GET /savings/{from}/{to} returns 400 Bad Request for invalid date format")
     void testGetSavings_invalidDate() throws Exception {
@@ -137,10 +365,123 @@ class GraigFathaMemberControllerTest {
         Principal principal = mock(Principal.class);
         byte[] pdf = "pdfdata".getBytes();
 
-        when(service.generateTaxDocument(any(LocalDate.class), any(LocalDate.class), eq(100.0), eq("user-1")))
-                .thenReturn(pdf);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(4).write(pdf);
+            return null;
+        }).when(service).writeTaxDocument(any(LocalDate.class), any(LocalDate.class), eq(100.0), eq("user-1"), any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/tax-document/2023-01-01/2023-01-31").with(oidcLogin()).principal(principal))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(header().string("Content-Disposition", containsString("TaxDocument.pdf")))
+                .andExpect(content().bytes(pdf));
+    }
+
+    @Test
+    @DisplayName("GET /tax-document returns the document's ETag")
+    void testGenerateTaxDocument_returnsETag() throws Exception {
+        Principal principal = mock(Principal.class);
+        byte[] pdf = "pdfdata".getBytes();
+
+        when(service.getTaxDocumentETag(any(LocalDate.class), any(LocalDate.class), eq(100.0), eq("user-1")))
+                .thenReturn(Optional.of("abc123"));
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(4).write(pdf);
+            return null;
+        }).when(service).writeTaxDocument(any(LocalDate.class), any(LocalDate.class), eq(100.0), eq("user-1"), any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/tax-document/2023-01-01/2023-01-31")
+                        .header("If-None-Match", "\"stale\"").with(oidcLogin()).principal(principal))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(header().string("Cache-Control", "max-age=300, private"))
+                .andExpect(content().bytes(pdf));
+    }
+
+    @Test
+    @DisplayName("GET /tax-document returns 304 NOT MODIFIED without rendering when the ETag matches")
+    void testGenerateTaxDocument_notModified() throws Exception {
+        Principal principal = mock(Principal.class);
+
+        when(service.getTaxDocumentETag(any(LocalDate.class), any(LocalDate.class), eq(100.0), eq("user-1")))
+                .thenReturn(Optional.of("abc123"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/tax-document/2023-01-01/2023-01-31")
+                        .header("If-None-Match", "\"abc123\"").with(oidcLogin()).principal(principal))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc123\""));
+
+        verify(service, never()).writeTaxDocument(any(), any(), anyDouble(), any(), any());
+    }
+
+    @Test
+    @DisplayName("POST /tax-document/{from}/{to}/jobs returns 202 ACCEPTED with the job's location")
+    void testSubmitTaxDocumentJob_accepted() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(taxDocumentJobService.submit(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31), 100.0, "user-1"))
+                .thenReturn(jobStatus(JobState.QUEUED));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(baseURL + "/tax-document/2023-01-01/2023-01-31/jobs")
+                        .with(oidcLogin()).with(csrf()).principal(principal))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", baseURL + "/tax-document-jobs/job-1"))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+    }
+
+    @Test
+    @DisplayName("POST /tax-document/{from}/{to}/jobs returns 503 SERVICE UNAVAILABLE when the queue is full")
+    void testSubmitTaxDocumentJob_queueFull() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(taxDocumentJobService.submit(any(), any(), anyDouble(), any()))
+                .thenThrow(new RejectedExecutionException("full"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(baseURL + "/tax-document/2023-01-01/2023-01-31/jobs")
+                        .with(oidcLogin()).with(csrf()).principal(principal))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @DisplayName("GET /tax-document-jobs/{jobId} returns 404 NOT FOUND for unknown jobs")
+    void testGetTaxDocumentJob_notFound() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(taxDocumentJobService.getStatus("job-1", "user-1")).thenReturn(Optional.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/tax-document-jobs/job-1")
+                        .with(oidcLogin()).principal(principal))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET /tax-document-jobs/{jobId}/document returns 409 CONFLICT until the job completes")
+    void testGetTaxDocumentJobDocument_notReady() throws Exception {
+        Principal principal = mock(Principal.class);
+        when(taxDocumentJobService.getStatus("job-1", "user-1")).thenReturn(Optional.of(jobStatus(JobState.RUNNING)));
 
-        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/tax-document/2023-01-01/2023-01-31").with(oidcLogin()).principal(principal))
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/tax-document-jobs/job-1/document")
+                        .with(oidcLogin()).principal(principal))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("GET /tax-document-jobs/{jobId}/document returns the completed job's PDF")
+    void testGetTaxDocumentJobDocument_success() throws Exception {
+        Principal principal = mock(Principal.class);
+        byte[] pdf = "pdfdata".getBytes();
+        when(taxDocumentJobService.getStatus("job-1", "user-1")).thenReturn(Optional.of(jobStatus(JobState.COMPLETED)));
+        when(taxDocumentJobService.getDocument("job-1", "user-1")).thenReturn(Optional.of(pdf));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/tax-document-jobs/job-1/document")
+                        .with(oidcLogin()).principal(principal))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_PDF))
                 .andExpect(header().string("Content-Disposition", containsString("TaxDocument.pdf")))
@@ -159,4 +500,9 @@ class GraigFathaMemberControllerTest {
                     .andReturn();
         });
     }
-}
\ No newline at end of file
+
+    private static TaxDocumentJobStatus jobStatus(final JobState state) {
+        return new TaxDocumentJobStatus("job-1", state, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31),
+                LocalDateTime.now(), null, null, null);
+    }
+}
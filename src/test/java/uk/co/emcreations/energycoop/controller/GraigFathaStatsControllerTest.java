@@ -20,8 +20,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oidcLogin;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(GraigFathaStatsController.class)
@@ -55,6 +57,30 @@ class GraigFathaStatsControllerTest {
             assertEquals(expectedEnergyYield, actualEnergyYield);
         }
 
+        @Test
+        @DisplayName("GET /energyYield may be cached until the next scheduled poll")
+        void testGetEnergyYield_maxAgeUntilNextPoll() throws Exception {
+            when(service.getMeanEnergyYield()).thenReturn(Optional.empty());
+
+            String cacheControl = mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/energyYield").with(oidcLogin()))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader("Cache-Control");
+
+            long maxAge = Long.parseLong(cacheControl.replaceAll("max-age=(\\d+), private", "$1"));
+            assertTrue(0 <= maxAge && maxAge <= 15 * 60, "max-age within one 15 minute polling interval: " + maxAge);
+        }
+
+        @Test
+        @DisplayName("GET /energyYield isn't reused without revalidating while the yield is stale")
+        void testGetEnergyYield_staleNotCached() throws Exception {
+            when(service.getMeanEnergyYield())
+                    .thenReturn(Optional.of(VensysMeanData.builder().value(100).stale(true).build()));
+
+            mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/energyYield").with(oidcLogin()))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Cache-Control", "no-cache, private"));
+        }
+
         @Test
         @DisplayName("GET /energyYield throws error if service throws")
         void testGetEnergyYield_serviceThrows() {
@@ -96,6 +122,19 @@ class GraigFathaStatsControllerTest {
             assertEquals(expectedYesterdayPerformance, actualEnergyYield);
         }
 
+        @Test
+        @DisplayName("GET /yesterdayPerformance may be cached until midnight")
+        void testYesterdayPerformance_maxAgeUntilMidnight() throws Exception {
+            when(service.getYesterdayPerformance()).thenReturn(VensysPerformanceData.builder().build());
+
+            String cacheControl = mockMvc.perform(MockMvcRequestBuilders.get(baseURL + "/yesterdayPerformance").with(oidcLogin()))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader("Cache-Control");
+
+            long maxAge = Long.parseLong(cacheControl.replaceAll("max-age=(\\d+), private", "$1"));
+            assertTrue(0 <= maxAge && maxAge <= 24 * 60 * 60, "max-age within a day: " + maxAge);
+        }
+
         @Test
         @DisplayName("GET /yesterdayPerformance throws error if service throws")
         void testYesterdayPerformance_serviceThrows() throws Exception {
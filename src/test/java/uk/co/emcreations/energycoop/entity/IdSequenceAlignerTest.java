@@ -0,0 +1,111 @@
+package uk.co.emcreations.energycoop.entity;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.relational.QualifiedSequenceName;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.generator.Generator;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.metamodel.mapping.TableDetails;
+import org.hibernate.metamodel.spi.MappingMetamodelImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdSequenceAlignerTest {
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    SessionFactoryImplementor sessionFactory;
+
+    @Mock
+    MappingMetamodelImplementor mappingMetamodel;
+
+    @InjectMocks
+    IdSequenceAligner aligner;
+
+    @BeforeEach
+    void setUp() {
+        List<EntityPersister> entities = List.of(
+                sequenceEntity("performance_stat_entry", "performance_stat_entry_seq"),
+                sequenceEntity("alert", "alert_seq"),
+                otherEntity());
+
+        when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getMappingMetamodel()).thenReturn(mappingMetamodel);
+        doAnswer(invocation -> {
+            Consumer<EntityPersister> action = invocation.getArgument(0);
+            entities.forEach(action);
+            return null;
+        }).when(mappingMetamodel).forEachEntityDescriptor(any());
+    }
+
+    @Test
+    @DisplayName("Finds the table and sequence for every entity whose ids come from a sequence")
+    void sequenceTables_readsMapping() {
+        assertEquals(Map.of("alert", "alert_seq", "performance_stat_entry", "performance_stat_entry_seq"),
+                aligner.sequenceTables());
+    }
+
+    @Test
+    @DisplayName("Moves each table's sequence forwards to its highest id, never backwards")
+    void alignSequences_movesSequencesForwards() {
+        aligner.alignSequences();
+
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(2)).queryForList(statements.capture(), eq(Long.class));
+
+        String performance = statements.getAllValues().get(1);
+        assertTrue(performance.contains("setval('performance_stat_entry_seq', max_id)"));
+        assertTrue(performance.contains("from performance_stat_entry"));
+        assertTrue(performance.contains("max_id >= (select last_value from performance_stat_entry_seq)"));
+    }
+
+    private static EntityPersister sequenceEntity(final String table, final String sequence) {
+        DatabaseStructure databaseStructure = mock(DatabaseStructure.class);
+        when(databaseStructure.getPhysicalName())
+                .thenReturn(new QualifiedSequenceName(null, null, Identifier.toIdentifier(sequence)));
+        SequenceStyleGenerator generator = mock(SequenceStyleGenerator.class);
+        when(generator.getDatabaseStructure()).thenReturn(databaseStructure);
+        TableDetails tableDetails = mock(TableDetails.class);
+        when(tableDetails.getTableName()).thenReturn(table);
+
+        EntityPersister entity = mock(EntityPersister.class);
+        when(entity.getGenerator()).thenReturn(generator);
+        when(entity.getIdentifierTableDetails()).thenReturn(tableDetails);
+        return entity;
+    }
+
+    private static EntityPersister otherEntity() {
+        EntityPersister entity = mock(EntityPersister.class);
+        when(entity.getGenerator()).thenReturn(mock(Generator.class));
+        return entity;
+    }
+}
@@ -0,0 +1,161 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.emcreations.energycoop.dto.TaxFigures;
+import uk.co.emcreations.energycoop.entity.MemberOwnership;
+import uk.co.emcreations.energycoop.entity.MemberOwnershipRepository;
+import uk.co.emcreations.energycoop.entity.MemberStatement;
+import uk.co.emcreations.energycoop.entity.MemberStatementRepository;
+import uk.co.emcreations.energycoop.entity.SiteSavingsLedgerEntry;
+import uk.co.emcreations.energycoop.model.JobProgress;
+import uk.co.emcreations.energycoop.service.GraigFathaMemberService;
+import uk.co.emcreations.energycoop.sourceclient.VensysUnavailableException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+@ExtendWith(MockitoExtension.class)
+class AnnualStatementServiceImplTest {
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 1, 10);
+
+    @Mock
+    GraigFathaMemberService graigFathaMemberService;
+
+    @Mock
+    MemberOwnershipRepository memberOwnershipRepository;
+
+    @Mock
+    MemberStatementRepository memberStatementRepository;
+
+    @InjectMocks
+    AnnualStatementServiceImpl annualStatementService;
+
+    @BeforeEach
+    void setUp() {
+        annualStatementService.totalCapacity = 100.0;
+        annualStatementService.batchSize = 500;
+    }
+
+    @Nested
+    @DisplayName("generateStatements tests")
+    class GenerateStatementsTests {
+        @Test
+        @DisplayName("Sweeps every member's ownership against the site savings loaded once")
+        void generateStatements_calculatesEveryMember() {
+            when(graigFathaMemberService.getSiteSavings(FROM, TO)).thenReturn(FROM.datesUntil(TO.plusDays(1))
+                    .map(day -> SiteSavingsLedgerEntry.builder().forDate(day).kWhGenerated(100.0).savings(50.0).build())
+                    .toList());
+            when(memberOwnershipRepository
+                    .findAllBySiteAndEffectiveDateLessThanEqualOrderByUserIdAscEffectiveDateAscIdAsc(GRAIG_FATHA, TO))
+                    .thenReturn(List.of(
+                            ownership("alice", FROM.minusYears(1), 10.0),
+                            ownership("alice", FROM.plusDays(5), 20.0),
+                            ownership("bob", FROM.plusDays(8), 50.0)));
+            when(graigFathaMemberService.getTaxFigures(eq(TO), anyDouble(), anyDouble())).thenAnswer(invocation ->
+                    new TaxFigures(invocation.getArgument(2), 1000.0, 50.0, 5.0));
+            var progress = new JobProgress("test");
+
+            annualStatementService.generateStatements(FROM, TO, progress);
+
+            ArgumentCaptor<List<MemberStatement>> saved = ArgumentCaptor.forClass(List.class);
+            verify(memberStatementRepository).saveAll(saved.capture());
+            Map<String, MemberStatement> statements = saved.getValue().stream()
+                    .collect(Collectors.toMap(MemberStatement::getUserId, statement -> statement));
+            assertEquals(2, statements.size());
+            assertEquals(75.0, statements.get("alice").getSavings(), 1e-9); // 5 days at 10% + 5 days at 20%
+            assertEquals(150.0, statements.get("alice").getKWhGenerated(), 1e-9);
+            assertEquals(20.0, statements.get("alice").getWattageOwnership());
+            assertEquals(70.0, statements.get("alice").getInterestIncome(), 1e-9);
+            assertEquals(50.0, statements.get("bob").getSavings(), 1e-9); // 2 days at 50%
+            assertEquals(2, progress.getStatus().processed());
+            assertEquals(2, progress.getStatus().total());
+        }
+
+        @Test
+        @DisplayName("Updates statements from an earlier run and saves in batches")
+        void generateStatements_updatesExistingInBatches() {
+            annualStatementService.batchSize = 1;
+            var previous = MemberStatement.builder().site(GRAIG_FATHA).userId("alice").periodFrom(FROM).periodTo(TO)
+                    .savings(1.0).build();
+            when(graigFathaMemberService.getSiteSavings(FROM, TO)).thenReturn(List.of());
+            when(memberOwnershipRepository
+                    .findAllBySiteAndEffectiveDateLessThanEqualOrderByUserIdAscEffectiveDateAscIdAsc(GRAIG_FATHA, TO))
+                    .thenReturn(List.of(ownership("alice", FROM, 10.0), ownership("bob", FROM, 10.0)));
+            when(memberStatementRepository.findAllBySiteAndPeriodFromAndPeriodToOrderByUserIdAsc(GRAIG_FATHA, FROM, TO))
+                    .thenReturn(List.of(previous));
+            when(graigFathaMemberService.getTaxFigures(eq(TO), anyDouble(), anyDouble()))
+                    .thenReturn(new TaxFigures(0, 0, 0, 0));
+
+            annualStatementService.generateStatements(FROM, TO, new JobProgress("test"));
+
+            assertEquals(0.0, previous.getSavings());
+            verify(memberStatementRepository).saveAll(List.of(previous));
+            verify(memberStatementRepository, times(3)).saveAll(any());
+        }
+
+        @Test
+        @DisplayName("Fails without writing statements when some days' savings couldn't be fetched")
+        void generateStatements_failsForIncompleteSavings() {
+            when(graigFathaMemberService.getSiteSavings(FROM, TO))
+                    .thenThrow(new VensysUnavailableException("Performance data could not be fetched", null));
+
+            assertThrows(VensysUnavailableException.class,
+                    () -> annualStatementService.generateStatements(FROM, TO, new JobProgress("test")));
+            verifyNoInteractions(memberStatementRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("startStatementRun tests")
+    class StartStatementRunTests {
+        @Test
+        @DisplayName("Rejects a period that includes today")
+        void startStatementRun_rejectsIncompletePeriod() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> annualStatementService.startStatementRun(FROM, LocalDate.now()));
+            verifyNoInteractions(graigFathaMemberService);
+        }
+
+        @Test
+        @DisplayName("Rejects a period that ends before it starts")
+        void startStatementRun_rejectsReversedPeriod() {
+            assertThrows(IllegalArgumentException.class, () -> annualStatementService.startStatementRun(TO, FROM));
+        }
+
+        @Test
+        @DisplayName("Reports no status before the first run")
+        void getStatementRunStatus_empty() {
+            assertEquals(Optional.empty(), annualStatementService.getStatementRunStatus());
+        }
+    }
+
+    private static MemberOwnership ownership(final String userId, final LocalDate effectiveDate,
+                                             final double wattageOwnership) {
+        var ownership = new MemberOwnership();
+        ownership.setUserId(userId);
+        ownership.setSite(GRAIG_FATHA);
+        ownership.setEffectiveDate(effectiveDate);
+        ownership.setWattageOwnership(wattageOwnership);
+        return ownership;
+    }
+}
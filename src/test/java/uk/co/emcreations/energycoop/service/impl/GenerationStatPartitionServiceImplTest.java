@@ -0,0 +1,167 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.co.emcreations.energycoop.model.RetentionAction;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GenerationStatPartitionServiceImplTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 11, 17);
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Rejects a negative number of months")
+    void rejectsNegativeMonths() {
+        assertThrows(IllegalArgumentException.class, () -> service(-1, 0, RetentionAction.DROP));
+    }
+
+    @Nested
+    @DisplayName("Creating partitions")
+    class CreateTests {
+        @Test
+        @DisplayName("Creates this month's partition and the configured number after it")
+        void createPartitions_coversMonthsAhead() {
+            service(2, 0, RetentionAction.ARCHIVE).createPartitions(TODAY);
+
+            assertEquals(List.of(
+                    "create table if not exists generation_stat_entry_default partition of generation_stat_entry default",
+                    "create table if not exists generation_stat_entry_2025_11 partition of generation_stat_entry"
+                            + " for values from ('2025-11-01') to ('2025-12-01')",
+                    "create table if not exists generation_stat_entry_2025_12 partition of generation_stat_entry"
+                            + " for values from ('2025-12-01') to ('2026-01-01')",
+                    "create table if not exists generation_stat_entry_2026_01 partition of generation_stat_entry"
+                            + " for values from ('2026-01-01') to ('2026-02-01')"), executed());
+        }
+
+        @Test
+        @DisplayName("Moves rows caught by the default partition into their month's new partition")
+        void createPartitions_movesRowsOutOfDefault() {
+            when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenAnswer(invocation ->
+                    invocation.<String>getArgument(0).contains("to_regclass('generation_stat_entry_2025_11')"));
+
+            service(0, 0, RetentionAction.ARCHIVE).createPartitions(TODAY);
+
+            List<String> statements = executed();
+            assertEquals("create table generation_stat_entry_2025_11 (like generation_stat_entry including defaults)",
+                    statements.get(1));
+            assertEquals("alter table generation_stat_entry attach partition generation_stat_entry_2025_11"
+                    + " for values from ('2025-11-01') to ('2025-12-01')", statements.get(2));
+            verify(jdbcTemplate).update(startsWith("insert into generation_stat_entry_2025_11 select * from"
+                    + " generation_stat_entry_default where"));
+            verify(jdbcTemplate).update(startsWith("delete from generation_stat_entry_default where"));
+            verify(transactionManager).commit(any());
+        }
+
+        @Test
+        @DisplayName("Rebuilds an unpartitioned table, with a partition for every month it holds")
+        void prepareTable_partitionsExistingTable() {
+            when(jdbcTemplate.queryForList(contains("relkind"), eq(String.class))).thenReturn(List.of("r"));
+            when(jdbcTemplate.queryForObject(anyString(), eq(LocalDateTime.class)))
+                    .thenReturn(LocalDate.now().minusMonths(2).atTime(9, 15));
+            when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenReturn(false);
+
+            service(0, 0, RetentionAction.ARCHIVE).prepareTable();
+
+            List<String> statements = executed();
+            assertEquals("alter table generation_stat_entry rename to generation_stat_entry_unpartitioned",
+                    statements.getFirst());
+            assertTrue(statements.get(1).endsWith("partition by range (\"timestamp\")"));
+            assertTrue(statements.get(3).endsWith("partition of generation_stat_entry default"));
+            assertEquals(3, statements.stream()
+                    .filter(statement -> statement.startsWith("create table if not exists")
+                            && statement.contains("for values from"))
+                    .distinct()
+                    .count());
+            assertTrue(statements.contains("drop table generation_stat_entry_unpartitioned"));
+            verify(jdbcTemplate).update(startsWith("insert into generation_stat_entry select * from"));
+        }
+
+        @Test
+        @DisplayName("Leaves a table which is already partitioned as it is")
+        void prepareTable_skipsPartitionedTable() {
+            when(jdbcTemplate.queryForList(contains("relkind"), eq(String.class))).thenReturn(List.of("p"));
+
+            service(0, 0, RetentionAction.ARCHIVE).prepareTable();
+
+            assertTrue(executed().stream().noneMatch(statement -> statement.contains("unpartitioned")));
+            verify(jdbcTemplate, never()).update(anyString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Retention")
+    class RetentionTests {
+        @Test
+        @DisplayName("Archives partitions older than the retention period by detaching them")
+        void applyRetention_archivesOldPartitions() {
+            when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class))).thenReturn(List.of(
+                    "generation_stat_entry_2024_10", "generation_stat_entry_2024_11", "generation_stat_entry_2025_11",
+                    "generation_stat_entry_default"));
+
+            List<String> removed = service(3, 12, RetentionAction.ARCHIVE).applyRetention(TODAY);
+
+            assertEquals(List.of("generation_stat_entry_2024_10"), removed);
+            verify(jdbcTemplate).execute("alter table generation_stat_entry detach partition generation_stat_entry_2024_10");
+        }
+
+        @Test
+        @DisplayName("Drops old partitions when configured to")
+        void applyRetention_dropsOldPartitions() {
+            when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                    .thenReturn(List.of("generation_stat_entry_2025_01", "generation_stat_entry_2025_11"));
+
+            List<String> removed = service(3, 6, RetentionAction.DROP).applyRetention(TODAY);
+
+            assertEquals(List.of("generation_stat_entry_2025_01"), removed);
+            verify(jdbcTemplate).execute("drop table generation_stat_entry_2025_01");
+        }
+
+        @Test
+        @DisplayName("Keeps everything with no retention period")
+        void applyRetention_keepsEverything() {
+            assertEquals(List.of(), service(3, 0, RetentionAction.DROP).applyRetention(TODAY));
+            verify(jdbcTemplate, never()).queryForList(anyString(), any(Class.class));
+        }
+    }
+
+    private GenerationStatPartitionServiceImpl service(final int monthsAhead, final int retentionMonths,
+                                                       final RetentionAction retentionAction) {
+        return new GenerationStatPartitionServiceImpl(jdbcTemplate, transactionManager, monthsAhead, retentionMonths,
+                retentionAction);
+    }
+
+    private List<String> executed() {
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, atLeastOnce()).execute(statements.capture());
+        return statements.getAllValues();
+    }
+}
@@ -5,26 +5,50 @@ import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import uk.co.emcreations.energycoop.cache.TaxDocumentCache;
 import uk.co.emcreations.energycoop.dto.EnergySaving;
+import uk.co.emcreations.energycoop.dto.SiteSavingsTotal;
 import uk.co.emcreations.energycoop.dto.VensysMeanData;
-import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
 import uk.co.emcreations.energycoop.entity.GenerationStatEntry;
 import uk.co.emcreations.energycoop.entity.GenerationStatEntryRepository;
+import uk.co.emcreations.energycoop.entity.MemberOwnership;
 import uk.co.emcreations.energycoop.entity.PerformanceStatEntry;
 import uk.co.emcreations.energycoop.entity.PerformanceStatEntryRepository;
+import uk.co.emcreations.energycoop.entity.SiteSavingsLedgerEntry;
+import uk.co.emcreations.energycoop.model.BackfillResult;
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
+import uk.co.emcreations.energycoop.model.GenerationSnapshot;
+import uk.co.emcreations.energycoop.model.SavingsGranularity;
+import uk.co.emcreations.energycoop.model.Site;
 import uk.co.emcreations.energycoop.service.GraigFathaStatsService;
+import uk.co.emcreations.energycoop.service.LiveGenerationService;
 import uk.co.emcreations.energycoop.service.MemberOwnershipService;
+import uk.co.emcreations.energycoop.service.PerformanceBackfillService;
 import uk.co.emcreations.energycoop.service.SavingsRateService;
+import uk.co.emcreations.energycoop.service.SiteSavingsLedgerService;
+import uk.co.emcreations.energycoop.sourceclient.VensysUnavailableException;
 import uk.co.emcreations.energycoop.util.EntityHelper;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -39,6 +63,11 @@ class GraigFathaMemberServiceImplTest {
     @Mock GraigFathaStatsService graigFathaStatsService;
     @Mock SavingsRateService savingsRateService;
     @Mock MemberOwnershipService memberOwnershipService;
+    @Mock SiteSavingsLedgerService siteSavingsLedgerService;
+    @Mock PerformanceBackfillService performanceBackfillService;
+    @Spy TaxDocumentCache taxDocumentCache = new TaxDocumentCache(1024 * 1024);
+    @Mock LiveGenerationService liveGenerationService;
+    @Mock PlatformTransactionManager transactionManager;
     private MockedStatic<EntityHelper> entityHelperMock;
 
     @InjectMocks GraigFathaMemberServiceImpl service;
@@ -47,6 +76,7 @@ class GraigFathaMemberServiceImplTest {
     void setUp() {
         service.totalCapacity = 100.0;
         entityHelperMock = mockStatic(EntityHelper.class);
+        lenient().when(performanceBackfillService.backfill(any())).thenReturn(BackfillResult.empty());
     }
 
     @AfterEach
@@ -85,6 +115,51 @@ class GraigFathaMemberServiceImplTest {
             EnergySaving saving = service.getTodaySavings(wattageOwnership);
             assertEquals(12.0, saving.amount());
             verify(entityManager).persist(statEntry);
+            verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+            verify(transactionManager).getTransaction(argThat(definition -> !definition.isReadOnly()));
+        }
+
+        @Test
+        @DisplayName("getTodaySavings doesn't persist a stale energy yield")
+        void testGetTodaySavings_withStaleEnergyYield() {
+            when(savingsRateService.getSavingsRateForDate(any(), any())).thenReturn(1.0);
+            when(generationStatEntryRepository.findFirstBySiteAndTimestampBetweenOrderByTimestampDesc(any(), any(), any())).thenReturn(null);
+            when(graigFathaStatsService.getMeanEnergyYield())
+                    .thenReturn(Optional.of(VensysMeanData.builder().value(60.0).stale(true).build()));
+
+            EnergySaving saving = service.getTodaySavings(20.0);
+
+            assertEquals(12.0, saving.amount());
+            verify(entityManager, never()).persist(any());
+        }
+
+        @Test
+        @DisplayName("getTodaySavings serves today's snapshot without touching the database or opening a transaction")
+        void testGetTodaySavings_fromSnapshot() {
+            when(liveGenerationService.getTodaySnapshot(Site.GRAIG_FATHA)).thenReturn(Optional.of(
+                    new GenerationSnapshot(Site.GRAIG_FATHA, LocalDate.now().atTime(9, 15), 80.0, 0.5)));
+
+            EnergySaving saving = service.getTodaySavings(10.0);
+
+            assertEquals(4.0, saving.amount());
+            assertEquals(0.5, saving.savingsRate());
+            verifyNoInteractions(generationStatEntryRepository, performanceStatEntryRepository, siteSavingsLedgerService,
+                    savingsRateService, graigFathaStatsService, entityManager, transactionManager);
+        }
+
+        @Test
+        @DisplayName("getTodaySavings publishes a reading found in the database as today's snapshot")
+        void testGetTodaySavings_publishesStoredReading() {
+            GenerationStatEntry entry = mock(GenerationStatEntry.class);
+            var timestamp = LocalDate.now().atTime(9, 15);
+            when(savingsRateService.getSavingsRateForDate(any(), any())).thenReturn(1.0);
+            when(entry.getKWhGenerated()).thenReturn(50.0);
+            when(entry.getTimestamp()).thenReturn(timestamp);
+            when(generationStatEntryRepository.findFirstBySiteAndTimestampBetweenOrderByTimestampDesc(any(), any(), any())).thenReturn(entry);
+
+            service.getTodaySavings(10.0);
+
+            verify(liveGenerationService).updateSnapshot(Site.GRAIG_FATHA, timestamp, 50.0);
         }
 
         @Test
@@ -118,47 +193,322 @@ class GraigFathaMemberServiceImplTest {
         private static final String userId = "testUser";
 
         @Test
-        @DisplayName("getSavings returns correct savings for multiple days with repo data")
-        void testGetSavings_withRepoData() {
-            PerformanceStatEntry entry = mock(PerformanceStatEntry.class);
-            when(savingsRateService.getSavingsRateForDate(any(), any())).thenReturn(1.0);
-            when(entry.getKWhGenerated()).thenReturn(100.0);
-            when(performanceStatEntryRepository.findFirstBySiteAndForDateBetweenOrderByTimestampDesc(any(), any(), any())).thenReturn(entry);
-            when(memberOwnershipService.getMemberOwnershipForSite(any(), any(), anyString(), anyDouble()))
-                    .thenAnswer(invocation -> invocation.getArgument(3));
-
+        @DisplayName("getSavings returns correct savings for multiple days from the ledger")
+        void testGetSavings_withLedgerData() {
             var wattageOwnership = 10.0;
             var from = LocalDate.now().minusDays(2);
             var to = LocalDate.now();
+
+            when(siteSavingsLedgerService.getEntries(any(), any(), any())).thenReturn(ledgerEntries(from, to, 100.0, 1.0));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenAnswer(invocation -> EffectiveDateTimeline.constant(invocation.getArgument(3)));
+
             Set<EnergySaving> savings = service.getSavings(from, to, wattageOwnership, userId);
             assertEquals(3, savings.size());
             for (EnergySaving saving : savings) {
                 assertEquals(10.0, saving.amount());
                 assertEquals("GBP", saving.currency());
             }
+            verify(performanceStatEntryRepository, never())
+                    .findAllBySiteAndForDateBetweenOrderByForDateAsc(any(), any(), any());
         }
 
         @Test
         @DisplayName("getSavings persists and returns correct savings when repo has no data")
         void testGetSavings_withNoRepoData() {
-            when(savingsRateService.getSavingsRateForDate(any(), any())).thenReturn(1.0);
-            when(performanceStatEntryRepository.findFirstBySiteAndForDateBetweenOrderByTimestampDesc(any(), any(), any())).thenReturn(null);
-            when(memberOwnershipService.getMemberOwnershipForSite(any(), any(), anyString(), anyDouble()))
-                    .thenAnswer(invocation -> invocation.getArgument(3));
-
-            Optional<VensysPerformanceData> perfData = Optional.of(VensysPerformanceData.builder().powerAvg(200.0).build());
-            when(graigFathaStatsService.getPerformance(any(), any())).thenReturn(perfData);
-            PerformanceStatEntry statEntry = mock(PerformanceStatEntry.class);
-            when(statEntry.getKWhGenerated()).thenReturn(200.0);
-            entityHelperMock.when(() -> EntityHelper.createPerformanceStatEntry(any(), any())).thenReturn(statEntry);
+            when(performanceStatEntryRepository.findAllBySiteAndForDateBetweenOrderByForDateAsc(any(), any(), any()))
+                    .thenReturn(List.of());
+            when(siteSavingsLedgerService.recordDays(any(), any()))
+                    .thenAnswer(invocation -> pricedEntries(invocation.getArgument(1), 1.0));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenAnswer(invocation -> EffectiveDateTimeline.constant(invocation.getArgument(3)));
+
             var wattageOwnership = 50.0;
             var from = LocalDate.now();
             var to = LocalDate.now();
+            when(performanceBackfillService.backfill(List.of(from)))
+                    .thenReturn(new BackfillResult(Map.of(from, 200.0), List.of()));
             Set<EnergySaving> savings = service.getSavings(from, to, wattageOwnership, userId);
             assertEquals(1, savings.size());
             EnergySaving saving = savings.iterator().next();
             assertEquals(100.0, saving.amount());
-            verify(entityManager).persist(statEntry);
+            verify(performanceBackfillService).backfill(List.of(from));
+        }
+
+        @Test
+        @DisplayName("getSavings records days missing from the ledger using stored performance entries")
+        void testGetSavings_withDaysMissingFromLedger() {
+            var from = LocalDate.of(2025, 1, 1);
+            var to = LocalDate.of(2025, 1, 3);
+
+            when(siteSavingsLedgerService.getEntries(any(), any(), any())).thenReturn(ledgerEntries(from, from, 100.0, 1.0));
+            when(performanceStatEntryRepository.findAllBySiteAndForDateBetweenOrderByForDateAsc(any(), any(), any()))
+                    .thenReturn(performanceEntries(from.plusDays(1), to, 50.0));
+            when(siteSavingsLedgerService.recordDays(any(), any()))
+                    .thenAnswer(invocation -> pricedEntries(invocation.getArgument(1), 1.0));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenAnswer(invocation -> EffectiveDateTimeline.constant(invocation.getArgument(3)));
+
+            List<EnergySaving> savings = List.copyOf(service.getSavings(from, to, 10.0, userId));
+
+            assertEquals(List.of(10.0, 5.0, 5.0), savings.stream().map(EnergySaving::amount).toList());
+            verify(siteSavingsLedgerService).recordDays(any(), argThat(days -> 2 == days.size()));
+            verify(performanceBackfillService).backfill(List.of());
+        }
+
+        @Test
+        @DisplayName("getSavings applies rate and ownership changes part way through the range")
+        void testGetSavings_withTimelineChanges() {
+            var from = LocalDate.of(2025, 1, 1);
+            var to = LocalDate.of(2025, 1, 4);
+            Map<LocalDate, SiteSavingsLedgerEntry> entries = new TreeMap<>(ledgerEntries(from, from, 100.0, 1.0));
+            entries.putAll(ledgerEntries(from.plusDays(1), to, 100.0, 2.0));
+            var ownershipChange = new MemberOwnership();
+            ownershipChange.setEffectiveDate(LocalDate.of(2025, 1, 4));
+            ownershipChange.setWattageOwnership(20.0);
+
+            when(siteSavingsLedgerService.getEntries(any(), any(), any())).thenReturn(entries);
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenReturn(EffectiveDateTimeline.of(List.of(ownershipChange), MemberOwnership::getEffectiveDate,
+                            MemberOwnership::getWattageOwnership, 10.0));
+
+            List<EnergySaving> savings = List.copyOf(service.getSavings(from, to, 10.0, userId));
+
+            assertEquals(4, savings.size());
+            assertEquals(List.of(10.0, 20.0, 20.0, 40.0), savings.stream().map(EnergySaving::amount).toList());
+            assertEquals(List.of(1.0, 2.0, 2.0, 2.0), savings.stream().map(EnergySaving::savingsRate).toList());
+            assertEquals(from.atStartOfDay(), savings.getFirst().from());
+            verifyNoInteractions(performanceBackfillService);
+        }
+
+        @Test
+        @DisplayName("getSavings flags days whose performance data couldn't be fetched rather than leaving them at zero")
+        void testGetSavings_flagsFailedDays() {
+            var from = LocalDate.of(2025, 1, 1);
+            var to = LocalDate.of(2025, 1, 3);
+
+            when(siteSavingsLedgerService.getEntries(any(), any(), any())).thenReturn(ledgerEntries(from, from, 100.0, 1.0));
+            when(performanceBackfillService.backfill(List.of(from.plusDays(1), to)))
+                    .thenReturn(new BackfillResult(Map.of(from.plusDays(1), 50.0), List.of(to)));
+            when(siteSavingsLedgerService.recordDays(any(), any()))
+                    .thenAnswer(invocation -> pricedEntries(invocation.getArgument(1), 1.0));
+            when(siteSavingsLedgerService.priceDays(any(), any()))
+                    .thenAnswer(invocation -> pricedEntries(invocation.getArgument(1), 1.0));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenAnswer(invocation -> EffectiveDateTimeline.constant(invocation.getArgument(3)));
+
+            List<EnergySaving> savings = List.copyOf(service.getSavings(from, to, 10.0, userId));
+
+            assertEquals(List.of(10.0, 5.0, 0.0), savings.stream().map(EnergySaving::amount).toList());
+            assertEquals(List.of(false, false, true), savings.stream().map(EnergySaving::incomplete).toList());
+            verify(siteSavingsLedgerService).recordDays(any(), eq(Map.of(from.plusDays(1), 50.0)));
+        }
+    }
+
+    @Nested
+    @DisplayName("streamSavings Tests")
+    class StreamSavings {
+        @Test
+        @DisplayName("streamSavings emits every day in date order, loading the range in chunks")
+        void testStreamSavings_emitsDaysInOrderByChunk() {
+            var from = LocalDate.of(2025, 1, 1);
+            var to = LocalDate.of(2025, 2, 9); // 40 days
+            when(siteSavingsLedgerService.getEntries(any(), any(), any())).thenAnswer(invocation ->
+                    ledgerEntries(invocation.getArgument(1), invocation.getArgument(2), 100.0, 1.0));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenAnswer(invocation -> EffectiveDateTimeline.constant(invocation.getArgument(3)));
+
+            List<EnergySaving> savings = new ArrayList<>();
+            service.streamSavings(from, to, 10.0, "testUser", savings::add);
+
+            assertEquals(40, savings.size());
+            assertEquals(from.atStartOfDay(), savings.getFirst().from());
+            assertEquals(to.atStartOfDay(), savings.getLast().from());
+            verify(siteSavingsLedgerService).getEntries(any(), eq(from), eq(LocalDate.of(2025, 1, 31)));
+            verify(siteSavingsLedgerService).getEntries(any(), eq(LocalDate.of(2025, 2, 1)), eq(to));
+            verify(transactionManager, times(2)).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        }
+
+        @Test
+        @DisplayName("streamSavings passes each chunk on once its read-only transaction has committed")
+        void testStreamSavings_emitsOutsideTransaction() {
+            var from = LocalDate.of(2025, 1, 1);
+            var to = LocalDate.of(2025, 2, 9); // 40 days
+            when(siteSavingsLedgerService.getEntries(any(), any(), any())).thenAnswer(invocation ->
+                    ledgerEntries(invocation.getArgument(1), invocation.getArgument(2), 100.0, 1.0));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenAnswer(invocation -> EffectiveDateTimeline.constant(invocation.getArgument(3)));
+            @SuppressWarnings("unchecked")
+            Consumer<EnergySaving> consumer = mock(Consumer.class);
+
+            service.streamSavings(from, to, 10.0, "testUser", consumer);
+
+            InOrder inOrder = inOrder(transactionManager, consumer);
+            inOrder.verify(transactionManager).commit(any());
+            inOrder.verify(consumer, times(31)).accept(any());
+            inOrder.verify(transactionManager).commit(any());
+            inOrder.verify(consumer, times(9)).accept(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("getSavings with granularity Tests")
+    class GetSavingsWithGranularity {
+        @BeforeEach
+        void setUp() {
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenAnswer(invocation -> EffectiveDateTimeline.constant(invocation.getArgument(3)));
+        }
+
+        @Test
+        @DisplayName("getSavings totals each month clipped to the range with a generation-weighted rate")
+        void testGetSavings_byMonth() {
+            var from = LocalDate.of(2025, 1, 30);
+            var to = LocalDate.of(2025, 2, 2);
+            Map<LocalDate, SiteSavingsLedgerEntry> entries = new TreeMap<>(ledgerEntries(from, from, 100.0, 1.0));
+            entries.putAll(ledgerEntries(from.plusDays(1), from.plusDays(1), 300.0, 2.0));
+            entries.putAll(ledgerEntries(LocalDate.of(2025, 2, 1), to, 50.0, 2.0));
+            when(siteSavingsLedgerService.getEntries(any(), any(), any())).thenReturn(entries);
+
+            List<EnergySaving> savings = service.getSavings(from, to, 10.0, "testUser", SavingsGranularity.MONTH);
+
+            assertEquals(2, savings.size());
+            assertEquals(70.0, savings.getFirst().amount(), 1e-9); // (100 * 1 + 300 * 2) * 10%
+            assertEquals(1.75, savings.getFirst().savingsRate(), 1e-9); // 700 / 400 kWh
+            assertEquals(from.atStartOfDay(), savings.getFirst().from());
+            assertEquals(LocalDate.of(2025, 1, 31).atTime(LocalTime.MAX), savings.getFirst().to());
+            assertEquals(20.0, savings.getLast().amount(), 1e-9);
+            assertEquals(to.atTime(LocalTime.MAX), savings.getLast().to());
+        }
+
+        @Test
+        @DisplayName("getSavings starts weeks on a Monday")
+        void testGetSavings_byWeek() {
+            var from = LocalDate.of(2025, 1, 1); // Wednesday
+            var to = LocalDate.of(2025, 1, 12); // Sunday
+            when(siteSavingsLedgerService.getEntries(any(), any(), any())).thenReturn(ledgerEntries(from, to, 10.0, 1.0));
+
+            List<EnergySaving> savings = service.getSavings(from, to, 10.0, "testUser", SavingsGranularity.WEEK);
+
+            assertEquals(List.of(5.0, 7.0), savings.stream().map(EnergySaving::amount).toList());
+            assertEquals(LocalDate.of(2025, 1, 6).atStartOfDay(), savings.getLast().from());
+        }
+
+        @Test
+        @DisplayName("getSavings returns one entry for a year")
+        void testGetSavings_byYear() {
+            var from = LocalDate.of(2024, 1, 1);
+            var to = LocalDate.of(2024, 1, 31);
+            when(siteSavingsLedgerService.getEntries(any(), any(), any())).thenReturn(ledgerEntries(from, to, 10.0, 1.0));
+
+            List<EnergySaving> savings = service.getSavings(from, to, 10.0, "testUser", SavingsGranularity.YEAR);
+
+            assertEquals(1, savings.size());
+            assertEquals(31.0, savings.getFirst().amount(), 1e-9);
+        }
+
+        @Test
+        @DisplayName("getSavings flags a period containing a day whose performance data couldn't be fetched")
+        void testGetSavings_flagsIncompletePeriod() {
+            var from = LocalDate.of(2025, 1, 30);
+            var to = LocalDate.of(2025, 2, 2);
+            var failedDay = LocalDate.of(2025, 2, 1);
+            Map<LocalDate, SiteSavingsLedgerEntry> entries = ledgerEntries(from, to, 10.0, 1.0);
+            entries.remove(failedDay);
+            when(siteSavingsLedgerService.getEntries(any(), any(), any())).thenReturn(entries);
+            when(performanceBackfillService.backfill(List.of(failedDay)))
+                    .thenReturn(new BackfillResult(Map.of(), List.of(failedDay)));
+            when(siteSavingsLedgerService.priceDays(any(), any()))
+                    .thenAnswer(invocation -> pricedEntries(invocation.getArgument(1), 1.0));
+
+            List<EnergySaving> savings = service.getSavings(from, to, 10.0, "testUser", SavingsGranularity.MONTH);
+
+            assertEquals(List.of(false, true), savings.stream().map(EnergySaving::incomplete).toList());
+            assertEquals(1.0, savings.getLast().amount(), 1e-9); // only 2 February's savings
+        }
+    }
+
+    @Nested
+    @DisplayName("getTotalSavings Tests")
+    class GetTotalSavings {
+        private static final String userId = "testUser";
+
+        @Test
+        @DisplayName("getTotalSavings uses ledger totals split where ownership changes")
+        void testGetTotalSavings_splitsOnOwnershipChange() {
+            var from = LocalDate.of(2024, 1, 1);
+            var to = LocalDate.of(2024, 12, 31);
+            var ownershipChange = new MemberOwnership();
+            ownershipChange.setEffectiveDate(LocalDate.of(2024, 7, 1));
+            ownershipChange.setWattageOwnership(20.0);
+
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenReturn(EffectiveDateTimeline.of(List.of(ownershipChange), MemberOwnership::getEffectiveDate,
+                            MemberOwnership::getWattageOwnership, 10.0));
+            when(siteSavingsLedgerService.countEntries(any(), eq(from), eq(to))).thenReturn(366L);
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(LocalDate.of(2024, 6, 30))))
+                    .thenReturn(new SiteSavingsTotal(1000.0, 1000.0));
+            when(siteSavingsLedgerService.getTotal(any(), eq(LocalDate.of(2024, 7, 1)), eq(to)))
+                    .thenReturn(new SiteSavingsTotal(1000.0, 3000.0));
+
+            EnergySaving total = service.getTotalSavings(from, to, 10.0, userId);
+
+            assertEquals(700.0, total.amount(), 1e-9); // 1000 * 10% + 3000 * 20%
+            assertEquals(2.0, total.savingsRate(), 1e-9);
+            verify(siteSavingsLedgerService, never()).getEntries(any(), any(), any());
+            verifyNoInteractions(performanceStatEntryRepository, graigFathaStatsService);
+        }
+
+        @Test
+        @DisplayName("getTotalSavings adds today's live savings to the ledger totals")
+        void testGetTotalSavings_includesToday() {
+            var today = LocalDate.now();
+            var from = today.minusDays(1);
+
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenAnswer(invocation -> EffectiveDateTimeline.constant(invocation.getArgument(3)));
+            when(siteSavingsLedgerService.countEntries(any(), eq(from), eq(from))).thenReturn(1L);
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(from))).thenReturn(new SiteSavingsTotal(100.0, 100.0));
+            when(siteSavingsLedgerService.getEntries(any(), eq(today), eq(today))).thenReturn(ledgerEntries(today, today, 50.0, 1.0));
+
+            EnergySaving total = service.getTotalSavings(from, today, 10.0, userId);
+
+            assertEquals(15.0, total.amount(), 1e-9);
+            assertFalse(total.incomplete());
+        }
+
+        @Test
+        @DisplayName("getTotalSavings flags a total missing days whose performance data couldn't be fetched")
+        void testGetTotalSavings_flagsFailedDays() {
+            var from = LocalDate.of(2024, 1, 1);
+            var to = LocalDate.of(2024, 1, 2);
+
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), anyString(), anyDouble()))
+                    .thenAnswer(invocation -> EffectiveDateTimeline.constant(invocation.getArgument(3)));
+            when(siteSavingsLedgerService.countEntries(any(), eq(from), eq(to))).thenReturn(1L);
+            when(siteSavingsLedgerService.getEntries(any(), eq(from), eq(to))).thenReturn(ledgerEntries(from, from, 100.0, 1.0));
+            when(performanceBackfillService.backfill(List.of(to))).thenReturn(new BackfillResult(Map.of(), List.of(to)));
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(to))).thenReturn(new SiteSavingsTotal(100.0, 100.0));
+
+            EnergySaving total = service.getTotalSavings(from, to, 10.0, userId);
+
+            assertEquals(10.0, total.amount(), 1e-9);
+            assertTrue(total.incomplete());
+            verify(siteSavingsLedgerService, never()).recordDays(any(), argThat(days -> days.containsKey(to)));
+        }
+    }
+
+    @Nested
+    @DisplayName("getSiteSavings Tests")
+    class GetSiteSavings {
+        @Test
+        @DisplayName("getSiteSavings fails rather than returning savings missing days it couldn't fetch")
+        void testGetSiteSavings_failsForFailedDays() {
+            var day = LocalDate.of(2025, 1, 1);
+            when(performanceBackfillService.backfill(List.of(day))).thenReturn(new BackfillResult(Map.of(), List.of(day)));
+
+            assertThrows(VensysUnavailableException.class, () -> service.getSiteSavings(day, day));
+            verify(siteSavingsLedgerService, never()).recordDays(any(), argThat(days -> days.containsKey(day)));
         }
     }
 
@@ -177,13 +527,12 @@ class GraigFathaMemberServiceImplTest {
             double dailyGeneration = 1234.567; // Should format as 1,234.57
             double effectiveOwnership = wattageOwnership * 100; // Simulated ownership percentage
 
-            PerformanceStatEntry entry = mock(PerformanceStatEntry.class);
-            when(savingsRateService.getSavingsRateForDate(any(), any())).thenReturn(1.0);
-            when(entry.getKWhGenerated()).thenReturn(dailyGeneration);
-            when(performanceStatEntryRepository.findFirstBySiteAndForDateBetweenOrderByTimestampDesc(any(), any(), any()))
-                    .thenReturn(entry);
-            when(memberOwnershipService.getMemberOwnershipForSite(any(), any(), eq(userId), eq(wattageOwnership)))
-                    .thenReturn(effectiveOwnership);
+            when(siteSavingsLedgerService.countEntries(any(), any(), any())).thenReturn(365L);
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(to)))
+                    .thenReturn(new SiteSavingsTotal(dailyGeneration * 365, dailyGeneration * 365));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), eq(userId), eq(wattageOwnership)))
+                    .thenReturn(EffectiveDateTimeline.constant(effectiveOwnership));
+            when(savingsRateService.getSavingsRateTimeline(any(), any())).thenReturn(EffectiveDateTimeline.constant(1.0));
 
             // When
             byte[] result = service.generateTaxDocument(from, to, wattageOwnership, userId);
@@ -209,13 +558,12 @@ class GraigFathaMemberServiceImplTest {
             double dailyGeneration = 12345.678; // Will accumulate to over 1M for the year
             double effectiveOwnership = wattageOwnership * 150; // Higher ownership percentage
 
-            PerformanceStatEntry entry = mock(PerformanceStatEntry.class);
-            when(savingsRateService.getSavingsRateForDate(any(), any())).thenReturn(2.0); // Higher rate to get larger numbers
-            when(entry.getKWhGenerated()).thenReturn(dailyGeneration);
-            when(performanceStatEntryRepository.findFirstBySiteAndForDateBetweenOrderByTimestampDesc(any(), any(), any()))
-                    .thenReturn(entry);
-            when(memberOwnershipService.getMemberOwnershipForSite(any(), any(), eq(userId), eq(wattageOwnership)))
-                    .thenReturn(effectiveOwnership);
+            when(siteSavingsLedgerService.countEntries(any(), any(), any())).thenReturn(365L);
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(to))) // Higher rate to get larger numbers
+                    .thenReturn(new SiteSavingsTotal(dailyGeneration * 365, dailyGeneration * 2.0 * 365));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), eq(userId), eq(wattageOwnership)))
+                    .thenReturn(EffectiveDateTimeline.constant(effectiveOwnership));
+            when(savingsRateService.getSavingsRateTimeline(any(), any())).thenReturn(EffectiveDateTimeline.constant(1.0));
 
             // When
             byte[] result = service.generateTaxDocument(from, to, wattageOwnership, userId);
@@ -236,16 +584,18 @@ class GraigFathaMemberServiceImplTest {
             // Given
             double effectiveOwnership = wattageOwnership * 50; // Base ownership percentage
 
-            when(savingsRateService.getSavingsRateForDate(any(), any())).thenReturn(1.0);
-            when(performanceStatEntryRepository.findFirstBySiteAndForDateBetweenOrderByTimestampDesc(any(), any(), any()))
-                    .thenReturn(null);
-            Optional<VensysPerformanceData> perfData = Optional.of(VensysPerformanceData.builder().powerAvg(200.0).build());
-            when(graigFathaStatsService.getPerformance(any(), any())).thenReturn(perfData);
-            PerformanceStatEntry statEntry = mock(PerformanceStatEntry.class);
-            when(statEntry.getKWhGenerated()).thenReturn(200.0);
-            entityHelperMock.when(() -> EntityHelper.createPerformanceStatEntry(any(), any())).thenReturn(statEntry);
-            when(memberOwnershipService.getMemberOwnershipForSite(any(), any(), eq(userId), eq(wattageOwnership)))
-                    .thenReturn(effectiveOwnership);
+            when(performanceStatEntryRepository.findAllBySiteAndForDateBetweenOrderByForDateAsc(any(), any(), any()))
+                    .thenReturn(List.of());
+            when(siteSavingsLedgerService.recordDays(any(), any()))
+                    .thenAnswer(invocation -> pricedEntries(invocation.getArgument(1), 1.0));
+            when(siteSavingsLedgerService.getTotal(any(), any(), any())).thenReturn(SiteSavingsTotal.ZERO);
+            when(performanceBackfillService.backfill(any())).thenAnswer(invocation -> {
+                Map<LocalDate, Double> generationByDay = new TreeMap<>();
+                invocation.<List<LocalDate>>getArgument(0).forEach(day -> generationByDay.put(day, 200.0));
+                return new BackfillResult(generationByDay, List.of());
+            });
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), eq(userId), eq(wattageOwnership)))
+                    .thenReturn(EffectiveDateTimeline.constant(effectiveOwnership));
 
             // When
             byte[] result = service.generateTaxDocument(from, to, wattageOwnership, userId);
@@ -253,7 +603,144 @@ class GraigFathaMemberServiceImplTest {
             // Then
             assertNotNull(result);
             assertTrue(result.length > 0);
-            verify(entityManager, atLeastOnce()).persist(any(PerformanceStatEntry.class));
+            verify(performanceBackfillService).backfill(argThat(days -> 365 == days.size()));
+            verify(siteSavingsLedgerService).recordDays(any(), argThat(days -> 365 == days.size()));
+        }
+
+        @Test
+        @DisplayName("generateTaxDocument fails rather than rendering a document missing days it couldn't fetch")
+        void testGenerateTaxDocument_failsForFailedDays() {
+            when(siteSavingsLedgerService.countEntries(any(), any(), any())).thenReturn(364L);
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(to))).thenReturn(SiteSavingsTotal.ZERO);
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), eq(userId), eq(wattageOwnership)))
+                    .thenReturn(EffectiveDateTimeline.constant(wattageOwnership));
+            when(performanceBackfillService.backfill(any()))
+                    .thenAnswer(invocation -> new BackfillResult(Map.of(), invocation.getArgument(0)));
+
+            assertThrows(VensysUnavailableException.class,
+                    () -> service.generateTaxDocument(from, to, wattageOwnership, userId));
+            assertEquals(0, taxDocumentCache.getStats().size());
+        }
+
+        @Test
+        @DisplayName("generateTaxDocument reuses the rendered document while its inputs are unchanged")
+        void testGenerateTaxDocument_reusesCachedDocument() {
+            when(siteSavingsLedgerService.countEntries(any(), any(), any())).thenReturn(365L);
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(to))).thenReturn(new SiteSavingsTotal(100, 50));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), eq(userId), eq(wattageOwnership)))
+                    .thenReturn(EffectiveDateTimeline.constant(wattageOwnership));
+            when(savingsRateService.getSavingsRateTimeline(any(), any())).thenReturn(EffectiveDateTimeline.constant(1.0));
+
+            byte[] first = service.generateTaxDocument(from, to, wattageOwnership, userId);
+            byte[] second = service.generateTaxDocument(from, to, wattageOwnership, userId);
+
+            assertSame(first, second);
+            assertEquals(1, taxDocumentCache.getStats().hits());
+        }
+
+        @Test
+        @DisplayName("getTaxDocumentETag changes when the savings rates in the range change")
+        void testGetTaxDocumentETag_changesWithRates() {
+            when(siteSavingsLedgerService.countEntries(any(), any(), any())).thenReturn(365L);
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(to))).thenReturn(new SiteSavingsTotal(100, 50));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), eq(userId), eq(wattageOwnership)))
+                    .thenReturn(EffectiveDateTimeline.constant(wattageOwnership));
+            when(savingsRateService.getSavingsRateTimeline(any(), any()))
+                    .thenReturn(EffectiveDateTimeline.constant(1.0), EffectiveDateTimeline.constant(2.0));
+
+            Optional<String> before = service.getTaxDocumentETag(from, to, wattageOwnership, userId);
+            Optional<String> after = service.getTaxDocumentETag(from, to, wattageOwnership, userId);
+
+            assertTrue(before.isPresent());
+            assertTrue(after.isPresent());
+            assertNotEquals(before, after);
+        }
+
+        @Test
+        @DisplayName("getTaxDocumentETag is empty for ranges not yet complete in the ledger")
+        void testGetTaxDocumentETag_incompleteRange() {
+            when(siteSavingsLedgerService.countEntries(any(), any(), any())).thenReturn(364L);
+
+            assertEquals(Optional.empty(), service.getTaxDocumentETag(from, to, wattageOwnership, userId));
+            assertEquals(Optional.empty(), service.getTaxDocumentETag(from, LocalDate.now(), wattageOwnership, userId));
+            verify(siteSavingsLedgerService, times(1)).countEntries(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("writeTaxDocument streams a document which can't be cached straight to the output")
+        void testWriteTaxDocument_streamsUncachedDocument() throws IOException {
+            LocalDate today = LocalDate.now();
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), eq(userId), eq(wattageOwnership)))
+                    .thenReturn(EffectiveDateTimeline.constant(wattageOwnership));
+            var os = new ByteArrayOutputStream();
+
+            service.writeTaxDocument(today, today, wattageOwnership, userId, os);
+
+            assertTrue(extractPdfContent(os.toByteArray()).contains("Produced for user: " + userId));
+            assertEquals(0, taxDocumentCache.getStats().size());
+        }
+
+        @Test
+        @DisplayName("writeTaxDocument works out the figures with every transaction closed before the document is written")
+        void testWriteTaxDocument_closesTransactionBeforeWriting() throws IOException {
+            when(siteSavingsLedgerService.countEntries(any(), any(), any())).thenReturn(364L);
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(to))).thenReturn(new SiteSavingsTotal(100, 50));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), eq(userId), eq(wattageOwnership)))
+                    .thenReturn(EffectiveDateTimeline.constant(wattageOwnership));
+            AtomicInteger openTransactions = countOpenTransactions();
+            var os = new ByteArrayOutputStream() {
+                @Override
+                public synchronized void write(final byte[] b, final int off, final int len) {
+                    assertEquals(0, openTransactions.get(), "Every transaction should be closed first");
+                    super.write(b, off, len);
+                }
+
+                @Override
+                public synchronized void write(final int b) {
+                    assertEquals(0, openTransactions.get(), "Every transaction should be closed first");
+                    super.write(b);
+                }
+            };
+
+            service.writeTaxDocument(from, to, wattageOwnership, userId, os);
+
+            assertTrue(0 < os.size());
+            verify(transactionManager, times(2)).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        }
+
+        @Test
+        @DisplayName("generateTaxDocument fetches missing days from Vensys with no transaction open")
+        void testGenerateTaxDocument_backfillsOutsideTransaction() {
+            when(siteSavingsLedgerService.countEntries(any(), any(), any())).thenReturn(0L);
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(to))).thenReturn(new SiteSavingsTotal(100, 50));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), eq(userId), eq(wattageOwnership)))
+                    .thenReturn(EffectiveDateTimeline.constant(wattageOwnership));
+            AtomicInteger openTransactions = countOpenTransactions();
+            when(performanceBackfillService.backfill(any())).thenAnswer(invocation -> {
+                assertEquals(0, openTransactions.get(), "Vensys should be called with no transaction open");
+                return BackfillResult.empty();
+            });
+
+            service.generateTaxDocument(from, to, wattageOwnership, userId);
+
+            verify(performanceBackfillService).backfill(argThat(days -> 365 == days.size()));
+            verify(transactionManager, never()).getTransaction(argThat(definition -> !definition.isReadOnly()));
+        }
+
+        @Test
+        @DisplayName("writeTaxDocument writes the cached copy of a closed period's document")
+        void testWriteTaxDocument_writesCachedDocument() throws IOException {
+            when(siteSavingsLedgerService.countEntries(any(), any(), any())).thenReturn(365L);
+            when(siteSavingsLedgerService.getTotal(any(), eq(from), eq(to))).thenReturn(new SiteSavingsTotal(100, 50));
+            when(memberOwnershipService.getMemberOwnershipTimeline(any(), any(), eq(userId), eq(wattageOwnership)))
+                    .thenReturn(EffectiveDateTimeline.constant(wattageOwnership));
+            when(savingsRateService.getSavingsRateTimeline(any(), any())).thenReturn(EffectiveDateTimeline.constant(1.0));
+            byte[] generated = service.generateTaxDocument(from, to, wattageOwnership, userId);
+            var os = new ByteArrayOutputStream();
+
+            service.writeTaxDocument(from, to, wattageOwnership, userId, os);
+
+            assertArrayEquals(generated, os.toByteArray());
         }
 
         @Test
@@ -270,6 +757,52 @@ class GraigFathaMemberServiceImplTest {
         }
     }
 
+    // Helper method to count the transactions begun on the mocked manager and not yet committed
+    private AtomicInteger countOpenTransactions() {
+        var openTransactions = new AtomicInteger();
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            openTransactions.incrementAndGet();
+            return null;
+        });
+        doAnswer(invocation -> openTransactions.decrementAndGet()).when(transactionManager).commit(any());
+        return openTransactions;
+    }
+
+    // Helper method to build one stored performance entry per day in the range
+    private List<PerformanceStatEntry> performanceEntries(LocalDate from, LocalDate to, double kWhGenerated) {
+        return from.datesUntil(to.plusDays(1))
+                .map(day -> {
+                    var entry = new PerformanceStatEntry();
+                    entry.setForDate(day.atStartOfDay());
+                    entry.setKWhGenerated(kWhGenerated);
+                    return entry;
+                })
+                .toList();
+    }
+
+    // Helper method to build one ledger entry per day in the range
+    private Map<LocalDate, SiteSavingsLedgerEntry> ledgerEntries(LocalDate from, LocalDate to, double kWhGenerated,
+                                                                 double savingsRate) {
+        Map<LocalDate, Double> generationByDay = new TreeMap<>();
+        from.datesUntil(to.plusDays(1)).forEach(day -> generationByDay.put(day, kWhGenerated));
+        Map<LocalDate, SiteSavingsLedgerEntry> entries = new TreeMap<>();
+        pricedEntries(generationByDay, savingsRate).forEach(entry -> entries.put(entry.getForDate(), entry));
+        return entries;
+    }
+
+    // Helper method to price generation the way the ledger service does
+    private List<SiteSavingsLedgerEntry> pricedEntries(Map<LocalDate, Double> generationByDay, double savingsRate) {
+        return new TreeMap<>(generationByDay).entrySet().stream()
+                .map(day -> SiteSavingsLedgerEntry.builder()
+                        .site(Site.GRAIG_FATHA)
+                        .forDate(day.getKey())
+                        .kWhGenerated(day.getValue())
+                        .savingsRate(savingsRate)
+                        .savings(day.getValue() * savingsRate)
+                        .build())
+                .toList();
+    }
+
     // Helper method to extract text content from PDF bytes
     private String extractPdfContent(byte[] pdfBytes) throws IOException {
         try (var document = Loader.loadPDF(pdfBytes)) {
@@ -1,27 +1,40 @@
 package uk.co.emcreations.energycoop.service.impl;
 
-import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.co.emcreations.energycoop.cache.VensysRequestCoalescer;
+import uk.co.emcreations.energycoop.cache.VensysResponseCache;
 import uk.co.emcreations.energycoop.dto.VensysMeanData;
 import uk.co.emcreations.energycoop.dto.VensysMeanDataResponse;
 import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
 import uk.co.emcreations.energycoop.dto.VensysPerformanceDataResponse;
 import uk.co.emcreations.energycoop.model.Site;
 import uk.co.emcreations.energycoop.service.AlertService;
-import uk.co.emcreations.energycoop.sourceclient.VensysGraigFathaClient;
+import uk.co.emcreations.energycoop.service.PerformanceStatService;
+import uk.co.emcreations.energycoop.service.SiteSavingsLedgerService;
+import uk.co.emcreations.energycoop.sourceclient.ResilientVensysClient;
+import uk.co.emcreations.energycoop.util.TokenBucket;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -30,13 +43,25 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class GraigFathaStatsServiceImplTest {
     @Mock
-    private VensysGraigFathaClient client;
+    private ResilientVensysClient client;
 
     @Mock
     private AlertService alertService;
 
     @Mock
-    private EntityManager entityManager;
+    private PerformanceStatService performanceStatService;
+
+    @Mock
+    private SiteSavingsLedgerService siteSavingsLedgerService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private VensysRequestCoalescer requestCoalescer = new VensysRequestCoalescer();
+
+    @Spy
+    private VensysResponseCache responseCache = new VensysResponseCache(100);
 
     @InjectMocks
     private GraigFathaStatsServiceImpl service;
@@ -45,10 +70,116 @@ class GraigFathaStatsServiceImplTest {
     void setUp() {
         ReflectionTestUtils.setField(service, "availabilityThreshold", 75.0);
         ReflectionTestUtils.setField(service, "failureTimeThreshold", 100.0);
+        ReflectionTestUtils.setField(service, "energyYieldSchedule", "15 */15 * * * *");
+        ReflectionTestUtils.setField(service, "performanceSchedule", "5 0 */6 * * *");
+        ReflectionTestUtils.setField(service, "rangeDays", 1);
+    }
+
+    @Nested
+    @DisplayName("Response caching tests")
+    class ResponseCachingTests {
+        @Test
+        @DisplayName("Serves a settled past day from the cache")
+        void getPerformance_cachesSettledDay() {
+            VensysPerformanceDataResponse response = mock(VensysPerformanceDataResponse.class);
+            when(response.data()).thenReturn(new VensysPerformanceData[]{VensysPerformanceData.builder().build()});
+            when(client.getPerformance(anyLong(), anyLong())).thenReturn(response);
+            var day = LocalDate.now().minusDays(5);
+
+            service.getPerformance(day.atStartOfDay(), day.atTime(LocalTime.MAX));
+            service.getPerformance(day.atStartOfDay(), day.atTime(LocalTime.MAX));
+
+            verify(client, times(1)).getPerformance(anyLong(), anyLong());
+            assertEquals(1, responseCache.getStats().hits());
+        }
+
+        @Test
+        @DisplayName("Serves today's mean energy yield from the cache until the next poll")
+        void getMeanEnergyYield_cachesUntilNextPoll() {
+            VensysMeanDataResponse response = mock(VensysMeanDataResponse.class);
+            when(response.data()).thenReturn(VensysMeanData.builder().value(5.0).build());
+            when(client.getMeanEnergyYield()).thenReturn(response);
+
+            service.getMeanEnergyYield();
+            service.getMeanEnergyYield();
+
+            verify(client, times(1)).getMeanEnergyYield();
+        }
+
+        @Test
+        @DisplayName("Doesn't keep a response with no data")
+        void getPerformance_doesNotCacheMissingData() {
+            VensysPerformanceDataResponse response = mock(VensysPerformanceDataResponse.class);
+            when(response.data()).thenReturn(new VensysPerformanceData[]{});
+            when(client.getPerformance(anyLong(), anyLong())).thenReturn(response);
+            var day = LocalDate.now().minusDays(5);
+
+            service.getPerformance(day.atStartOfDay(), day.atTime(LocalTime.MAX));
+            service.getPerformance(day.atStartOfDay(), day.atTime(LocalTime.MAX));
+
+            verify(client, times(2)).getPerformance(anyLong(), anyLong());
+        }
+
+        @Test
+        @DisplayName("Doesn't keep a stale response, and doesn't alert on it again")
+        void getPerformance_doesNotCacheStaleData() {
+            VensysPerformanceDataResponse response = mock(VensysPerformanceDataResponse.class);
+            when(response.data()).thenReturn(new VensysPerformanceData[]{
+                    VensysPerformanceData.builder().availability(0.0).stale(true).build()});
+            when(client.getPerformance(anyLong(), anyLong())).thenReturn(response);
+            var day = LocalDate.now().minusDays(5);
+
+            Optional<VensysPerformanceData> result = service.getPerformance(day.atStartOfDay(), day.atTime(LocalTime.MAX));
+            service.getPerformance(day.atStartOfDay(), day.atTime(LocalTime.MAX));
+
+            assertTrue(result.isPresent() && result.get().stale());
+            verify(client, times(2)).getPerformance(anyLong(), anyLong());
+            verifyNoInteractions(alertService);
+        }
+
+        @Test
+        @DisplayName("Doesn't keep a stale mean energy yield")
+        void getMeanEnergyYield_doesNotCacheStaleData() {
+            VensysMeanDataResponse response = mock(VensysMeanDataResponse.class);
+            when(response.data()).thenReturn(VensysMeanData.builder().value(5.0).stale(true).build());
+            when(client.getMeanEnergyYield()).thenReturn(response);
+
+            service.getMeanEnergyYield();
+            service.getMeanEnergyYield();
+
+            verify(client, times(2)).getMeanEnergyYield();
+        }
     }
 
     @Nested
     class GetMeanEnergyYieldTests {
+        @Test
+        void getMeanEnergyYield_sharesConcurrentUpstreamCall() throws Exception {
+            var meanData = VensysMeanData.builder().value(123.0).build();
+            VensysMeanDataResponse response = mock(VensysMeanDataResponse.class);
+            when(response.data()).thenReturn(meanData);
+            var callStarted = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            when(client.getMeanEnergyYield()).thenAnswer(invocation -> {
+                callStarted.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return response;
+            });
+
+            CompletableFuture<Optional<VensysMeanData>> first = CompletableFuture.supplyAsync(service::getMeanEnergyYield);
+            assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Optional<VensysMeanData>> second = CompletableFuture.supplyAsync(service::getMeanEnergyYield);
+            while (0 == requestCoalescer.getCoalescedCalls()) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals(Optional.of(meanData), first.get(5, TimeUnit.SECONDS));
+            assertEquals(Optional.of(meanData), second.get(5, TimeUnit.SECONDS));
+            verify(client, times(1)).getMeanEnergyYield();
+            assertEquals(1, requestCoalescer.getCalls());
+        }
+
         @Test
         void getMeanEnergyYield_returnsData() {
             var meanData = VensysMeanData.builder().value(123.0).build();
@@ -320,7 +451,8 @@ class GraigFathaStatsServiceImplTest {
             service.logPerformance(date, date);
 
             verify(client).getPerformance(anyLong(), anyLong());
-            verify(entityManager).persist(any());
+            assertEquals(1, storedDays());
+            verify(siteSavingsLedgerService).recordDays(Site.GRAIG_FATHA, Map.of(date, 100.0));
         }
 
         @Test
@@ -360,7 +492,7 @@ class GraigFathaStatsServiceImplTest {
             service.logPerformance(fromDate, toDate);
 
             verify(client, times(3)).getPerformance(anyLong(), anyLong());
-            verify(entityManager, times(3)).persist(any());
+            assertEquals(3, storedDays());
         }
 
         @Test
@@ -375,7 +507,7 @@ class GraigFathaStatsServiceImplTest {
             service.logPerformance(date, date);
 
             verify(client).getPerformance(anyLong(), anyLong());
-            verify(entityManager, never()).persist(any());
+            verify(performanceStatService, never()).recordDays(any(), any());
         }
 
         @Test
@@ -422,7 +554,7 @@ class GraigFathaStatsServiceImplTest {
             service.logPerformance(fromDate, toDate);
 
             verify(client, times(3)).getPerformance(anyLong(), anyLong());
-            verify(entityManager, times(2)).persist(any());
+            assertEquals(2, storedDays());
         }
 
         @Test
@@ -462,7 +594,7 @@ class GraigFathaStatsServiceImplTest {
             service.logPerformance(date, date);
 
             verify(client, times(1)).getPerformance(anyLong(), anyLong());
-            verify(entityManager, times(1)).persist(any());
+            assertEquals(1, storedDays());
         }
 
         @Test
@@ -515,7 +647,7 @@ class GraigFathaStatsServiceImplTest {
 
             verify(client).getPerformance(anyLong(), anyLong());
             verify(alertService).sendAlert(eq(Site.GRAIG_FATHA), contains("Performance response is null"));
-            verify(entityManager, never()).persist(any());
+            verify(performanceStatService, never()).recordDays(any(), any());
         }
 
         @Test
@@ -554,7 +686,168 @@ class GraigFathaStatsServiceImplTest {
 
             service.logPerformance(date, date);
 
-            verify(entityManager).persist(any());
+            assertEquals(1, storedDays());
         }
     }
+
+    @Nested
+    @DisplayName("Range fetch tests")
+    class RangeFetchTests {
+        private static final LocalDate FROM = LocalDate.of(2025, 11, 5);
+        private static final LocalDate TO = LocalDate.of(2025, 11, 7);
+
+        @BeforeEach
+        void setUp() {
+            ReflectionTestUtils.setField(service, "rangeDays", 31);
+        }
+
+        @Test
+        @DisplayName("Fetches a multi-day window in one call and persists each daily bucket")
+        void logPerformance_splitsRangeIntoDays() {
+            when(client.getPerformance(anyLong(), anyLong()))
+                    .thenReturn(rangeResponse(day(FROM, 100.0), day(FROM.plusDays(1), 110.0), day(TO, 120.0)));
+
+            service.logPerformance(FROM, TO);
+
+            verify(client).getPerformance(FROM.atStartOfDay().toEpochSecond(ZoneOffset.UTC),
+                    TO.atTime(LocalTime.MAX).toEpochSecond(ZoneOffset.UTC));
+            assertEquals(3, storedDays());
+            verify(siteSavingsLedgerService).recordDays(Site.GRAIG_FATHA,
+                    Map.of(FROM, 100.0, FROM.plusDays(1), 110.0, TO, 120.0));
+        }
+
+        @Test
+        @DisplayName("Fetches a day missing from the range response on its own")
+        void getDailyPerformance_fetchesMissingDay() {
+            when(client.getPerformance(anyLong(), anyLong()))
+                    .thenReturn(rangeResponse(day(FROM, 100.0), day(TO, 120.0)))
+                    .thenReturn(rangeResponse(day(FROM.plusDays(1), 110.0)));
+
+            Map<LocalDate, VensysPerformanceData> result = service.getDailyPerformance(FROM, TO);
+
+            assertEquals(3, result.size());
+            assertEquals(110.0, result.get(FROM.plusDays(1)).energyYield());
+            verify(client, times(2)).getPerformance(anyLong(), anyLong());
+        }
+
+        @Test
+        @DisplayName("Matches entries to days by their timestamps, leaving out a day with no data anywhere")
+        void getDailyPerformance_matchesEntriesByTimestamp() {
+            when(client.getPerformance(anyLong(), anyLong()))
+                    .thenReturn(rangeResponse(day(TO, 120.0), day(FROM, 100.0)))
+                    .thenReturn(rangeResponse());
+
+            Map<LocalDate, VensysPerformanceData> result = service.getDailyPerformance(FROM, TO);
+
+            assertEquals(Set.of(FROM, TO), result.keySet());
+            assertEquals(100.0, result.get(FROM).energyYield());
+            assertEquals(120.0, result.get(TO).energyYield());
+            verify(client, times(2)).getPerformance(anyLong(), anyLong());
+        }
+
+        @Test
+        @DisplayName("Combines entries for parts of the same day into one for the day")
+        void getDailyPerformance_combinesSubDailyEntries() {
+            var morning = day(FROM, 50.0).toBuilder().valuesCount(72).availability(100.0).windMax(12.0)
+                    .errorTime(60.0).build();
+            var afternoon = day(FROM, 30.0).toBuilder().date(FROM.atTime(12, 0)).valuesCount(72).availability(90.0)
+                    .windMax(15.0).errorTime(30.0).build();
+            when(client.getPerformance(anyLong(), anyLong()))
+                    .thenReturn(rangeResponse(morning, afternoon, day(FROM.plusDays(1), 110.0), day(TO, 120.0)));
+
+            Map<LocalDate, VensysPerformanceData> result = service.getDailyPerformance(FROM, TO);
+
+            VensysPerformanceData combined = result.get(FROM);
+            assertEquals(3, result.size());
+            assertEquals(FROM.atStartOfDay(), combined.date());
+            assertEquals(80.0, combined.energyYield());
+            assertEquals(95.0, combined.availability());
+            assertEquals(15.0, combined.windMax());
+            assertEquals(90.0, combined.errorTime());
+            assertEquals(144, combined.valuesCount());
+            verify(client).getPerformance(anyLong(), anyLong());
+        }
+
+        @Test
+        @DisplayName("Falls back to a call per day when the range comes back as a single entry")
+        void getDailyPerformance_fallsBackForSingleEntry() {
+            when(client.getPerformance(anyLong(), anyLong())).thenReturn(rangeResponse(day(FROM, 330.0)));
+
+            service.getDailyPerformance(FROM, TO);
+
+            verify(client, times(4)).getPerformance(anyLong(), anyLong());
+        }
+
+        @Test
+        @DisplayName("Takes a token for every call made to Vensys")
+        void getDailyPerformance_takesTokenPerCall() throws InterruptedException {
+            TokenBucket upstreamCalls = mock(TokenBucket.class);
+            when(client.getPerformance(anyLong(), anyLong())).thenReturn(rangeResponse(day(FROM, 330.0)));
+
+            service.getDailyPerformance(FROM, TO, upstreamCalls);
+
+            verify(client, times(4)).getPerformance(anyLong(), anyLong());
+            verify(upstreamCalls, times(4)).acquire();
+        }
+
+        @Test
+        @DisplayName("Fetches day by day when range fetches are configured off")
+        void getDailyPerformance_fetchesEachDayForSingleDayRange() {
+            ReflectionTestUtils.setField(service, "rangeDays", 1);
+            when(client.getPerformance(anyLong(), anyLong())).thenReturn(rangeResponse(day(FROM, 100.0)));
+
+            service.getDailyPerformance(FROM, TO);
+
+            verify(client, times(3)).getPerformance(anyLong(), anyLong());
+            verify(client, never()).getPerformance(FROM.atStartOfDay().toEpochSecond(ZoneOffset.UTC),
+                    TO.atTime(LocalTime.MAX).toEpochSecond(ZoneOffset.UTC));
+        }
+
+        @Test
+        @DisplayName("Splits long ranges into windows of the configured length")
+        void logPerformance_splitsIntoWindows() {
+            ReflectionTestUtils.setField(service, "rangeDays", 2);
+            when(client.getPerformance(anyLong(), anyLong()))
+                    .thenReturn(rangeResponse(day(FROM, 100.0), day(FROM.plusDays(1), 100.0)))
+                    .thenReturn(rangeResponse(day(TO, 100.0)));
+
+            service.logPerformance(FROM, TO);
+
+            verify(client, times(2)).getPerformance(anyLong(), anyLong());
+            assertEquals(3, storedDays());
+        }
+
+        @Test
+        @DisplayName("Validates each daily bucket, raising one alert for the range")
+        void getDailyPerformance_validatesEachDay() {
+            var lowAvailability = day(FROM.plusDays(1), 100.0).toBuilder().availability(50.0).build();
+            when(client.getPerformance(anyLong(), anyLong()))
+                    .thenReturn(rangeResponse(day(FROM, 100.0), lowAvailability, day(TO, 100.0)));
+
+            service.getDailyPerformance(FROM, TO);
+
+            verify(alertService).sendAlert(eq(Site.GRAIG_FATHA), contains(FROM.plusDays(1) + ":\nAvailability (50.0%)"));
+            verifyNoMoreInteractions(alertService);
+        }
+
+        private static VensysPerformanceData day(final LocalDate date, final double energyYield) {
+            return VensysPerformanceData.builder()
+                    .date(date.atStartOfDay())
+                    .energyYield(energyYield)
+                    .availability(95.0)
+                    .build();
+        }
+
+        private static VensysPerformanceDataResponse rangeResponse(final VensysPerformanceData... data) {
+            return VensysPerformanceDataResponse.builder().data(data).build();
+        }
+    }
+
+    // Counts the days handed over to be stored, across however many batches they were stored in
+    private int storedDays() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<LocalDate, VensysPerformanceData>> stored = ArgumentCaptor.forClass(Map.class);
+        verify(performanceStatService, atLeast(0)).recordDays(eq(Site.GRAIG_FATHA), stored.capture());
+        return stored.getAllValues().stream().mapToInt(Map::size).sum();
+    }
 }
@@ -0,0 +1,113 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import uk.co.emcreations.energycoop.event.GenerationRecordedEvent;
+import uk.co.emcreations.energycoop.event.GenerationSnapshotUpdatedEvent;
+import uk.co.emcreations.energycoop.event.SavingsRateChangedEvent;
+import uk.co.emcreations.energycoop.model.GenerationSnapshot;
+import uk.co.emcreations.energycoop.service.SavingsRateService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+@ExtendWith(MockitoExtension.class)
+class LiveGenerationServiceImplTest {
+    private static final LocalDateTime THIS_MORNING = LocalDate.now().atTime(0, 15);
+
+    @Mock
+    SavingsRateService savingsRateService;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    LiveGenerationServiceImpl liveGenerationService;
+
+    @Test
+    @DisplayName("Publishes a recorded reading with the day's savings rate")
+    void onGenerationRecorded_publishesSnapshot() {
+        when(savingsRateService.getSavingsRateForDate(GRAIG_FATHA, THIS_MORNING.toLocalDate())).thenReturn(0.3);
+
+        liveGenerationService.onGenerationRecorded(new GenerationRecordedEvent(GRAIG_FATHA, THIS_MORNING, 42.0));
+
+        assertEquals(Optional.of(new GenerationSnapshot(GRAIG_FATHA, THIS_MORNING, 42.0, 0.3)),
+                liveGenerationService.getTodaySnapshot(GRAIG_FATHA));
+        verify(eventPublisher).publishEvent(
+                new GenerationSnapshotUpdatedEvent(new GenerationSnapshot(GRAIG_FATHA, THIS_MORNING, 42.0, 0.3)));
+    }
+
+    @Test
+    @DisplayName("Announces only readings which change the snapshot")
+    void updateSnapshot_announcesChangesOnly() {
+        when(savingsRateService.getSavingsRateForDate(any(), any())).thenReturn(0.3);
+
+        liveGenerationService.updateSnapshot(GRAIG_FATHA, THIS_MORNING.plusMinutes(15), 50.0);
+        liveGenerationService.updateSnapshot(GRAIG_FATHA, THIS_MORNING.plusMinutes(15), 50.0);
+        liveGenerationService.updateSnapshot(GRAIG_FATHA, THIS_MORNING, 42.0);
+
+        verify(eventPublisher, times(1)).publishEvent(any(GenerationSnapshotUpdatedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Keeps the later reading when an earlier one arrives out of order")
+    void updateSnapshot_keepsLatestReading() {
+        when(savingsRateService.getSavingsRateForDate(any(), any())).thenReturn(0.3);
+
+        liveGenerationService.updateSnapshot(GRAIG_FATHA, THIS_MORNING.plusMinutes(15), 50.0);
+        liveGenerationService.updateSnapshot(GRAIG_FATHA, THIS_MORNING, 42.0);
+
+        assertEquals(50.0, liveGenerationService.getTodaySnapshot(GRAIG_FATHA).orElseThrow().kWhGenerated());
+    }
+
+    @Test
+    @DisplayName("Has no snapshot for today until today's first reading")
+    void getTodaySnapshot_ignoresEarlierDays() {
+        when(savingsRateService.getSavingsRateForDate(any(), any())).thenReturn(0.3);
+
+        liveGenerationService.updateSnapshot(GRAIG_FATHA, THIS_MORNING.minusDays(1), 300.0);
+
+        assertEquals(Optional.empty(), liveGenerationService.getTodaySnapshot(GRAIG_FATHA));
+    }
+
+    @Test
+    @DisplayName("Re-prices the snapshot when the rate for its day changes")
+    void onSavingsRateChanged_repricesSnapshot() {
+        when(savingsRateService.getSavingsRateForDate(GRAIG_FATHA, THIS_MORNING.toLocalDate())).thenReturn(0.3, 0.4);
+        liveGenerationService.updateSnapshot(GRAIG_FATHA, THIS_MORNING, 42.0);
+
+        liveGenerationService.onSavingsRateChanged(new SavingsRateChangedEvent(GRAIG_FATHA, LocalDate.of(2020, 1, 1)));
+
+        assertEquals(0.4, liveGenerationService.getTodaySnapshot(GRAIG_FATHA).orElseThrow().savingsRate());
+        verify(eventPublisher).publishEvent(
+                new GenerationSnapshotUpdatedEvent(new GenerationSnapshot(GRAIG_FATHA, THIS_MORNING, 42.0, 0.4)));
+    }
+
+    @Test
+    @DisplayName("Ignores rate changes which take effect after the snapshot's day")
+    void onSavingsRateChanged_ignoresLaterRates() {
+        when(savingsRateService.getSavingsRateForDate(GRAIG_FATHA, THIS_MORNING.toLocalDate())).thenReturn(0.3);
+        liveGenerationService.updateSnapshot(GRAIG_FATHA, THIS_MORNING, 42.0);
+
+        liveGenerationService.onSavingsRateChanged(new SavingsRateChangedEvent(GRAIG_FATHA, LocalDate.now().plusDays(1)));
+
+        assertEquals(0.3, liveGenerationService.getTodaySnapshot(GRAIG_FATHA).orElseThrow().savingsRate());
+        verify(savingsRateService, times(1)).getSavingsRateForDate(any(), any());
+        verify(eventPublisher, never()).publishEvent(
+                new GenerationSnapshotUpdatedEvent(new GenerationSnapshot(GRAIG_FATHA, THIS_MORNING, 42.0, 0.4)));
+    }
+}
@@ -0,0 +1,189 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uk.co.emcreations.energycoop.dto.LiveGenerationUpdate;
+import uk.co.emcreations.energycoop.event.GenerationSnapshotUpdatedEvent;
+import uk.co.emcreations.energycoop.model.GenerationSnapshot;
+import uk.co.emcreations.energycoop.service.LiveGenerationService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+@ExtendWith(MockitoExtension.class)
+class LiveGenerationStreamServiceImplTest {
+    private static final LocalDateTime THIS_MORNING = LocalDate.now().atTime(9, 15);
+    private static final Duration STALL_TIMEOUT = Duration.ofMillis(200);
+
+    @Mock
+    LiveGenerationService liveGenerationService;
+
+    private final BlockingQueue<Object> sent = new LinkedBlockingQueue<>();
+    private CountDownLatch sendGate;
+    private boolean failSends;
+    private LiveGenerationStreamServiceImpl streamService;
+
+    @BeforeEach
+    void setUp() {
+        sendGate = new CountDownLatch(0);
+        streamService = new LiveGenerationStreamServiceImpl(liveGenerationService, 100, 2, Duration.ofHours(1),
+                STALL_TIMEOUT, Duration.ofHours(1)) {
+            @Override
+            SseEmitter createEmitter(final Duration timeout) {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        sendGate.countDown();
+        streamService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Sends today's latest reading on subscribing, priced with the member's ownership")
+    void subscribe_sendsCurrentSnapshot() throws InterruptedException {
+        when(liveGenerationService.getTodaySnapshot(GRAIG_FATHA)).thenReturn(Optional.of(snapshot(0, 200.0)));
+
+        streamService.subscribe(GRAIG_FATHA, 25.0);
+
+        assertEquals(new LiveGenerationUpdate(THIS_MORNING, 200.0, 0.5, 25.0), nextSent());
+    }
+
+    @Test
+    @DisplayName("Pushes each new snapshot to every subscriber of the site")
+    void onSnapshotUpdated_fansOut() throws InterruptedException {
+        streamService.subscribe(GRAIG_FATHA, 10.0);
+        streamService.subscribe(GRAIG_FATHA, 50.0);
+
+        streamService.onSnapshotUpdated(new GenerationSnapshotUpdatedEvent(snapshot(0, 100.0)));
+
+        double first = ((LiveGenerationUpdate) nextSent()).memberSavings();
+        double second = ((LiveGenerationUpdate) nextSent()).memberSavings();
+        assertEquals(30.0, first + second, 1e-9);
+    }
+
+    @Test
+    @DisplayName("Only sends the latest of the updates which arrive while a subscriber is still busy")
+    void onSnapshotUpdated_coalescesForSlowSubscriber() throws InterruptedException {
+        sendGate = new CountDownLatch(1);
+        streamService.subscribe(GRAIG_FATHA, 100.0);
+
+        streamService.onSnapshotUpdated(new GenerationSnapshotUpdatedEvent(snapshot(0, 100.0)));
+        assertEquals(100.0, ((LiveGenerationUpdate) nextSent()).kWhGenerated()); // now blocked writing it
+        streamService.onSnapshotUpdated(new GenerationSnapshotUpdatedEvent(snapshot(15, 110.0)));
+        streamService.onSnapshotUpdated(new GenerationSnapshotUpdatedEvent(snapshot(30, 120.0)));
+        sendGate.countDown();
+
+        assertEquals(120.0, ((LiveGenerationUpdate) nextSent()).kWhGenerated());
+        assertNull(sent.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Disconnects a subscriber whose write has stalled")
+    void onSnapshotUpdated_disconnectsStalledSubscriber() throws InterruptedException {
+        sendGate = new CountDownLatch(1);
+        streamService.subscribe(GRAIG_FATHA, 100.0);
+        streamService.onSnapshotUpdated(new GenerationSnapshotUpdatedEvent(snapshot(0, 100.0)));
+        nextSent();
+
+        Thread.sleep(STALL_TIMEOUT.toMillis() * 2);
+        streamService.sendHeartbeats();
+
+        assertEquals(0, streamService.getSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("Removes a subscriber once sending to it fails")
+    void onSnapshotUpdated_removesDisconnectedSubscriber() throws InterruptedException {
+        failSends = true;
+        streamService.subscribe(GRAIG_FATHA, 100.0);
+
+        streamService.onSnapshotUpdated(new GenerationSnapshotUpdatedEvent(snapshot(0, 100.0)));
+        nextSent();
+
+        awaitSubscriberCount(0);
+    }
+
+    @Test
+    @DisplayName("Sends heartbeat comments to idle subscribers")
+    void sendHeartbeats_sendsComment() throws InterruptedException {
+        streamService.subscribe(GRAIG_FATHA, 100.0);
+
+        streamService.sendHeartbeats();
+
+        assertTrue(((String) nextSent()).startsWith(":heartbeat"));
+    }
+
+    @Test
+    @DisplayName("Rejects subscribers over the limit")
+    void subscribe_rejectsOverLimit() {
+        streamService.subscribe(GRAIG_FATHA, 100.0);
+        streamService.subscribe(GRAIG_FATHA, 100.0);
+
+        assertThrows(RejectedExecutionException.class, () -> streamService.subscribe(GRAIG_FATHA, 100.0));
+        assertEquals(2, streamService.getSubscriberCount());
+    }
+
+    private static GenerationSnapshot snapshot(final int minutesLater, final double kWhGenerated) {
+        return new GenerationSnapshot(GRAIG_FATHA, THIS_MORNING.plusMinutes(minutesLater), kWhGenerated, 0.5);
+    }
+
+    private Object nextSent() throws InterruptedException {
+        Object next = sent.poll(5, TimeUnit.SECONDS);
+        assertTrue(null != next, "Expected an event to be sent");
+        return next;
+    }
+
+    private void awaitSubscriberCount(final int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (expected != streamService.getSubscriberCount() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, streamService.getSubscriberCount());
+    }
+
+    // Records the update or comment in each event instead of writing it, optionally holding each write at the gate
+    private class RecordingEmitter extends SseEmitter {
+        @Override
+        public void send(final SseEventBuilder builder) throws IOException {
+            builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .filter(data -> data instanceof LiveGenerationUpdate
+                            || (data instanceof String text && text.startsWith(":")))
+                    .findFirst()
+                    .ifPresent(sent::add);
+            try {
+                sendGate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failSends) {
+                throw new IOException("Broken pipe");
+            }
+        }
+    }
+}
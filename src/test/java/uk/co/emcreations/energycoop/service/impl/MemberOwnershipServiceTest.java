@@ -1,21 +1,26 @@
 package uk.co.emcreations.energycoop.service.impl;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import uk.co.emcreations.energycoop.cache.MemberOwnershipCache;
 import uk.co.emcreations.energycoop.entity.MemberOwnership;
 import uk.co.emcreations.energycoop.entity.MemberOwnershipRepository;
+import uk.co.emcreations.energycoop.event.MemberOwnershipChangedEvent;
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.Optional;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,9 +30,20 @@ class MemberOwnershipServiceTest {
     @Mock
     MemberOwnershipRepository memberOwnershipRepository;
 
-    @InjectMocks
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    MemberOwnershipCache memberOwnershipCache;
+
     MemberOwnershipServiceImpl memberOwnershipService;
 
+    @BeforeEach
+    void setUp() {
+        memberOwnershipCache = new MemberOwnershipCache(10, Duration.ofMinutes(15));
+        memberOwnershipService = new MemberOwnershipServiceImpl(memberOwnershipRepository, memberOwnershipCache,
+                eventPublisher);
+    }
+
     @Nested
     @DisplayName("repository call tests")
     class RepoCall {
@@ -37,13 +53,9 @@ class MemberOwnershipServiceTest {
             var date = LocalDate.of(2024, 1, 1);
             var expectedOwnership = 250.0;
             var suppliedOwnership = 100.0;
-            MemberOwnership memberOwnership = mock(MemberOwnership.class);
-            when(memberOwnership.getWattageOwnership()).thenReturn(expectedOwnership);
 
-            when(memberOwnershipRepository
-                    .findTopByUserIdAndSiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(USER_ID, GRAIG_FATHA,
-                            date))
-                    .thenReturn(Optional.of(memberOwnership));
+            when(memberOwnershipRepository.findAllByUserIdAndSiteOrderByEffectiveDateAscIdAsc(USER_ID, GRAIG_FATHA))
+                    .thenReturn(List.of(ownership(date, expectedOwnership)));
 
             double actualOwnership = memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, date, USER_ID,
                     suppliedOwnership);
@@ -57,15 +69,114 @@ class MemberOwnershipServiceTest {
             var suppliedOwnership = 100.0;
             var date = LocalDate.of(2024, 1, 1);
 
-            when(memberOwnershipRepository
-                    .findTopByUserIdAndSiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(USER_ID, GRAIG_FATHA,
-                            date))
-                    .thenReturn(Optional.empty());
+            when(memberOwnershipRepository.findAllByUserIdAndSiteOrderByEffectiveDateAscIdAsc(USER_ID, GRAIG_FATHA))
+                    .thenReturn(List.of());
 
             double actualOwnership = memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, date, USER_ID,
                     suppliedOwnership);
 
             assertEquals(suppliedOwnership, actualOwnership);
         }
+
+        @Test
+        @DisplayName("Returns supplied ownership for dates before the first ownership record")
+        void returnsSuppliedOwnershipBeforeFirstRecord() {
+            var date = LocalDate.of(2024, 1, 1);
+
+            when(memberOwnershipRepository.findAllByUserIdAndSiteOrderByEffectiveDateAscIdAsc(USER_ID, GRAIG_FATHA))
+                    .thenReturn(List.of(ownership(date, 250.0)));
+
+            EffectiveDateTimeline timeline = memberOwnershipService.getMemberOwnershipTimeline(GRAIG_FATHA, date,
+                    USER_ID, 100.0);
+
+            assertEquals(100.0, timeline.valueAt(date.minusDays(1)));
+            assertEquals(250.0, timeline.valueAt(date));
+        }
+    }
+
+    @Nested
+    @DisplayName("caching tests")
+    class Caching {
+        @Test
+        @DisplayName("Loads a member's ownership history once for repeated lookups")
+        void loadsHistoryOnce() {
+            var date = LocalDate.of(2024, 1, 1);
+
+            when(memberOwnershipRepository.findAllByUserIdAndSiteOrderByEffectiveDateAscIdAsc(USER_ID, GRAIG_FATHA))
+                    .thenReturn(List.of(ownership(date, 250.0)));
+
+            memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, date, USER_ID, 100.0);
+            memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, date.plusDays(1), USER_ID, 100.0);
+            memberOwnershipService.getMemberOwnershipTimeline(GRAIG_FATHA, date, USER_ID, 150.0);
+
+            verify(memberOwnershipRepository, times(1))
+                    .findAllByUserIdAndSiteOrderByEffectiveDateAscIdAsc(USER_ID, GRAIG_FATHA);
+            assertEquals(2, memberOwnershipCache.getStats().hits());
+            assertEquals(1, memberOwnershipCache.getStats().misses());
+        }
+
+        @Test
+        @DisplayName("Reloads a member's ownership history after it changes")
+        void reloadsHistoryAfterChange() {
+            var date = LocalDate.of(2024, 1, 1);
+
+            when(memberOwnershipRepository.findAllByUserIdAndSiteOrderByEffectiveDateAscIdAsc(USER_ID, GRAIG_FATHA))
+                    .thenReturn(List.of(ownership(date, 250.0)))
+                    .thenReturn(List.of(ownership(date, 300.0)));
+
+            assertEquals(250.0, memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, date, USER_ID, 100.0));
+            memberOwnershipCache.onMemberOwnershipChanged(new MemberOwnershipChangedEvent(USER_ID, GRAIG_FATHA));
+
+            assertEquals(300.0, memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, date, USER_ID, 100.0));
+        }
+
+        @Test
+        @DisplayName("Reloads every member's ownership history for a site changed as a whole")
+        void reloadsSiteAfterChange() {
+            var date = LocalDate.of(2024, 1, 1);
+
+            when(memberOwnershipRepository.findAllByUserIdAndSiteOrderByEffectiveDateAscIdAsc(anyString(), eq(GRAIG_FATHA)))
+                    .thenReturn(List.of(ownership(date, 250.0)))
+                    .thenReturn(List.of(ownership(date, 300.0)));
+
+            memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, date, USER_ID, 100.0);
+            memberOwnershipCache.onMemberOwnershipChanged(new MemberOwnershipChangedEvent(null, GRAIG_FATHA));
+
+            assertEquals(300.0, memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, date, USER_ID, 100.0));
+        }
+
+        @Test
+        @DisplayName("Reloads a member's ownership history once it has expired, as changes made elsewhere aren't seen")
+        void reloadsHistoryAfterExpiry() {
+            var date = LocalDate.of(2024, 1, 1);
+            memberOwnershipService = new MemberOwnershipServiceImpl(memberOwnershipRepository,
+                    new MemberOwnershipCache(10, Duration.ZERO), eventPublisher);
+
+            when(memberOwnershipRepository.findAllByUserIdAndSiteOrderByEffectiveDateAscIdAsc(USER_ID, GRAIG_FATHA))
+                    .thenReturn(List.of(ownership(date, 250.0)))
+                    .thenReturn(List.of(ownership(date, 300.0)));
+
+            assertEquals(250.0, memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, date, USER_ID, 100.0));
+            assertEquals(300.0, memberOwnershipService.getMemberOwnershipForSite(GRAIG_FATHA, date, USER_ID, 100.0));
+        }
+
+        @Test
+        @DisplayName("Publishes an ownership change when asked to reload")
+        void reloadOwnership_publishesChange() {
+            memberOwnershipService.reloadOwnership(GRAIG_FATHA, USER_ID);
+
+            ArgumentCaptor<MemberOwnershipChangedEvent> event = ArgumentCaptor.forClass(MemberOwnershipChangedEvent.class);
+            verify(eventPublisher).publishEvent(event.capture());
+            assertEquals(new MemberOwnershipChangedEvent(USER_ID, GRAIG_FATHA), event.getValue());
+        }
+    }
+
+    private static MemberOwnership ownership(final LocalDate effectiveDate, final double wattageOwnership) {
+        var ownership = new MemberOwnership();
+        ownership.setUserId(USER_ID);
+        ownership.setSite(GRAIG_FATHA);
+        ownership.setEffectiveDate(effectiveDate);
+        ownership.setWattageOwnership(wattageOwnership);
+        return ownership;
     }
 }
@@ -0,0 +1,266 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.co.emcreations.energycoop.dto.BackfillJobStatus;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.entity.BackfillJob;
+import uk.co.emcreations.energycoop.entity.BackfillJobRepository;
+import uk.co.emcreations.energycoop.model.JobState;
+import uk.co.emcreations.energycoop.service.GraigFathaStatsService;
+import uk.co.emcreations.energycoop.service.PerformanceStatService;
+import uk.co.emcreations.energycoop.service.SiteSavingsLedgerService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+@ExtendWith(MockitoExtension.class)
+class PerformanceBackfillJobServiceImplTest {
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 1, 5);
+
+    @Mock
+    private BackfillJobRepository backfillJobRepository;
+
+    @Mock
+    private PerformanceStatService performanceStatService;
+
+    @Mock
+    private GraigFathaStatsService graigFathaStatsService;
+
+    @Mock
+    private SiteSavingsLedgerService siteSavingsLedgerService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PerformanceBackfillJobServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PerformanceBackfillJobServiceImpl(backfillJobRepository, performanceStatService,
+                graigFathaStatsService, siteSavingsLedgerService, transactionManager, 2, 1000, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Nested
+    @DisplayName("Running jobs")
+    class RunTests {
+        @BeforeEach
+        void setUp() {
+            when(backfillJobRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        }
+
+        @Test
+        @DisplayName("Commits each chunk with its checkpoint and completes the job")
+        void run_commitsChunks() {
+            when(backfillJobRepository.findById(1L)).thenReturn(Optional.of(job(null)));
+            when(graigFathaStatsService.getDailyPerformance(any(), any(), any()))
+                    .thenAnswer(invocation -> days(invocation.getArgument(0), invocation.getArgument(1)));
+
+            service.run(1L);
+
+            verify(graigFathaStatsService).getDailyPerformance(eq(FROM), eq(FROM.plusDays(1)), any());
+            verify(graigFathaStatsService).getDailyPerformance(eq(FROM.plusDays(2)), eq(FROM.plusDays(3)), any());
+            verify(graigFathaStatsService).getDailyPerformance(eq(TO), eq(TO), any());
+            verify(transactionManager, times(3)).commit(any());
+            verify(performanceStatService, times(3)).importDays(eq(GRAIG_FATHA), anyMap());
+            verify(siteSavingsLedgerService, times(3)).recordDays(eq(GRAIG_FATHA), anyMap());
+
+            BackfillJob finished = lastSaved();
+            assertEquals(JobState.COMPLETED, finished.getState());
+            assertEquals(TO, finished.getCheckpoint());
+            assertEquals(5, finished.getDaysProcessed());
+            assertEquals(5, finished.getDaysStored());
+        }
+
+        @Test
+        @DisplayName("Carries on from the day after the checkpoint")
+        void run_resumesFromCheckpoint() {
+            when(backfillJobRepository.findById(1L)).thenReturn(Optional.of(job(FROM.plusDays(2))));
+            when(graigFathaStatsService.getDailyPerformance(any(), any(), any())).thenReturn(Map.of());
+
+            service.run(1L);
+
+            verify(graigFathaStatsService).getDailyPerformance(eq(FROM.plusDays(3)), eq(TO), any());
+            verify(graigFathaStatsService, never()).getDailyPerformance(eq(FROM), any(), any());
+            assertEquals(JobState.COMPLETED, lastSaved().getState());
+        }
+
+        @Test
+        @DisplayName("Fails at the last committed checkpoint when a chunk can't be committed")
+        void run_failsAtLastCheckpoint() {
+            when(backfillJobRepository.findById(1L)).thenReturn(Optional.of(job(null)));
+            when(graigFathaStatsService.getDailyPerformance(any(), any(), any()))
+                    .thenAnswer(invocation -> days(invocation.getArgument(0), invocation.getArgument(1)));
+            when(siteSavingsLedgerService.recordDays(eq(GRAIG_FATHA), anyMap()))
+                    .thenReturn(List.of())
+                    .thenThrow(new IllegalStateException("Connection lost"));
+
+            service.run(1L);
+
+            verify(transactionManager).rollback(any());
+            BackfillJob failed = lastSaved();
+            assertEquals(JobState.FAILED, failed.getState());
+            assertEquals(FROM.plusDays(1), failed.getCheckpoint());
+            assertEquals(2, failed.getDaysProcessed());
+            assertEquals("Connection lost", failed.getError());
+        }
+
+        @Test
+        @DisplayName("Runs a chunk which failed after its import again in full, counting its days once")
+        void run_rerunsFailedChunkOnce() {
+            Map<LocalDate, Double> secondChunk = Map.of(FROM.plusDays(2), 100.0, FROM.plusDays(3), 100.0);
+            when(backfillJobRepository.findById(1L)).thenReturn(Optional.of(job(null)));
+            when(graigFathaStatsService.getDailyPerformance(any(), any(), any()))
+                    .thenAnswer(invocation -> days(invocation.getArgument(0), invocation.getArgument(1)));
+            when(siteSavingsLedgerService.recordDays(eq(GRAIG_FATHA), anyMap()))
+                    .thenReturn(List.of())
+                    .thenThrow(new IllegalStateException("Connection lost"))
+                    .thenReturn(List.of());
+
+            service.run(1L);
+            BackfillJob failed = lastSaved();
+            when(backfillJobRepository.findById(1L))
+                    .thenReturn(Optional.of(failed.toBuilder().state(JobState.QUEUED).build()));
+            service.run(1L);
+
+            verify(performanceStatService, times(2)).importDays(GRAIG_FATHA, days(FROM.plusDays(2), FROM.plusDays(3)));
+            verify(siteSavingsLedgerService, times(2)).recordDays(GRAIG_FATHA, secondChunk);
+            BackfillJob finished = lastSaved();
+            assertEquals(JobState.COMPLETED, finished.getState());
+            assertEquals(5, finished.getDaysProcessed());
+            assertEquals(5, finished.getDaysStored());
+        }
+
+        @Test
+        @DisplayName("Leaves the job to be picked up again when stopped waiting to call Vensys")
+        void run_stopsWhenCancelled() {
+            when(backfillJobRepository.findById(1L)).thenReturn(Optional.of(job(null)));
+            when(graigFathaStatsService.getDailyPerformance(any(), any(), any()))
+                    .thenThrow(new CancellationException("Interrupted waiting to call Vensys"));
+
+            service.run(1L);
+
+            assertEquals(JobState.RUNNING, lastSaved().getState());
+            verify(performanceStatService, never()).importDays(any(), anyMap());
+        }
+
+        private BackfillJob lastSaved() {
+            ArgumentCaptor<BackfillJob> saved = ArgumentCaptor.forClass(BackfillJob.class);
+            verify(backfillJobRepository, atLeastOnce()).save(saved.capture());
+            return saved.getValue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Managing jobs")
+    class ManagementTests {
+        @Test
+        @DisplayName("Rejects a period which isn't over yet")
+        void submit_rejectsIncompletePeriod() {
+            assertThrows(IllegalArgumentException.class, () -> service.submit(FROM, LocalDate.now()));
+            verify(backfillJobRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Queues a new job and reports it")
+        void submit_queuesJob() {
+            when(backfillJobRepository.save(any())).thenAnswer(invocation ->
+                    ((BackfillJob) invocation.getArgument(0)).toBuilder().id(7L).build());
+
+            BackfillJobStatus status = service.submit(FROM, TO);
+
+            assertEquals(7, status.id());
+            assertEquals(JobState.QUEUED, status.state());
+            assertEquals(5, status.totalDays());
+            assertNull(status.checkpoint());
+            verify(backfillJobRepository, timeout(1000)).findById(7L);
+        }
+
+        @Test
+        @DisplayName("Queues a failed job again, clearing its error")
+        void resume_requeuesFailedJob() {
+            BackfillJob failed = job(FROM.plusDays(1)).toBuilder().state(JobState.FAILED).error("Timed out").build();
+            when(backfillJobRepository.findById(1L)).thenReturn(Optional.of(failed));
+            when(backfillJobRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            Optional<BackfillJobStatus> status = service.resume(1L);
+
+            assertTrue(status.isPresent());
+            assertEquals(JobState.QUEUED, status.get().state());
+            assertNull(status.get().error());
+            assertEquals(FROM.plusDays(1), status.get().checkpoint());
+        }
+
+        @Test
+        @DisplayName("Refuses to resume a completed job")
+        void resume_rejectsCompletedJob() {
+            when(backfillJobRepository.findById(1L))
+                    .thenReturn(Optional.of(job(TO).toBuilder().state(JobState.COMPLETED).build()));
+
+            assertThrows(IllegalStateException.class, () -> service.resume(1L));
+        }
+
+        @Test
+        @DisplayName("Picks up jobs left unfinished when the application stopped")
+        void resumeUnfinishedJobs_schedulesJobs() {
+            when(backfillJobRepository.findAllByStateInOrderByIdAsc(any())).thenReturn(List.of(job(FROM)));
+
+            service.resumeUnfinishedJobs();
+
+            verify(backfillJobRepository, timeout(1000)).findById(1L);
+        }
+    }
+
+    private static BackfillJob job(final LocalDate checkpoint) {
+        return BackfillJob.builder()
+                .id(1L)
+                .site(GRAIG_FATHA)
+                .fromDate(FROM)
+                .toDate(TO)
+                .state(JobState.RUNNING)
+                .checkpoint(checkpoint)
+                .daysProcessed(null == checkpoint ? 0 : checkpoint.toEpochDay() - FROM.toEpochDay() + 1)
+                .build();
+    }
+
+    private static Map<LocalDate, VensysPerformanceData> days(final LocalDate from, final LocalDate to) {
+        Map<LocalDate, VensysPerformanceData> days = new TreeMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            days.put(day, VensysPerformanceData.builder().date(day.atStartOfDay()).energyYield(100.0).build());
+        }
+        return days;
+    }
+}
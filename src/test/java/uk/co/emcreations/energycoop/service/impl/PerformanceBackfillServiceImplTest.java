@@ -0,0 +1,193 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.emcreations.energycoop.cache.VensysLastKnownGoodCache;
+import uk.co.emcreations.energycoop.dto.VensysMeanData;
+import uk.co.emcreations.energycoop.dto.VensysMeanDataResponse;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceDataResponse;
+import uk.co.emcreations.energycoop.model.BackfillResult;
+import uk.co.emcreations.energycoop.service.GraigFathaStatsService;
+import uk.co.emcreations.energycoop.service.PerformanceStatService;
+import uk.co.emcreations.energycoop.sourceclient.ResilientVensysClient;
+import uk.co.emcreations.energycoop.sourceclient.VensysGraigFathaClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+@ExtendWith(MockitoExtension.class)
+class PerformanceBackfillServiceImplTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    @Mock
+    GraigFathaStatsService graigFathaStatsService;
+
+    @Mock
+    PerformanceStatService performanceStatService;
+
+    PerformanceBackfillServiceImpl backfillService;
+
+    @BeforeEach
+    void setUp() {
+        backfillService = new PerformanceBackfillServiceImpl(graigFathaStatsService, performanceStatService, 2, 4);
+    }
+
+    @Test
+    @DisplayName("Fetches every missing day and persists the results in one batch")
+    void backfill_fetchesAndPersistsDays() {
+        when(graigFathaStatsService.getPerformance(any(), any())).thenAnswer(invocation ->
+                Optional.of(performanceData(invocation.getArgument(0))));
+
+        BackfillResult result = backfillService.backfill(List.of(DAY, DAY.plusDays(1), DAY.plusDays(2)));
+
+        assertEquals(Map.of(DAY, 1.0, DAY.plusDays(1), 2.0, DAY.plusDays(2), 3.0), result.generationByDay());
+        assertEquals(List.of(), result.failedDays());
+        verify(graigFathaStatsService).getPerformance(DAY.atStartOfDay(), DAY.atTime(LocalTime.MAX));
+        verify(performanceStatService).recordDays(eq(GRAIG_FATHA),
+                argThat((Map<LocalDate, VensysPerformanceData> days) -> 3 == days.size()));
+    }
+
+    @Test
+    @DisplayName("Leaves out days with no data or a failed fetch, returning the failed ones to retry")
+    void backfill_skipsUnavailableDays() {
+        when(graigFathaStatsService.getPerformance(eq(DAY.atStartOfDay()), any()))
+                .thenReturn(Optional.of(performanceData(DAY.atStartOfDay())));
+        when(graigFathaStatsService.getPerformance(eq(DAY.plusDays(1).atStartOfDay()), any()))
+                .thenReturn(Optional.empty());
+        when(graigFathaStatsService.getPerformance(eq(DAY.plusDays(2).atStartOfDay()), any()))
+                .thenThrow(new IllegalStateException("Vensys unavailable"));
+
+        BackfillResult result = backfillService.backfill(List.of(DAY, DAY.plusDays(1), DAY.plusDays(2)));
+
+        assertEquals(Map.of(DAY, 1.0), result.generationByDay());
+        assertEquals(List.of(DAY.plusDays(2)), result.failedDays());
+        verify(performanceStatService).recordDays(eq(GRAIG_FATHA),
+                argThat((Map<LocalDate, VensysPerformanceData> days) -> days.keySet().equals(Set.of(DAY))));
+    }
+
+    @Test
+    @DisplayName("Never has more fetches in flight than the configured limit")
+    void backfill_limitsConcurrentFetches() {
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        when(graigFathaStatsService.getPerformance(any(), any())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return Optional.empty();
+        });
+
+        backfillService.backfill(DAY.datesUntil(DAY.plusDays(10)).toList());
+
+        verify(graigFathaStatsService, times(10)).getPerformance(any(), any());
+        assertTrue(2 >= maxInFlight.get());
+    }
+
+    @Test
+    @DisplayName("Shares one fetch budget between backfills running at the same time")
+    void backfill_sharesFetchBudget() {
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        when(graigFathaStatsService.getPerformance(any(), any())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return Optional.empty();
+        });
+
+        var first = CompletableFuture.runAsync(() ->
+                backfillService.backfill(DAY.datesUntil(DAY.plusDays(5)).toList()));
+        backfillService.backfill(DAY.plusDays(5).datesUntil(DAY.plusDays(10)).toList());
+        first.join();
+
+        verify(graigFathaStatsService, times(10)).getPerformance(any(), any());
+        assertTrue(2 >= maxInFlight.get());
+    }
+
+    @Test
+    @DisplayName("Leaves Vensys bulkhead permits free for live calls while backfills run")
+    void backfill_leavesBulkheadPermitsForLiveCalls() throws Exception {
+        var meanResponse = VensysMeanDataResponse.builder().data(VensysMeanData.builder().build()).build();
+        var performanceResponse = VensysPerformanceDataResponse.builder()
+                .data(new VensysPerformanceData[]{VensysPerformanceData.builder().energyYield(100.0).build()})
+                .build();
+        var backfillsFetching = new CountDownLatch(2);
+        var liveCallDone = new CountDownLatch(1);
+        VensysGraigFathaClient vensys = mock(VensysGraigFathaClient.class);
+        when(vensys.getMeanEnergyYield()).thenReturn(meanResponse);
+        when(vensys.getPerformance(anyLong(), anyLong())).thenAnswer(invocation -> {
+            backfillsFetching.countDown();
+            liveCallDone.await(5, TimeUnit.SECONDS);
+            return performanceResponse;
+        });
+        var client = new ResilientVensysClient(vensys, new VensysLastKnownGoodCache(10), Duration.ofSeconds(10),
+                Duration.ofSeconds(10), Duration.ofSeconds(10), 4, Duration.ofMillis(20), 5, Duration.ofMinutes(1));
+        when(graigFathaStatsService.getPerformance(any(), any())).thenAnswer(invocation -> {
+            LocalDateTime from = invocation.getArgument(0);
+            LocalDateTime to = invocation.getArgument(1);
+            return Optional.of(client.getPerformance(from.toEpochSecond(ZoneOffset.UTC),
+                    to.toEpochSecond(ZoneOffset.UTC)).data()[0]);
+        });
+
+        var first = CompletableFuture.supplyAsync(() ->
+                backfillService.backfill(DAY.datesUntil(DAY.plusDays(5)).toList()));
+        var second = CompletableFuture.supplyAsync(() ->
+                backfillService.backfill(DAY.plusDays(5).datesUntil(DAY.plusDays(10)).toList()));
+        assertTrue(backfillsFetching.await(5, TimeUnit.SECONDS));
+
+        try {
+            assertSame(meanResponse, client.getMeanEnergyYield());
+        } finally {
+            liveCallDone.countDown();
+        }
+
+        assertEquals(List.of(), first.get(5, TimeUnit.SECONDS).failedDays());
+        assertEquals(List.of(), second.get(5, TimeUnit.SECONDS).failedDays());
+    }
+
+    @Test
+    @DisplayName("Refuses a fetch budget which would fill the Vensys bulkhead")
+    void rejectsBudgetFillingBulkhead() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PerformanceBackfillServiceImpl(graigFathaStatsService, performanceStatService, 4, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PerformanceBackfillServiceImpl(graigFathaStatsService, performanceStatService, 0, 4));
+    }
+
+    @Test
+    @DisplayName("Does nothing for an empty list")
+    void backfill_emptyList() {
+        assertEquals(BackfillResult.empty(), backfillService.backfill(List.of()));
+        verifyNoInteractions(graigFathaStatsService, performanceStatService);
+    }
+
+    private static VensysPerformanceData performanceData(final LocalDateTime date) {
+        return VensysPerformanceData.builder().date(date).energyYield(date.getDayOfMonth()).build();
+    }
+}
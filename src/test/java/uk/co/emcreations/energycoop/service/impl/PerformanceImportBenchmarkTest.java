@@ -0,0 +1,249 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.SessionFactory;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.entity.PerformanceStatEntry;
+import uk.co.emcreations.energycoop.model.Site;
+import uk.co.emcreations.energycoop.util.EntityHelper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+/**
+ * Measures how many performance rows per second a ten-year backfill stores, comparing the stateless, JDBC-batched
+ * import against the previous one-round-trip-per-row persist, reproduced below as the baseline on a copy of the entity
+ * with its ids still from an identity column. It needs a Postgres database to write to, whose tables it drops
+ * afterwards, given by {@code BENCHMARK_DB_URL}, {@code BENCHMARK_DB_USER} and {@code BENCHMARK_DB_PASSWORD}. Run with
+ * {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class PerformanceImportBenchmarkTest {
+    private static final LocalDate FROM = LocalDate.of(2015, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+    private static final int BATCH_SIZE = 50;
+
+    private static SessionFactory sessionFactory;
+    private static PerformanceStatServiceImpl performanceStatService;
+
+    @BeforeAll
+    static void setUp() {
+        String url = System.getenv("BENCHMARK_DB_URL");
+        assumeTrue(null != url, "BENCHMARK_DB_URL isn't set");
+
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(PerformanceStatEntry.class)
+                .addAnnotatedClass(IdentityPerformanceStatEntry.class)
+                .setProperty("hibernate.connection.url", url)
+                .setProperty("hibernate.connection.username", System.getenv("BENCHMARK_DB_USER"))
+                .setProperty("hibernate.connection.password", System.getenv("BENCHMARK_DB_PASSWORD"))
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .buildSessionFactory();
+        performanceStatService = new PerformanceStatServiceImpl(null, sessionFactory);
+        performanceStatService.batchSize = BATCH_SIZE;
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (null != sessionFactory) {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Batched stateless import versus a round trip per row for a ten-year backfill")
+    void importVersusBaseline(final TestReporter reporter) {
+        Map<LocalDate, VensysPerformanceData> days = days(FROM, TO);
+        Map<LocalDate, VensysPerformanceData> warmup = days(FROM, FROM.plusDays(365));
+
+        measure(this::persistEachRow, warmup, IdentityPerformanceStatEntry.class);
+        measure(this::importDays, warmup, PerformanceStatEntry.class);
+
+        double baseline = measure(this::persistEachRow, days, IdentityPerformanceStatEntry.class);
+        double inserts = measure(this::importDays, days, PerformanceStatEntry.class);
+        long start = System.nanoTime();
+        performanceStatService.importDays(GRAIG_FATHA, days); // every day already stored, so all updates
+        double updates = rowsPerSecond(days.size(), System.nanoTime() - start);
+
+        assertEquals(days.size(), countRows(PerformanceStatEntry.class));
+        reporter.publishEntry("days", "%d from %s to %s".formatted(days.size(), FROM, TO));
+        reporter.publishEntry("baseline persist per row", "%.0f rows/s".formatted(baseline));
+        reporter.publishEntry("stateless import, inserts",
+                "%.0f rows/s (batches of %d)".formatted(inserts, BATCH_SIZE));
+        reporter.publishEntry("stateless import, re-run", "%.0f rows/s".formatted(updates));
+    }
+
+    private double measure(final Consumer<Map<LocalDate, VensysPerformanceData>> store,
+                           final Map<LocalDate, VensysPerformanceData> days, final Class<?> entity) {
+        deleteRows(entity);
+        long start = System.nanoTime();
+        store.accept(days);
+        long elapsed = System.nanoTime() - start;
+        assertEquals(days.size(), countRows(entity));
+
+        return rowsPerSecond(days.size(), elapsed);
+    }
+
+    private void importDays(final Map<LocalDate, VensysPerformanceData> days) {
+        performanceStatService.importDays(GRAIG_FATHA, days);
+    }
+
+    // Ingestion as it was with identity ids: every row persisted on its own, each insert its own round trip
+    private void persistEachRow(final Map<LocalDate, VensysPerformanceData> days) {
+        sessionFactory.inTransaction(session -> days.forEach((day, performanceData) -> {
+            session.persist(IdentityPerformanceStatEntry.copyOf(
+                    EntityHelper.createPerformanceStatEntry(performanceData, GRAIG_FATHA)));
+            session.flush();
+        }));
+    }
+
+    private void deleteRows(final Class<?> entity) {
+        sessionFactory.inTransaction(session ->
+                session.createMutationQuery("delete from " + entity.getSimpleName()).executeUpdate());
+    }
+
+    private long countRows(final Class<?> entity) {
+        return sessionFactory.fromTransaction(session ->
+                session.createSelectionQuery("select count(*) from " + entity.getSimpleName(), Long.class)
+                        .getSingleResult());
+    }
+
+    private static double rowsPerSecond(final int rows, final long elapsedNanos) {
+        return rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    private static Map<LocalDate, VensysPerformanceData> days(final LocalDate from, final LocalDate to) {
+        Map<LocalDate, VensysPerformanceData> days = new TreeMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            days.put(day, VensysPerformanceData.builder()
+                    .date(day.atStartOfDay())
+                    .energyYield(day.getDayOfYear())
+                    .availability(99.0)
+                    .build());
+        }
+        return days;
+    }
+
+    /**
+     * {@link PerformanceStatEntry} as it was mapped before its ids came from a sequence. The test sources have no
+     * Lombok, so it's filled in field by field from an entry made the usual way.
+     */
+    @Entity(name = "IdentityPerformanceStatEntry")
+    @Table(name = "identity_performance_stat_entry",
+            uniqueConstraints = @UniqueConstraint(columnNames = {"site", "forDate"}))
+    public static class IdentityPerformanceStatEntry {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        @CreationTimestamp
+        private LocalDateTime timestamp;
+
+        @Column(nullable = false)
+        @Enumerated(EnumType.STRING)
+        private Site site;
+
+        @Column(nullable = false)
+        private LocalDateTime forDate;
+
+        @Column(nullable = false)
+        private double kWhGenerated;
+
+        @Column(nullable = false)
+        private double availability;
+
+        @Column(nullable = false)
+        private double averagePower;
+
+        @Column(nullable = false)
+        private double maxPower;
+
+        @Column(nullable = false)
+        private double averageWind;
+
+        @Column(nullable = false)
+        private double maxWind;
+
+        @Column(nullable = false)
+        private double powerProductionTime;
+
+        @Column(nullable = false)
+        private double lowWindTime;
+
+        @Column(nullable = false)
+        private double errorTime;
+
+        @Column(nullable = false)
+        private double serviceTime;
+
+        @Column(nullable = false)
+        private double iceTime;
+
+        @Column(nullable = false)
+        private double stormTime;
+
+        @Column(nullable = false)
+        private double shadowTime;
+
+        @Column(nullable = false)
+        private double twistTime;
+
+        @Column(nullable = false)
+        private double gridFailureTime;
+
+        @Column(nullable = false)
+        private double commFailureTime;
+
+        @Column(nullable = false)
+        private double visitTime;
+
+        @Column(nullable = false)
+        private double serverStopTime;
+
+        @Column(nullable = false)
+        private double fireTime;
+
+        @Column(nullable = false)
+        private double batMonitoringTime;
+
+        @Column(nullable = false)
+        private double nightShutdownTime;
+
+        static IdentityPerformanceStatEntry copyOf(final PerformanceStatEntry source) {
+            var entry = new IdentityPerformanceStatEntry();
+            for (Field field : IdentityPerformanceStatEntry.class.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic() && !"id".equals(field.getName())) {
+                    ReflectionTestUtils.setField(entry, field.getName(),
+                            ReflectionTestUtils.getField(source, field.getName()));
+                }
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.SelectionQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.entity.PerformanceStatEntry;
+import uk.co.emcreations.energycoop.entity.PerformanceStatEntryRepository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+@ExtendWith(MockitoExtension.class)
+class PerformanceStatServiceImplTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    @Mock
+    PerformanceStatEntryRepository performanceStatEntryRepository;
+
+    @Mock
+    EntityManagerFactory entityManagerFactory;
+
+    @InjectMocks
+    PerformanceStatServiceImpl performanceStatService;
+
+    @Nested
+    @DisplayName("recordDays tests")
+    class RecordDaysTests {
+        @Test
+        @DisplayName("Adds a row for each new day, stored against the start of the day, in one batch")
+        void recordDays_insertsNewDays() {
+            when(performanceStatEntryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            List<PerformanceStatEntry> entries = performanceStatService.recordDays(GRAIG_FATHA,
+                    Map.of(DAY, performanceData(DAY, 10.0), DAY.plusDays(1), performanceData(DAY.plusDays(1), 20.0)));
+
+            assertEquals(2, entries.size());
+            assertEquals(DAY.atStartOfDay(), entries.getFirst().getForDate());
+            assertEquals(20.0, entries.getLast().getKWhGenerated());
+            assertNull(entries.getFirst().getId());
+            verify(performanceStatEntryRepository).findAllBySiteAndForDateBetweenOrderByForDateAsc(GRAIG_FATHA,
+                    DAY.atStartOfDay(), DAY.plusDays(1).atTime(LocalTime.MAX));
+            verify(performanceStatEntryRepository).saveAll(entries);
+        }
+
+        @Test
+        @DisplayName("Locks the site before looking up the days already stored")
+        void recordDays_locksSiteBeforeLookup() {
+            performanceStatService.recordDays(GRAIG_FATHA, Map.of(DAY, performanceData(DAY, 10.0)));
+
+            InOrder inOrder = inOrder(performanceStatEntryRepository);
+            inOrder.verify(performanceStatEntryRepository).lockSite(GRAIG_FATHA.ordinal());
+            inOrder.verify(performanceStatEntryRepository).findAllBySiteAndForDateBetweenOrderByForDateAsc(any(), any(),
+                    any());
+            inOrder.verify(performanceStatEntryRepository).saveAll(anyList());
+        }
+
+        @Test
+        @DisplayName("Overwrites the row already stored for a day rather than adding a second one")
+        void recordDays_updatesStoredDay() {
+            var stored = new PerformanceStatEntry();
+            stored.setId(42L);
+            stored.setSite(GRAIG_FATHA);
+            stored.setForDate(DAY.atStartOfDay());
+            stored.setKWhGenerated(1.0);
+            when(performanceStatEntryRepository.findAllBySiteAndForDateBetweenOrderByForDateAsc(any(), any(), any()))
+                    .thenReturn(List.of(stored));
+            when(performanceStatEntryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            List<PerformanceStatEntry> entries = performanceStatService.recordDays(GRAIG_FATHA,
+                    Map.of(DAY, performanceData(DAY, 75.0)));
+
+            assertEquals(1, entries.size());
+            assertEquals(42L, entries.getFirst().getId());
+            assertEquals(75.0, entries.getFirst().getKWhGenerated());
+            assertNotNull(entries.getFirst().getTimestamp());
+        }
+
+        @Test
+        @DisplayName("Does nothing for no days")
+        void recordDays_noDays() {
+            assertEquals(List.of(), performanceStatService.recordDays(GRAIG_FATHA, Map.of()));
+            verifyNoInteractions(performanceStatEntryRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("importDays tests")
+    class ImportDaysTests {
+        @Mock
+        SessionFactory sessionFactory;
+
+        @Mock
+        StatelessSession session;
+
+        @Mock
+        Transaction transaction;
+
+        @Mock(answer = Answers.RETURNS_SELF)
+        SelectionQuery<Object[]> storedDays;
+
+        @Mock(answer = Answers.RETURNS_SELF)
+        NativeQuery<Integer> siteLock;
+
+        @BeforeEach
+        void setUp() {
+            performanceStatService.batchSize = 50;
+            when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+            when(sessionFactory.openStatelessSession()).thenReturn(session);
+            when(session.beginTransaction()).thenReturn(transaction);
+            when(session.createSelectionQuery(anyString(), eq(Object[].class))).thenReturn(storedDays);
+            when(session.createNativeQuery(PerformanceStatEntryRepository.LOCK_SITE, Integer.class))
+                    .thenReturn(siteLock);
+        }
+
+        @Test
+        @DisplayName("Inserts new days and updates stored ones in JDBC batches, committing once")
+        void importDays_insertsAndUpdatesInBatches() {
+            when(storedDays.getResultList()).thenReturn(List.<Object[]>of(new Object[]{42L, DAY.atStartOfDay()}));
+
+            int stored = performanceStatService.importDays(GRAIG_FATHA,
+                    Map.of(DAY, performanceData(DAY, 10.0), DAY.plusDays(1), performanceData(DAY.plusDays(1), 20.0)));
+
+            assertEquals(2, stored);
+            verify(session).setJdbcBatchSize(50);
+
+            ArgumentCaptor<PerformanceStatEntry> updated = ArgumentCaptor.forClass(PerformanceStatEntry.class);
+            verify(session).update(updated.capture());
+            assertEquals(42L, updated.getValue().getId());
+            assertEquals(10.0, updated.getValue().getKWhGenerated());
+
+            ArgumentCaptor<PerformanceStatEntry> inserted = ArgumentCaptor.forClass(PerformanceStatEntry.class);
+            verify(session).insert(inserted.capture());
+            assertNull(inserted.getValue().getId());
+            assertEquals(DAY.plusDays(1).atStartOfDay(), inserted.getValue().getForDate());
+            assertNotNull(inserted.getValue().getTimestamp());
+
+            InOrder inOrder = inOrder(siteLock, storedDays, transaction);
+            inOrder.verify(siteLock).setParameter("site", GRAIG_FATHA.ordinal());
+            inOrder.verify(siteLock).getSingleResult();
+            inOrder.verify(storedDays).getResultList();
+            inOrder.verify(transaction).commit();
+            verify(session).close();
+            verifyNoInteractions(performanceStatEntryRepository);
+        }
+
+        @Test
+        @DisplayName("Rolls back everything if any day can't be written")
+        void importDays_rollsBackOnFailure() {
+            when(storedDays.getResultList()).thenReturn(List.of());
+            when(session.insert(any())).thenThrow(new IllegalStateException("Connection lost"));
+            when(transaction.isActive()).thenReturn(true);
+
+            assertThrows(IllegalStateException.class, () -> performanceStatService.importDays(GRAIG_FATHA,
+                    Map.of(DAY, performanceData(DAY, 10.0))));
+
+            verify(transaction).rollback();
+            verify(transaction, never()).commit();
+            verify(session).close();
+        }
+    }
+
+    @Test
+    @DisplayName("Imports nothing for no days")
+    void importDays_noDays() {
+        assertEquals(0, performanceStatService.importDays(GRAIG_FATHA, Map.of()));
+        verifyNoInteractions(entityManagerFactory);
+    }
+
+    @Test
+    @DisplayName("Compacts duplicate rows left from before upserts, then moves the rest to the start of their day")
+    void compactDuplicates_deletesSupersededEntries() {
+        when(performanceStatEntryRepository.deleteSupersededEntries()).thenReturn(3);
+
+        assertEquals(3, performanceStatService.compactDuplicates());
+
+        InOrder inOrder = inOrder(performanceStatEntryRepository);
+        inOrder.verify(performanceStatEntryRepository).deleteSupersededEntries();
+        inOrder.verify(performanceStatEntryRepository).normaliseForDates();
+    }
+
+    private static VensysPerformanceData performanceData(final LocalDate day, final double energyYield) {
+        return VensysPerformanceData.builder().date(day.atTime(1, 0)).energyYield(energyYield).build();
+    }
+}
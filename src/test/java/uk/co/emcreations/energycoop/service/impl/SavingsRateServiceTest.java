@@ -8,11 +8,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import uk.co.emcreations.energycoop.entity.SavingsRate;
 import uk.co.emcreations.energycoop.entity.SavingsRateRepository;
+import uk.co.emcreations.energycoop.event.SavingsRateChangedEvent;
 import uk.co.emcreations.energycoop.model.Site;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -25,6 +28,9 @@ class SavingsRateServiceTest {
     @Mock
     SavingsRateRepository savingsRateRepository;
 
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     SavingsRateServiceImpl savingsRateService;
 
@@ -50,10 +56,8 @@ class SavingsRateServiceTest {
         @Test
         @DisplayName("Returns repository rate if present for Graig Fatha")
         void returnsRepositoryRateIfPresent() {
-            SavingsRate rate = mock(SavingsRate.class);
-            when(rate.getRatePerKWH()).thenReturn(9.99);
-            when(savingsRateRepository.findTopBySiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(Site.GRAIG_FATHA, TEST_DATE))
-                    .thenReturn(Optional.of(rate));
+            when(savingsRateRepository.findAllBySiteOrderByEffectiveDateAsc(Site.GRAIG_FATHA))
+                    .thenReturn(List.of(rate(TEST_DATE, 9.99)));
 
             double result = savingsRateService.getSavingsRateForDate(Site.GRAIG_FATHA, TEST_DATE);
             assertEquals(9.99, result);
@@ -62,8 +66,7 @@ class SavingsRateServiceTest {
         @Test
         @DisplayName("Returns default for Graig Fatha if not present")
         void returnsDefaultForGraigFathaIfNotPresent() {
-            when(savingsRateRepository.findTopBySiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(Site.GRAIG_FATHA, TEST_DATE))
-                    .thenReturn(Optional.empty());
+            when(savingsRateRepository.findAllBySiteOrderByEffectiveDateAsc(Site.GRAIG_FATHA)).thenReturn(List.of());
 
             double result = savingsRateService.getSavingsRateForDate(Site.GRAIG_FATHA, TEST_DATE);
             assertEquals(1.23, result);
@@ -72,8 +75,7 @@ class SavingsRateServiceTest {
         @Test
         @DisplayName("Returns default for Kirk Hill if not present")
         void returnsDefaultForKirkHillIfNotPresent() {
-            when(savingsRateRepository.findTopBySiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(Site.KIRK_HILL, TEST_DATE))
-                    .thenReturn(Optional.empty());
+            when(savingsRateRepository.findAllBySiteOrderByEffectiveDateAsc(Site.KIRK_HILL)).thenReturn(List.of());
 
             double result = savingsRateService.getSavingsRateForDate(Site.KIRK_HILL, TEST_DATE);
             assertEquals(2.34, result);
@@ -82,25 +84,44 @@ class SavingsRateServiceTest {
         @Test
         @DisplayName("Returns default for Derril Water if not present")
         void returnsDefaultForDerrilWaterIfNotPresent() {
-            when(savingsRateRepository.findTopBySiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(Site.DERRIL_WATER, TEST_DATE))
-                    .thenReturn(Optional.empty());
+            when(savingsRateRepository.findAllBySiteOrderByEffectiveDateAsc(Site.DERRIL_WATER)).thenReturn(List.of());
 
             double result = savingsRateService.getSavingsRateForDate(Site.DERRIL_WATER, TEST_DATE);
             assertEquals(3.45, result);
         }
 
+        @Test
+        @DisplayName("Returns default for dates before the first rate")
+        void returnsDefaultBeforeFirstRate() {
+            when(savingsRateRepository.findAllBySiteOrderByEffectiveDateAsc(Site.GRAIG_FATHA))
+                    .thenReturn(List.of(rate(TEST_DATE, 9.99)));
+
+            double result = savingsRateService.getSavingsRateForDate(Site.GRAIG_FATHA, TEST_DATE.minusDays(1));
+            assertEquals(1.23, result);
+        }
+
         @Test
         @DisplayName("Uses most recent rate before given date")
         void usesMostRecentRateBeforeGivenDate() {
             var testDate = LocalDate.of(2024, 1, 15);
-            SavingsRate rate = mock(SavingsRate.class);
-            when(rate.getRatePerKWH()).thenReturn(8.88);
-            when(savingsRateRepository.findTopBySiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(Site.GRAIG_FATHA, testDate))
-                    .thenReturn(Optional.of(rate));
+            when(savingsRateRepository.findAllBySiteOrderByEffectiveDateAsc(Site.GRAIG_FATHA))
+                    .thenReturn(List.of(rate(TEST_DATE, 8.88), rate(LocalDate.of(2024, 2, 1), 7.77)));
 
             double result = savingsRateService.getSavingsRateForDate(Site.GRAIG_FATHA, testDate);
             assertEquals(8.88, result);
-            verify(savingsRateRepository).findTopBySiteAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(Site.GRAIG_FATHA, testDate);
+        }
+
+        @Test
+        @DisplayName("Loads each site's rates only once")
+        void loadsRatesOnce() {
+            when(savingsRateRepository.findAllBySiteOrderByEffectiveDateAsc(Site.GRAIG_FATHA))
+                    .thenReturn(List.of(rate(TEST_DATE, 9.99)));
+
+            savingsRateService.getSavingsRateForDate(Site.GRAIG_FATHA, TEST_DATE);
+            savingsRateService.getSavingsRateForDate(Site.GRAIG_FATHA, TEST_DATE.plusDays(1));
+            savingsRateService.getSavingsRateTimeline(Site.GRAIG_FATHA, TEST_DATE.plusDays(2));
+
+            verify(savingsRateRepository).findAllBySiteOrderByEffectiveDateAsc(Site.GRAIG_FATHA);
         }
     }
 
@@ -192,8 +213,30 @@ class SavingsRateServiceTest {
             SavingsRate result = savingsRateService.setSavingsRateForDate(Site.GRAIG_FATHA, TEST_DATE, TEST_RATE, TEST_USER_ID);
 
             verify(savingsRateRepository).save(any(SavingsRate.class));
+            verify(savingsRateRepository).findAllBySiteOrderByEffectiveDateAsc(Site.GRAIG_FATHA);
+            verify(eventPublisher).publishEvent(new SavingsRateChangedEvent(Site.GRAIG_FATHA, TEST_DATE));
             assertEquals(TEST_RATE, result.getRatePerKWH());
             assertEquals(TEST_USER_ID, result.getLastUpdatedByUser());
         }
+
+        @Test
+        @DisplayName("Swaps in the new rate for subsequent lookups")
+        void swapsInNewRate() {
+            when(savingsRateRepository.findAllBySiteOrderByEffectiveDateAsc(Site.GRAIG_FATHA))
+                    .thenReturn(List.of())
+                    .thenReturn(List.of(rate(TEST_DATE, TEST_RATE)));
+            when(savingsRateRepository.findBySiteAndEffectiveDate(Site.GRAIG_FATHA, TEST_DATE))
+                    .thenReturn(Optional.empty());
+            when(savingsRateRepository.save(any(SavingsRate.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+            assertEquals(1.23, savingsRateService.getSavingsRateForDate(Site.GRAIG_FATHA, TEST_DATE));
+            savingsRateService.setSavingsRateForDate(Site.GRAIG_FATHA, TEST_DATE, TEST_RATE, TEST_USER_ID);
+
+            assertEquals(TEST_RATE, savingsRateService.getSavingsRateForDate(Site.GRAIG_FATHA, TEST_DATE));
+        }
+    }
+
+    private static SavingsRate rate(final LocalDate effectiveDate, final double ratePerKWH) {
+        return SavingsRate.builder().site(Site.GRAIG_FATHA).effectiveDate(effectiveDate).ratePerKWH(ratePerKWH).build();
     }
 }
@@ -0,0 +1,109 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import uk.co.emcreations.energycoop.dto.EnergySaving;
+import uk.co.emcreations.energycoop.service.GraigFathaMemberService;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class SavingsStreamServiceImplTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 1, 1);
+
+    @Mock
+    GraigFathaMemberService graigFathaMemberService;
+
+    private final BlockingQueue<Object> sent = new LinkedBlockingQueue<>();
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private SavingsStreamServiceImpl streamService;
+
+    @BeforeEach
+    void setUp() {
+        streamService = new SavingsStreamServiceImpl(graigFathaMemberService, 1, Duration.ofMinutes(5)) {
+            @Override
+            ResponseBodyEmitter createEmitter(final Duration timeout) {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Writes each day as a line of JSON, then completes the stream")
+    void stream_writesEachDay() throws InterruptedException {
+        var saving = new EnergySaving(1.5, "GBP", 1.0, DAY.atStartOfDay(), DAY.atTime(23, 59));
+        doAnswer(invocation -> {
+            invocation.<Consumer<EnergySaving>>getArgument(4).accept(saving);
+            return null;
+        }).when(graigFathaMemberService).streamSavings(eq(DAY), eq(DAY), eq(10.0), eq("user-1"), any());
+
+        streamService.stream(DAY, DAY, 10.0, "user-1");
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(saving, "\n"), List.copyOf(sent));
+    }
+
+    @Test
+    @DisplayName("Rejects a stream once the maximum are open, and frees the slot when one finishes")
+    void stream_rejectsOverLimit() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(graigFathaMemberService).streamSavings(any(), any(), any(Double.class), any(), any());
+
+        streamService.stream(DAY, DAY, 10.0, "user-1");
+
+        assertThrows(RejectedExecutionException.class, () -> streamService.stream(DAY, DAY, 10.0, "user-2"));
+        release.countDown();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        waitForStreamsToClose();
+        streamService.stream(DAY, DAY, 10.0, "user-3");
+    }
+
+    private void waitForStreamsToClose() throws InterruptedException {
+        for (int i = 0; 0 < streamService.getStreamCount() && 500 > i; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, streamService.getStreamCount());
+    }
+
+    private class RecordingEmitter extends ResponseBodyEmitter {
+        @Override
+        public void send(final Object object, final MediaType mediaType) {
+            sent.add(object);
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+}
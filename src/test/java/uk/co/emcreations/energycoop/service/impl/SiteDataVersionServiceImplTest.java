@@ -0,0 +1,62 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.co.emcreations.energycoop.event.GenerationRecordedEvent;
+import uk.co.emcreations.energycoop.event.MemberOwnershipChangedEvent;
+import uk.co.emcreations.energycoop.event.SavingsLedgerUpdatedEvent;
+import uk.co.emcreations.energycoop.event.SavingsRateChangedEvent;
+import uk.co.emcreations.energycoop.model.SiteDataVersion;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+class SiteDataVersionServiceImplTest {
+    private final SiteDataVersionServiceImpl siteDataVersionService = new SiteDataVersionServiceImpl();
+
+    @Test
+    @DisplayName("Returns the same version until the site's data changes")
+    void getVersion_stableWithoutChanges() {
+        assertEquals(siteDataVersionService.getVersion(GRAIG_FATHA), siteDataVersionService.getVersion(GRAIG_FATHA));
+    }
+
+    @Test
+    @DisplayName("Moves the version on for each kind of change")
+    void getVersion_movesOnForEachChange() {
+        SiteDataVersion initial = siteDataVersionService.getVersion(GRAIG_FATHA);
+
+        siteDataVersionService.onGenerationRecorded(new GenerationRecordedEvent(GRAIG_FATHA, LocalDateTime.now(), 1.0));
+        SiteDataVersion afterGeneration = siteDataVersionService.getVersion(GRAIG_FATHA);
+        siteDataVersionService.onSavingsLedgerUpdated(new SavingsLedgerUpdatedEvent(GRAIG_FATHA, LocalDate.now()));
+        SiteDataVersion afterLedger = siteDataVersionService.getVersion(GRAIG_FATHA);
+        siteDataVersionService.onSavingsRateChanged(new SavingsRateChangedEvent(GRAIG_FATHA, LocalDate.now()));
+        SiteDataVersion afterRate = siteDataVersionService.getVersion(GRAIG_FATHA);
+        siteDataVersionService.onMemberOwnershipChanged(new MemberOwnershipChangedEvent("user-1", GRAIG_FATHA));
+        SiteDataVersion afterOwnership = siteDataVersionService.getVersion(GRAIG_FATHA);
+
+        assertNotEquals(initial.tag(), afterGeneration.tag());
+        assertNotEquals(afterGeneration.tag(), afterLedger.tag());
+        assertNotEquals(afterLedger.tag(), afterRate.tag());
+        assertNotEquals(afterRate.tag(), afterOwnership.tag());
+    }
+
+    @Test
+    @DisplayName("Never moves the last modified time backwards and keeps it to whole seconds")
+    void getVersion_lastModifiedMonotonic() {
+        SiteDataVersion initial = siteDataVersionService.getVersion(GRAIG_FATHA);
+
+        siteDataVersionService.onGenerationRecorded(new GenerationRecordedEvent(GRAIG_FATHA, LocalDateTime.now(), 1.0));
+        SiteDataVersion first = siteDataVersionService.getVersion(GRAIG_FATHA);
+        siteDataVersionService.onGenerationRecorded(new GenerationRecordedEvent(GRAIG_FATHA, LocalDateTime.now(), 2.0));
+        SiteDataVersion second = siteDataVersionService.getVersion(GRAIG_FATHA);
+
+        assertFalse(first.lastModified().isBefore(initial.lastModified()));
+        assertFalse(second.lastModified().isBefore(first.lastModified()));
+        assertEquals(0, second.lastModified().getNano());
+    }
+}
@@ -0,0 +1,249 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import uk.co.emcreations.energycoop.dto.SiteSavingsTotal;
+import uk.co.emcreations.energycoop.entity.SavingsRate;
+import uk.co.emcreations.energycoop.entity.SiteSavingsLedgerEntry;
+import uk.co.emcreations.energycoop.entity.SiteSavingsLedgerEntryRepository;
+import uk.co.emcreations.energycoop.event.SavingsLedgerUpdatedEvent;
+import uk.co.emcreations.energycoop.event.SavingsRateChangedEvent;
+import uk.co.emcreations.energycoop.model.EffectiveDateTimeline;
+import uk.co.emcreations.energycoop.service.SavingsRateService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+@ExtendWith(MockitoExtension.class)
+class SiteSavingsLedgerServiceImplTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    SiteSavingsLedgerEntryRepository ledgerRepository;
+
+    @Mock
+    SavingsRateService savingsRateService;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    SiteSavingsLedgerServiceImpl ledgerService;
+
+    @Nested
+    @DisplayName("recordDays tests")
+    class RecordDaysTests {
+        @Test
+        @DisplayName("Prices each day with the rate effective on that day and saves completed days")
+        void recordDays_pricesAndSavesCompletedDays() {
+            var rateChange = SavingsRate.builder().effectiveDate(DAY.plusDays(1)).ratePerKWH(2.0).build();
+            when(savingsRateService.getSavingsRateTimeline(GRAIG_FATHA, DAY.plusDays(1))).thenReturn(
+                    EffectiveDateTimeline.of(List.of(rateChange), SavingsRate::getEffectiveDate,
+                            SavingsRate::getRatePerKWH, 0.5));
+
+            List<SiteSavingsLedgerEntry> entries = ledgerService.recordDays(GRAIG_FATHA,
+                    Map.of(DAY, 100.0, DAY.plusDays(1), 10.0));
+
+            assertEquals(2, entries.size());
+            assertEquals(DAY, entries.getFirst().getForDate());
+            assertEquals(50.0, entries.getFirst().getSavings());
+            assertEquals(2.0, entries.getLast().getSavingsRate());
+            assertEquals(20.0, entries.getLast().getSavings());
+            verify(ledgerRepository).saveAll(entries);
+            verify(eventPublisher).publishEvent(new SavingsLedgerUpdatedEvent(GRAIG_FATHA, DAY));
+        }
+
+        @Test
+        @DisplayName("Updates an existing ledger entry rather than adding a second one")
+        void recordDays_updatesExistingEntry() {
+            var existing = SiteSavingsLedgerEntry.builder().site(GRAIG_FATHA).forDate(DAY).kWhGenerated(1.0).build();
+            when(ledgerRepository.findAllBySiteAndForDateBetweenOrderByForDateAsc(GRAIG_FATHA, DAY, DAY))
+                    .thenReturn(List.of(existing));
+            when(savingsRateService.getSavingsRateTimeline(GRAIG_FATHA, DAY)).thenReturn(EffectiveDateTimeline.constant(1.0));
+
+            List<SiteSavingsLedgerEntry> entries = ledgerService.recordDays(GRAIG_FATHA, Map.of(DAY, 75.0));
+
+            assertEquals(List.of(existing), entries);
+            assertEquals(75.0, existing.getKWhGenerated());
+            assertEquals(75.0, existing.getSavings());
+        }
+
+        @Test
+        @DisplayName("Locks the site's ledger before looking up stored days, so concurrent writers of a day don't collide")
+        void recordDays_locksLedgerBeforeLookup() {
+            when(savingsRateService.getSavingsRateTimeline(GRAIG_FATHA, DAY)).thenReturn(EffectiveDateTimeline.constant(1.0));
+
+            ledgerService.recordDays(GRAIG_FATHA, Map.of(DAY, 75.0));
+
+            InOrder inOrder = inOrder(ledgerRepository);
+            inOrder.verify(ledgerRepository).lockSite(GRAIG_FATHA.ordinal());
+            inOrder.verify(ledgerRepository).findAllBySiteAndForDateBetweenOrderByForDateAsc(GRAIG_FATHA, DAY, DAY);
+            inOrder.verify(ledgerRepository).saveAll(anyList());
+        }
+
+        @Test
+        @DisplayName("Rebuilds running totals from the first recorded day onwards")
+        void recordDays_updatesCumulativeTotals() {
+            var previous = SiteSavingsLedgerEntry.builder().site(GRAIG_FATHA).forDate(DAY.minusDays(1))
+                    .cumulativeKWhGenerated(100.0).cumulativeSavings(50.0).build();
+            var later = SiteSavingsLedgerEntry.builder().site(GRAIG_FATHA).forDate(DAY.plusDays(1))
+                    .kWhGenerated(5.0).savings(5.0).build();
+            when(savingsRateService.getSavingsRateTimeline(GRAIG_FATHA, DAY)).thenReturn(EffectiveDateTimeline.constant(1.0));
+            when(ledgerRepository.findTopBySiteAndForDateLessThanEqualOrderByForDateDesc(GRAIG_FATHA, DAY.minusDays(1)))
+                    .thenReturn(Optional.of(previous));
+            when(ledgerRepository.findAllBySiteAndForDateGreaterThanEqualOrderByForDateAsc(GRAIG_FATHA, DAY))
+                    .thenAnswer(invocation -> List.of(
+                            SiteSavingsLedgerEntry.builder().site(GRAIG_FATHA).forDate(DAY).kWhGenerated(10.0)
+                                    .savings(10.0).build(),
+                            later));
+
+            ledgerService.recordDays(GRAIG_FATHA, Map.of(DAY, 10.0));
+
+            assertEquals(115.0, later.getCumulativeKWhGenerated());
+            assertEquals(65.0, later.getCumulativeSavings());
+        }
+
+        @Test
+        @DisplayName("Leaves the running totals unchanged when days already in the ledger are recorded again")
+        void recordDays_recordingAgainDoesNotDoubleCount() {
+            var previous = SiteSavingsLedgerEntry.builder().site(GRAIG_FATHA).forDate(DAY.minusDays(1))
+                    .cumulativeKWhGenerated(100.0).cumulativeSavings(50.0).build();
+            var existing = SiteSavingsLedgerEntry.builder().site(GRAIG_FATHA).forDate(DAY).kWhGenerated(10.0)
+                    .savings(10.0).cumulativeKWhGenerated(110.0).cumulativeSavings(60.0).build();
+            when(savingsRateService.getSavingsRateTimeline(GRAIG_FATHA, DAY)).thenReturn(EffectiveDateTimeline.constant(1.0));
+            when(ledgerRepository.findAllBySiteAndForDateBetweenOrderByForDateAsc(GRAIG_FATHA, DAY, DAY))
+                    .thenReturn(List.of(existing));
+            when(ledgerRepository.findTopBySiteAndForDateLessThanEqualOrderByForDateDesc(GRAIG_FATHA, DAY.minusDays(1)))
+                    .thenReturn(Optional.of(previous));
+            when(ledgerRepository.findAllBySiteAndForDateGreaterThanEqualOrderByForDateAsc(GRAIG_FATHA, DAY))
+                    .thenReturn(List.of(existing));
+
+            ledgerService.recordDays(GRAIG_FATHA, Map.of(DAY, 10.0));
+            ledgerService.recordDays(GRAIG_FATHA, Map.of(DAY, 10.0));
+
+            assertEquals(10.0, existing.getKWhGenerated());
+            assertEquals(110.0, existing.getCumulativeKWhGenerated());
+            assertEquals(60.0, existing.getCumulativeSavings());
+        }
+
+        @Test
+        @DisplayName("Does not persist today's still-changing generation")
+        void recordDays_doesNotSaveToday() {
+            var today = LocalDate.now();
+            when(savingsRateService.getSavingsRateTimeline(GRAIG_FATHA, today)).thenReturn(EffectiveDateTimeline.constant(1.0));
+
+            List<SiteSavingsLedgerEntry> entries = ledgerService.recordDays(GRAIG_FATHA, Map.of(today, 10.0));
+
+            assertEquals(1, entries.size());
+            verify(ledgerRepository).saveAll(List.of());
+            verify(ledgerRepository, never()).lockSite(anyInt());
+            verifyNoInteractions(eventPublisher);
+        }
+
+        @Test
+        @DisplayName("Does nothing for an empty map")
+        void recordDays_emptyMap() {
+            assertEquals(List.of(), ledgerService.recordDays(GRAIG_FATHA, Map.of()));
+            verifyNoInteractions(ledgerRepository, savingsRateService);
+        }
+    }
+
+    @Nested
+    @DisplayName("getTotal tests")
+    class GetTotalTests {
+        @Test
+        @DisplayName("Subtracts the running total before the range from the running total at its end")
+        void getTotal_usesRunningTotals() {
+            var start = SiteSavingsLedgerEntry.builder().cumulativeKWhGenerated(100.0).cumulativeSavings(40.0).build();
+            var end = SiteSavingsLedgerEntry.builder().cumulativeKWhGenerated(350.0).cumulativeSavings(140.0).build();
+            when(ledgerRepository.findTopBySiteAndForDateLessThanEqualOrderByForDateDesc(GRAIG_FATHA, DAY.minusDays(1)))
+                    .thenReturn(Optional.of(start));
+            when(ledgerRepository.findTopBySiteAndForDateLessThanEqualOrderByForDateDesc(GRAIG_FATHA, DAY.plusDays(9)))
+                    .thenReturn(Optional.of(end));
+
+            SiteSavingsTotal total = ledgerService.getTotal(GRAIG_FATHA, DAY, DAY.plusDays(9));
+
+            assertEquals(new SiteSavingsTotal(250.0, 100.0), total);
+        }
+
+        @Test
+        @DisplayName("Treats a range before the first ledger entry as zero")
+        void getTotal_noEntries() {
+            when(ledgerRepository.findTopBySiteAndForDateLessThanEqualOrderByForDateDesc(eq(GRAIG_FATHA), any()))
+                    .thenReturn(Optional.empty());
+
+            assertEquals(SiteSavingsTotal.ZERO, ledgerService.getTotal(GRAIG_FATHA, DAY, DAY));
+        }
+
+        @Test
+        @DisplayName("Returns zero without querying for an empty range")
+        void getTotal_emptyRange() {
+            assertEquals(SiteSavingsTotal.ZERO, ledgerService.getTotal(GRAIG_FATHA, DAY, DAY.minusDays(1)));
+            verifyNoInteractions(ledgerRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("onSavingsRateChanged tests")
+    class OnSavingsRateChangedTests {
+        @Test
+        @DisplayName("Re-prices ledger entries from the effective date onwards")
+        void onSavingsRateChanged_repricesEntries() {
+            var entry = SiteSavingsLedgerEntry.builder().site(GRAIG_FATHA).forDate(DAY).kWhGenerated(10.0)
+                    .savingsRate(1.0).savings(10.0).build();
+            when(ledgerRepository.findAllBySiteAndForDateGreaterThanEqualOrderByForDateAsc(GRAIG_FATHA, DAY))
+                    .thenReturn(List.of(entry));
+            when(savingsRateService.getSavingsRateTimeline(GRAIG_FATHA, DAY)).thenReturn(EffectiveDateTimeline.constant(3.0));
+
+            ledgerService.onSavingsRateChanged(new SavingsRateChangedEvent(GRAIG_FATHA, DAY));
+
+            assertEquals(3.0, entry.getSavingsRate());
+            assertEquals(30.0, entry.getSavings());
+            assertEquals(30.0, entry.getCumulativeSavings());
+            verify(ledgerRepository).saveAll(List.of(entry));
+        }
+
+        @Test
+        @DisplayName("Locks the site's ledger and drops rows read before the lock, before re-reading the rows to re-price")
+        void onSavingsRateChanged_locksLedgerFirst() {
+            ledgerService.onSavingsRateChanged(new SavingsRateChangedEvent(GRAIG_FATHA, DAY));
+
+            InOrder inOrder = inOrder(entityManager, ledgerRepository);
+            inOrder.verify(entityManager).flush();
+            inOrder.verify(ledgerRepository).lockSite(GRAIG_FATHA.ordinal());
+            inOrder.verify(entityManager).clear();
+            inOrder.verify(ledgerRepository).findAllBySiteAndForDateGreaterThanEqualOrderByForDateAsc(GRAIG_FATHA, DAY);
+        }
+
+        @Test
+        @DisplayName("Does nothing when no ledger entries are affected")
+        void onSavingsRateChanged_noEntries() {
+            when(ledgerRepository.findAllBySiteAndForDateGreaterThanEqualOrderByForDateAsc(eq(GRAIG_FATHA), any()))
+                    .thenReturn(List.of());
+
+            ledgerService.onSavingsRateChanged(new SavingsRateChangedEvent(GRAIG_FATHA, DAY));
+
+            verify(ledgerRepository, never()).saveAll(any());
+            verifyNoInteractions(savingsRateService);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.emcreations.energycoop.entity.MemberStatement;
+import uk.co.emcreations.energycoop.model.JobProgress;
+import uk.co.emcreations.energycoop.service.AnnualStatementService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+import static uk.co.emcreations.energycoop.model.Site.GRAIG_FATHA;
+
+@ExtendWith(MockitoExtension.class)
+class TaxDocumentExportServiceImplTest {
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+    @Mock
+    AnnualStatementService annualStatementService;
+
+    @InjectMocks
+    TaxDocumentExportServiceImpl exportService;
+
+    @TempDir
+    Path exportDirectory;
+
+    @BeforeEach
+    void setUp() {
+        exportService.exportDirectory = exportDirectory;
+        exportService.workers = 2;
+    }
+
+    @Test
+    @DisplayName("Writes one PDF per statement into the archive")
+    void writeArchive_writesEveryDocument() throws IOException {
+        List<MemberStatement> statements = IntStream.range(0, 7)
+                .mapToObj(i -> statement(i, "auth0|member-" + i))
+                .toList();
+        Path archive = exportDirectory.resolve("archive.zip");
+        var progress = new JobProgress("test");
+
+        exportService.writeArchive(statements, archive, progress);
+
+        List<String> entries = new ArrayList<>();
+        try (InputStream is = Files.newInputStream(archive); var zip = new ZipInputStream(is)) {
+            ZipEntry entry;
+            while (null != (entry = zip.getNextEntry())) {
+                entries.add(entry.getName());
+                assertTrue(new String(zip.readNBytes(5)).startsWith("%PDF"));
+            }
+        }
+        assertEquals(7, entries.size());
+        assertTrue(entries.contains("TaxDocument-auth0_member-3-3.pdf"));
+        assertEquals(7, progress.getStatus().processed());
+        assertFalse(Files.exists(exportDirectory.resolve("archive.zip.part")));
+    }
+
+    @Test
+    @DisplayName("Gives members whose ids sanitise to the same name an entry each")
+    void writeArchive_keepsEntryNamesUnique() throws IOException {
+        Path archive = exportDirectory.resolve("archive.zip");
+
+        exportService.writeArchive(List.of(statement(1, "auth0|member"), statement(2, "auth0_member")), archive,
+                new JobProgress("test"));
+
+        Set<String> entries = new HashSet<>();
+        try (InputStream is = Files.newInputStream(archive); var zip = new ZipInputStream(is)) {
+            ZipEntry entry;
+            while (null != (entry = zip.getNextEntry())) {
+                entries.add(entry.getName());
+            }
+        }
+        assertEquals(Set.of("TaxDocument-auth0_member-1.pdf", "TaxDocument-auth0_member-2.pdf"), entries);
+    }
+
+    @Test
+    @DisplayName("Finds a completed archive for the period")
+    void getExportArchive_findsArchive() throws IOException {
+        assertEquals(Optional.empty(), exportService.getExportArchive(FROM, TO));
+
+        Path archive = Files.createFile(exportDirectory.resolve("TaxDocuments-2024-01-01-2024-12-31.zip"));
+
+        assertEquals(Optional.of(archive), exportService.getExportArchive(FROM, TO));
+    }
+
+    @Test
+    @DisplayName("Rejects a period with no statements")
+    void startExport_rejectsPeriodWithoutStatements() {
+        when(annualStatementService.getStatements(FROM, TO)).thenReturn(List.of());
+
+        assertThrows(IllegalArgumentException.class, () -> exportService.startExport(FROM, TO));
+        assertEquals(Optional.empty(), exportService.getExportStatus());
+    }
+
+    private static MemberStatement statement(final long id, final String userId) {
+        return MemberStatement.builder()
+                .id(id)
+                .site(GRAIG_FATHA)
+                .userId(userId)
+                .periodFrom(FROM)
+                .periodTo(TO)
+                .savings(123.45)
+                .currentShares(1000.0)
+                .sharesWithdrawn(50.0)
+                .capitalWithdrawn(0.08)
+                .build();
+    }
+}
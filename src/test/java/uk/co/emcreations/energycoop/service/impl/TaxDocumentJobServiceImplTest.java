@@ -0,0 +1,119 @@
+package uk.co.emcreations.energycoop.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.emcreations.energycoop.dto.TaxDocumentJobStatus;
+import uk.co.emcreations.energycoop.model.JobState;
+import uk.co.emcreations.energycoop.service.GraigFathaMemberService;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TaxDocumentJobServiceImplTest {
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 12, 31);
+    private static final byte[] DOCUMENT = "pdf".getBytes();
+
+    @Mock
+    GraigFathaMemberService graigFathaMemberService;
+
+    TaxDocumentJobServiceImpl jobService;
+
+    @AfterEach
+    void tearDown() {
+        jobService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Renders the document in the background for its owner to collect")
+    void submit_rendersDocument() throws Exception {
+        jobService = new TaxDocumentJobServiceImpl(graigFathaMemberService, 1, 1, Duration.ofHours(1));
+        when(graigFathaMemberService.generateTaxDocument(FROM, TO, 10.0, "user-1")).thenReturn(DOCUMENT);
+
+        TaxDocumentJobStatus submitted = jobService.submit(FROM, TO, 10.0, "user-1");
+        TaxDocumentJobStatus finished = awaitFinished(submitted.id(), "user-1");
+
+        assertEquals(JobState.COMPLETED, finished.state());
+        assertNotNull(finished.expiresAt());
+        assertArrayEquals(DOCUMENT, jobService.getDocument(submitted.id(), "user-1").orElseThrow());
+        assertEquals(Optional.empty(), jobService.getStatus(submitted.id(), "user-2"));
+        assertEquals(Optional.empty(), jobService.getDocument(submitted.id(), "user-2"));
+    }
+
+    @Test
+    @DisplayName("Records a failed render against the job")
+    void submit_recordsFailure() throws Exception {
+        jobService = new TaxDocumentJobServiceImpl(graigFathaMemberService, 1, 1, Duration.ofHours(1));
+        when(graigFathaMemberService.generateTaxDocument(any(), any(), anyDouble(), any()))
+                .thenThrow(new IllegalStateException("boom"));
+
+        TaxDocumentJobStatus finished = awaitFinished(jobService.submit(FROM, TO, 10.0, "user-1").id(), "user-1");
+
+        assertEquals(JobState.FAILED, finished.state());
+        assertEquals("boom", finished.error());
+    }
+
+    @Test
+    @DisplayName("Rejects submissions once the queue is full")
+    void submit_rejectsWhenQueueFull() throws Exception {
+        jobService = new TaxDocumentJobServiceImpl(graigFathaMemberService, 1, 1, Duration.ofHours(1));
+        var release = new CountDownLatch(1);
+        when(graigFathaMemberService.generateTaxDocument(any(), any(), anyDouble(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return DOCUMENT;
+        });
+
+        String running = jobService.submit(FROM, TO, 10.0, "user-1").id();
+        awaitState(running, JobState.RUNNING);
+        jobService.submit(FROM, TO, 10.0, "user-2"); // fills the queue
+
+        assertThrows(RejectedExecutionException.class, () -> jobService.submit(FROM, TO, 10.0, "user-3"));
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Discards finished jobs once their retention has passed")
+    void getStatus_discardsExpiredJobs() throws Exception {
+        jobService = new TaxDocumentJobServiceImpl(graigFathaMemberService, 1, 1, Duration.ZERO);
+        when(graigFathaMemberService.generateTaxDocument(any(), any(), anyDouble(), any())).thenReturn(DOCUMENT);
+
+        String jobId = jobService.submit(FROM, TO, 10.0, "user-1").id();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (jobService.getStatus(jobId, "user-1").isPresent() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(Optional.empty(), jobService.getStatus(jobId, "user-1"));
+    }
+
+    private TaxDocumentJobStatus awaitFinished(final String jobId, final String userId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        TaxDocumentJobStatus status = jobService.getStatus(jobId, userId).orElseThrow();
+        while ((JobState.QUEUED == status.state() || JobState.RUNNING == status.state())
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = jobService.getStatus(jobId, userId).orElseThrow();
+        }
+        return status;
+    }
+
+    private void awaitState(final String jobId, final JobState state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (state != jobService.getStatus(jobId, "user-1").orElseThrow().state() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package uk.co.emcreations.energycoop.sourceclient;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    private final MutableClock clock = new MutableClock();
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 3, Duration.ofMinutes(1), clock);
+
+    @Test
+    @DisplayName("Opens after the threshold of consecutive failures and refuses calls")
+    void onFailure_opensAtThreshold() {
+        fail(2);
+        breaker.onSuccess();
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("Lets a single trial call through once the open duration has passed, closing if it succeeds")
+    void tryAcquirePermission_halfOpensAfterOpenDuration() {
+        fail(3);
+        clock.advance(Duration.ofMinutes(1));
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("Re-opens when the trial call fails")
+    void onFailure_reopensFromHalfOpen() {
+        fail(3);
+        clock.advance(Duration.ofMinutes(1));
+        assertTrue(breaker.tryAcquirePermission());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        clock.advance(Duration.ofSeconds(59));
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("Rejects a threshold below one")
+    void constructor_rejectsInvalidThreshold() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker("test", 0, Duration.ofMinutes(1), clock));
+    }
+
+    private void fail(final int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.onFailure();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(final Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package uk.co.emcreations.energycoop.sourceclient;
+
+import feign.FeignException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.co.emcreations.energycoop.cache.VensysLastKnownGoodCache;
+import uk.co.emcreations.energycoop.dto.VensysMeanData;
+import uk.co.emcreations.energycoop.dto.VensysMeanDataResponse;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceData;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceDataResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResilientVensysClientTest {
+    private static final Duration TIMEOUT = Duration.ofMillis(100);
+    private static final VensysMeanDataResponse MEAN_RESPONSE = VensysMeanDataResponse.builder()
+            .data(VensysMeanData.builder().value(42.0).build())
+            .build();
+    private static final VensysPerformanceDataResponse PERFORMANCE_RESPONSE = VensysPerformanceDataResponse.builder()
+            .data(new VensysPerformanceData[]{VensysPerformanceData.builder().energyYield(100.0).build()})
+            .build();
+
+    private final StubVensysGraigFathaClient stub = new StubVensysGraigFathaClient()
+            .respondWith(MEAN_RESPONSE)
+            .respondWith(PERFORMANCE_RESPONSE);
+    private ResilientVensysClient client = create(2, 5, Duration.ofMinutes(1));
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+    }
+
+    @Nested
+    @DisplayName("Timeouts and fallback")
+    class FallbackTests {
+        @Test
+        @DisplayName("Passes a good response straight through")
+        void getMeanEnergyYield_returnsResponse() {
+            assertSame(MEAN_RESPONSE, client.getMeanEnergyYield());
+            assertFalse(client.getMeanEnergyYield().data().stale());
+        }
+
+        @Test
+        @DisplayName("Stops waiting at the endpoint's timeout, failing when there's nothing to fall back on")
+        void getMeanEnergyYield_timesOut() {
+            stub.delayBy(Duration.ofSeconds(2));
+
+            long start = System.nanoTime();
+            assertThrows(VensysUnavailableException.class, client::getMeanEnergyYield);
+
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) < 0);
+        }
+
+        @Test
+        @DisplayName("Serves the last good response for the same period, marked as stale, when the call fails")
+        void getPerformance_servesStaleResponse() {
+            client.getPerformance(1, 2);
+            stub.failWith(new IllegalStateException("Connection reset"));
+
+            VensysPerformanceDataResponse response = client.getPerformance(1, 2);
+
+            assertTrue(response.data()[0].stale());
+            assertEquals(100.0, response.data()[0].energyYield());
+            assertThrows(VensysUnavailableException.class, () -> client.getPerformance(3, 4));
+        }
+
+        @Test
+        @DisplayName("Serves the last good response when the call times out")
+        void getCurrentPerformance_servesStaleResponseOnTimeout() {
+            client.getCurrentPerformance();
+            stub.delayBy(Duration.ofSeconds(2));
+
+            assertTrue(client.getCurrentPerformance().data()[0].stale());
+        }
+
+        @Test
+        @DisplayName("Passes client errors back without falling back or counting them as failures")
+        void getMeanEnergyYield_passesClientErrorsThrough() {
+            client = create(2, 1, Duration.ofMinutes(1));
+            client.getMeanEnergyYield();
+            var notFound = new FeignException(404, "Not Found") {
+            };
+            stub.failWith(notFound);
+
+            assertSame(notFound, assertThrows(FeignException.class, client::getMeanEnergyYield));
+            assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreakerState());
+        }
+    }
+
+    @Nested
+    @DisplayName("Circuit breaker")
+    class CircuitBreakerTests {
+        @Test
+        @DisplayName("Stops calling the API once it has failed repeatedly")
+        void opensAfterRepeatedFailures() {
+            stub.failWith(new FeignException(503, "Service Unavailable") {
+            });
+
+            for (int i = 0; i < 5; i++) {
+                assertThrows(VensysUnavailableException.class, client::getMeanEnergyYield);
+            }
+            assertThrows(VensysUnavailableException.class, client::getMeanEnergyYield);
+
+            assertEquals(5, stub.getCalls());
+            assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreakerState());
+        }
+
+        @Test
+        @DisplayName("Tries the API again after the open duration, closing once it answers")
+        void closesOnceRecovered() throws InterruptedException {
+            client = create(2, 1, Duration.ofMillis(100));
+            stub.failWith(new IllegalStateException("Connection refused"));
+            assertThrows(VensysUnavailableException.class, client::getMeanEnergyYield);
+            assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreakerState());
+
+            stub.recover();
+            Thread.sleep(200);
+
+            assertSame(MEAN_RESPONSE, client.getMeanEnergyYield());
+            assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreakerState());
+        }
+    }
+
+    @Nested
+    @DisplayName("Bulkhead")
+    class BulkheadTests {
+        @Test
+        @DisplayName("Refuses calls over the limit, counting calls whose caller has stopped waiting")
+        void limitsConcurrentCalls() {
+            client = create(1, 5, Duration.ofMinutes(1));
+            stub.delayBy(Duration.ofMillis(500));
+
+            assertThrows(VensysUnavailableException.class, client::getMeanEnergyYield); // times out, still running
+            assertThrows(VensysUnavailableException.class, client::getMeanEnergyYield);
+
+            assertEquals(1, stub.getCalls());
+        }
+
+        @Test
+        @DisplayName("Gives back the permit of a call whose caller stopped waiting before it started")
+        void releasesPermitOfCallCancelledBeforeStarting() {
+            client = create(1, 5, Duration.ofMinutes(1));
+            ExecutorService callers = Executors.newSingleThreadExecutor();
+            var busy = new CountDownLatch(1);
+            callers.execute(() -> {
+                try {
+                    busy.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            ReflectionTestUtils.setField(client, "callers", callers);
+
+            assertThrows(VensysUnavailableException.class, client::getMeanEnergyYield); // queued until it times out
+            busy.countDown();
+
+            assertSame(MEAN_RESPONSE, client.getMeanEnergyYield());
+            assertEquals(1, stub.getCalls());
+        }
+
+        @Test
+        @DisplayName("Never has more calls in flight than the limit")
+        void neverExceedsLimit() throws Exception {
+            client = create(2, 100, Duration.ofMinutes(1));
+            stub.delayBy(Duration.ofMillis(50));
+
+            var callers = new CompletableFuture<?>[10];
+            for (int i = 0; i < callers.length; i++) {
+                callers[i] = CompletableFuture.runAsync(() -> {
+                    try {
+                        client.getCurrentPerformance();
+                    } catch (VensysUnavailableException e) {
+                        // refused by the bulkhead
+                    }
+                });
+            }
+            CompletableFuture.allOf(callers).get(5, TimeUnit.SECONDS);
+
+            assertTrue(stub.getMaxInFlight() <= 2);
+        }
+    }
+
+    private ResilientVensysClient create(final int maxConcurrentCalls, final int failureThreshold,
+                                         final Duration openDuration) {
+        return new ResilientVensysClient(stub, new VensysLastKnownGoodCache(10), TIMEOUT, TIMEOUT, TIMEOUT,
+                maxConcurrentCalls, Duration.ofMillis(20), failureThreshold, openDuration);
+    }
+}
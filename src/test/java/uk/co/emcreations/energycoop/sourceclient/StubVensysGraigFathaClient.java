@@ -0,0 +1,93 @@
+package uk.co.emcreations.energycoop.sourceclient;
+
+import uk.co.emcreations.energycoop.dto.VensysMeanDataResponse;
+import uk.co.emcreations.energycoop.dto.VensysPerformanceDataResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for the Vensys API, answering with canned responses after an injected latency, or failing with an injected
+ * error. The latency ignores interrupts, like a blocked socket read, so a call keeps running after its caller gives up.
+ */
+class StubVensysGraigFathaClient implements VensysGraigFathaClient {
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile RuntimeException error;
+    private volatile VensysMeanDataResponse meanEnergyYield;
+    private volatile VensysPerformanceDataResponse performance;
+
+    StubVensysGraigFathaClient respondWith(final VensysMeanDataResponse response) {
+        this.meanEnergyYield = response;
+        return this;
+    }
+
+    StubVensysGraigFathaClient respondWith(final VensysPerformanceDataResponse response) {
+        this.performance = response;
+        return this;
+    }
+
+    StubVensysGraigFathaClient delayBy(final Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    StubVensysGraigFathaClient failWith(final RuntimeException error) {
+        this.error = error;
+        return this;
+    }
+
+    StubVensysGraigFathaClient recover() {
+        this.latency = Duration.ZERO;
+        this.error = null;
+        return this;
+    }
+
+    int getCalls() {
+        return calls.get();
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public VensysMeanDataResponse getMeanEnergyYield() {
+        respond();
+        return meanEnergyYield;
+    }
+
+    @Override
+    public VensysPerformanceDataResponse getCurrentPerformance() {
+        respond();
+        return performance;
+    }
+
+    @Override
+    public VensysPerformanceDataResponse getPerformance(final long from, final long to) {
+        respond();
+        return performance;
+    }
+
+    private void respond() {
+        calls.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            long deadline = System.nanoTime() + latency.toNanos();
+            while (System.nanoTime() < deadline) {
+                try {
+                    Thread.sleep(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+                } catch (InterruptedException e) {
+                    // keep blocking, as a socket read would
+                }
+            }
+            if (null != error) {
+                throw error;
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
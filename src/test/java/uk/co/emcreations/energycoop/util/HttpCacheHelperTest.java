@@ -0,0 +1,96 @@
+package uk.co.emcreations.energycoop.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.CacheControl;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.web.context.request.ServletWebRequest;
+import uk.co.emcreations.energycoop.model.SiteDataVersion;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpCacheHelperTest {
+    private static final SiteDataVersion VERSION = new SiteDataVersion("v1", Instant.parse("2025-01-01T00:00:00Z"));
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 15);
+
+    @Test
+    @DisplayName("checkNotModified sets the validators and Cache-Control on a fresh request")
+    void checkNotModified_setsHeaders() {
+        var response = new MockHttpServletResponse();
+
+        boolean notModified = HttpCacheHelper.checkNotModified(request(null, response), VERSION,
+                CacheControl.noCache().cachePrivate(), "user-1");
+
+        assertFalse(notModified);
+        assertEquals("no-cache, private", response.getHeader("Cache-Control"));
+        assertTrue(response.getHeader("ETag").startsWith("\""));
+        assertEquals(VERSION.lastModified().toEpochMilli(), response.getDateHeader("Last-Modified"));
+    }
+
+    @Test
+    @DisplayName("checkNotModified returns true for a matching ETag")
+    void checkNotModified_matchingETag() {
+        var first = new MockHttpServletResponse();
+        HttpCacheHelper.checkNotModified(request(null, first), VERSION, CacheControl.noCache(), "user-1");
+        var second = new MockHttpServletResponse();
+
+        assertTrue(HttpCacheHelper.checkNotModified(request(first.getHeader("ETag"), second), VERSION,
+                CacheControl.noCache(), "user-1"));
+        assertEquals(304, second.getStatus());
+    }
+
+    @Test
+    @DisplayName("checkNotModified gives different variants different ETags")
+    void checkNotModified_variantsDiffer() {
+        var first = new MockHttpServletResponse();
+        var second = new MockHttpServletResponse();
+
+        HttpCacheHelper.checkNotModified(request(null, first), VERSION, CacheControl.noCache(), "user-1");
+        HttpCacheHelper.checkNotModified(request(null, second), VERSION, CacheControl.noCache(), "user-2");
+
+        assertNotEquals(first.getHeader("ETag"), second.getHeader("ETag"));
+    }
+
+    @Test
+    @DisplayName("forRange lets clients reuse settled ranges for the max age, without marking them immutable")
+    void forRange_settled() {
+        assertEquals("max-age=86400, private",
+                HttpCacheHelper.forRange(TODAY.minusDays(2), TODAY, Duration.ofDays(1)).getHeaderValue());
+    }
+
+    @Test
+    @DisplayName("forRange makes clients revalidate ranges including yesterday or today")
+    void forRange_notSettled() {
+        assertEquals("no-cache, private",
+                HttpCacheHelper.forRange(TODAY.minusDays(1), TODAY, Duration.ofDays(1)).getHeaderValue());
+        assertEquals("no-cache, private", HttpCacheHelper.forRange(TODAY, TODAY, Duration.ofDays(1)).getHeaderValue());
+    }
+
+    @Test
+    @DisplayName("untilNext sets max-age to the time until the schedule next runs")
+    void untilNext_maxAge() {
+        var now = ZonedDateTime.of(2025, 6, 15, 10, 5, 0, 0, ZoneOffset.UTC);
+
+        assertEquals("max-age=615, private",
+                HttpCacheHelper.untilNext(CronExpression.parse("15 */15 * * * *"), now).getHeaderValue());
+    }
+
+    private static ServletWebRequest request(final String ifNoneMatch, final MockHttpServletResponse response) {
+        var request = new MockHttpServletRequest("GET", "/");
+        if (null != ifNoneMatch) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response);
+    }
+}
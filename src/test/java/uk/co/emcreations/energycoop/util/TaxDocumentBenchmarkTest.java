@@ -0,0 +1,139 @@
+package uk.co.emcreations.energycoop.util;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import uk.co.emcreations.energycoop.model.Site;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares rendering with the shared template against the previous build-everything-per-call renderer, reproduced
+ * below as the baseline. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class TaxDocumentBenchmarkTest {
+    private static final int WARMUP_DOCUMENTS = 500;
+    private static final int MEASURED_DOCUMENTS = 2_000;
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 12, 31);
+
+    @Test
+    @DisplayName("Template rendering versus building every document from scratch")
+    void templateVersusBaseline(final TestReporter reporter) throws IOException {
+        IntFunction<byte[]> baseline = i -> renderBaseline("member-" + i, 1234.56 + i, 1000 + i, 100, 12.34);
+        IntFunction<byte[]> template = i -> TaxDocument.generateTaxDocument(Site.GRAIG_FATHA, "member-" + i,
+                FROM, TO, 1234.56 + i, 1000 + i, 100, 12.34);
+
+        assertEquals(withoutGenerationTime(baseline.apply(1)), withoutGenerationTime(template.apply(1)));
+
+        Result before = measure(baseline);
+        Result after = measure(template);
+
+        reporter.publishEntry("documents", String.valueOf(MEASURED_DOCUMENTS));
+        reporter.publishEntry("baseline", before.describe());
+        reporter.publishEntry("template", after.describe());
+    }
+
+    private static Result measure(final IntFunction<byte[]> renderer) {
+        for (int i = 0; i < WARMUP_DOCUMENTS; i++) {
+            renderer.apply(i);
+        }
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_DOCUMENTS; i++) {
+            renderer.apply(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        return new Result(elapsed / 1_000.0 / MEASURED_DOCUMENTS, allocated / MEASURED_DOCUMENTS);
+    }
+
+    private static String withoutGenerationTime(final byte[] pdfBytes) {
+        try (PDDocument document = Loader.loadPDF(pdfBytes)) {
+            return new PDFTextStripper().getText(document).replaceAll("Generation time: \\S+", "");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // The renderer as it was before templates: a new document, font and layout for every call
+    private static byte[] renderBaseline(final String userId, final double totalSavingsAmount,
+                                         final double currentShares, final double withdrawnShares,
+                                         final double withdrawnCapital) {
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream(); var document = new PDDocument()) {
+            var info = document.getDocumentInformation();
+            info.setAuthor("Energy Co-op");
+            info.setCreator("Energy Co-op");
+            info.setTitle("Tax Document (" + Site.GRAIG_FATHA + ") " + FROM + " to " + TO);
+            info.setSubject("Tax Document for " + Site.GRAIG_FATHA + ".");
+
+            var page = new PDPage();
+            document.addPage(page);
+            var font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            float leading = 1.5f * 12;
+
+            List<String> bodyLines = List.of(
+                    "Generation time: " + LocalDateTime.now(),
+                    "Produced for user: " + userId,
+                    "Period: " + FROM + " to " + TO,
+                    "",
+                    "Brought forward shares: " + String.format("%,.0f", currentShares),
+                    "Shares withdrawn: " + String.format("%,.0f", withdrawnShares),
+                    "Carried forward shares: " + String.format("%,.0f", currentShares - withdrawnShares),
+                    "",
+                    "Total savings: £" + String.format("%,.2f", totalSavingsAmount),
+                    "Capital withdrawn: £" + String.format("%,.2f", withdrawnCapital),
+                    "Interest income: £" + String.format("%,.2f", totalSavingsAmount - withdrawnCapital),
+                    "",
+                    "This document is intended for informational purposes only.",
+                    "Please consult a tax professional for advice regarding your specific situation."
+            );
+
+            try (var cs = new PDPageContentStream(document, page)) {
+                cs.beginText();
+                cs.setFont(font, 16);
+                cs.newLineAtOffset(page.getMediaBox().getLowerLeftX() + 75, page.getMediaBox().getUpperRightY() - 75);
+                cs.showText("Energy Co-op (" + Site.GRAIG_FATHA + ") Tax Document");
+                cs.newLineAtOffset(0, -leading);
+                cs.newLineAtOffset(0, -leading);
+                cs.setFont(font, 12);
+                for (String line : bodyLines) {
+                    cs.showText(line);
+                    cs.newLineAtOffset(0, -leading);
+                }
+                cs.endText();
+            }
+
+            document.save(os);
+            return os.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private record Result(double microsPerDocument, long bytesPerDocument) {
+        String describe() {
+            return "%.1f us/doc, %d bytes allocated/doc".formatted(microsPerDocument, bytesPerDocument);
+        }
+    }
+}
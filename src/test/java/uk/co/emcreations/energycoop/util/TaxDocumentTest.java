@@ -8,8 +8,10 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import uk.co.emcreations.energycoop.model.Site;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -155,6 +157,63 @@ class TaxDocumentTest {
         }
     }
 
+    @Nested
+    @DisplayName("Template tests")
+    class TemplateTests {
+        @Test
+        @DisplayName("templateFor prepares each site's template once")
+        void templateFor_reusesTemplate() {
+            assertSame(TaxDocument.templateFor(Site.GRAIG_FATHA), TaxDocument.templateFor(Site.GRAIG_FATHA));
+        }
+
+        @Test
+        @DisplayName("A template renders each member's own values")
+        void render_rendersMemberValues() throws IOException {
+            var template = TaxDocument.templateFor(Site.GRAIG_FATHA);
+
+            String first = extractPdfContent(template.render("member-1", LocalDate.of(2025, 1, 1),
+                    LocalDate.of(2025, 12, 31), 10.0, 100, 0, 0));
+            String second = extractPdfContent(template.render("member-2", LocalDate.of(2024, 1, 1),
+                    LocalDate.of(2024, 12, 31), 20.5, 200, 50, 5.25));
+
+            assertTrue(first.contains("Produced for user: member-1"));
+            assertTrue(first.contains("Total savings: £10.00"));
+            assertTrue(second.contains("Produced for user: member-2"));
+            assertTrue(second.contains("Period: 2024-01-01 to 2024-12-31"));
+            assertTrue(second.contains("Carried forward shares: 150"));
+            assertTrue(second.contains("Interest income: £15.25"));
+            assertFalse(second.contains("member-1"));
+        }
+
+        @Test
+        @DisplayName("Renders straight to an output stream and leaves it open")
+        void render_writesToOutputStream() throws IOException {
+            var closed = new AtomicBoolean();
+            var os = new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    closed.set(true);
+                }
+            };
+
+            TaxDocument.templateFor(Site.GRAIG_FATHA).render("test-user", LocalDate.of(2025, 1, 1),
+                    LocalDate.of(2025, 12, 31), 10.0, 100, 0, 0, os);
+
+            assertFalse(closed.get());
+            assertTrue(extractPdfContent(os.toByteArray()).contains("Produced for user: test-user"));
+        }
+
+        @Test
+        @DisplayName("Rounds half-up like String.format")
+        void render_roundsHalfUp() throws IOException {
+            String content = extractPdfContent(TaxDocument.generateTaxDocument(Site.GRAIG_FATHA, "test-user",
+                    LocalDate.now(), LocalDate.now(), 0.125, 2.5, 0, 0));
+
+            assertTrue(content.contains("Total savings: £0.13"));
+            assertTrue(content.contains("Brought forward shares: 3"));
+        }
+    }
+
     // Helper method to extract text content from PDF bytes
     private String extractPdfContent(byte[] pdfBytes) throws IOException {
         try (PDDocument document = Loader.loadPDF(pdfBytes)) {
@@ -0,0 +1,66 @@
+package uk.co.emcreations.energycoop.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    @DisplayName("Allows a burst up to the capacity, then reports how long until the next token")
+    void tryAcquire_allowsBurst() {
+        var bucket = new TokenBucket(2, 3, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire());
+        }
+
+        long wait = bucket.tryAcquire();
+        assertTrue(Math.abs(TimeUnit.MILLISECONDS.toNanos(500) - wait) <= 1, "half a second until the next token: " + wait);
+    }
+
+    @Test
+    @DisplayName("Refills at the configured rate, never beyond the capacity")
+    void tryAcquire_refillsAtRate() {
+        var bucket = new TokenBucket(2, 3, now::get);
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire();
+        }
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(0 < bucket.tryAcquire());
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire());
+        }
+        assertTrue(0 < bucket.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Waits for a token when the bucket is empty")
+    void acquire_waitsForToken() throws InterruptedException {
+        var bucket = new TokenBucket(20, 1);
+        bucket.acquire();
+
+        long start = System.nanoTime();
+        bucket.acquire();
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    @DisplayName("Rejects a rate or capacity which could never allow a call")
+    void constructor_rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+    }
+}